@@ -1,5 +1,7 @@
 package mqo_chimera.benchmark;
 
+import mqo_chimera.testcases.ChainBreakResolution;
+
 /**
  * Describes which test cases have to be generated and solved.
  * 
@@ -34,6 +36,14 @@ public class BenchmarkConfiguration {
 	 * Number of samples that D-Wave takes per gauge transformation.
 	 */
 	public static int nrSamplesPerTransformation = 100;
+	/**
+	 * How plan variables are derived from D-Wave samples whose chains are broken.
+	 */
+	public static ChainBreakResolution chainBreakResolution = ChainBreakResolution.MAJORITY_VOTE;
+	/**
+	 * Whether D-Wave samples are polished by steepest descent (in addition to evaluating raw samples).
+	 */
+	public static boolean polishSamples = true;
 	/**
 	 * The considered test case classes (characterized by a specific number of queries, query plans per query etc.).
 	 */
@@ -1,14 +1,25 @@
 package mqo_chimera.dwave;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import mqo_chimera.benchmark.BenchmarkConfiguration;
 import mqo_chimera.benchmark.TestcaseClass;
 import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.SpinVector;
+import mqo_chimera.solver.SteepestDescent;
+import mqo_chimera.testcases.ChainBreakResolution;
+import mqo_chimera.testcases.ChimeraMqoProblem;
 import mqo_chimera.testcases.QuadraticMqoSolution;
 import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.RandomUtil;
 
 /**
  * Reads solutions produced by D-Wave, calculates the energy level, and compares with the
@@ -26,39 +37,14 @@ public class DwavePostprocessing {
 	 * @throws Exception 
 	 */
 	public static boolean[][] readSolutions(String solutionPath) throws Exception {
-		// Dimension variables
-		int nrSamples = BenchmarkConfiguration.nrSamplesPerTransformation;
-		int nrQubits = 1152;
 		// This will contain the result - first index is the sample, the second the qubit
-		boolean[][] qubitValues = new boolean[nrSamples][nrQubits];
-		// Open solution file
-		FileReader fileReader = new FileReader(solutionPath);
-		BufferedReader bufferedReader = new BufferedReader(fileReader);
-		// Iterate over the number of samples per gauge transformation
-		for (int sampleCtr=0; sampleCtr<nrSamples; ++sampleCtr) {
-			// Skip introductory lines
-			bufferedReader.readLine();	// Line stating solution energy
-			bufferedReader.readLine();	// Line stating solution length
-			bufferedReader.readLine();	// Line stating number of occurrences
-			bufferedReader.readLine();	// header
-			// Read qubit values one after the other
-			for (int qubitIndex=0; qubitIndex<nrQubits; ++qubitIndex) {
-				// Read line representing assignment for one qubit
-				String line = bufferedReader.readLine();
-				// Values are separated by comma
-				String[] splits = line.split(",");
-				// Read values
-				Integer qubitIndexRead = Integer.parseInt(splits[0]);
-				Integer qubitValueRead = Integer.parseInt(splits[1]);
-				// Make sure that read qubit value corresponds to expected one
-				assert(qubitIndexRead.equals(qubitIndex));
-				// Transform integer value into Boolean value
-				qubitValues[sampleCtr][qubitIndex] = qubitValueRead.equals(1) ? true : false;
-			}			
-		}
-		// Close solution file
-		bufferedReader.close();
-		// Return solution
+		final boolean[][] qubitValues = new boolean[BenchmarkConfiguration.nrSamplesPerTransformation][];
+		new SolutionStream(solutionPath).forEachSample(qubitValues.length, new SampleConsumer() {
+			@Override
+			public void accept(int sampleIndex, SpinVector sampleValues) {
+				qubitValues[sampleIndex] = sampleValues.toBooleans();
+			}
+		});
 		return qubitValues;
 	}
 	/**
@@ -70,84 +56,256 @@ public class DwavePostprocessing {
 	 * @return						solution to non-transformed problem
 	 */
 	public static boolean[] transformBack(boolean[] solutionToTransformed, boolean[] transformation) {
-		// Obtain number of spins
-		int nrSpins = solutionToTransformed.length;
-		assert(nrSpins == transformation.length);
-		// Will contain result of this function
-		boolean[] originalSolution = new boolean[nrSpins];
-		// Iterate over solution spins and inverse them depending on the transformation
-		for (int spin=0; spin<nrSpins; ++spin) {
-			originalSolution[spin] = transformation[spin] ? 
-					solutionToTransformed[spin] : !solutionToTransformed[spin];
-		}
-		return originalSolution;
+		assert(solutionToTransformed.length == transformation.length);
+		// Inverse spins depending on the transformation
+		SpinVector originalSolution = SpinVector.fromBooleans(solutionToTransformed);
+		originalSolution.xor(SpinVector.gaugeMask(transformation));
+		return originalSolution.toBooleans();
 	}
 
+	/**
+	 * Returns the path of the file containing the solutions for one test case and gauge
+	 * transformation.
+	 * 
+	 * @param directory				directory containing solution files (ending with a slash)
+	 * @param configurationID		identifies the test case class
+	 * @param testcaseIndex			index of the test case within its class
+	 * @param transformationIndex	index of the gauge transformation
+	 * @return						path to the solution file
+	 */
+	static String solutionPath(String directory, String configurationID, 
+			int testcaseIndex, int transformationIndex) {
+		return directory + configurationID + "_ising" + 
+				"_T" + testcaseIndex + "_G" + transformationIndex + "_solutions";
+	}
+	/**
+	 * Reads the solutions obtained for one gauge transformation into a batch of packed
+	 * vectors, transforming them back to solutions of the original problem.
+	 * 
+	 * @param mapping				maps variables to qubits and stores the gauge transformations
+	 * @param transformationIndex	index of the gauge transformation to which the samples refer
+	 * @param solutionPath			path to the solution file generated by D-Wave
+	 * @return						qubit values of each sample in the order of the file
+	 * @throws IOException			if the file contains less samples than configured
+	 * @throws Exception
+	 */
+	static SpinVector[] readSamples(ChimeraMqoMapping mapping, int transformationIndex, 
+			String solutionPath) throws Exception {
+		final SpinVector[] samples = new SpinVector[BenchmarkConfiguration.nrSamplesPerTransformation];
+		final SpinVector gaugeMask = SpinVector.gaugeMask(mapping.gaugeTransformations[transformationIndex]);
+		int nrSamples = new SolutionStream(solutionPath, mapping.nrQubits).forEachSample(samples.length, new SampleConsumer() {
+			@Override
+			public void accept(int sampleIndex, SpinVector transformedQubitValues) {
+				// Copy (the stream reuses its vector) and transform back to original problem
+				samples[sampleIndex] = new SpinVector(transformedQubitValues).xor(gaugeMask);
+			}
+		});
+		if (nrSamples != samples.length) {
+			throw new IOException("Solution file " + solutionPath + " contains " + 
+					nrSamples + " samples instead of " + samples.length);
+		}
+		return samples;
+	}
+	/**
+	 * Derives plan selections for a batch of samples (resolving broken chains) and
+	 * calculates the execution cost of all samples in one batch.
+	 * 
+	 * @param mapping		maps variables to qubits
+	 * @param samples		qubit values of each sample, referring to the original problem
+	 * @param resolution	how to resolve chains whose qubits have different values
+	 * @param random		random generator used for resolving broken chains
+	 * @return				execution cost for each sample in the order of the batch
+	 */
+	static double[] sampleCosts(ChimeraMqoMapping mapping, SpinVector[] samples, 
+			ChainBreakResolution resolution, SplittableRandom random) {
+		// Extract selected plans and calculate execution cost for all samples at once
+		int[][] planSelections = QuadraticMqoSolution.extractPlanSelections(
+				mapping, samples, resolution, random);
+		return mapping.problem.executionCosts(planSelections);
+	}
+	/**
+	 * Polishes one sample by steepest descent and returns the execution cost of the
+	 * resulting plan selections. We descend on the logical level from the decoded sample
+	 * and, alternatively, on the qubit level from the raw sample followed by the logical
+	 * level, keeping the cheaper result. Descending on the qubit level first lets the
+	 * energy function repair broken chains and violated selection constraints before
+	 * decoding, while a qubit-level descent after the logical one could not improve
+	 * (flipping single chain qubits only breaks chains).
+	 * 
+	 * @param mapping		maps variables to qubits
+	 * @param descent		performs steepest descent on the qubits of the mapping
+	 * @param sample		qubit values of the raw sample (not modified)
+	 * @param resolution	how to resolve chains whose qubits have different values
+	 * @param random		random generator used for resolving broken chains
+	 * @return				execution cost of plan selections in a local optimum
+	 */
+	static double polishSample(ChimeraMqoMapping mapping, SteepestDescent descent, SpinVector sample, 
+			ChainBreakResolution resolution, SplittableRandom random) {
+		ChimeraMqoProblem problem = mapping.problem;
+		// Descend on the logical level from the decoded sample
+		int[] logicalSelections = QuadraticMqoSolution.extractPlanSelections(
+				mapping, sample, resolution, random);
+		SteepestDescent.descendPlans(problem, logicalSelections);
+		// Descend on the qubit level and then on the logical level
+		SpinVector qubitValues = new SpinVector(sample);
+		descent.descendQubits(qubitValues);
+		int[] qubitSelections = QuadraticMqoSolution.extractPlanSelections(
+				mapping, qubitValues, resolution, random);
+		SteepestDescent.descendPlans(problem, qubitSelections);
+		// Keep cheaper plan selections
+		return Math.min(problem.executionCost(logicalSelections), problem.executionCost(qubitSelections));
+	}
+	/**
+	 * Polishes each sample of a batch by steepest descent and returns the execution
+	 * cost of all polished samples.
+	 * 
+	 * @param mapping		maps variables to qubits
+	 * @param descent		performs steepest descent on the qubits of the mapping
+	 * @param samples		qubit values of each sample, referring to the original problem
+	 * @param resolution	how to resolve chains whose qubits have different values
+	 * @param random		random generator used for resolving broken chains
+	 * @return				execution cost for each polished sample in the order of the batch
+	 */
+	static double[] polishedSampleCosts(ChimeraMqoMapping mapping, SteepestDescent descent, 
+			SpinVector[] samples, ChainBreakResolution resolution, SplittableRandom random) {
+		double[] costs = new double[samples.length];
+		for (int sampleCtr=0; sampleCtr<samples.length; ++sampleCtr) {
+			costs[sampleCtr] = polishSample(mapping, descent, samples[sampleCtr], resolution, random);
+		}
+		return costs;
+	}
+	/**
+	 * Reads the solutions obtained for one gauge transformation once and calculates the
+	 * execution cost of all raw samples and (optionally) of all polished samples.
+	 * 
+	 * @param mapping				maps variables to qubits and stores the gauge transformations
+	 * @param descent				performs steepest descent on the qubits of the mapping or null
+	 * 								if samples are not polished
+	 * @param transformationIndex	index of the gauge transformation to which the samples refer
+	 * @param solutionPath			path to the solution file generated by D-Wave
+	 * @param resolution			how to resolve chains whose qubits have different values
+	 * @param random				random generator used for resolving broken chains
+	 * @return						execution costs of raw samples at index 0, of polished samples
+	 * 								at index 1 (only if a descent is given)
+	 * @throws Exception
+	 */
+	static double[][] transformationCosts(ChimeraMqoMapping mapping, SteepestDescent descent, 
+			int transformationIndex, String solutionPath, ChainBreakResolution resolution, 
+			SplittableRandom random) throws Exception {
+		SpinVector[] samples = readSamples(mapping, transformationIndex, solutionPath);
+		double[] rawCosts = sampleCosts(mapping, samples, resolution, random);
+		if (descent == null) {
+			return new double[][] {rawCosts};
+		}
+		return new double[][] {rawCosts, polishedSampleCosts(mapping, descent, samples, resolution, random)};
+	}
+	/**
+	 * Writes the cost curve of one test case: the best execution cost found after each
+	 * sample, counting samples over all gauge transformations in order. Elapsed time only
+	 * accounts for annealing and read out (not for classical polishing of samples).
+	 * 
+	 * @param curvePath		path of the curve file to create
+	 * @param costs			execution costs of all samples for each gauge transformation and curve
+	 * @param curveIndex	selects the costs to log (0 for raw and 1 for polished samples)
+	 * @param logEveryIth	determines which fraction of cost samples to log
+	 * @throws Exception
+	 */
+	static void writeCostCurve(String curvePath, List<Future<double[][]>> costs, 
+			int curveIndex, int logEveryIth) throws Exception {
+		// Open curve file
+		PrintWriter curveWriter = new PrintWriter(curvePath);
+		// Write curve header
+		curveWriter.println("elapsedMillis,bestCost");
+		// Initialize best cost value
+		double bestCost = Double.POSITIVE_INFINITY;
+		// Counts the total number of samples over all gauge transformations
+		int sampleCtr = 1;
+		// Process solutions obtained for different gauge transformations
+		for (Future<double[][]> transformationCosts : costs) {
+			double[] sampleCosts = transformationCosts.get()[curveIndex];
+			for (int gaugeSampleCtr=0; gaugeSampleCtr<sampleCosts.length; ++gaugeSampleCtr) {
+				// Calculate minimal execution cost
+				bestCost = Math.min(bestCost, sampleCosts[gaugeSampleCtr]);
+				// Calculate elapsed number of milliseconds - take into account annealing time and read out time
+				double elapsedMillis = 0.247 * 2 * sampleCtr;
+				// Write execution cost to file
+				if ((gaugeSampleCtr % logEveryIth) == 0) {
+					curveWriter.println(elapsedMillis + "," + bestCost);
+				}
+				// Advance total sample counter
+				++sampleCtr;
+			}
+		}
+		curveWriter.close();
+	}
+	/**
+	 * Generates cost curves for all test cases, for raw and (optionally) for polished
+	 * samples. Solution files are parsed and evaluated on a thread pool (one task per
+	 * test case and gauge transformation, calculating the costs for both curves from a
+	 * single read of the file) while the main thread reads mappings and writes curve files
+	 * in the original order.
+	 * 
+	 * @param args	optionally the directory containing the solution files, also receiving
+	 * 				the curve files (default: directory with the solutions produced by D-Wave)
+	 * @throws Exception
+	 */
 	public static void main(String[] args) throws Exception {
 		// Determines which fraction of cost samples to log
 		final int logEveryIth = 10;
+		// Directory containing solutions, e.g. "mqo/metropolis/" for classically generated samples
+		String solutionDirectory = args.length > 0 ? args[0] : "mqo/dwave/";
+		if (!solutionDirectory.endsWith("/")) {
+			solutionDirectory += "/";
+		}
 		// Initialize description of Ames machine
 		AmesUtil.initAmes();
-		// Iterate over test case classes
-		for (TestcaseClass testClass : BenchmarkConfiguration.testcaseClasses) {
-			// Generate path to file storing solution quality information
-			String configurationID = testClass.configurationID();
-			// Iterate over test cases
-			for (int testcaseCtr=0; testcaseCtr<BenchmarkConfiguration.nrTestcases; ++testcaseCtr) {
-				// Generate path to test case
-				String testcasePath = "mqo/testcases/" + configurationID + "T" + testcaseCtr;
-				// Read test case from disc
-				ChimeraMqoMapping quboMapping = ChimeraMqoMapping.readMapping(testcasePath);
-				// Transform into Ising mapping
-				ChimeraMqoMapping isingMapping = quboMapping.toIsing();
-				// Generate path to curve file
-				String costCurvePath = "mqo/dwave/" + configurationID + "_T" + testcaseCtr + "_costCurve";
-				// Open curve file
-				PrintWriter curveWriter = new PrintWriter(costCurvePath);
-				// Write curve header
-				curveWriter.println("elapsedMillis,bestCost");
-				// Initialize best cost value
-				double bestCost = Double.POSITIVE_INFINITY;
-				// Counts the total number of samples over all gauge transformations
-				int sampleCtr = 1;
-				// Process solutions obtained for different gauge transformations
-				for (int transformationCtr=0; transformationCtr<BenchmarkConfiguration.nrTransformations; ++transformationCtr) {
-					// Generate path to solution file generated by D-Wave solver
-					String dwaveSolutionPath = "mqo/dwave/" + configurationID + "_ising" + 
-							"_T" + testcaseCtr + "_G" + transformationCtr + "_solutions";
-					// Read solutions to transformed problem from disc
-					boolean[][] transformedDwaveQubitValues = readSolutions(dwaveSolutionPath);
-					// Calculate execution cost associated with each solution
-					for (int gaugeSampleCtr=0; gaugeSampleCtr<BenchmarkConfiguration.nrSamplesPerTransformation; 
-							++gaugeSampleCtr) {
-						// Obtain gauge transformation to which the solution refers
-						boolean[] gaugeTransformation = isingMapping.gaugeTransformations[transformationCtr];
-						// Transform solution back to solution for original problem
-						boolean[] dwaveQubitValues = transformBack(transformedDwaveQubitValues[gaugeSampleCtr], gaugeTransformation);
-						// Calculate plan selections
-						int[] planSelections = new QuadraticMqoSolution(quboMapping, dwaveQubitValues).planSelections;
-						// Calculate execution cost
-						double executionCost = isingMapping.problem.executionCost(planSelections);
-						// Calculate minimal execution cost
-						bestCost = Math.min(bestCost, executionCost);
-						// Calculate elapsed number of milliseconds - take into account annealing time and read out time
-						double elapsedMillis = 0.247 * 2 * sampleCtr;
-						// Write execution cost to file
-						if ((gaugeSampleCtr % logEveryIth) == 0) {
-							curveWriter.println(elapsedMillis + "," + bestCost);							
-						}
-						// Advance total sample counter
-						++sampleCtr;
+		final ChainBreakResolution resolution = BenchmarkConfiguration.chainBreakResolution;
+		SplittableRandom random = new SplittableRandom(RandomUtil.random.nextLong());
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			// Schedule evaluation of all solution files, keeping test cases in order
+			List<String> curvePrefixes = new ArrayList<String>();
+			List<List<Future<double[][]>>> allCosts = new ArrayList<List<Future<double[][]>>>();
+			for (TestcaseClass testClass : BenchmarkConfiguration.testcaseClasses) {
+				String configurationID = testClass.configurationID();
+				for (int testcaseCtr=0; testcaseCtr<BenchmarkConfiguration.nrTestcases; ++testcaseCtr) {
+					// Read test case from disc (gauge transformations are shared with the Ising mapping)
+					String testcasePath = "mqo/testcases/" + configurationID + "T" + testcaseCtr;
+					final ChimeraMqoMapping quboMapping = ChimeraMqoMapping.readMapping(testcasePath);
+					final SteepestDescent descent = BenchmarkConfiguration.polishSamples ? 
+							new SteepestDescent(quboMapping) : null;
+					List<Future<double[][]>> testcaseCosts = new ArrayList<Future<double[][]>>();
+					for (int transformationCtr=0; transformationCtr<BenchmarkConfiguration.nrTransformations; ++transformationCtr) {
+						// Generate path to solution file generated by D-Wave solver
+						final int transformationIndex = transformationCtr;
+						final String dwaveSolutionPath = solutionPath(solutionDirectory, 
+								configurationID, testcaseCtr, transformationCtr);
+						final SplittableRandom taskRandom = random.split();
+						testcaseCosts.add(executor.submit(new Callable<double[][]>() {
+							@Override
+							public double[][] call() throws Exception {
+								return transformationCosts(quboMapping, descent, transformationIndex, 
+										dwaveSolutionPath, resolution, taskRandom);
+							}
+						}));
 					}
-					// notify user of progress
-					System.out.println("Processed transformation " + transformationCtr);
+					curvePrefixes.add(solutionDirectory + configurationID + "_T" + testcaseCtr);
+					allCosts.add(testcaseCosts);
+				}
+			}
+			// Write curve files in order as results become available
+			for (int testcaseCtr=0; testcaseCtr<curvePrefixes.size(); ++testcaseCtr) {
+				String curvePrefix = curvePrefixes.get(testcaseCtr);
+				List<Future<double[][]>> testcaseCosts = allCosts.get(testcaseCtr);
+				writeCostCurve(curvePrefix + "_costCurve", testcaseCosts, 0, logEveryIth);
+				if (BenchmarkConfiguration.polishSamples) {
+					writeCostCurve(curvePrefix + "_polishedCostCurve", testcaseCosts, 1, logEveryIth);
 				}
-				curveWriter.close();
 				// notify user of progress
-				System.out.println("Processed test case nr. " + testcaseCtr);
+				System.out.println("Processed " + curvePrefix);
 			}
-			// Progress output
-			System.out.println("Processed test case class " + testClass);
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
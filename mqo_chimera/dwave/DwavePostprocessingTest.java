@@ -0,0 +1,126 @@
+package mqo_chimera.dwave;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.SpinVector;
+import mqo_chimera.solver.SteepestDescent;
+import mqo_chimera.testcases.ChainBreakResolution;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.QuadraticMqoSolution;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class DwavePostprocessingTest {
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		int oldNrSamples = BenchmarkConfiguration.nrSamplesPerTransformation;
+		BenchmarkConfiguration.nrSamplesPerTransformation = 20;
+		File solutionFile = File.createTempFile("solutions", null);
+		File curveFile = File.createTempFile("curve", null);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// Generate samples for a gauge-transformed problem
+			final ChimeraMqoMapping quboMapping = ChimeraFactory.produceLoopsTestcase(50, 2, 20, 5, 1, false);
+			quboMapping.generateGaugeTransformations();
+			ChimeraMqoMapping isingMapping = quboMapping.toIsing();
+			MetropolisSampler sampler = new MetropolisSampler(isingMapping, 
+					isingMapping.gaugeTransformations[0], 10, 0.1, 1);
+			sampler.samplesToFile(solutionFile.getPath(), 20, new SplittableRandom(0));
+			// Cost of samples matches cost of solutions read separately
+			final String solutionPath = solutionFile.getPath();
+			SpinVector[] samples = DwavePostprocessing.readSamples(quboMapping, 0, solutionPath);
+			double[] costs = DwavePostprocessing.sampleCosts(quboMapping, samples, 
+					ChainBreakResolution.FIRST_QUBIT, null);
+			QuadraticMqoSolution[] solutions = QuadraticMqoSolution.readTransformedTextSolutions(
+					solutionPath, quboMapping, 0);
+			for (int sampleCtr=0; sampleCtr<20; ++sampleCtr) {
+				assertEquals(solutions[sampleCtr].executionCost, costs[sampleCtr], TestUtil.DOUBLE_TOLERANCE);
+			}
+			// Resolving broken chains by majority vote matches solutions resolved the same way
+			double[] majorityCosts = DwavePostprocessing.sampleCosts(quboMapping, samples, 
+					ChainBreakResolution.MAJORITY_VOTE, null);
+			for (int sampleCtr=0; sampleCtr<20; ++sampleCtr) {
+				QuadraticMqoSolution solution = new QuadraticMqoSolution(quboMapping, 
+						solutions[sampleCtr].qubitValues, ChainBreakResolution.MAJORITY_VOTE, null);
+				assertEquals(solution.executionCost, majorityCosts[sampleCtr], TestUtil.DOUBLE_TOLERANCE);
+			}
+			// Polishing never increases cost
+			double[] polishedCosts = DwavePostprocessing.polishedSampleCosts(quboMapping, 
+					new SteepestDescent(quboMapping), samples, ChainBreakResolution.MAJORITY_VOTE, null);
+			for (int sampleCtr=0; sampleCtr<20; ++sampleCtr) {
+				assertTrue(polishedCosts[sampleCtr] <= majorityCosts[sampleCtr] + TestUtil.DOUBLE_TOLERANCE);
+			}
+			// Raw and polished costs are calculated from one read of the solution file
+			{
+				double[][] transformationCosts = DwavePostprocessing.transformationCosts(quboMapping, 
+						new SteepestDescent(quboMapping), 0, solutionPath, ChainBreakResolution.MAJORITY_VOTE, null);
+				assertEquals(2, transformationCosts.length);
+				assertArrayEquals(majorityCosts, transformationCosts[0], TestUtil.DOUBLE_TOLERANCE);
+				assertArrayEquals(polishedCosts, transformationCosts[1], TestUtil.DOUBLE_TOLERANCE);
+				assertEquals(1, DwavePostprocessing.transformationCosts(quboMapping, null, 0, 
+						solutionPath, ChainBreakResolution.MAJORITY_VOTE, null).length);
+			}
+			// Truncated solution files are rejected
+			{
+				BenchmarkConfiguration.nrSamplesPerTransformation = 21;
+				try {
+					DwavePostprocessing.readSamples(quboMapping, 0, solutionPath);
+					fail();
+				} catch (IOException e) {
+					assertTrue(e.getMessage().contains(solutionPath));
+				} finally {
+					BenchmarkConfiguration.nrSamplesPerTransformation = 20;
+				}
+			}
+			// Curve over two transformations logs every tenth sample with decreasing cost
+			List<Future<double[][]>> allCosts = new ArrayList<Future<double[][]>>();
+			for (int transformationCtr=0; transformationCtr<2; ++transformationCtr) {
+				allCosts.add(executor.submit(new Callable<double[][]>() {
+					@Override
+					public double[][] call() throws Exception {
+						return DwavePostprocessing.transformationCosts(quboMapping, null, 0, 
+								solutionPath, ChainBreakResolution.MINIMIZE_ENERGY, null);
+					}
+				}));
+			}
+			DwavePostprocessing.writeCostCurve(curveFile.getPath(), allCosts, 0, 10);
+			BufferedReader reader = new BufferedReader(new FileReader(curveFile));
+			assertEquals("elapsedMillis,bestCost", reader.readLine());
+			double lastCost = Double.POSITIVE_INFINITY;
+			int nrLines = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				double cost = Double.parseDouble(line.split(",")[1]);
+				assertTrue(cost <= lastCost);
+				lastCost = cost;
+				++nrLines;
+			}
+			reader.close();
+			assertEquals(4, nrLines);
+		} finally {
+			BenchmarkConfiguration.nrSamplesPerTransformation = oldNrSamples;
+			executor.shutdownNow();
+			solutionFile.delete();
+			curveFile.delete();
+		}
+	}
+
+}
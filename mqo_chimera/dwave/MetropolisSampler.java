@@ -0,0 +1,150 @@
+package mqo_chimera.dwave;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.SplittableRandom;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.benchmark.TestcaseClass;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.IsingModel;
+import mqo_chimera.solver.annealing.CoolingSchedule;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.RandomUtil;
+
+/**
+ * Classical stand-in for the D-Wave annealer: samples low-energy solutions of the Ising
+ * problem represented by a mapping via simulated annealing with Metropolis sweeps over
+ * all spins. Like the C program accessing D-Wave, the sampler works on the weights
+ * after applying a gauge transformation and writes samples in the format that is read by
+ * DwavePostprocessing, samples therefore refer to the transformed problem.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class MetropolisSampler {
+	/**
+	 * Value written for qubits that do not appear in the problem (like for unused qubits on D-Wave).
+	 */
+	static final int UNUSED_QUBIT_VALUE = 3;
+	/**
+	 * Directory receiving the generated solution files - kept apart from the directory
+	 * containing the solutions produced by D-Wave to avoid overwriting them.
+	 */
+	static final String SOLUTION_DIRECTORY = "mqo/metropolis/";
+	/**
+	 * The Ising problem to sample after gauge transformation.
+	 */
+	public final IsingModel model;
+	/**
+	 * Number of sweeps over all spins per sample.
+	 */
+	final int nrSweeps;
+	/**
+	 * Inverse temperature in the first sweep.
+	 */
+	final double initialBeta;
+	/**
+	 * Inverse temperature in the last sweep.
+	 */
+	final double finalBeta;
+	/**
+	 * Prepares sampling for the Ising problem represented by the given mapping, QUBO mappings
+	 * are transformed into Ising mappings first.
+	 *
+	 * @param mapping				a QUBO or Ising mapping
+	 * @param gaugeTransformation	Boolean vector indicating for each spin whether it keeps its sign
+	 * 								(true) or is inverted (false), null for no transformation
+	 * @param nrSweeps				number of sweeps over all spins per sample
+	 * @param initialBeta			inverse temperature in the first sweep
+	 * @param finalBeta				inverse temperature in the last sweep
+	 */
+	public MetropolisSampler(ChimeraMqoMapping mapping, boolean[] gaugeTransformation,
+			int nrSweeps, double initialBeta, double finalBeta) {
+		assert(nrSweeps > 0);
+		assert(initialBeta > 0 && finalBeta >= initialBeta);
+		this.model = new IsingModel(mapping, gaugeTransformation);
+		this.nrSweeps = nrSweeps;
+		this.initialBeta = initialBeta;
+		this.finalBeta = finalBeta;
+	}
+	/**
+	 * Generates one sample by annealing from a random spin assignment. Spins that do not
+	 * appear in the problem are set to zero.
+	 *
+	 * @param random	random generator
+	 * @return			vector containing +1 or -1 for each used spin and 0 for unused spins
+	 */
+	public byte[] sample(SplittableRandom random) {
+		byte[] spins = model.randomSpins(random);
+		// Temperature decreases geometrically from sweep to sweep
+		for (int sweepCtr=0; sweepCtr<nrSweeps; ++sweepCtr) {
+			double temperature = CoolingSchedule.GEOMETRIC.temperature(
+					1 / initialBeta, 1 / finalBeta, sweepCtr, nrSweeps);
+			model.sweep(spins, 1 / temperature, random);
+		}
+		return spins;
+	}
+	/**
+	 * Generates the given number of samples and writes them to a file on disc, using
+	 * the format produced by the C program that accesses D-Wave.
+	 *
+	 * @param path			path to the file to create
+	 * @param nrSamples		number of samples to generate
+	 * @param random		random generator
+	 * @throws Exception
+	 */
+	public void samplesToFile(String path, int nrSamples, SplittableRandom random) throws Exception {
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(path)));
+		for (int sampleCtr=0; sampleCtr<nrSamples; ++sampleCtr) {
+			byte[] spins = sample(random);
+			// Write introductory lines
+			writer.println("energy," + model.energy(spins));
+			writer.println("length," + model.nrSpins);
+			writer.println("occurrences,1");
+			writer.println("qubit,value");
+			// Write one line per qubit
+			for (int spin=0; spin<model.nrSpins; ++spin) {
+				int value = model.isUsed(spin) ? spins[spin] : UNUSED_QUBIT_VALUE;
+				writer.println(spin + "," + value);
+			}
+		}
+		writer.close();
+	}
+	/**
+	 * Generates solution files for all test cases and gauge transformations, named like
+	 * the solutions produced by D-Wave but stored in a separate directory. Pass that
+	 * directory to DwavePostprocessing to evaluate the generated samples.
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		// Initialize description of Ames machine
+		AmesUtil.initAmes();
+		SplittableRandom random = new SplittableRandom(RandomUtil.random.nextLong());
+		new File(SOLUTION_DIRECTORY).mkdirs();
+		// Iterate over test classes
+		for (TestcaseClass testClass : BenchmarkConfiguration.testcaseClasses) {
+			String configurationID = testClass.configurationID();
+			// Iterate over test cases
+			for (int testcaseCtr=0; testcaseCtr<BenchmarkConfiguration.nrTestcases; ++testcaseCtr) {
+				// Read test case from disc
+				String testcasePath = "mqo/testcases/" + configurationID + "T" + testcaseCtr;
+				ChimeraMqoMapping isingMapping = ChimeraMqoMapping.readMapping(testcasePath).toIsing();
+				// Iterate over gauge transformations
+				for (int transformationCtr=0; transformationCtr<BenchmarkConfiguration.nrTransformations; ++transformationCtr) {
+					boolean[] gaugeTransformation = isingMapping.gaugeTransformations[transformationCtr];
+					MetropolisSampler sampler = new MetropolisSampler(isingMapping, gaugeTransformation, 1000, 0.1, 10);
+					String solutionPath = DwavePostprocessing.solutionPath(SOLUTION_DIRECTORY, 
+							configurationID, testcaseCtr, transformationCtr);
+					sampler.samplesToFile(solutionPath, BenchmarkConfiguration.nrSamplesPerTransformation, random);
+				}
+				// Notify on progress
+				System.out.println("Sampled test case " + testcaseCtr + " of test class " + testClass);
+			}
+		}
+	}
+}
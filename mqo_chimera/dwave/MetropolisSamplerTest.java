@@ -0,0 +1,69 @@
+package mqo_chimera.dwave;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.SplittableRandom;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.IsingModel;
+import mqo_chimera.mapping.MappingType;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class MetropolisSamplerTest {
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		// Antiferromagnetic coupling with bias towards positive first spin
+		ChimeraMqoMapping mapping = new ChimeraMqoMapping(MappingType.ISING);
+		mapping.addWeight(0, 0, -1);
+		mapping.addWeight(0, 4, 0.5);
+		// Gauge transformation inverting all spins
+		boolean[] gaugeTransformation = new boolean[mapping.nrQubits];
+		SplittableRandom random = new SplittableRandom(0);
+		// Sampling without gauge transformation
+		{
+			MetropolisSampler sampler = new MetropolisSampler(mapping, null, 100, 0.1, 10);
+			byte[] spins = sampler.sample(random);
+			assertEquals(1, spins[0]);
+			assertEquals(-1, spins[4]);
+			assertEquals(0, spins[1]);
+			assertEquals(-1.5, sampler.model.energy(spins), TestUtil.DOUBLE_TOLERANCE);
+		}
+		// Sampling with gauge transformation
+		{
+			MetropolisSampler sampler = new MetropolisSampler(mapping, gaugeTransformation, 100, 0.1, 10);
+			byte[] spins = sampler.sample(random);
+			assertEquals(-1, spins[0]);
+			assertEquals(1, spins[4]);
+			assertEquals(-1.5, sampler.model.energy(spins), TestUtil.DOUBLE_TOLERANCE);
+			boolean[] original = DwavePostprocessing.transformBack(
+					IsingModel.toBooleans(spins), gaugeTransformation);
+			assertEquals(-1.5, mapping.getEnergy(original), TestUtil.DOUBLE_TOLERANCE);
+		}
+		// Samples can be read by postprocessing
+		{
+			int oldNrSamples = BenchmarkConfiguration.nrSamplesPerTransformation;
+			BenchmarkConfiguration.nrSamplesPerTransformation = 2;
+			File file = File.createTempFile("samples", null);
+			try {
+				MetropolisSampler sampler = new MetropolisSampler(mapping, gaugeTransformation, 100, 0.1, 10);
+				sampler.samplesToFile(file.getPath(), 2, random);
+				boolean[][] samples = DwavePostprocessing.readSolutions(file.getPath());
+				for (int sampleCtr=0; sampleCtr<2; ++sampleCtr) {
+					assertFalse(samples[sampleCtr][0]);
+					assertTrue(samples[sampleCtr][4]);
+				}
+			} finally {
+				BenchmarkConfiguration.nrSamplesPerTransformation = oldNrSamples;
+				file.delete();
+			}
+		}
+	}
+
+}
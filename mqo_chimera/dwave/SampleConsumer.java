@@ -0,0 +1,21 @@
+package mqo_chimera.dwave;
+
+import mqo_chimera.mapping.SpinVector;
+
+/**
+ * Processes samples one after the other while they are read from a solution file.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public interface SampleConsumer {
+	/**
+	 * Processes one sample. The vector is reused for the following samples and must be
+	 * copied if it is needed after the call returns.
+	 * 
+	 * @param sampleIndex	index of the sample within the file
+	 * @param qubitValues	packed qubit values (bit set for qubits read as one)
+	 * @throws Exception
+	 */
+	void accept(int sampleIndex, SpinVector qubitValues) throws Exception;
+}
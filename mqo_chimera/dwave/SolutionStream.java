@@ -0,0 +1,178 @@
+package mqo_chimera.dwave;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import mqo_chimera.mapping.SpinVector;
+import mqo_chimera.util.AmesUtil;
+
+/**
+ * Reads solution files in the format produced by the C program accessing D-Wave from a
+ * memory-mapped buffer. Numbers are parsed directly from the bytes and qubit values are
+ * packed into a spin vector that is handed to a consumer after each sample, samples are
+ * therefore processed while the file is read and never materialized together.
+ * 
+ * Each sample consists of four introductory lines (energy, length, number of occurrences,
+ * header) followed by one line per qubit containing qubit index and value separated by a
+ * comma. Qubits are set if their value is one. The length stated by each sample must match
+ * the expected number of qubits, malformed samples are reported by an IOException.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public class SolutionStream {
+	/**
+	 * Path of the solution file (used in error messages).
+	 */
+	final String solutionPath;
+	/**
+	 * The number of qubits that each sample must contain.
+	 */
+	final int expectedNrQubits;
+	/**
+	 * The buffer containing the file content.
+	 */
+	final MappedByteBuffer buffer;
+	/**
+	 * Current read position.
+	 */
+	int position = 0;
+	/**
+	 * Maps the given solution file into memory, samples must contain one value for each
+	 * qubit of the current topology.
+	 * 
+	 * @param solutionPath	path to the solution file
+	 * @throws Exception
+	 */
+	public SolutionStream(String solutionPath) throws Exception {
+		this(solutionPath, AmesUtil.nrQubits());
+	}
+	/**
+	 * Maps the given solution file into memory.
+	 * 
+	 * @param solutionPath		path to the solution file
+	 * @param expectedNrQubits	the number of qubits that each sample must contain
+	 * @throws Exception
+	 */
+	public SolutionStream(String solutionPath, int expectedNrQubits) throws Exception {
+		this.solutionPath = solutionPath;
+		this.expectedNrQubits = expectedNrQubits;
+		RandomAccessFile file = new RandomAccessFile(solutionPath, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			file.close();
+		}
+	}
+	/**
+	 * Reads samples one after the other and hands them to the consumer.
+	 * 
+	 * @param maxSamples	stop after reading that many samples
+	 * @param consumer		processes each sample
+	 * @return				the number of samples read (lower than maxSamples if the file ends before)
+	 * @throws IOException	if a sample is truncated or states an unexpected length
+	 * @throws Exception
+	 */
+	public int forEachSample(int maxSamples, SampleConsumer consumer) throws Exception {
+		SpinVector qubitValues = new SpinVector(expectedNrQubits);
+		int sampleCtr = 0;
+		while (sampleCtr < maxSamples && position < buffer.limit()) {
+			// Skip introductory lines except for the length
+			skipLine();				// Line stating solution energy
+			int nrQubits = parseLength(sampleCtr);	// Line stating solution length
+			if (nrQubits != expectedNrQubits) {
+				throw new IOException("Sample " + sampleCtr + " in " + solutionPath + 
+						" has length " + nrQubits + " instead of " + expectedNrQubits);
+			}
+			skipLine();				// Line stating number of occurrences
+			skipLine();				// header
+			// Read qubit values one after the other
+			for (int qubitIndex=0; qubitIndex<nrQubits; ++qubitIndex) {
+				if (position >= buffer.limit()) {
+					throw new IOException("Sample " + sampleCtr + " in " + solutionPath + 
+							" ends after " + qubitIndex + " of " + nrQubits + " qubits");
+				}
+				int qubitIndexRead = parseInt();
+				if (qubitIndexRead != qubitIndex) {
+					throw new IOException("Sample " + sampleCtr + " in " + solutionPath + 
+							" states qubit " + qubitIndexRead + " instead of " + qubitIndex);
+				}
+				++position;			// Skip comma
+				int qubitValueRead = parseInt();
+				qubitValues.set(qubitIndex, qubitValueRead == 1);
+				skipLine();
+			}
+			consumer.accept(sampleCtr, qubitValues);
+			++sampleCtr;
+		}
+		return sampleCtr;
+	}
+	/**
+	 * Parses the line stating the solution length ("length,N") and advances the position
+	 * to the beginning of the next line.
+	 * 
+	 * @param sampleIndex	index of the current sample (used in error messages)
+	 * @return				the number of qubits stated for the sample
+	 * @throws IOException	if the line does not state a length
+	 */
+	int parseLength(int sampleIndex) throws IOException {
+		int limit = buffer.limit();
+		int lineStart = position;
+		while (position < limit && buffer.get(position) != ',' && buffer.get(position) != '\n') {
+			++position;
+		}
+		// Expect a name followed by a comma and a number
+		if (position == lineStart || !Character.isLetter(buffer.get(lineStart)) || 
+				position >= limit || buffer.get(position) != ',' || 
+				position + 1 >= limit || !Character.isDigit(buffer.get(position + 1))) {
+			throw new IOException("Sample " + sampleIndex + " in " + solutionPath + 
+					" lacks the length line at byte " + lineStart);
+		}
+		++position;			// Skip comma
+		int length = parseInt();
+		skipLine();
+		return length;
+	}
+	/**
+	 * Advances the position to the beginning of the next line.
+	 */
+	void skipLine() {
+		skipUntil('\n');
+	}
+	/**
+	 * Advances the position behind the next occurrence of the given character.
+	 * 
+	 * @param character	the character to look for
+	 */
+	void skipUntil(char character) {
+		int limit = buffer.limit();
+		while (position < limit && buffer.get(position++) != character) {
+		}
+	}
+	/**
+	 * Parses an optionally signed integer starting at the current position and advances
+	 * the position behind the last digit.
+	 * 
+	 * @return	the parsed integer
+	 */
+	int parseInt() {
+		boolean negative = buffer.get(position) == '-';
+		if (negative) {
+			++position;
+		}
+		int value = 0;
+		int limit = buffer.limit();
+		while (position < limit) {
+			int digit = buffer.get(position) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			value = value * 10 + digit;
+			++position;
+		}
+		return negative ? -value : value;
+	}
+}
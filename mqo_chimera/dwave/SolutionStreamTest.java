@@ -0,0 +1,94 @@
+package mqo_chimera.dwave;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import mqo_chimera.mapping.SpinVector;
+
+import org.junit.Test;
+
+public class SolutionStreamTest {
+
+	@Test
+	public void test() throws Exception {
+		File file = File.createTempFile("solutions", null);
+		try {
+			// Write two samples over four qubits
+			PrintWriter writer = new PrintWriter(file);
+			int[][] values = new int[][] {{1, -1, 3, 1}, {-1, 1, 3, -1}};
+			for (int[] sampleValues : values) {
+				writer.print("energy,-1.25\r\n");
+				writer.print("length,4\r\n");
+				writer.print("occurrences,1\r\n");
+				writer.print("qubit,value\r\n");
+				for (int qubit=0; qubit<4; ++qubit) {
+					writer.print(qubit + "," + sampleValues[qubit] + "\r\n");
+				}
+			}
+			writer.close();
+			// Read all samples
+			{
+				final List<SpinVector> samples = new ArrayList<SpinVector>();
+				int nrSamples = new SolutionStream(file.getPath(), 4).forEachSample(10, new SampleConsumer() {
+					@Override
+					public void accept(int sampleIndex, SpinVector qubitValues) {
+						assertEquals(samples.size(), sampleIndex);
+						samples.add(new SpinVector(qubitValues));
+					}
+				});
+				assertEquals(2, nrSamples);
+				assertArrayEquals(new boolean[] {true, false, false, true}, samples.get(0).toBooleans());
+				assertArrayEquals(new boolean[] {false, true, false, false}, samples.get(1).toBooleans());
+			}
+			// Stop after the first sample
+			{
+				final List<SpinVector> samples = new ArrayList<SpinVector>();
+				int nrSamples = new SolutionStream(file.getPath(), 4).forEachSample(1, new SampleConsumer() {
+					@Override
+					public void accept(int sampleIndex, SpinVector qubitValues) {
+						samples.add(new SpinVector(qubitValues));
+					}
+				});
+				assertEquals(1, nrSamples);
+				assertEquals(1, samples.size());
+			}
+			// Samples of unexpected length are rejected
+			try {
+				new SolutionStream(file.getPath(), 5).forEachSample(10, new SampleConsumer() {
+					@Override
+					public void accept(int sampleIndex, SpinVector qubitValues) {
+						fail();
+					}
+				});
+				fail();
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains("length 4 instead of 5"));
+			}
+			// Files without length line are rejected
+			writer = new PrintWriter(file);
+			writer.print("energy,-1.25\r\n");
+			writer.print("0,1\r\n");
+			writer.close();
+			try {
+				new SolutionStream(file.getPath(), 1).forEachSample(10, new SampleConsumer() {
+					@Override
+					public void accept(int sampleIndex, SpinVector qubitValues) {
+						fail();
+					}
+				});
+				fail();
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains(file.getPath()));
+				assertTrue(e.getMessage().contains("lacks the length line"));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+}
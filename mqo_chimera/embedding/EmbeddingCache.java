@@ -0,0 +1,328 @@
+package mqo_chimera.embedding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import mqo_chimera.mapping.LogicalVariable;
+import mqo_chimera.topology.Topology;
+
+/**
+ * Caches assignments of logical variables to qubits, indexed by a fingerprint of the
+ * logical interaction graph (or of its dimensions), the method used to calculate the
+ * assignment, and the graph of working qubits and couplings. Assignments are kept in memory with least recently
+ * used eviction and, optionally, in a directory on disc (one small file per fingerprint)
+ * such that they survive restarts. MQO batches of the same shape reuse the same
+ * assignment instead of recalculating it.
+ *
+ * Each file in the directory contains a magic number, the format version, and the
+ * number of rows, followed by the number of variables per row and the qubits of each
+ * variable (prefixed by their number). All numbers are stored in big-endian byte order.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class EmbeddingCache {
+	/**
+	 * Identifies cache files (reads "MQOE").
+	 */
+	static final int MAGIC = 0x4D514F45;
+	/**
+	 * Version of the file format.
+	 */
+	static final int VERSION = 1;
+	/**
+	 * File name extension of cache files.
+	 */
+	static final String EXTENSION = ".emb";
+	/**
+	 * The maximal number of assignments kept in memory.
+	 */
+	final int capacity;
+	/**
+	 * Directory storing one file per assignment or null if assignments are kept in memory only.
+	 */
+	final File directory;
+	/**
+	 * Maps fingerprints to qubits of each variable, ordered from least to most recently used.
+	 */
+	final LinkedHashMap<String, int[][][]> entries;
+	/**
+	 * The number of lookups that found an assignment (in memory or on disc).
+	 */
+	int nrHits = 0;
+	/**
+	 * The number of lookups that did not find an assignment.
+	 */
+	int nrMisses = 0;
+
+	public EmbeddingCache(int capacity, String directory) {
+		assert(capacity > 0);
+		this.capacity = capacity;
+		this.directory = directory == null ? null : new File(directory);
+		if (this.directory != null) {
+			this.directory.mkdirs();
+		}
+		this.entries = new LinkedHashMap<String, int[][][]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, int[][][]> eldest) {
+				return size() > EmbeddingCache.this.capacity;
+			}
+		};
+	}
+	/**
+	 * Calculates a fingerprint of the qubit graph, given by the neighbors of each working
+	 * qubit (which reflects broken qubits and couplings). This is expensive for large
+	 * topologies, it is calculated once when initializing the topology (see AmesUtil).
+	 *
+	 * @param topology	the qubit graph into which variables are mapped
+	 * @return			hexadecimal fingerprint of the topology
+	 */
+	public static String topologyFingerprint(Topology topology) {
+		int nrQubits = topology.nrQubits();
+		// Count integers to hash, broken qubits have no neighbors
+		int nrInts = 1 + nrQubits;
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (topology.isWorking(qubit)) {
+				nrInts += topology.neighbors(qubit).length;
+			}
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(4 * nrInts);
+		buffer.putInt(nrQubits);
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (topology.isWorking(qubit)) {
+				int[] neighbors = topology.neighbors(qubit);
+				buffer.putInt(neighbors.length);
+				for (int neighbor : neighbors) {
+					buffer.putInt(neighbor);
+				}
+			} else {
+				buffer.putInt(-1);
+			}
+		}
+		MessageDigest digest = newDigest();
+		digest.update(buffer.array());
+		return toHex(digest.digest());
+	}
+	/**
+	 * Calculates a fingerprint identifying an assignment of variables to qubits. The logical
+	 * graph is identified by the variable numbering and the sorted neighbor lists.
+	 *
+	 * @param method				identifies the method calculating the assignment
+	 * @param logicalNeighbors		for each logical variable the indices of interacting variables
+	 * @param topologyFingerprint	fingerprint of the qubit graph into which variables are mapped
+	 * @return						hexadecimal fingerprint, used as file name on disc
+	 */
+	public static String fingerprint(String method, int[][] logicalNeighbors, String topologyFingerprint) {
+		int nrInts = 1 + logicalNeighbors.length;
+		for (int[] neighbors : logicalNeighbors) {
+			nrInts += neighbors.length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(4 * nrInts);
+		buffer.putInt(logicalNeighbors.length);
+		for (int[] neighbors : logicalNeighbors) {
+			int[] sortedNeighbors = Arrays.copyOf(neighbors, neighbors.length);
+			Arrays.sort(sortedNeighbors);
+			buffer.putInt(sortedNeighbors.length);
+			for (int neighbor : sortedNeighbors) {
+				buffer.putInt(neighbor);
+			}
+		}
+		MessageDigest digest = newDigest();
+		digest.update(method.getBytes());
+		digest.update(buffer.array());
+		digest.update(topologyFingerprint.getBytes());
+		return toHex(digest.digest());
+	}
+	/**
+	 * Returns the fingerprint of an assignment that only depends on the number of queries
+	 * and plans per query (e.g., the assignment of queries to unit cells) - the logical
+	 * graph does not need to be constructed and hashed.
+	 *
+	 * @param method				identifies the method calculating the assignment
+	 * @param nrQueries				the number of queries
+	 * @param nrPlansPerQuery		the number of plans per query
+	 * @param topologyFingerprint	fingerprint of the qubit graph into which variables are mapped
+	 * @return						fingerprint, used as file name on disc
+	 */
+	public static String fingerprint(String method, int nrQueries, int nrPlansPerQuery, 
+			String topologyFingerprint) {
+		return method + "_Q" + nrQueries + "P" + nrPlansPerQuery + "_" + topologyFingerprint;
+	}
+	/**
+	 * Creates a message digest for calculating fingerprints.
+	 *
+	 * @return	a new SHA-256 digest
+	 */
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	/**
+	 * Formats a hash value as hexadecimal string.
+	 *
+	 * @param hash	bytes of the hash value
+	 * @return		two hexadecimal digits per byte
+	 */
+	static String toHex(byte[] hash) {
+		StringBuilder hex = new StringBuilder();
+		for (byte hashByte : hash) {
+			hex.append(String.format("%02x", hashByte));
+		}
+		return hex.toString();
+	}
+	/**
+	 * Returns the assignment stored for the given fingerprint, first looking in memory
+	 * and then on disc. Unreadable files are treated like missing entries.
+	 *
+	 * @param fingerprint	fingerprint of the assignment
+	 * @return				new logical variables representing the stored assignment or null
+	 */
+	public synchronized LogicalVariable[][] get(String fingerprint) {
+		int[][][] qubits = entries.get(fingerprint);
+		if (qubits == null && directory != null) {
+			File file = new File(directory, fingerprint + EXTENSION);
+			if (file.exists()) {
+				try {
+					qubits = read(file);
+					entries.put(fingerprint, qubits);
+				} catch (IOException e) {
+					qubits = null;
+				}
+			}
+		}
+		if (qubits == null) {
+			++nrMisses;
+			return null;
+		}
+		++nrHits;
+		return toVariables(qubits);
+	}
+	/**
+	 * Stores an assignment in memory and, if a directory was specified, on disc.
+	 *
+	 * @param fingerprint	fingerprint of the assignment
+	 * @param variables		logical variables whose qubits are stored
+	 */
+	public synchronized void put(String fingerprint, LogicalVariable[][] variables) {
+		int[][][] qubits = new int[variables.length][][];
+		for (int row=0; row<variables.length; ++row) {
+			qubits[row] = new int[variables[row].length][];
+			for (int col=0; col<variables[row].length; ++col) {
+				Integer[] varQubits = variables[row][col].getQubits().toArray(new Integer[0]);
+				qubits[row][col] = new int[varQubits.length];
+				for (int qubitCtr=0; qubitCtr<varQubits.length; ++qubitCtr) {
+					qubits[row][col][qubitCtr] = varQubits[qubitCtr];
+				}
+			}
+		}
+		entries.put(fingerprint, qubits);
+		if (directory != null) {
+			try {
+				write(new File(directory, fingerprint + EXTENSION), qubits);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	/**
+	 * Returns the number of assignments currently kept in memory.
+	 *
+	 * @return	number of cached assignments in memory
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	/**
+	 * Creates new logical variables from stored qubit indices (such that callers
+	 * may modify variables without affecting the cache).
+	 *
+	 * @param qubits	for each variable the indices of its qubits
+	 * @return			logical variables represented by the given qubits
+	 */
+	static LogicalVariable[][] toVariables(int[][][] qubits) {
+		LogicalVariable[][] variables = new LogicalVariable[qubits.length][];
+		for (int row=0; row<qubits.length; ++row) {
+			variables[row] = new LogicalVariable[qubits[row].length];
+			for (int col=0; col<qubits[row].length; ++col) {
+				variables[row][col] = new LogicalVariable();
+				for (int qubit : qubits[row][col]) {
+					variables[row][col].addQubit(qubit);
+				}
+			}
+		}
+		return variables;
+	}
+	/**
+	 * Writes qubits of an assignment into a file.
+	 *
+	 * @param file		the file to create
+	 * @param qubits	for each variable the indices of its qubits
+	 * @throws IOException
+	 */
+	static void write(File file, int[][][] qubits) throws IOException {
+		DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(qubits.length);
+			for (int[][] rowQubits : qubits) {
+				output.writeInt(rowQubits.length);
+				for (int[] varQubits : rowQubits) {
+					output.writeInt(varQubits.length);
+					for (int qubit : varQubits) {
+						output.writeInt(qubit);
+					}
+				}
+			}
+		} finally {
+			output.close();
+		}
+	}
+	/**
+	 * Reads qubits of an assignment from a file.
+	 *
+	 * @param file	a file written by the cache
+	 * @return		for each variable the indices of its qubits
+	 * @throws IOException	if the file cannot be read or has an unexpected format
+	 */
+	static int[][][] read(File file) throws IOException {
+		DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Unexpected format of cache file " + file);
+			}
+			int[][][] qubits = new int[input.readInt()][][];
+			for (int row=0; row<qubits.length; ++row) {
+				qubits[row] = new int[input.readInt()][];
+				for (int col=0; col<qubits[row].length; ++col) {
+					qubits[row][col] = new int[input.readInt()];
+					for (int qubitCtr=0; qubitCtr<qubits[row][col].length; ++qubitCtr) {
+						qubits[row][col][qubitCtr] = input.readInt();
+					}
+				}
+			}
+			return qubits;
+		} finally {
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package mqo_chimera.embedding;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import mqo_chimera.benchmark.TestcaseClass;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.LogicalVariable;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.util.AmesUtil;
+
+import org.junit.Test;
+
+public class EmbeddingCacheTest {
+	/**
+	 * Creates a single row of variables, each represented by the given qubit.
+	 *
+	 * @param qubits	one qubit per variable
+	 * @return			logical variables
+	 */
+	static LogicalVariable[][] variables(int... qubits) {
+		LogicalVariable[][] vars = new LogicalVariable[1][qubits.length];
+		for (int var=0; var<qubits.length; ++var) {
+			vars[0][var] = new LogicalVariable();
+			vars[0][var].addQubit(qubits[var]);
+		}
+		return vars;
+	}
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		// Fingerprints depend on method and logical graph but not on neighbor order
+		{
+			int[][] graph = new int[][] {{1, 2}, {0}, {0}};
+			String topologyFingerprint = AmesUtil.topologyFingerprint;
+			assertEquals(topologyFingerprint, EmbeddingCache.topologyFingerprint(AmesUtil.topology));
+			String fingerprint = EmbeddingCache.fingerprint("minor", graph, topologyFingerprint);
+			assertEquals(fingerprint, EmbeddingCache.fingerprint("minor",
+					new int[][] {{2, 1}, {0}, {0}}, topologyFingerprint));
+			assertNotEquals(fingerprint, EmbeddingCache.fingerprint("cells", graph, topologyFingerprint));
+			assertNotEquals(fingerprint, EmbeddingCache.fingerprint("minor",
+					new int[][] {{1}, {0, 2}, {1}}, topologyFingerprint));
+			assertNotEquals(fingerprint, EmbeddingCache.fingerprint("minor", graph, "other"));
+			assertNotEquals(EmbeddingCache.fingerprint("cells", 4, 2, topologyFingerprint), 
+					EmbeddingCache.fingerprint("cells", 2, 4, topologyFingerprint));
+		}
+		// Least recently used assignments are evicted
+		{
+			EmbeddingCache cache = new EmbeddingCache(2, null);
+			cache.put("a", variables(0));
+			cache.put("b", variables(1));
+			assertNotNull(cache.get("a"));
+			cache.put("c", variables(2));
+			assertEquals(2, cache.size());
+			assertNull(cache.get("b"));
+			LogicalVariable[][] vars = cache.get("a");
+			assertTrue(vars[0][0].getQubits().contains(0));
+			assertEquals(2, cache.nrHits);
+			assertEquals(1, cache.nrMisses);
+			// Modifying returned variables does not affect the cache
+			vars[0][0].addQubit(4);
+			assertEquals(1, cache.get("a")[0][0].getQubits().size());
+		}
+		// Assignments stored on disc are found by other cache instances
+		{
+			File directory = Files.createTempDirectory("embeddings").toFile();
+			directory.deleteOnExit();
+			EmbeddingCache cache = new EmbeddingCache(1, directory.getPath());
+			cache.put("a", variables(5, 7));
+			cache.put("b", variables(6));
+			// Evicted from memory but still on disc
+			assertEquals(1, cache.size());
+			assertNotNull(cache.get("a"));
+			LogicalVariable[][] vars = new EmbeddingCache(1, directory.getPath()).get("a");
+			assertEquals(2, vars[0].length);
+			assertTrue(vars[0][0].getQubits().contains(5));
+			assertTrue(vars[0][1].getQubits().contains(7));
+			for (File file : directory.listFiles()) {
+				file.delete();
+			}
+		}
+		// Test cases of the same shape reuse variable assignments
+		{
+			ChimeraFactory.embeddingCache = new EmbeddingCache(4, null);
+			TestcaseClass testClass = new TestcaseClass(4, 2, false);
+			ChimeraMqoMapping mapping1 = ChimeraFactory.produceStandardTestcase(testClass);
+			ChimeraMqoMapping mapping2 = ChimeraFactory.produceStandardTestcase(testClass);
+			assertEquals(1, ChimeraFactory.embeddingCache.nrHits);
+			for (int query=0; query<4; ++query) {
+				for (int plan=0; plan<2; ++plan) {
+					assertEquals(mapping1.planVars[query][plan].getQubits(),
+							mapping2.planVars[query][plan].getQubits());
+				}
+			}
+		}
+	}
+}
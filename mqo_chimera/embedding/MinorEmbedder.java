@@ -0,0 +1,626 @@
+package mqo_chimera.embedding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mqo_chimera.topology.Topology;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.RandomUtil;
+
+/**
+ * Heuristic minor embedding of arbitrary interaction graphs into the working qubits
+ * of the current topology, following the approach of Cai, Macready, and Roy. Chains
+ * are grown for one logical variable after the other: we calculate shortest paths from
+ * the chains of all embedded neighbors to each qubit, select the root qubit minimizing
+ * the sum of path lengths, and form the chain by the union of the paths to the root.
+ * Qubits may initially be shared by several chains but the weight of a qubit grows
+ * exponentially in the number of chains using it and linearly in the number of rounds
+ * after which it was shared (similar to negotiated congestion in routing). Chains are torn up and rerouted in
+ * rounds until chains are disjoint and chain lengths stop decreasing. Several randomized
+ * restarts run in parallel, we keep the embedding with the shortest chains.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class MinorEmbedder {
+	/**
+	 * Qubit usage counts above this value do not increase qubit weights further
+	 * (avoids infinite weights).
+	 */
+	static final int MAX_WEIGHT_EXPONENT = 30;
+	/**
+	 * The base of exponential qubit weights in the first round of each attempt.
+	 */
+	static final double INITIAL_WEIGHT_BASE = 8;
+	/**
+	 * The number of randomized embedding attempts.
+	 */
+	final int nrRestarts;
+	/**
+	 * The maximal number of rounds (rerouting each chain once) per attempt.
+	 */
+	final int maxRounds;
+	/**
+	 * The number of rounds without improving the best disjoint embedding after which
+	 * an attempt terminates.
+	 */
+	final int nrStaleRounds;
+	/**
+	 * The number of threads executing restarts in parallel.
+	 */
+	final int nrThreads;
+
+	public MinorEmbedder(int nrRestarts, int maxRounds, int nrStaleRounds, int nrThreads) {
+		assert(nrRestarts > 0);
+		assert(maxRounds > 0);
+		assert(nrStaleRounds > 0);
+		assert(nrThreads > 0);
+		this.nrRestarts = nrRestarts;
+		this.maxRounds = maxRounds;
+		this.nrStaleRounds = nrStaleRounds;
+		this.nrThreads = nrThreads;
+	}
+	/**
+	 * Initializes an embedder using one thread per available processor.
+	 *
+	 * @param nrRestarts	the number of randomized embedding attempts
+	 */
+	public MinorEmbedder(int nrRestarts) {
+		this(nrRestarts, 100, 10, Runtime.getRuntime().availableProcessors());
+	}
+	/**
+	 * Embeds the given interaction graph into the current topology.
+	 *
+	 * @param logicalNeighbors	for each logical variable the indices of interacting variables
+	 * @return					embedding with the shortest chains found or null if no attempt
+	 * 							led to disjoint chains
+	 * @throws Exception
+	 */
+	public MinorEmbedding embed(int[][] logicalNeighbors) throws Exception {
+		return embed(logicalNeighbors, RandomUtil.random.nextLong());
+	}
+	/**
+	 * Embeds the given interaction graph into the current topology, using the given
+	 * seed to initialize the random generators of all restarts.
+	 *
+	 * @param logicalNeighbors	for each logical variable the indices of interacting variables
+	 * @param seed				seed for random generators
+	 * @return					embedding with the shortest chains found or null if no attempt
+	 * 							led to disjoint chains
+	 * @throws Exception
+	 */
+	public MinorEmbedding embed(final int[][] logicalNeighbors, long seed) throws Exception {
+		final Topology topology = AmesUtil.topology;
+		// Start one task per restart with its own random generator
+		SplittableRandom rootRandom = new SplittableRandom(seed);
+		ExecutorService executor = Executors.newFixedThreadPool(nrThreads);
+		MinorEmbedding bestEmbedding = null;
+		try {
+			List<Future<MinorEmbedding>> futures = new ArrayList<Future<MinorEmbedding>>();
+			for (int restart=0; restart<nrRestarts; ++restart) {
+				final SplittableRandom restartRandom = rootRandom.split();
+				futures.add(executor.submit(new Callable<MinorEmbedding>() {
+					@Override
+					public MinorEmbedding call() throws Exception {
+						return embedOnce(topology, logicalNeighbors,
+								maxRounds, nrStaleRounds, restartRandom);
+					}
+				}));
+			}
+			// Wait for termination (propagating exceptions) and keep best embedding
+			for (Future<MinorEmbedding> future : futures) {
+				MinorEmbedding embedding = future.get();
+				if (embedding != null && (bestEmbedding == null || embedding.betterThan(bestEmbedding))) {
+					bestEmbedding = embedding;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return bestEmbedding;
+	}
+	/**
+	 * Performs one randomized embedding attempt.
+	 *
+	 * @param topology			the qubit graph into which we embed
+	 * @param logicalNeighbors	for each logical variable the indices of interacting variables
+	 * @param maxRounds			the maximal number of rounds over all variables
+	 * @param nrStaleRounds		terminate after that many rounds without improvement
+	 * @param random			random generator used for variable orders and tie breaking
+	 * @return					the best disjoint embedding found or null
+	 */
+	static MinorEmbedding embedOnce(Topology topology, int[][] logicalNeighbors,
+			int maxRounds, int nrStaleRounds, SplittableRandom random) {
+		int nrVars = logicalNeighbors.length;
+		// Sharing qubits is cheap at first, the weight base doubles after each
+		// round ending with shared qubits until reaching its maximum.
+		double maxBase = maxWeightBase(topology);
+		double base = Math.min(INITIAL_WEIGHT_BASE, maxBase);
+		double[] usageWeights = new double[MAX_WEIGHT_EXPONENT + 1];
+		// Allocate buffers for shortest path calculations
+		int maxDegree = 0;
+		for (int[] neighbors : logicalNeighbors) {
+			maxDegree = Math.max(maxDegree, neighbors.length);
+		}
+		EmbeddingState state = new EmbeddingState(topology, nrVars, maxDegree);
+		// Reroute chains until no improvements, starting in breadth-first order
+		int[] order = breadthFirstOrder(logicalNeighbors, random);
+		MinorEmbedding bestEmbedding = null;
+		int staleRounds = 0;
+		for (int round=0; round<maxRounds && staleRounds<nrStaleRounds; ++round) {
+			// Powers of the weight base for each usage count
+			for (int usage=0; usage<=MAX_WEIGHT_EXPONENT; ++usage) {
+				usageWeights[usage] = Math.pow(base, usage);
+			}
+			// Shuffle variable order after the first round
+			for (int position=nrVars-1; position>0 && round>0; --position) {
+				int otherPosition = random.nextInt(position + 1);
+				int var = order[position];
+				order[position] = order[otherPosition];
+				order[otherPosition] = var;
+			}
+			for (int var : order) {
+				state.removeChain(var);
+				int[] chain = state.growChain(logicalNeighbors[var], usageWeights, random);
+				if (chain == null) {
+					// Neighbors cannot be reached from any qubit
+					return null;
+				}
+				state.addChain(var, chain);
+			}
+			// Update best embedding once chains are disjoint
+			if (state.nrSharedQubits() == 0) {
+				MinorEmbedding embedding = new MinorEmbedding(state.chains);
+				if (bestEmbedding == null || embedding.betterThan(bestEmbedding)) {
+					bestEmbedding = embedding;
+					staleRounds = 0;
+				} else {
+					++staleRounds;
+				}
+			} else {
+				base = Math.min(2 * base, maxBase);
+				if (bestEmbedding != null) {
+					++staleRounds;
+				}
+			}
+		}
+		return bestEmbedding;
+	}
+	/**
+	 * Orders variables such that each variable (except for the first one in each
+	 * connected component) interacts with a preceding variable. Growing chains in
+	 * that order places interacting variables close to each other.
+	 *
+	 * @param logicalNeighbors	for each logical variable the indices of interacting variables
+	 * @param random			random generator used to select start variables
+	 * @return					variable indices in breadth-first order
+	 */
+	static int[] breadthFirstOrder(int[][] logicalNeighbors, SplittableRandom random) {
+		int nrVars = logicalNeighbors.length;
+		int[] order = new int[nrVars];
+		boolean[] visited = new boolean[nrVars];
+		int nrOrdered = 0;
+		int offset = nrVars == 0 ? 0 : random.nextInt(nrVars);
+		for (int startCtr=0; startCtr<nrVars; ++startCtr) {
+			int startVar = (offset + startCtr) % nrVars;
+			if (!visited[startVar]) {
+				// Ordered variables double as queue
+				int queueStart = nrOrdered;
+				visited[startVar] = true;
+				order[nrOrdered++] = startVar;
+				while (queueStart < nrOrdered) {
+					for (int neighbor : logicalNeighbors[order[queueStart++]]) {
+						if (!visited[neighbor]) {
+							visited[neighbor] = true;
+							order[nrOrdered++] = neighbor;
+						}
+					}
+				}
+			}
+		}
+		return order;
+	}
+	/**
+	 * Determines the maximal base of the exponential qubit weights such that sharing
+	 * a qubit is more expensive than any path without shared qubits.
+	 *
+	 * @param topology	the qubit graph
+	 * @return			maximal base of qubit weights
+	 */
+	static double maxWeightBase(Topology topology) {
+		int nrWorking = 0;
+		for (int qubit=0; qubit<topology.nrQubits(); ++qubit) {
+			if (topology.isWorking(qubit)) {
+				++nrWorking;
+			}
+		}
+		return Math.max(2, nrWorking);
+	}
+	/**
+	 * Chains and qubit usage during one embedding attempt, together with buffers for
+	 * shortest path calculations.
+	 */
+	static class EmbeddingState {
+		/**
+		 * The qubit graph into which we embed.
+		 */
+		final Topology topology;
+		/**
+		 * The current chain for each logical variable (null if not embedded yet).
+		 */
+		final int[][] chains;
+		/**
+		 * The number of chains using each qubit.
+		 */
+		final int[] usage;
+		/**
+		 * The number of rounds that ended with each qubit being shared by several chains.
+		 */
+		final int[] history;
+		/**
+		 * Weight of each qubit according to its usage and history (infinite for broken qubits).
+		 */
+		final double[] qubitWeights;
+		/**
+		 * Distance of each qubit from the chain of each embedded neighbor.
+		 */
+		final double[][] distances;
+		/**
+		 * Predecessor of each qubit on the shortest path from each neighbor chain.
+		 */
+		final int[][] predecessors;
+		/**
+		 * Marks qubits that were added to the chain under construction.
+		 */
+		final boolean[] inChain;
+		/**
+		 * Priority queue used for shortest path calculations.
+		 */
+		final QubitHeap heap;
+
+		EmbeddingState(Topology topology, int nrVars, int maxDegree) {
+			int nrQubits = topology.nrQubits();
+			this.topology = topology;
+			this.chains = new int[nrVars][];
+			this.usage = new int[nrQubits];
+			this.history = new int[nrQubits];
+			this.qubitWeights = new double[nrQubits];
+			this.distances = new double[maxDegree][nrQubits];
+			this.predecessors = new int[maxDegree][nrQubits];
+			this.inChain = new boolean[nrQubits];
+			this.heap = new QubitHeap(nrQubits);
+		}
+		/**
+		 * Removes the chain of a variable, if any, and updates qubit usage.
+		 *
+		 * @param var	index of a logical variable
+		 */
+		void removeChain(int var) {
+			if (chains[var] != null) {
+				for (int qubit : chains[var]) {
+					--usage[qubit];
+				}
+				chains[var] = null;
+			}
+		}
+		/**
+		 * Assigns a chain to a variable and updates qubit usage.
+		 *
+		 * @param var	index of a logical variable
+		 * @param chain	qubits of the new chain
+		 */
+		void addChain(int var, int[] chain) {
+			chains[var] = chain;
+			for (int qubit : chain) {
+				++usage[qubit];
+			}
+		}
+		/**
+		 * Returns the number of qubits used by more than one chain and increases the
+		 * history count of those qubits. Qubits that remain shared over several rounds
+		 * become more expensive, similar to negotiated congestion in routing algorithms,
+		 * which helps to escape configurations where chains keep sharing the same qubits.
+		 *
+		 * @return	number of shared qubits
+		 */
+		int nrSharedQubits() {
+			int nrShared = 0;
+			for (int qubit=0; qubit<usage.length; ++qubit) {
+				if (usage[qubit] > 1) {
+					++history[qubit];
+					++nrShared;
+				}
+			}
+			return nrShared;
+		}
+		/**
+		 * Calculates a new chain for a variable that connects to the chains of all its
+		 * embedded neighbors.
+		 *
+		 * @param neighborVars	indices of interacting variables
+		 * @param usageWeights	qubit weight for each usage count
+		 * @param random		random generator used for tie breaking
+		 * @return				qubits of the new chain or null if neighbors are unreachable
+		 */
+		int[] growChain(int[] neighborVars, double[] usageWeights, SplittableRandom random) {
+			int nrQubits = usage.length;
+			// Update qubit weights according to current usage and history
+			for (int qubit=0; qubit<nrQubits; ++qubit) {
+				qubitWeights[qubit] = topology.isWorking(qubit) ? (1 + history[qubit]) *
+						usageWeights[Math.min(usage[qubit], MAX_WEIGHT_EXPONENT)] :
+							Double.POSITIVE_INFINITY;
+			}
+			// Calculate distances from the chains of embedded neighbors
+			int nrEmbedded = 0;
+			for (int neighborVar : neighborVars) {
+				if (chains[neighborVar] != null) {
+					shortestPaths(chains[neighborVar], distances[nrEmbedded], predecessors[nrEmbedded]);
+					++nrEmbedded;
+				}
+			}
+			// Select root minimizing the sum of distances, counting the root weight once
+			int root = -1;
+			double rootCost = Double.POSITIVE_INFINITY;
+			int offset = random.nextInt(nrQubits);
+			for (int qubitCtr=0; qubitCtr<nrQubits; ++qubitCtr) {
+				int qubit = (offset + qubitCtr) % nrQubits;
+				double weight = qubitWeights[qubit];
+				double cost = weight;
+				for (int neighborCtr=0; neighborCtr<nrEmbedded && cost<rootCost; ++neighborCtr) {
+					double distance = distances[neighborCtr][qubit];
+					// Root inside neighbor chain causes no path cost
+					if (distance > 0) {
+						cost += distance - weight;
+					}
+				}
+				// Break ties in favor of roots with free neighbors (avoids enclosing chains)
+				if (cost < rootCost) {
+					cost += crowding(qubit);
+				}
+				if (cost < rootCost) {
+					root = qubit;
+					rootCost = cost;
+				}
+			}
+			if (root < 0) {
+				return null;
+			}
+			// Chain is union of root and shortest paths towards neighbor chains
+			int[] chain = new int[nrQubits];
+			int chainLength = 0;
+			chain[chainLength++] = root;
+			inChain[root] = true;
+			for (int neighborCtr=0; neighborCtr<nrEmbedded; ++neighborCtr) {
+				int qubit = root;
+				while (distances[neighborCtr][qubit] > 0) {
+					if (!inChain[qubit]) {
+						chain[chainLength++] = qubit;
+						inChain[qubit] = true;
+					}
+					qubit = predecessors[neighborCtr][qubit];
+				}
+			}
+			chainLength = pruneChain(chain, chainLength, nrEmbedded);
+			for (int chainCtr=0; chainCtr<chainLength; ++chainCtr) {
+				inChain[chain[chainCtr]] = false;
+			}
+			return Arrays.copyOf(chain, chainLength);
+		}
+		/**
+		 * Returns a penalty below one half that grows in the fraction of used neighbors.
+		 *
+		 * @param qubit	qubit index
+		 * @return		tie breaking penalty for selecting qubit as root
+		 */
+		double crowding(int qubit) {
+			int[] neighbors = topology.neighbors(qubit);
+			int nrUsed = 0;
+			for (int neighbor : neighbors) {
+				if (usage[neighbor] > 0) {
+					++nrUsed;
+				}
+			}
+			return 0.5 * nrUsed / (neighbors.length + 1);
+		}
+		/**
+		 * Checks whether a qubit is part of or coupled to the chain of an embedded neighbor
+		 * (chain qubits have distance zero after the shortest path calculation).
+		 *
+		 * @param qubit			qubit index
+		 * @param neighborCtr	index of the embedded neighbor
+		 * @return				true if the qubit touches the neighbor chain
+		 */
+		boolean touches(int qubit, int neighborCtr) {
+			double[] distance = distances[neighborCtr];
+			if (distance[qubit] == 0) {
+				return true;
+			}
+			for (int neighbor : topology.neighbors(qubit)) {
+				if (distance[neighbor] == 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+		/**
+		 * Removes chain qubits that have at most one neighbor within the chain (which
+		 * keeps the chain connected) as long as each embedded neighbor chain remains
+		 * touched by another qubit of the chain.
+		 *
+		 * @param chain			qubits of the chain in the first entries, modified
+		 * @param chainLength	the number of chain qubits
+		 * @param nrEmbedded	the number of embedded neighbors
+		 * @return				the number of chain qubits after pruning
+		 */
+		int pruneChain(int[] chain, int chainLength, int nrEmbedded) {
+			// Count chain qubits touching each neighbor chain
+			int[] nrTouching = new int[nrEmbedded];
+			for (int chainCtr=0; chainCtr<chainLength; ++chainCtr) {
+				for (int neighborCtr=0; neighborCtr<nrEmbedded; ++neighborCtr) {
+					if (touches(chain[chainCtr], neighborCtr)) {
+						++nrTouching[neighborCtr];
+					}
+				}
+			}
+			// Remove leaves until no leaf can be removed
+			boolean pruned = true;
+			while (pruned && chainLength > 1) {
+				pruned = false;
+				int chainCtr = 0;
+				while (chainCtr < chainLength && chainLength > 1) {
+					int qubit = chain[chainCtr];
+					// Check whether qubit is a leaf
+					int nrChainNeighbors = 0;
+					for (int neighbor : topology.neighbors(qubit)) {
+						if (inChain[neighbor]) {
+							++nrChainNeighbors;
+						}
+					}
+					// Check whether qubit is required to touch neighbor chains
+					boolean required = false;
+					for (int neighborCtr=0; neighborCtr<nrEmbedded && !required; ++neighborCtr) {
+						required = nrTouching[neighborCtr] == 1 && touches(qubit, neighborCtr);
+					}
+					if (nrChainNeighbors <= 1 && !required) {
+						for (int neighborCtr=0; neighborCtr<nrEmbedded; ++neighborCtr) {
+							if (touches(qubit, neighborCtr)) {
+								--nrTouching[neighborCtr];
+							}
+						}
+						inChain[qubit] = false;
+						chain[chainCtr] = chain[--chainLength];
+						pruned = true;
+					} else {
+						++chainCtr;
+					}
+				}
+			}
+			return chainLength;
+		}
+		/**
+		 * Calculates for each qubit the minimal sum of qubit weights on a path from
+		 * the given chain to that qubit (excluding chain qubits, including the target).
+		 *
+		 * @param sourceChain	qubits of the chain from which paths start
+		 * @param distance		stores the distance of each qubit, modified
+		 * @param predecessor	stores the predecessor of each qubit on its path, modified
+		 */
+		void shortestPaths(int[] sourceChain, double[] distance, int[] predecessor) {
+			Arrays.fill(distance, Double.POSITIVE_INFINITY);
+			Arrays.fill(predecessor, -1);
+			for (int qubit : sourceChain) {
+				distance[qubit] = 0;
+				heap.update(qubit, 0);
+			}
+			while (!heap.isEmpty()) {
+				int qubit = heap.poll();
+				for (int neighbor : topology.neighbors(qubit)) {
+					double newDistance = distance[qubit] + qubitWeights[neighbor];
+					if (newDistance < distance[neighbor]) {
+						distance[neighbor] = newDistance;
+						predecessor[neighbor] = qubit;
+						heap.update(neighbor, newDistance);
+					}
+				}
+			}
+		}
+	}
+	/**
+	 * Binary min-heap over qubit indices supporting priority decreases.
+	 */
+	static class QubitHeap {
+		/**
+		 * Qubits in heap order.
+		 */
+		final int[] qubits;
+		/**
+		 * Priority of each qubit in the heap.
+		 */
+		final double[] priorities;
+		/**
+		 * Position of each qubit in the heap or -1 if not contained.
+		 */
+		final int[] positions;
+		/**
+		 * The number of qubits in the heap.
+		 */
+		int size = 0;
+
+		QubitHeap(int nrQubits) {
+			qubits = new int[nrQubits];
+			priorities = new double[nrQubits];
+			positions = new int[nrQubits];
+			Arrays.fill(positions, -1);
+		}
+		boolean isEmpty() {
+			return size == 0;
+		}
+		/**
+		 * Inserts a qubit or decreases its priority.
+		 *
+		 * @param qubit		qubit index
+		 * @param priority	new priority, not higher than the current one
+		 */
+		void update(int qubit, double priority) {
+			priorities[qubit] = priority;
+			int position = positions[qubit];
+			if (position < 0) {
+				position = size++;
+			}
+			// Move qubit up until heap order is restored
+			while (position > 0) {
+				int parentPosition = (position - 1) / 2;
+				int parent = qubits[parentPosition];
+				if (priorities[parent] <= priority) {
+					break;
+				}
+				qubits[position] = parent;
+				positions[parent] = position;
+				position = parentPosition;
+			}
+			qubits[position] = qubit;
+			positions[qubit] = position;
+		}
+		/**
+		 * Removes and returns the qubit with minimal priority.
+		 *
+		 * @return	qubit index
+		 */
+		int poll() {
+			int minQubit = qubits[0];
+			positions[minQubit] = -1;
+			int lastQubit = qubits[--size];
+			if (size > 0) {
+				// Move last qubit down from the root until heap order is restored
+				double priority = priorities[lastQubit];
+				int position = 0;
+				while (true) {
+					int childPosition = 2 * position + 1;
+					if (childPosition >= size) {
+						break;
+					}
+					if (childPosition + 1 < size &&
+							priorities[qubits[childPosition + 1]] < priorities[qubits[childPosition]]) {
+						++childPosition;
+					}
+					int child = qubits[childPosition];
+					if (priorities[child] >= priority) {
+						break;
+					}
+					qubits[position] = child;
+					positions[child] = position;
+					position = childPosition;
+				}
+				qubits[position] = lastQubit;
+				positions[lastQubit] = position;
+			}
+			return minQubit;
+		}
+	}
+}
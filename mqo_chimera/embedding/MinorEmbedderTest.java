@@ -0,0 +1,104 @@
+package mqo_chimera.embedding;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class MinorEmbedderTest {
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		// Heap returns qubits in order of priority
+		{
+			MinorEmbedder.QubitHeap heap = new MinorEmbedder.QubitHeap(10);
+			heap.update(3, 5);
+			heap.update(7, 2);
+			heap.update(1, 8);
+			heap.update(4, 1);
+			heap.update(1, 0);
+			assertEquals(1, heap.poll());
+			assertEquals(4, heap.poll());
+			assertEquals(7, heap.poll());
+			assertEquals(3, heap.poll());
+			assertTrue(heap.isEmpty());
+		}
+		// Validity check of embeddings
+		{
+			int[][] logicalNeighbors = new int[][] {{1}, {0}};
+			assertTrue(new MinorEmbedding(new int[][] {{0}, {4}}).isValid(logicalNeighbors));
+			// Chains not coupled
+			assertFalse(new MinorEmbedding(new int[][] {{0}, {1}}).isValid(logicalNeighbors));
+			// Chains overlap
+			assertFalse(new MinorEmbedding(new int[][] {{0, 4}, {4}}).isValid(logicalNeighbors));
+			// Chain not connected
+			assertFalse(new MinorEmbedding(new int[][] {{0, 1}, {4}}).isValid(logicalNeighbors));
+		}
+		// Complete graphs require chains since the Chimera graph is bipartite
+		{
+			int nrVars = 6;
+			int[][] logicalNeighbors = new int[nrVars][nrVars - 1];
+			for (int var=0; var<nrVars; ++var) {
+				int neighborCtr = 0;
+				for (int otherVar=0; otherVar<nrVars; ++otherVar) {
+					if (otherVar != var) {
+						logicalNeighbors[var][neighborCtr++] = otherVar;
+					}
+				}
+			}
+			MinorEmbedding embedding = MinorEmbedder.embedOnce(AmesUtil.topology,
+					logicalNeighbors, 100, 10, new SplittableRandom(0));
+			assertNotNull(embedding);
+			assertTrue(embedding.isValid(logicalNeighbors));
+			assertTrue(embedding.maxChainLength() > 1);
+			MinorEmbedding parallelEmbedding = new MinorEmbedder(4, 100, 10, 2).embed(logicalNeighbors, 0);
+			assertNotNull(parallelEmbedding);
+			assertTrue(parallelEmbedding.isValid(logicalNeighbors));
+		}
+		// Mapping of embedded problem represents execution cost for valid plan selections
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(3, 2, false);
+			problem.planCost[0][0] = 1;
+			problem.planCost[0][1] = 2;
+			problem.planCost[1][0] = 3;
+			problem.planCost[1][1] = 1;
+			problem.planCost[2][0] = 2;
+			problem.planCost[2][1] = 2;
+			// Plans of all three queries interact pairwise (forming triangles)
+			problem.addInterference(0, 0, 1, 0, -1.5);
+			problem.addInterference(1, 0, 2, 1, -1);
+			problem.addInterference(0, 0, 2, 1, -0.5);
+			problem.addInterference(0, 1, 2, 0, 1);
+			int[][] logicalNeighbors = ChimeraFactory.planInteractionGraph(problem);
+			assertArrayEquals(new int[] {1, 2, 5}, logicalNeighbors[0]);
+			assertArrayEquals(new int[] {0, 4}, logicalNeighbors[1]);
+			ChimeraMqoMapping mapping = ChimeraFactory.produceEmbeddedMapping(
+					problem, new MinorEmbedder(2, 100, 10, 2));
+			assertNotNull(mapping);
+			// Energy and execution cost differ by a constant for valid selections
+			double offset = Double.NaN;
+			double minEnergy = Double.POSITIVE_INFINITY;
+			for (int selectionCtr=0; selectionCtr<8; ++selectionCtr) {
+				int[] planSelections = new int[] {selectionCtr & 1, (selectionCtr >> 1) & 1, (selectionCtr >> 2) & 1};
+				double energy = mapping.getEnergy(ChimeraFactory.inferOptimalQubitValues(planSelections, mapping));
+				double cost = problem.executionCost(planSelections);
+				if (Double.isNaN(offset)) {
+					offset = energy - cost;
+				}
+				assertEquals(offset, energy - cost, TestUtil.DOUBLE_TOLERANCE);
+				minEnergy = Math.min(minEnergy, energy);
+			}
+			// Selecting no plan for a query is penalized
+			double energy = mapping.getEnergy(ChimeraFactory.inferOptimalQubitValues(new int[] {2, 0, 0}, mapping));
+			assertTrue(energy > minEnergy);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package mqo_chimera.embedding;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.TreeSet;
+
+import mqo_chimera.mapping.LogicalVariable;
+import mqo_chimera.util.AmesUtil;
+
+/**
+ * Represents a minor embedding of a logical interaction graph into the qubit graph:
+ * each logical variable is represented by a chain of connected qubits, chains of
+ * different variables are disjoint, and chains of interacting variables are coupled.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class MinorEmbedding implements Serializable {
+	/**
+	 * Used to verify class version.
+	 */
+	private static final long serialVersionUID = 1L;
+	/**
+	 * Contains for each logical variable the qubits of its chain in ascending order.
+	 */
+	final int[][] chains;
+
+	public MinorEmbedding(int[][] chains) {
+		this.chains = new int[chains.length][];
+		for (int var=0; var<chains.length; ++var) {
+			this.chains[var] = Arrays.copyOf(chains[var], chains[var].length);
+			Arrays.sort(this.chains[var]);
+		}
+	}
+	/**
+	 * Returns the number of embedded logical variables.
+	 *
+	 * @return	number of variables
+	 */
+	public int nrVariables() {
+		return chains.length;
+	}
+	/**
+	 * Returns the qubits representing one logical variable.
+	 *
+	 * @param var	index of a logical variable
+	 * @return		qubits of its chain in ascending order (must not be modified)
+	 */
+	public int[] chain(int var) {
+		return chains[var];
+	}
+	/**
+	 * Returns the number of qubits in the longest chain.
+	 *
+	 * @return	maximal chain length
+	 */
+	public int maxChainLength() {
+		int maxLength = 0;
+		for (int[] chain : chains) {
+			maxLength = Math.max(maxLength, chain.length);
+		}
+		return maxLength;
+	}
+	/**
+	 * Returns the number of qubits used by all chains together.
+	 *
+	 * @return	total number of chain qubits
+	 */
+	public int nrChainQubits() {
+		int nrQubits = 0;
+		for (int[] chain : chains) {
+			nrQubits += chain.length;
+		}
+		return nrQubits;
+	}
+	/**
+	 * Compares embeddings by their chain lengths: an embedding is better if its longest
+	 * chain is shorter or, for equal maximal chain length, if it uses less qubits in total.
+	 * Short chains are less likely to break during annealing.
+	 *
+	 * @param other	another embedding of the same interaction graph
+	 * @return		true if this embedding has shorter chains
+	 */
+	public boolean betterThan(MinorEmbedding other) {
+		int maxLength = maxChainLength();
+		int otherMaxLength = other.maxChainLength();
+		if (maxLength != otherMaxLength) {
+			return maxLength < otherMaxLength;
+		}
+		return nrChainQubits() < other.nrChainQubits();
+	}
+	/**
+	 * Checks whether this is a valid embedding of the given interaction graph into
+	 * the current topology: chains are non-empty, use working qubits only, are disjoint
+	 * and connected, and the chains of interacting variables are coupled.
+	 *
+	 * @param logicalNeighbors	for each logical variable the indices of interacting variables
+	 * @return					true if the embedding is valid
+	 */
+	public boolean isValid(int[][] logicalNeighbors) {
+		if (logicalNeighbors.length != chains.length) {
+			return false;
+		}
+		Set<Integer> usedQubits = new HashSet<Integer>();
+		for (int[] chain : chains) {
+			if (chain.length == 0) {
+				return false;
+			}
+			for (int qubit : chain) {
+				if (!AmesUtil.topology.isWorking(qubit) || !usedQubits.add(qubit)) {
+					return false;
+				}
+			}
+			if (!connected(chain)) {
+				return false;
+			}
+		}
+		for (int var=0; var<chains.length; ++var) {
+			for (int neighbor : logicalNeighbors[var]) {
+				if (!coupled(chains[var], chains[neighbor])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	/**
+	 * Checks whether two chains are connected by at least one coupling.
+	 *
+	 * @param chain1	qubits of first chain
+	 * @param chain2	qubits of second chain
+	 * @return			true if one qubit of the first chain is coupled to one of the second
+	 */
+	static boolean coupled(int[] chain1, int[] chain2) {
+		for (int qubit1 : chain1) {
+			for (int qubit2 : chain2) {
+				if (qubit1 != qubit2 && AmesUtil.topology.connected(qubit1, qubit2)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	/**
+	 * Checks whether the qubits of a chain are connected via couplings within the chain.
+	 *
+	 * @param chain	qubits of a chain
+	 * @return		true if each chain qubit can be reached from the first one
+	 */
+	static boolean connected(int[] chain) {
+		Set<Integer> chainQubits = qubitSet(chain);
+		Set<Integer> reachedQubits = new HashSet<Integer>();
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		reachedQubits.add(chain[0]);
+		queue.add(chain[0]);
+		while (!queue.isEmpty()) {
+			for (int neighbor : AmesUtil.neighbors(queue.poll())) {
+				if (chainQubits.contains(neighbor) && reachedQubits.add(neighbor)) {
+					queue.add(neighbor);
+				}
+			}
+		}
+		return reachedQubits.size() == chain.length;
+	}
+	/**
+	 * Converts an array of qubit indices into a sorted set.
+	 *
+	 * @param qubits	qubit indices
+	 * @return			set containing the same indices
+	 */
+	static Set<Integer> qubitSet(int[] qubits) {
+		Set<Integer> qubitSet = new TreeSet<Integer>();
+		for (int qubit : qubits) {
+			qubitSet.add(qubit);
+		}
+		return qubitSet;
+	}
+	/**
+	 * Creates one logical variable per chain, to be used for building a mapping.
+	 *
+	 * @return	logical variables represented by the chains of this embedding
+	 */
+	public LogicalVariable[] toVariables() {
+		LogicalVariable[] vars = new LogicalVariable[chains.length];
+		for (int var=0; var<chains.length; ++var) {
+			vars[var] = new LogicalVariable();
+			for (int qubit : chains[var]) {
+				vars[var].addQubit(qubit);
+			}
+		}
+		return vars;
+	}
+}
@@ -17,7 +17,6 @@ import java.util.TreeSet;
 import mqo_chimera.benchmark.BenchmarkConfiguration;
 import mqo_chimera.testcases.ChimeraMqoProblem;
 import mqo_chimera.util.AmesUtil;
-import mqo_chimera.util.Coupling;
 import mqo_chimera.util.RandomUtil;
 
 
@@ -32,7 +31,7 @@ public class ChimeraMqoMapping implements Serializable {
 	/**
 	 * Used to verify the class version.
 	 */
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 	/**
 	 * Whether the mapping should be interpreted as QUBO or as ISING problem.
 	 */
@@ -44,7 +43,7 @@ public class ChimeraMqoMapping implements Serializable {
 	/**
 	 * The number of (broken or intact) qubits.
 	 */
-	public final int nrQubits = 1152;
+	public final int nrQubits;
 	/**
 	 * Maps queries to groups of variables representing alternative query plans.
 	 */
@@ -62,16 +61,32 @@ public class ChimeraMqoMapping implements Serializable {
 	 */
 	public double plantedEnergy;
 	/**
-	 * Stores for each qubit and each pair of qubits the associated coupling weight.
+	 * Stores for each qubit and each pair of connected qubits the associated weight.
 	 */
-	final double[][] weights = new double[nrQubits][nrQubits];
+	public final QubitWeights weights;
 	/**
 	 * Describes gauge transformations that are used to cope with bias on the annealer.
 	 */
-	public boolean[][] gaugeTransformations = new boolean[BenchmarkConfiguration.nrTransformations][nrQubits];
-	
+	public boolean[][] gaugeTransformations;
+	/**
+	 * Creates an empty mapping for the current topology (the Ames machine by default).
+	 * 
+	 * @param mappingType	whether the mapping represents a QUBO or an Ising problem
+	 */
 	public ChimeraMqoMapping(MappingType mappingType) {
+		this(mappingType, AmesUtil.nrQubits());
+	}
+	/**
+	 * Creates an empty mapping for a topology with the given number of qubits.
+	 * 
+	 * @param mappingType	whether the mapping represents a QUBO or an Ising problem
+	 * @param nrQubits		the number of (broken or working) qubits
+	 */
+	public ChimeraMqoMapping(MappingType mappingType, int nrQubits) {
 		this.mappingType = mappingType;
+		this.nrQubits = nrQubits;
+		this.weights = new QubitWeights(nrQubits);
+		this.gaugeTransformations = new boolean[BenchmarkConfiguration.nrTransformations][nrQubits];
 	}
 	/**
 	 * Returns the weight associated with the given qubit.
@@ -80,7 +95,7 @@ public class ChimeraMqoMapping implements Serializable {
 	 * @return		the weight assigned to the given qubit
 	 */
 	public double getWeight(int qubit) {
-		return weights[qubit][qubit];
+		return weights.getWeight(qubit);
 	}
 	/**
 	 * Returns the weight between two qubits, automatically uses smaller index as first index
@@ -90,9 +105,7 @@ public class ChimeraMqoMapping implements Serializable {
 	 * @return			the coupling weight between the given qubits
 	 */
 	public double getConnectionWeight(int qubit1, int qubit2) {
-		int min_index = Math.min(qubit1, qubit2);
-		int max_index = Math.max(qubit1, qubit2);
-		return weights[min_index][max_index];
+		return weights.getConnectionWeight(qubit1, qubit2);
 	}
 	/**
 	 * Adds weight to the corresponding qubit or coupling
@@ -103,10 +116,18 @@ public class ChimeraMqoMapping implements Serializable {
 	 */
 	public void addWeight(int qubit1, int qubit2, double addedWeight) {
 		assert(qubit1 == qubit2 || AmesUtil.amesConnected(qubit1, qubit2));
-		// we only use the lower triangle of the weight matrix
-		int min_index = Math.min(qubit1, qubit2);
-		int max_index = Math.max(qubit1, qubit2);
-		weights[min_index][max_index] += addedWeight;
+		if (qubit1 == qubit2) {
+			weights.addWeight(qubit1, addedWeight);
+		} else {
+			weights.addConnectionWeight(qubit1, qubit2, addedWeight);
+		}
+	}
+	/**
+	 * Releases memory reserved for adding further weights - called once all weights
+	 * have been added (weights can still be added afterwards).
+	 */
+	public void compactWeights() {
+		weights.compact();
 	}
 	/**
 	 * Write current weights into a file (from where they can be read by a program
@@ -120,10 +141,18 @@ public class ChimeraMqoMapping implements Serializable {
 		PrintWriter writer = new PrintWriter(filename);
 		writer.println(description);
 		for (int i = 0; i < nrQubits; ++i) {
-			for (int j = i; j < nrQubits; ++j) {
-				if (weights[i][j] != 0) {
-					assert(i == j && AmesUtil.amesQubits.contains(i) || AmesUtil.amesConnected(i, j));
-					writer.println(i + "," + j + "," + weights[i][j]);
+			double qubitWeight = weights.getWeight(i);
+			if (qubitWeight != 0) {
+				assert(AmesUtil.amesQubits.contains(i));
+				writer.println(i + "," + i + "," + qubitWeight);
+			}
+			int nrStoredCouplings = weights.nrStoredCouplings(i);
+			for (int position = 0; position < nrStoredCouplings; ++position) {
+				int j = weights.storedNeighbor(i, position);
+				double couplingWeight = weights.storedWeight(i, position);
+				if (couplingWeight != 0) {
+					assert(AmesUtil.amesConnected(i, j));
+					writer.println(i + "," + j + "," + couplingWeight);
 				}
 			}
 		}
@@ -144,21 +173,24 @@ public class ChimeraMqoMapping implements Serializable {
 		writer.println(description);
 		// Treat single spins (vector h)
 		for (int i = 0; i < nrQubits; ++i) {
-			double weight = weights[i][i];
+			double weight = weights.getWeight(i);
 			if (weight != 0) {
 				assert(AmesUtil.amesQubits.contains(i));
 				int spinFactorI = gaugeTransformations[gaugeTransformIndex][i] ? 1 : -1;
-				writer.println(i + "," + i + "," + spinFactorI * weights[i][i]);				
+				writer.println(i + "," + i + "," + spinFactorI * weight);				
 			}
 		}
 		// Treat spin couplings (matrix J)
 		for (int i = 0; i < nrQubits; ++i) {
-			for (int j = i+1; j < nrQubits; ++j) {
-				if (weights[i][j] != 0) {
-					assert(i == j || AmesUtil.amesConnected(i, j));
+			int nrStoredCouplings = weights.nrStoredCouplings(i);
+			for (int position = 0; position < nrStoredCouplings; ++position) {
+				int j = weights.storedNeighbor(i, position);
+				double weight = weights.storedWeight(i, position);
+				if (weight != 0) {
+					assert(AmesUtil.amesConnected(i, j));
 					int spinFactorI = gaugeTransformations[gaugeTransformIndex][i] ? 1 : -1;
 					int spinFactorJ = gaugeTransformations[gaugeTransformIndex][j] ? 1 : -1; 
-					writer.println(i + "," + j + "," + spinFactorI * weights[i][j] * spinFactorJ);
+					writer.println(i + "," + j + "," + spinFactorI * weight * spinFactorJ);
 				}
 			}
 		}
@@ -176,7 +208,7 @@ public class ChimeraMqoMapping implements Serializable {
 	 */
 	public static ChimeraMqoMapping weightsFromFile(String filename, ChimeraMqoMapping nonWeightsSource) throws Exception {
 		// Generate mapping to read
-		ChimeraMqoMapping discMapping = new ChimeraMqoMapping(nonWeightsSource.mappingType);
+		ChimeraMqoMapping discMapping = new ChimeraMqoMapping(nonWeightsSource.mappingType, nonWeightsSource.nrQubits);
 		discMapping.problem = nonWeightsSource.problem;
 		discMapping.associatedQuery = nonWeightsSource.associatedQuery;
 		discMapping.associatedPlan = nonWeightsSource.associatedPlan;
@@ -201,12 +233,22 @@ public class ChimeraMqoMapping implements Serializable {
 		return discMapping;
 	}
 	/**
-	 * Write current mapping (the weights as well as the semantic for each qubit) to a file.
+	 * Write current mapping (the weights as well as the semantic for each qubit) to a file,
+	 * using the binary format of MappingFile.
 	 * 
 	 * @param filename		the name of the file to create
 	 * @throws Exception
 	 */
 	public void toFile(String filename) throws Exception {
+		MappingFile.write(this, filename);
+	}
+	/**
+	 * Write current mapping to a file via Java object serialization.
+	 * 
+	 * @param filename		the name of the file to create
+	 * @throws Exception
+	 */
+	public void serializeToFile(String filename) throws Exception {
 		FileOutputStream fout = new FileOutputStream(filename);
 		ObjectOutputStream oos = new ObjectOutputStream(fout);   
 		oos.writeObject(this);
@@ -242,8 +284,9 @@ public class ChimeraMqoMapping implements Serializable {
 	public int nrCouplingsUsed() {
 		int nrCouplingsUsed = 0;
 		for (int i = 0; i < nrQubits; ++i) {
-			for (int j = i+1; j < nrQubits; ++j) {
-				if (weights[i][j] != 0) {
+			int nrStoredCouplings = weights.nrStoredCouplings(i);
+			for (int position = 0; position < nrStoredCouplings; ++position) {
+				if (weights.storedWeight(i, position) != 0) {
 					++nrCouplingsUsed;
 				}
 			}
@@ -307,28 +350,35 @@ public class ChimeraMqoMapping implements Serializable {
 	*/
 	/**
 	 * Calculates the energy level of this mapping assuming that
-	 * it represents a QUBO problem. 
+	 * it represents a QUBO problem. Only couplings with stored
+	 * weights are visited.
 	 * 
-	 * @param qubitValues	Boolean vector indicating for each qubit its value
+	 * @param qubitValues	packed vector indicating for each qubit its value
 	 * @return				the energy level achieved by the qubit value combination
 	 */
-	private double getQuboEnergy(boolean[] qubitValues) {
+	private double getQuboEnergy(SpinVector qubitValues) {
 		// make sure that value vector has the right length
-		int nrQubits = qubitValues.length;
-		assert(nrQubits == this.nrQubits);
-		// treat weights on single qubits
+		assert(qubitValues.nrSpins == nrQubits);
+		// treat weights on single qubits, iterating over set bits
 		double energy = 0;
-		for (int qubit=0; qubit<nrQubits; ++qubit) {
-			if (qubitValues[qubit]) {
-				energy += getWeight(qubit);
+		long[] words = qubitValues.words;
+		for (int word=0; word<words.length; ++word) {
+			long bits = words[word];
+			while (bits != 0) {
+				int qubit = (word << 6) + Long.numberOfTrailingZeros(bits);
+				energy += weights.getWeight(qubit);
+				bits &= bits - 1;
 			}
 		}
 		// treat connections between qubits
-		for (Coupling coupling : AmesUtil.amesCouplings) {
-			int qubit1 = coupling.qubit1;
-			int qubit2 = coupling.qubit2;
-			if (qubitValues[qubit1] && qubitValues[qubit2]) {
-				energy += getConnectionWeight(qubit1, qubit2);
+		for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+			int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+			if (nrStoredCouplings > 0 && qubitValues.get(qubit1)) {
+				for (int position=0; position<nrStoredCouplings; ++position) {
+					if (qubitValues.get(weights.storedNeighbor(qubit1, position))) {
+						energy += weights.storedWeight(qubit1, position);
+					}
+				}
 			}
 		}
 		// return accumulated energy
@@ -336,34 +386,44 @@ public class ChimeraMqoMapping implements Serializable {
 	}
 	/**
 	 * Calculates energy for a specific spin configuration, interpreting
-	 * the Boolean value true as positive spin and the Boolean value false
-	 * as negative spin. 
+	 * set bits as positive spin and unset bits as negative spin. Only
+	 * couplings with stored weights are visited.
 	 * 
-	 * @param qubitValues	assignment for the spins, true signifying a positive and false a negative spin
+	 * @param spinValues	packed assignment for the spins
 	 * @return				the energy level achieved by the corresponding Ising problem
 	 */
-	private double getIsingEnergy(boolean[] spinValues) {
+	private double getIsingEnergy(SpinVector spinValues) {
 		// make sure that value vector has the right length
-		int nrQubits = spinValues.length;
-		assert(nrQubits == this.nrQubits);
-		// entries in the diagonal represent components of the h vector
+		assert(spinValues.nrSpins == nrQubits);
 		double energy = 0;
-		for (int spin=0; spin<nrQubits; ++spin) {
-			int spinFactor = spinValues[spin] ? +1 : -1;
-			energy += spinFactor * getWeight(spin);
-		}
-		// the other entries represent interactions between spins
 		for (int spin1=0; spin1<nrQubits; ++spin1) {
-			for (int spin2=spin1+1; spin2<nrQubits; ++spin2) {
-				int spinFactor1 = spinValues[spin1] ? +1 : -1;
-				int spinFactor2 = spinValues[spin2] ? +1 : -1;
-				int totalSpin = spinFactor1 * spinFactor2;
-				energy += totalSpin * getConnectionWeight(spin1, spin2);
+			boolean value1 = spinValues.get(spin1);
+			// weights on single spins represent components of the h vector
+			double weight = weights.getWeight(spin1);
+			energy += value1 ? weight : -weight;
+			// couplings represent interactions between spins
+			int nrStoredCouplings = weights.nrStoredCouplings(spin1);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				boolean value2 = spinValues.get(weights.storedNeighbor(spin1, position));
+				double couplingWeight = weights.storedWeight(spin1, position);
+				energy += value1 == value2 ? couplingWeight : -couplingWeight;
 			}
 		}
 		// return accumulated energy
 		return energy;
 	}
+	/**
+	 * Calculates the energy for a specific qubit or spin value assignment, decides how
+	 * to calculate the energy level based on the mapping type (Qubo or Ising).
+	 * 
+	 * @param spinOrQubitValues	packed vector containing a set bit if the qubit is assigned
+	 * 							to one respective the corresponding spin is set to +1
+	 * @return					the energy level for the given value assignment
+	 */
+	public double getEnergy(SpinVector spinOrQubitValues) {
+		return mappingType == MappingType.QUBO ? getQuboEnergy(spinOrQubitValues) : 
+			getIsingEnergy(spinOrQubitValues);
+	}
 	/**
 	 * Calculates the energy for a specific qubit or spin value assignment, decides how
 	 * to calculate the energy level based on the mapping type (Qubo or Ising).
@@ -373,17 +433,20 @@ public class ChimeraMqoMapping implements Serializable {
 	 * @return					the energy level for the given value assignment
 	 */
 	public double getEnergy(boolean[] spinOrQubitValues) {
-		return mappingType == MappingType.QUBO ? getQuboEnergy(spinOrQubitValues) : 
-			getIsingEnergy(spinOrQubitValues);
+		return getEnergy(SpinVector.fromBooleans(spinOrQubitValues));
 	}
 	/**
-	 * Reads a serialized MQO mapping from a file on disc.
+	 * Reads a MQO mapping from a file on disc, files in the binary format of MappingFile
+	 * are memory-mapped while other files are deserialized.
 	 * 
-	 * @param filename		the name of the file containing a serialized MQO problem
+	 * @param filename		the name of the file containing a MQO mapping
 	 * @return				a MQO mapping object
 	 * @throws Exception
 	 */
 	public static ChimeraMqoMapping readMapping(String filename) throws Exception {
+		if (MappingFile.isBinary(filename)) {
+			return MappingFile.read(filename);
+		}
 		InputStream file = new FileInputStream(filename);
 		InputStream buffer = new BufferedInputStream(file);
 		ObjectInput input = new ObjectInputStream (buffer);
@@ -399,55 +462,75 @@ public class ChimeraMqoMapping implements Serializable {
 	 */
 	public ChimeraMqoMapping toIsing() {
 		// create new mapping and set first fields
-		ChimeraMqoMapping isingMapping = new ChimeraMqoMapping(MappingType.ISING);
+		ChimeraMqoMapping isingMapping = new ChimeraMqoMapping(MappingType.ISING, nrQubits);
 		isingMapping.problem = problem;
 		isingMapping.planVars = planVars;
 		isingMapping.associatedQuery = associatedQuery;
 		isingMapping.gaugeTransformations = gaugeTransformations;
-		// prepare data structures holding weights of Ising problem
+		// calculate vector h and treat matrix J - note that matrix J is an upper triangle
 		int nrSpins = nrQubits;
-		double[] h = new double[nrSpins];
-		double[][] J = new double[nrSpins][nrSpins];
-		// treat matrix J - note that matrix J is an upper triangle
-		for (int spin1=0; spin1<nrSpins; ++spin1) {
-			for (int spin2=spin1+1; spin2<nrSpins; ++spin2) {
-				J[spin1][spin2] = 0.25 * weights[spin1][spin2];
-			}
-		}
-		// treat vector h
-		for (int spin1=0; spin1<nrSpins; ++spin1) {
-			h[spin1] = 0.5 * weights[spin1][spin1];
-			for (int spin2=0; spin2<nrSpins; ++spin2) {
-				h[spin1] += J[spin1][spin2];
-				h[spin1] += J[spin2][spin1];
-			}
-		}
-		// treat constant term by which the Qubo energy level differs from Ising level
+		double[] h = isingFields();
 		double R = 0;
-		for (int spin1=0; spin1<nrSpins; ++spin1) {
-			for (int spin2=spin1+1; spin2<nrSpins; ++spin2) {
-				R += J[spin1][spin2];
-			}
-			R -= h[spin1];
-		}
-		// set corresponding fields in new mapping
 		for (int spin1=0; spin1<nrSpins; ++spin1) {
 			// Weights on single spins
-			double hWeight = h[spin1];
-			if (hWeight != 0) {
-				isingMapping.addWeight(spin1, spin1, hWeight);
+			if (h[spin1] != 0) {
+				isingMapping.addWeight(spin1, spin1, h[spin1]);
 			}
 			// Weights on couplings
-			for (int spin2=spin1+1; spin2<nrSpins; ++spin2) {
-				double Jweight = J[spin1][spin2];
+			int nrStoredCouplings = weights.nrStoredCouplings(spin1);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				int spin2 = weights.storedNeighbor(spin1, position);
+				double Jweight = 0.25 * weights.storedWeight(spin1, position);
 				if (Jweight != 0) {
 					isingMapping.addWeight(spin1, spin2, Jweight);
 				}
+				// treat constant term by which the Qubo energy level differs from Ising level
+				R += Jweight;
 			}
+			R -= h[spin1];
 		}
 		isingMapping.plantedEnergy = plantedEnergy + R;
+		isingMapping.compactWeights();
 		return isingMapping;
 	}
+	/**
+	 * Calculates the weights on single spins (vector h) of the Ising problem that is
+	 * equivalent to the Qubo problem represented by this mapping, iterating only over
+	 * stored couplings.
+	 * 
+	 * @return	weight of each spin in the equivalent Ising problem
+	 */
+	double[] isingFields() {
+		assert(mappingType == MappingType.QUBO);
+		double[] h = new double[nrQubits];
+		for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+			h[qubit1] += 0.5 * weights.getWeight(qubit1);
+			int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				int qubit2 = weights.storedNeighbor(qubit1, position);
+				double Jweight = 0.25 * weights.storedWeight(qubit1, position);
+				h[qubit1] += Jweight;
+				h[qubit2] += Jweight;
+			}
+		}
+		return h;
+	}
+	/**
+	 * Checks whether the Ising problem that is equivalent to the Qubo problem represented
+	 * by this mapping respects the weight ranges of the annealer, without creating the
+	 * Ising mapping.
+	 * 
+	 * @return	true if the equivalent Ising problem respects the weight ranges
+	 */
+	public boolean quboRespectsIsingRanges() {
+		// The admissible weight range is [-2,2] for h and [-1,1] for J
+		for (double hWeight : isingFields()) {
+			if (Math.abs(hWeight) > 2) {
+				return false;
+			}
+		}
+		return 0.25 * maxAbsNonDiagonalWeight() <= 1;
+	}
 	/**
 	 * Returns the maximal absolute weight value on the diagonal of the weight matrix.
 	 * For Ising problems, the diagonal entries correspond to vector h. Used to verifiy
@@ -458,7 +541,7 @@ public class ChimeraMqoMapping implements Serializable {
 	public double maxAbsDiagonalWeight() {
 		double maxAbsWeight = 0;
 		for (int qubit=0; qubit<nrQubits; ++qubit) {
-			double diagonalWeight = weights[qubit][qubit];
+			double diagonalWeight = weights.getWeight(qubit);
 			double absDiagonalWeight = Math.abs(diagonalWeight);
 			maxAbsWeight = Math.max(maxAbsWeight, absDiagonalWeight);
 		}
@@ -473,13 +556,12 @@ public class ChimeraMqoMapping implements Serializable {
 	 */
 	public double maxAbsNonDiagonalWeight() {
 		double maxAbsWeight = 0;
-		for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
-			for (int qubit2=0; qubit2<nrQubits; ++qubit2) {
-				if (qubit1 != qubit2) {
-					double weight = weights[qubit1][qubit2];
-					double absWeight = Math.abs(weight);
-					maxAbsWeight = Math.max(maxAbsWeight, absWeight);
-				}
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			int nrStoredCouplings = weights.nrStoredCouplings(qubit);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				double weight = weights.storedWeight(qubit, position);
+				double absWeight = Math.abs(weight);
+				maxAbsWeight = Math.max(maxAbsWeight, absWeight);
 			}
 		}
 		return maxAbsWeight;
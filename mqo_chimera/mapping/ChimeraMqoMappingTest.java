@@ -209,6 +209,22 @@ public class ChimeraMqoMappingTest {
 			mapping.addWeight(1143, 1151, -1.5);
 			assertEquals(false, mapping.respectsIsingRanges());
 		}
+		// Testing weight range test on Qubo mappings without transformation
+		{
+			ChimeraMqoMapping mapping = new ChimeraMqoMapping(MappingType.QUBO);
+			mapping.problem = new ChimeraMqoProblem(2, 1, true);
+			assertEquals(true, mapping.quboRespectsIsingRanges());
+			mapping.addWeight(0, 4, 4);
+			assertEquals(true, mapping.quboRespectsIsingRanges());
+			assertEquals(mapping.toIsing().respectsIsingRanges(), mapping.quboRespectsIsingRanges());
+			mapping.addWeight(0, 0, 2.5);
+			assertEquals(false, mapping.quboRespectsIsingRanges());
+			assertEquals(mapping.toIsing().respectsIsingRanges(), mapping.quboRespectsIsingRanges());
+			mapping.addWeight(0, 0, -2.5);
+			mapping.addWeight(0, 4, 0.5);
+			assertEquals(false, mapping.quboRespectsIsingRanges());
+			assertEquals(mapping.toIsing().respectsIsingRanges(), mapping.quboRespectsIsingRanges());
+		}
 	}
 
 }
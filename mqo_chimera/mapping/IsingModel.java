@@ -0,0 +1,240 @@
+package mqo_chimera.mapping;
+
+import java.util.SplittableRandom;
+
+/**
+ * Adjacency representation of the Ising problem described by a mapping, used by classical
+ * samplers that repeatedly evaluate the energy change caused by flipping single spins. The
+ * couplings of each spin are stored in compressed sparse row format so that the local field
+ * of a spin is obtained by scanning its (at most six) neighbors on the Chimera graph.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class IsingModel {
+	/**
+	 * The number of spins (including broken and unused qubits).
+	 */
+	public final int nrSpins;
+	/**
+	 * Weight on each spin (vector h) after gauge transformation.
+	 */
+	final double[] h;
+	/**
+	 * Stores for each spin the position of its first coupling in neighbors and couplingWeights,
+	 * the couplings of spin i end where the couplings of spin i+1 start.
+	 */
+	final int[] neighborStart;
+	/**
+	 * Stores for each coupling the index of the coupled spin (each coupling is stored for both spins).
+	 */
+	final int[] neighbors;
+	/**
+	 * Stores for each coupling its weight (matrix J) after gauge transformation.
+	 */
+	final double[] couplingWeights;
+	/**
+	 * Whether a spin appears in any non-zero weight.
+	 */
+	final boolean[] used;
+	/**
+	 * Extracts the Ising problem represented by the given mapping, QUBO mappings are
+	 * transformed into Ising mappings first.
+	 *
+	 * @param mapping				a QUBO or Ising mapping
+	 * @param gaugeTransformation	Boolean vector indicating for each spin whether it keeps its sign
+	 * 								(true) or is inverted (false), null for no transformation
+	 */
+	public IsingModel(ChimeraMqoMapping mapping, boolean[] gaugeTransformation) {
+		ChimeraMqoMapping isingMapping = mapping.mappingType == MappingType.QUBO ? mapping.toIsing() : mapping;
+		QubitWeights weights = isingMapping.weights;
+		this.nrSpins = isingMapping.nrQubits;
+		this.h = new double[nrSpins];
+		this.used = new boolean[nrSpins];
+		// Spin factors implementing the gauge transformation
+		int[] spinFactors = new int[nrSpins];
+		for (int spin=0; spin<nrSpins; ++spin) {
+			spinFactors[spin] = gaugeTransformation == null || gaugeTransformation[spin] ? 1 : -1;
+		}
+		// Treat single spins and count couplings per spin
+		int[] nrNeighbors = new int[nrSpins];
+		for (int spin1=0; spin1<nrSpins; ++spin1) {
+			double weight = weights.getWeight(spin1);
+			if (weight != 0) {
+				h[spin1] = spinFactors[spin1] * weight;
+				used[spin1] = true;
+			}
+			int nrStoredCouplings = weights.nrStoredCouplings(spin1);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				if (weights.storedWeight(spin1, position) != 0) {
+					int spin2 = weights.storedNeighbor(spin1, position);
+					++nrNeighbors[spin1];
+					++nrNeighbors[spin2];
+				}
+			}
+		}
+		// Calculate boundaries of neighbor lists
+		neighborStart = new int[nrSpins + 1];
+		for (int spin=0; spin<nrSpins; ++spin) {
+			neighborStart[spin + 1] = neighborStart[spin] + nrNeighbors[spin];
+		}
+		neighbors = new int[neighborStart[nrSpins]];
+		couplingWeights = new double[neighborStart[nrSpins]];
+		// Fill neighbor lists
+		int[] nextPosition = new int[nrSpins];
+		System.arraycopy(neighborStart, 0, nextPosition, 0, nrSpins);
+		for (int spin1=0; spin1<nrSpins; ++spin1) {
+			int nrStoredCouplings = weights.nrStoredCouplings(spin1);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				double weight = weights.storedWeight(spin1, position);
+				if (weight != 0) {
+					int spin2 = weights.storedNeighbor(spin1, position);
+					double transformedWeight = spinFactors[spin1] * weight * spinFactors[spin2];
+					int position1 = nextPosition[spin1]++;
+					neighbors[position1] = spin2;
+					couplingWeights[position1] = transformedWeight;
+					int position2 = nextPosition[spin2]++;
+					neighbors[position2] = spin1;
+					couplingWeights[position2] = transformedWeight;
+					used[spin1] = true;
+					used[spin2] = true;
+				}
+			}
+		}
+	}
+	/**
+	 * Checks whether the given spin appears in any non-zero weight.
+	 *
+	 * @param spin	index of the spin
+	 * @return		true if the spin is part of the problem
+	 */
+	public boolean isUsed(int spin) {
+		return used[spin];
+	}
+	/**
+	 * Returns the weight on a single spin after gauge transformation.
+	 *
+	 * @param spin	index of the spin
+	 * @return		weight of the spin
+	 */
+	public double weight(int spin) {
+		return h[spin];
+	}
+	/**
+	 * Returns the number of non-zero couplings of a spin.
+	 *
+	 * @param spin	index of the spin
+	 * @return		number of coupled spins
+	 */
+	public int nrNeighbors(int spin) {
+		return neighborStart[spin + 1] - neighborStart[spin];
+	}
+	/**
+	 * Returns a spin coupled to the given spin.
+	 *
+	 * @param spin		index of the spin
+	 * @param position	position in the coupling list of the spin (below nrNeighbors)
+	 * @return			index of the coupled spin
+	 */
+	public int neighbor(int spin, int position) {
+		return neighbors[neighborStart[spin] + position];
+	}
+	/**
+	 * Returns the weight of a coupling of the given spin after gauge transformation.
+	 *
+	 * @param spin		index of the spin
+	 * @param position	position in the coupling list of the spin (below nrNeighbors)
+	 * @return			weight of the coupling
+	 */
+	public double couplingWeight(int spin, int position) {
+		return couplingWeights[neighborStart[spin] + position];
+	}
+	/**
+	 * Returns the local field acting on a spin: its weight plus the weights of couplings
+	 * to neighbors, multiplied by the neighbor spins.
+	 *
+	 * @param spins		current spin values (+1 or -1)
+	 * @param spin		index of the spin
+	 * @return			local field
+	 */
+	public double localField(byte[] spins, int spin) {
+		double field = h[spin];
+		int end = neighborStart[spin + 1];
+		for (int position=neighborStart[spin]; position<end; ++position) {
+			field += couplingWeights[position] * spins[neighbors[position]];
+		}
+		return field;
+	}
+	/**
+	 * Generates a random assignment, setting used spins to +1 or -1 and unused spins to zero.
+	 *
+	 * @param random	random generator
+	 * @return			vector containing the value of each spin
+	 */
+	public byte[] randomSpins(SplittableRandom random) {
+		byte[] spins = new byte[nrSpins];
+		for (int spin=0; spin<nrSpins; ++spin) {
+			if (used[spin]) {
+				spins[spin] = random.nextBoolean() ? (byte)1 : (byte)-1;
+			}
+		}
+		return spins;
+	}
+	/**
+	 * Performs one Metropolis sweep over all used spins at the given inverse temperature.
+	 *
+	 * @param spins		current spin values (+1 or -1), modified by the sweep
+	 * @param beta		inverse temperature
+	 * @param random	random generator
+	 * @return			the energy change caused by the sweep
+	 */
+	public double sweep(byte[] spins, double beta, SplittableRandom random) {
+		double energyChange = 0;
+		for (int spin=0; spin<nrSpins; ++spin) {
+			if (used[spin]) {
+				// Energy change when flipping the spin
+				double delta = -2 * spins[spin] * localField(spins, spin);
+				if (delta <= 0 || random.nextDouble() < Math.exp(-beta * delta)) {
+					spins[spin] = (byte)-spins[spin];
+					energyChange += delta;
+				}
+			}
+		}
+		return energyChange;
+	}
+	/**
+	 * Calculates the energy of a spin assignment.
+	 *
+	 * @param spins		spin values (+1 or -1, 0 for unused spins)
+	 * @return			energy level
+	 */
+	public double energy(byte[] spins) {
+		double energy = 0;
+		for (int spin=0; spin<nrSpins; ++spin) {
+			energy += h[spin] * spins[spin];
+			// Count each coupling once
+			int end = neighborStart[spin + 1];
+			for (int position=neighborStart[spin]; position<end; ++position) {
+				int neighbor = neighbors[position];
+				if (neighbor > spin) {
+					energy += couplingWeights[position] * spins[spin] * spins[neighbor];
+				}
+			}
+		}
+		return energy;
+	}
+	/**
+	 * Converts a spin assignment into a Boolean vector (true representing positive spin).
+	 *
+	 * @param spins		spin values
+	 * @return			Boolean vector that is true for each positive spin
+	 */
+	public static boolean[] toBooleans(byte[] spins) {
+		int nrSpins = spins.length;
+		boolean[] values = new boolean[nrSpins];
+		for (int spin=0; spin<nrSpins; ++spin) {
+			values[spin] = spins[spin] > 0;
+		}
+		return values;
+	}
+}
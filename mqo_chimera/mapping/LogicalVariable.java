@@ -7,6 +7,7 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.Coupling;
 
 /**
  * Represents a logical variable of a QUBO or ISING problem that might be represented either by one
@@ -133,14 +134,14 @@ public class LogicalVariable implements Serializable {
 		if (qubits.size() == 1) {
 			return;
 		}
-		// Chain qubits representing this variable
-		List<Integer> chain = AmesUtil.qubitChain(qubits);
-		assert(qubits.size() == chain.size());
-		// Add equality constraints between consecutive qubits
-		int nrQubits = qubits.size();
-		for (int chainIndex=0; chainIndex<nrQubits-1; ++chainIndex) {
-			int qubit1 = chain.get(chainIndex);
-			int qubit2 = chain.get(chainIndex+1);
+		// Connect qubits representing this variable by a spanning tree (which
+		// is the chain itself if qubits form a chain).
+		List<Coupling> tree = AmesUtil.spanningTree(qubits);
+		assert(qubits.size() == tree.size() + 1);
+		// Add equality constraints between qubits connected in the tree
+		for (Coupling coupling : tree) {
+			int qubit1 = coupling.qubit1;
+			int qubit2 = coupling.qubit2;
 			mapping.addWeight(qubit1, qubit1, scaling);
 			mapping.addWeight(qubit2, qubit2, scaling);
 			mapping.addWeight(qubit1, qubit2, -2.0 * scaling);
@@ -172,8 +173,7 @@ public class LogicalVariable implements Serializable {
 		// consider weight of qubit itself
 		energy += value * mapping.getWeight(qubit);
 		// consider weights of connections to other qubits
-		Set<Integer> neighbors = AmesUtil.connectedQubits(qubit);
-		for (int neighbor : neighbors) {
+		for (int neighbor : AmesUtil.neighbors(qubit)) {
 			double connectionWeight = mapping.getConnectionWeight(qubit, neighbor);
 			// Assume both possible neighbor values and take maximum as pessimistic for estimate.
 			double energyDelta1		= value * 0 * connectionWeight;
@@ -193,8 +193,7 @@ public class LogicalVariable implements Serializable {
 		// consider weight of qubit itself
 		energy += value * mapping.getWeight(qubit);
 		// consider weights of connections to other qubits
-		Set<Integer> neighbors = AmesUtil.connectedQubits(qubit);
-		for (int neighbor : neighbors) {
+		for (int neighbor : AmesUtil.neighbors(qubit)) {
 			double connectionWeight = mapping.getConnectionWeight(qubit, neighbor);
 			// Assume both possible neighbor values and take maximum as pessimistic for estimate.
 			double energyDelta1		= value * 0 * connectionWeight;
@@ -0,0 +1,312 @@
+package mqo_chimera.mapping;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.InteractionMap;
+
+/**
+ * Reads and writes mappings in a compact binary format that is loaded via memory mapping,
+ * without object deserialization. All numbers are stored in big-endian byte order. The
+ * file consists of the following sections:
+ * 
+ * - header: magic number, format version, mapping type, number of qubits
+ * - problem: dimensions, plan costs, interactions (key and cost delta), planted solution
+ * - variables: planted energy, associated query and plan per qubit, qubits of each plan variable
+ * - weights: non-zero weights on single qubits, non-zero weights on couplings
+ * - gauge transformations: one bit vector per transformation (bit set for kept spins)
+ * 
+ * Optional arrays are prefixed by their length, a length of -1 represents null.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public class MappingFile {
+	/**
+	 * Identifies files in the binary mapping format (reads "MQOM").
+	 */
+	static final int MAGIC = 0x4D514F4D;
+	/**
+	 * Version of the binary format.
+	 */
+	static final int VERSION = 1;
+	/**
+	 * Length written for arrays that are null.
+	 */
+	static final int NULL_LENGTH = -1;
+	/**
+	 * Checks whether the given file starts with the magic number of the binary format.
+	 * 
+	 * @param filename	path to a mapping file
+	 * @return			true if the file uses the binary format
+	 * @throws Exception
+	 */
+	public static boolean isBinary(String filename) throws Exception {
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			return file.length() >= 4 && file.readInt() == MAGIC;
+		} finally {
+			file.close();
+		}
+	}
+	/**
+	 * Writes a mapping to a file in the binary format.
+	 * 
+	 * @param mapping	the mapping to write
+	 * @param filename	path of the file to create
+	 * @throws Exception
+	 */
+	public static void write(ChimeraMqoMapping mapping, String filename) throws Exception {
+		DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(filename)));
+		// Header
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeByte(mapping.mappingType.ordinal());
+		output.writeInt(mapping.nrQubits);
+		// Problem
+		ChimeraMqoProblem problem = mapping.problem;
+		int nrQueries = problem.nrQueries;
+		int nrPlans = problem.nrPlansPerQuery;
+		output.writeInt(nrQueries);
+		output.writeInt(nrPlans);
+		output.writeBoolean(problem.allowIndependentProcessing);
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<nrPlans; ++plan) {
+				output.writeDouble(problem.planCost[query][plan]);
+			}
+		}
+		InteractionMap interactions = problem.interactions;
+		output.writeInt(interactions.size());
+		for (int slot=0; slot<interactions.capacity(); ++slot) {
+			if (interactions.isUsed(slot)) {
+				output.writeLong(interactions.keyAt(slot));
+				output.writeDouble(interactions.valueAt(slot));
+			}
+		}
+		writeInts(output, problem.plantedPlanSelections);
+		writeBits(output, problem.plantedQubitValues);
+		// Variables
+		output.writeDouble(mapping.plantedEnergy);
+		writeInts(output, mapping.associatedQuery);
+		writeInts(output, mapping.associatedPlan);
+		LogicalVariable[][] planVars = mapping.planVars;
+		if (planVars == null) {
+			output.writeInt(NULL_LENGTH);
+		} else {
+			output.writeInt(planVars.length);
+			for (LogicalVariable[] queryVars : planVars) {
+				output.writeInt(queryVars.length);
+				for (LogicalVariable planVar : queryVars) {
+					output.writeInt(planVar.getQubits().size());
+					for (int qubit : planVar.getQubits()) {
+						output.writeInt(qubit);
+					}
+				}
+			}
+		}
+		// Weights on single qubits
+		QubitWeights weights = mapping.weights;
+		int nrQubits = mapping.nrQubits;
+		int nrQubitWeights = 0;
+		int nrCouplingWeights = 0;
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (weights.getWeight(qubit) != 0) {
+				++nrQubitWeights;
+			}
+			int nrStoredCouplings = weights.nrStoredCouplings(qubit);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				if (weights.storedWeight(qubit, position) != 0) {
+					++nrCouplingWeights;
+				}
+			}
+		}
+		output.writeInt(nrQubitWeights);
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			double weight = weights.getWeight(qubit);
+			if (weight != 0) {
+				output.writeInt(qubit);
+				output.writeDouble(weight);
+			}
+		}
+		// Weights on couplings
+		output.writeInt(nrCouplingWeights);
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			int nrStoredCouplings = weights.nrStoredCouplings(qubit);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				double weight = weights.storedWeight(qubit, position);
+				if (weight != 0) {
+					output.writeInt(qubit);
+					output.writeInt(weights.storedNeighbor(qubit, position));
+					output.writeDouble(weight);
+				}
+			}
+		}
+		// Gauge transformations
+		boolean[][] gaugeTransformations = mapping.gaugeTransformations;
+		output.writeInt(gaugeTransformations.length);
+		for (boolean[] transformation : gaugeTransformations) {
+			writeBits(output, transformation);
+		}
+		output.close();
+	}
+	/**
+	 * Writes an optional integer array, prefixed by its length.
+	 * 
+	 * @param output	stream to write to
+	 * @param values	integer array or null
+	 * @throws Exception
+	 */
+	static void writeInts(DataOutputStream output, int[] values) throws Exception {
+		if (values == null) {
+			output.writeInt(NULL_LENGTH);
+		} else {
+			output.writeInt(values.length);
+			for (int value : values) {
+				output.writeInt(value);
+			}
+		}
+	}
+	/**
+	 * Writes an optional Boolean array as packed bits, prefixed by its length.
+	 * 
+	 * @param output	stream to write to
+	 * @param values	Boolean array or null
+	 * @throws Exception
+	 */
+	static void writeBits(DataOutputStream output, boolean[] values) throws Exception {
+		if (values == null) {
+			output.writeInt(NULL_LENGTH);
+		} else {
+			output.writeInt(values.length);
+			for (long word : SpinVector.fromBooleans(values).words) {
+				output.writeLong(word);
+			}
+		}
+	}
+	/**
+	 * Reads a mapping from a file in the binary format via memory mapping.
+	 * 
+	 * @param filename	path to a file in the binary format
+	 * @return			the mapping stored in the file
+	 * @throws Exception
+	 */
+	public static ChimeraMqoMapping read(String filename) throws Exception {
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		MappedByteBuffer buffer;
+		try {
+			FileChannel channel = file.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			file.close();
+		}
+		// Header
+		if (buffer.getInt() != MAGIC) {
+			throw new IllegalArgumentException(filename + " is not a binary mapping file");
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported mapping file version " + version);
+		}
+		MappingType mappingType = MappingType.values()[buffer.get()];
+		int nrQubits = buffer.getInt();
+		ChimeraMqoMapping mapping = new ChimeraMqoMapping(mappingType, nrQubits);
+		// Problem
+		int nrQueries = buffer.getInt();
+		int nrPlans = buffer.getInt();
+		boolean allowIndependentProcessing = buffer.get() != 0;
+		ChimeraMqoProblem problem = new ChimeraMqoProblem(nrQueries, nrPlans, allowIndependentProcessing);
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<nrPlans; ++plan) {
+				problem.planCost[query][plan] = buffer.getDouble();
+			}
+		}
+		int nrInteractions = buffer.getInt();
+		for (int interactionCtr=0; interactionCtr<nrInteractions; ++interactionCtr) {
+			long key = buffer.getLong();
+			problem.interactions.add(key, buffer.getDouble());
+		}
+		problem.plantedPlanSelections = readInts(buffer);
+		problem.plantedQubitValues = readBits(buffer);
+		mapping.problem = problem;
+		// Variables
+		mapping.plantedEnergy = buffer.getDouble();
+		mapping.associatedQuery = readInts(buffer);
+		mapping.associatedPlan = readInts(buffer);
+		int nrVarQueries = buffer.getInt();
+		if (nrVarQueries != NULL_LENGTH) {
+			mapping.planVars = new LogicalVariable[nrVarQueries][];
+			for (int query=0; query<nrVarQueries; ++query) {
+				int nrVarPlans = buffer.getInt();
+				mapping.planVars[query] = new LogicalVariable[nrVarPlans];
+				for (int plan=0; plan<nrVarPlans; ++plan) {
+					// Qubits were validated when the mapping was created
+					LogicalVariable planVar = new LogicalVariable();
+					int nrVarQubits = buffer.getInt();
+					for (int qubitCtr=0; qubitCtr<nrVarQubits; ++qubitCtr) {
+						planVar.getQubits().add(buffer.getInt());
+					}
+					mapping.planVars[query][plan] = planVar;
+				}
+			}
+		}
+		// Weights
+		QubitWeights weights = mapping.weights;
+		int nrQubitWeights = buffer.getInt();
+		for (int weightCtr=0; weightCtr<nrQubitWeights; ++weightCtr) {
+			int qubit = buffer.getInt();
+			weights.addWeight(qubit, buffer.getDouble());
+		}
+		int nrCouplingWeights = buffer.getInt();
+		for (int weightCtr=0; weightCtr<nrCouplingWeights; ++weightCtr) {
+			int qubit1 = buffer.getInt();
+			int qubit2 = buffer.getInt();
+			weights.addConnectionWeight(qubit1, qubit2, buffer.getDouble());
+		}
+		mapping.compactWeights();
+		// Gauge transformations
+		int nrTransformations = buffer.getInt();
+		mapping.gaugeTransformations = new boolean[nrTransformations][];
+		for (int transformationCtr=0; transformationCtr<nrTransformations; ++transformationCtr) {
+			mapping.gaugeTransformations[transformationCtr] = readBits(buffer);
+		}
+		return mapping;
+	}
+	/**
+	 * Reads an optional integer array written by writeInts.
+	 * 
+	 * @param buffer	buffer positioned at the array length
+	 * @return			integer array or null
+	 */
+	static int[] readInts(MappedByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		int[] values = new int[length];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + 4 * length);
+		return values;
+	}
+	/**
+	 * Reads an optional Boolean array written by writeBits.
+	 * 
+	 * @param buffer	buffer positioned at the array length
+	 * @return			Boolean array or null
+	 */
+	static boolean[] readBits(MappedByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		SpinVector vector = new SpinVector(length);
+		buffer.asLongBuffer().get(vector.words);
+		buffer.position(buffer.position() + 8 * vector.words.length);
+		return vector.toBooleans();
+	}
+}
@@ -0,0 +1,106 @@
+package mqo_chimera.mapping;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.InteractionMap;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.RandomUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class MappingFileTest {
+	/**
+	 * Asserts that two mappings contain the same information.
+	 * 
+	 * @param expected	the original mapping
+	 * @param actual	the mapping read from disc
+	 */
+	static void assertSameMapping(ChimeraMqoMapping expected, ChimeraMqoMapping actual) {
+		assertEquals(expected.mappingType, actual.mappingType);
+		assertEquals(expected.plantedEnergy, actual.plantedEnergy, TestUtil.DOUBLE_TOLERANCE);
+		assertArrayEquals(expected.associatedQuery, actual.associatedQuery);
+		assertArrayEquals(expected.associatedPlan, actual.associatedPlan);
+		// Problem
+		ChimeraMqoProblem expectedProblem = expected.problem;
+		ChimeraMqoProblem actualProblem = actual.problem;
+		assertEquals(expectedProblem.nrQueries, actualProblem.nrQueries);
+		assertEquals(expectedProblem.nrPlansPerQuery, actualProblem.nrPlansPerQuery);
+		assertEquals(expectedProblem.allowIndependentProcessing, actualProblem.allowIndependentProcessing);
+		for (int query=0; query<expectedProblem.nrQueries; ++query) {
+			assertArrayEquals(expectedProblem.planCost[query], actualProblem.planCost[query], 0);
+			for (int plan=0; plan<expectedProblem.nrPlansPerQuery; ++plan) {
+				assertEquals(expected.planVars[query][plan].getQubits(), 
+						actual.planVars[query][plan].getQubits());
+			}
+		}
+		InteractionMap interactions = expectedProblem.interactions;
+		assertEquals(interactions.size(), actualProblem.interactions.size());
+		for (int slot=0; slot<interactions.capacity(); ++slot) {
+			if (interactions.isUsed(slot)) {
+				long key = interactions.keyAt(slot);
+				assertEquals(interactions.valueAt(slot), actualProblem.interactions.get(key), 0);
+			}
+		}
+		assertArrayEquals(expectedProblem.plantedPlanSelections, actualProblem.plantedPlanSelections);
+		assertArrayEquals(expectedProblem.plantedQubitValues, actualProblem.plantedQubitValues);
+		// Weights
+		for (int qubit1=0; qubit1<expected.nrQubits; ++qubit1) {
+			assertEquals(expected.getWeight(qubit1), actual.getWeight(qubit1), 0);
+			for (int qubit2 : AmesUtil.neighbors(qubit1)) {
+				assertEquals(expected.getConnectionWeight(qubit1, qubit2), 
+						actual.getConnectionWeight(qubit1, qubit2), 0);
+			}
+		}
+		// Gauge transformations
+		assertEquals(expected.gaugeTransformations.length, actual.gaugeTransformations.length);
+		for (int transformationCtr=0; transformationCtr<expected.gaugeTransformations.length; ++transformationCtr) {
+			assertArrayEquals(expected.gaugeTransformations[transformationCtr], 
+					actual.gaugeTransformations[transformationCtr]);
+		}
+	}
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		ChimeraMqoMapping mapping = ChimeraFactory.produceLoopsTestcase(50, 2, 20, 5, 1, false);
+		mapping.generateGaugeTransformations();
+		// Round trip through binary format
+		{
+			File file = File.createTempFile("mapping", null);
+			try {
+				mapping.toFile(file.getPath());
+				assertTrue(MappingFile.isBinary(file.getPath()));
+				ChimeraMqoMapping readMapping = ChimeraMqoMapping.readMapping(file.getPath());
+				assertSameMapping(mapping, readMapping);
+				// Energy of random assignments is preserved
+				for (int assignmentCtr=0; assignmentCtr<10; ++assignmentCtr) {
+					boolean[] qubitValues = new boolean[mapping.nrQubits];
+					for (int qubit=0; qubit<mapping.nrQubits; ++qubit) {
+						qubitValues[qubit] = RandomUtil.random.nextBoolean();
+					}
+					assertEquals(mapping.getEnergy(qubitValues), readMapping.getEnergy(qubitValues), 
+							TestUtil.DOUBLE_TOLERANCE);
+				}
+			} finally {
+				file.delete();
+			}
+		}
+		// Serialized mappings can still be read
+		{
+			File file = File.createTempFile("mapping", null);
+			try {
+				mapping.serializeToFile(file.getPath());
+				assertFalse(MappingFile.isBinary(file.getPath()));
+				assertSameMapping(mapping, ChimeraMqoMapping.readMapping(file.getPath()));
+			} finally {
+				file.delete();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,182 @@
+package mqo_chimera.mapping;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Sparse storage for the weights of a QUBO or Ising problem on the qubit matrix. Weights on
+ * single qubits are kept in a dense vector. Coupling weights are kept in the upper triangle
+ * of the weight matrix: for each qubit we store the sorted indices of coupled qubits with a
+ * higher index together with the associated weights. As each qubit of the Chimera graph is
+ * connected to at most six other qubits, lookups and updates only scan a handful of entries.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class QubitWeights implements Serializable {
+	/**
+	 * Used to verify the class version.
+	 */
+	private static final long serialVersionUID = 1L;
+	/**
+	 * Initial number of coupling entries reserved per qubit.
+	 */
+	static final int INITIAL_ROW_CAPACITY = 2;
+	/**
+	 * The number of (broken or intact) qubits.
+	 */
+	public final int nrQubits;
+	/**
+	 * Stores for each qubit the weight on that qubit (diagonal of the weight matrix).
+	 */
+	final double[] qubitWeights;
+	/**
+	 * Stores for each qubit the indices of coupled qubits with higher index in ascending order,
+	 * the array may be longer than the number of used entries or null if no coupling was added.
+	 */
+	final int[][] rowNeighbors;
+	/**
+	 * Stores for each qubit the weights on the couplings to the qubits in rowNeighbors.
+	 */
+	final double[][] rowWeights;
+	/**
+	 * Stores for each qubit the number of used entries in rowNeighbors and rowWeights.
+	 */
+	final int[] rowSizes;
+
+	public QubitWeights(int nrQubits) {
+		this.nrQubits = nrQubits;
+		this.qubitWeights = new double[nrQubits];
+		this.rowNeighbors = new int[nrQubits][];
+		this.rowWeights = new double[nrQubits][];
+		this.rowSizes = new int[nrQubits];
+	}
+	/**
+	 * Returns the weight on the given qubit.
+	 *
+	 * @param qubit	index of the qubit
+	 * @return		weight on that qubit
+	 */
+	public double getWeight(int qubit) {
+		return qubitWeights[qubit];
+	}
+	/**
+	 * Adds weight on the given qubit.
+	 *
+	 * @param qubit			index of the qubit
+	 * @param addedWeight	weight to add
+	 */
+	public void addWeight(int qubit, double addedWeight) {
+		qubitWeights[qubit] += addedWeight;
+	}
+	/**
+	 * Returns the position of the second qubit in the row of the first qubit or a negative
+	 * value (encoding the insertion point like Arrays.binarySearch) if it is not stored.
+	 *
+	 * @param row		the lower qubit index
+	 * @param column	the higher qubit index
+	 * @return			position of the entry within the row
+	 */
+	int position(int row, int column) {
+		int[] neighbors = rowNeighbors[row];
+		if (neighbors == null) {
+			return -1;
+		}
+		return Arrays.binarySearch(neighbors, 0, rowSizes[row], column);
+	}
+	/**
+	 * Returns the weight on the coupling between two qubits (zero if no weight was added).
+	 *
+	 * @param qubit1	index of first qubit
+	 * @param qubit2	index of second qubit
+	 * @return			weight on the coupling between the two qubits
+	 */
+	public double getConnectionWeight(int qubit1, int qubit2) {
+		int row = Math.min(qubit1, qubit2);
+		int column = Math.max(qubit1, qubit2);
+		int position = position(row, column);
+		return position >= 0 ? rowWeights[row][position] : 0;
+	}
+	/**
+	 * Adds weight on the coupling between two different qubits.
+	 *
+	 * @param qubit1		index of first qubit
+	 * @param qubit2		index of second qubit
+	 * @param addedWeight	weight to add
+	 */
+	public void addConnectionWeight(int qubit1, int qubit2, double addedWeight) {
+		assert(qubit1 != qubit2);
+		int row = Math.min(qubit1, qubit2);
+		int column = Math.max(qubit1, qubit2);
+		int position = position(row, column);
+		if (position >= 0) {
+			rowWeights[row][position] += addedWeight;
+			return;
+		}
+		// Insert new entry while keeping neighbors sorted
+		int insertionPoint = -position - 1;
+		int rowSize = rowSizes[row];
+		if (rowNeighbors[row] == null) {
+			rowNeighbors[row] = new int[INITIAL_ROW_CAPACITY];
+			rowWeights[row] = new double[INITIAL_ROW_CAPACITY];
+		} else if (rowSize == rowNeighbors[row].length) {
+			rowNeighbors[row] = Arrays.copyOf(rowNeighbors[row], 2 * rowSize);
+			rowWeights[row] = Arrays.copyOf(rowWeights[row], 2 * rowSize);
+		}
+		int[] neighbors = rowNeighbors[row];
+		double[] weights = rowWeights[row];
+		System.arraycopy(neighbors, insertionPoint, neighbors, insertionPoint + 1, rowSize - insertionPoint);
+		System.arraycopy(weights, insertionPoint, weights, insertionPoint + 1, rowSize - insertionPoint);
+		neighbors[insertionPoint] = column;
+		weights[insertionPoint] = addedWeight;
+		++rowSizes[row];
+	}
+	/**
+	 * Returns the number of couplings stored for the given qubit (only counting coupled
+	 * qubits with a higher index).
+	 *
+	 * @param qubit	the lower qubit index
+	 * @return		the number of stored couplings to qubits with higher index
+	 */
+	public int nrStoredCouplings(int qubit) {
+		return rowSizes[qubit];
+	}
+	/**
+	 * Returns the coupled qubit at the given position of the row of a qubit.
+	 *
+	 * @param qubit		the lower qubit index
+	 * @param position	position in the row, must be below nrStoredCouplings(qubit)
+	 * @return			index of the coupled qubit (always higher than the first qubit)
+	 */
+	public int storedNeighbor(int qubit, int position) {
+		assert(position < rowSizes[qubit]);
+		return rowNeighbors[qubit][position];
+	}
+	/**
+	 * Returns the coupling weight at the given position of the row of a qubit.
+	 *
+	 * @param qubit		the lower qubit index
+	 * @param position	position in the row, must be below nrStoredCouplings(qubit)
+	 * @return			weight on the coupling
+	 */
+	public double storedWeight(int qubit, int position) {
+		assert(position < rowSizes[qubit]);
+		return rowWeights[qubit][position];
+	}
+	/**
+	 * Releases unused capacity in the coupling rows. Called once all weights have been added,
+	 * weights can still be added afterwards.
+	 */
+	public void compact() {
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			int rowSize = rowSizes[qubit];
+			if (rowSize == 0) {
+				rowNeighbors[qubit] = null;
+				rowWeights[qubit] = null;
+			} else if (rowSize < rowNeighbors[qubit].length) {
+				rowNeighbors[qubit] = Arrays.copyOf(rowNeighbors[qubit], rowSize);
+				rowWeights[qubit] = Arrays.copyOf(rowWeights[qubit], rowSize);
+			}
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package mqo_chimera.mapping;
+
+import static org.junit.Assert.*;
+
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class QubitWeightsTest {
+
+	@Test
+	public void test() {
+		// Weights on single qubits
+		{
+			QubitWeights weights = new QubitWeights(1152);
+			assertEquals(0, weights.getWeight(7), TestUtil.DOUBLE_TOLERANCE);
+			weights.addWeight(7, 1.5);
+			weights.addWeight(7, -0.5);
+			assertEquals(1, weights.getWeight(7), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(0, weights.nrStoredCouplings(7));
+		}
+		// Weights on couplings are symmetric and accumulate
+		{
+			QubitWeights weights = new QubitWeights(1152);
+			assertEquals(0, weights.getConnectionWeight(0, 4), TestUtil.DOUBLE_TOLERANCE);
+			weights.addConnectionWeight(0, 4, 1);
+			weights.addConnectionWeight(4, 0, 2);
+			assertEquals(3, weights.getConnectionWeight(0, 4), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(3, weights.getConnectionWeight(4, 0), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(0, weights.getConnectionWeight(0, 5), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(0, weights.getWeight(0), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(1, weights.nrStoredCouplings(0));
+			assertEquals(0, weights.nrStoredCouplings(4));
+		}
+		// Couplings are stored in the row of the lower qubit, sorted by the higher qubit
+		{
+			QubitWeights weights = new QubitWeights(1152);
+			weights.addConnectionWeight(0, 96, -1);
+			weights.addConnectionWeight(0, 6, 2);
+			weights.addConnectionWeight(5, 0, 3);
+			weights.addConnectionWeight(0, 4, 4);
+			weights.addConnectionWeight(0, 7, 5);
+			assertEquals(5, weights.nrStoredCouplings(0));
+			int[] expectedNeighbors = new int[] {4, 5, 6, 7, 96};
+			double[] expectedWeights = new double[] {4, 3, 2, 5, -1};
+			for (int position=0; position<5; ++position) {
+				assertEquals(expectedNeighbors[position], weights.storedNeighbor(0, position));
+				assertEquals(expectedWeights[position], weights.storedWeight(0, position), TestUtil.DOUBLE_TOLERANCE);
+			}
+			// Compacting keeps all weights and allows further additions
+			weights.compact();
+			assertEquals(5, weights.nrStoredCouplings(0));
+			assertEquals(-1, weights.getConnectionWeight(96, 0), TestUtil.DOUBLE_TOLERANCE);
+			weights.addConnectionWeight(0, 96, 1);
+			assertEquals(0, weights.getConnectionWeight(0, 96), TestUtil.DOUBLE_TOLERANCE);
+			weights.addConnectionWeight(1, 4, 0.5);
+			assertEquals(0.5, weights.getConnectionWeight(4, 1), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(5, weights.nrStoredCouplings(0));
+		}
+	}
+
+}
@@ -0,0 +1,408 @@
+package mqo_chimera.mapping;
+
+import java.io.PrintWriter;
+
+/**
+ * Writes the QUBO problem represented by a mapping in standard model formats (LP, MPS, and
+ * QPLIB) that are understood by most open-source and commercial solvers. The model can be
+ * written either in quadratic form or in the linearized form used by the linear solver:
+ * each non-zero coupling between two qubits is represented by an additional binary variable
+ * that is forced to the logical AND of the two qubits by three linear constraints. The
+ * quadratic form is the model that QuadraticMqoSolver and QuadraticConsolidationSolver (in
+ * raw_material) pass to CPLEX: the sum of weighted qubits and weighted qubit products is
+ * minimized without constraints (the consolidation solver optionally fixes tenant
+ * assignments). Those solvers build their models from the raw_material mappings, which are
+ * not part of this package, so they are covered by writing the equivalent mapping here. All
+ * writers stream the model directly from the sparse weights without building an intermediate
+ * representation. Qubit variables are named x(qubit), coupling variables y(qubit1)_(qubit2),
+ * and the constraints for a coupling c1_, c2_, and c3_ followed by the two qubits.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class QuboModelWriter {
+	/**
+	 * The mapping whose QUBO problem is written.
+	 */
+	final ChimeraMqoMapping mapping;
+	/**
+	 * The weights of the QUBO problem.
+	 */
+	final QubitWeights weights;
+	/**
+	 * Whether a qubit appears in any non-zero weight - only those qubits are written.
+	 */
+	final boolean[] used;
+	/**
+	 * The number of qubits appearing in non-zero weights.
+	 */
+	final int nrUsedQubits;
+	/**
+	 * The number of couplings with non-zero weight.
+	 */
+	final int nrCouplings;
+	/**
+	 * Stores for each qubit the position of its first coupled qubit in neighbors, the
+	 * neighbors of qubit i end where the neighbors of qubit i+1 start.
+	 */
+	final int[] neighborStart;
+	/**
+	 * Stores for each non-zero coupling the coupled qubits (each coupling is stored for both qubits).
+	 */
+	final int[] neighbors;
+	/**
+	 * Prepares writing the QUBO problem represented by the given mapping.
+	 *
+	 * @param mapping	a QUBO mapping
+	 */
+	public QuboModelWriter(ChimeraMqoMapping mapping) {
+		if (mapping.mappingType != MappingType.QUBO) {
+			throw new IllegalArgumentException("Only QUBO mappings can be written as model");
+		}
+		this.mapping = mapping;
+		this.weights = mapping.weights;
+		int nrQubits = mapping.nrQubits;
+		this.used = new boolean[nrQubits];
+		// Determine used qubits and count couplings per qubit
+		int[] nrNeighbors = new int[nrQubits];
+		int nrCouplings = 0;
+		for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+			if (weights.getWeight(qubit1) != 0) {
+				used[qubit1] = true;
+			}
+			int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				if (weights.storedWeight(qubit1, position) != 0) {
+					int qubit2 = weights.storedNeighbor(qubit1, position);
+					used[qubit1] = true;
+					used[qubit2] = true;
+					++nrNeighbors[qubit1];
+					++nrNeighbors[qubit2];
+					++nrCouplings;
+				}
+			}
+		}
+		this.nrCouplings = nrCouplings;
+		int nrUsedQubits = 0;
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (used[qubit]) {
+				++nrUsedQubits;
+			}
+		}
+		this.nrUsedQubits = nrUsedQubits;
+		// Store neighbors of each qubit in compressed sparse row format
+		neighborStart = new int[nrQubits + 1];
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			neighborStart[qubit + 1] = neighborStart[qubit] + nrNeighbors[qubit];
+		}
+		neighbors = new int[neighborStart[nrQubits]];
+		int[] nextPosition = new int[nrQubits];
+		System.arraycopy(neighborStart, 0, nextPosition, 0, nrQubits);
+		for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+			int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				if (weights.storedWeight(qubit1, position) != 0) {
+					int qubit2 = weights.storedNeighbor(qubit1, position);
+					neighbors[nextPosition[qubit1]++] = qubit2;
+					neighbors[nextPosition[qubit2]++] = qubit1;
+				}
+			}
+		}
+	}
+	/**
+	 * Returns the name of the variable representing a qubit.
+	 *
+	 * @param qubit	qubit index
+	 * @return		variable name
+	 */
+	static String qubitName(int qubit) {
+		return "x" + qubit;
+	}
+	/**
+	 * Returns the name of the variable representing the coupling between two qubits.
+	 *
+	 * @param qubit1	the qubit with lower index
+	 * @param qubit2	the qubit with higher index
+	 * @return			variable name
+	 */
+	static String couplingName(int qubit1, int qubit2) {
+		return "y" + qubit1 + "_" + qubit2;
+	}
+	/**
+	 * Returns the name of a constraint linking a coupling variable to its qubits.
+	 *
+	 * @param constraint	constraint number (from 1 to 3)
+	 * @param qubit1		the qubit with lower index
+	 * @param qubit2		the qubit with higher index
+	 * @return				constraint name
+	 */
+	static String constraintName(int constraint, int qubit1, int qubit2) {
+		return "c" + constraint + "_" + qubit1 + "_" + qubit2;
+	}
+	/**
+	 * Formats a term for an expression in LP format.
+	 *
+	 * @param coefficient	coefficient of the term
+	 * @param variables		one variable or a product of variables
+	 * @return				term with explicit sign
+	 */
+	static String lpTerm(double coefficient, String variables) {
+		return coefficient < 0 ? " - " + (-coefficient) + " " + variables : " + " + coefficient + " " + variables;
+	}
+	/**
+	 * Writes the model in CPLEX LP format.
+	 *
+	 * @param filename		path of the file to create
+	 * @param linearized	whether to write the linearized model (otherwise the quadratic model)
+	 * @throws Exception
+	 */
+	public void writeLp(String filename, boolean linearized) throws Exception {
+		int nrQubits = mapping.nrQubits;
+		PrintWriter writer = new PrintWriter(filename);
+		writer.println("\\ QUBO on " + nrUsedQubits + " qubits with " + nrCouplings + " couplings");
+		// Write objective, one term per line
+		writer.println("Minimize");
+		writer.println(" obj:");
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			double weight = weights.getWeight(qubit);
+			if (weight != 0) {
+				writer.println(lpTerm(weight, qubitName(qubit)));
+			}
+		}
+		if (nrCouplings > 0) {
+			// Quadratic terms are divided by two in LP format
+			if (!linearized) {
+				writer.println(" + [");
+			}
+			for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+				int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+				for (int position=0; position<nrStoredCouplings; ++position) {
+					double weight = weights.storedWeight(qubit1, position);
+					if (weight != 0) {
+						int qubit2 = weights.storedNeighbor(qubit1, position);
+						if (linearized) {
+							writer.println(lpTerm(weight, couplingName(qubit1, qubit2)));
+						} else {
+							writer.println(lpTerm(2 * weight, qubitName(qubit1) + " * " + qubitName(qubit2)));
+						}
+					}
+				}
+			}
+			if (!linearized) {
+				writer.println(" ] / 2");
+			}
+		}
+		// Write constraints linking coupling variables to qubits
+		if (linearized && nrCouplings > 0) {
+			writer.println("Subject To");
+			for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+				int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+				for (int position=0; position<nrStoredCouplings; ++position) {
+					if (weights.storedWeight(qubit1, position) != 0) {
+						int qubit2 = weights.storedNeighbor(qubit1, position);
+						String coupling = couplingName(qubit1, qubit2);
+						String x1 = qubitName(qubit1);
+						String x2 = qubitName(qubit2);
+						writer.println(" " + constraintName(1, qubit1, qubit2) + ": " + coupling + " - " + x1 + " <= 0");
+						writer.println(" " + constraintName(2, qubit1, qubit2) + ": " + coupling + " - " + x2 + " <= 0");
+						writer.println(" " + constraintName(3, qubit1, qubit2) + ": " + x1 + " + " + x2 + " - " + coupling + " <= 1");
+					}
+				}
+			}
+		}
+		// Declare binary variables
+		writer.println("Binary");
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (used[qubit]) {
+				writer.println(" " + qubitName(qubit));
+			}
+		}
+		if (linearized) {
+			for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+				int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+				for (int position=0; position<nrStoredCouplings; ++position) {
+					if (weights.storedWeight(qubit1, position) != 0) {
+						writer.println(" " + couplingName(qubit1, weights.storedNeighbor(qubit1, position)));
+					}
+				}
+			}
+		}
+		writer.println("End");
+		writer.close();
+	}
+	/**
+	 * Writes the model in free MPS format (names exceed the eight characters allowed by the
+	 * fixed format). The quadratic model uses a QUADOBJ section listing each coupling once.
+	 *
+	 * @param filename		path of the file to create
+	 * @param linearized	whether to write the linearized model (otherwise the quadratic model)
+	 * @throws Exception
+	 */
+	public void writeMps(String filename, boolean linearized) throws Exception {
+		int nrQubits = mapping.nrQubits;
+		PrintWriter writer = new PrintWriter(filename);
+		writer.println("NAME QUBO");
+		// Declare objective and constraints
+		writer.println("ROWS");
+		writer.println(" N obj");
+		if (linearized) {
+			for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+				int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+				for (int position=0; position<nrStoredCouplings; ++position) {
+					if (weights.storedWeight(qubit1, position) != 0) {
+						int qubit2 = weights.storedNeighbor(qubit1, position);
+						for (int constraint=1; constraint<=3; ++constraint) {
+							writer.println(" L " + constraintName(constraint, qubit1, qubit2));
+						}
+					}
+				}
+			}
+		}
+		// Write coefficients column by column
+		writer.println("COLUMNS");
+		writer.println(" MARKER 'MARKER' 'INTORG'");
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (used[qubit]) {
+				String x = qubitName(qubit);
+				writer.println(" " + x + " obj " + weights.getWeight(qubit));
+				if (linearized) {
+					for (int position=neighborStart[qubit]; position<neighborStart[qubit + 1]; ++position) {
+						int neighbor = neighbors[position];
+						int qubit1 = Math.min(qubit, neighbor);
+						int qubit2 = Math.max(qubit, neighbor);
+						int upperBoundConstraint = qubit == qubit1 ? 1 : 2;
+						writer.println(" " + x + " " + constraintName(upperBoundConstraint, qubit1, qubit2) + " -1");
+						writer.println(" " + x + " " + constraintName(3, qubit1, qubit2) + " 1");
+					}
+				}
+			}
+		}
+		if (linearized) {
+			for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+				int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+				for (int position=0; position<nrStoredCouplings; ++position) {
+					double weight = weights.storedWeight(qubit1, position);
+					if (weight != 0) {
+						int qubit2 = weights.storedNeighbor(qubit1, position);
+						String y = couplingName(qubit1, qubit2);
+						writer.println(" " + y + " obj " + weight);
+						writer.println(" " + y + " " + constraintName(1, qubit1, qubit2) + " 1");
+						writer.println(" " + y + " " + constraintName(2, qubit1, qubit2) + " 1");
+						writer.println(" " + y + " " + constraintName(3, qubit1, qubit2) + " -1");
+					}
+				}
+			}
+		}
+		writer.println(" MARKER 'MARKER' 'INTEND'");
+		// Write right hand sides (only the third constraint per coupling has a non-zero bound)
+		writer.println("RHS");
+		if (linearized) {
+			for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+				int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+				for (int position=0; position<nrStoredCouplings; ++position) {
+					if (weights.storedWeight(qubit1, position) != 0) {
+						int qubit2 = weights.storedNeighbor(qubit1, position);
+						writer.println(" rhs " + constraintName(3, qubit1, qubit2) + " 1");
+					}
+				}
+			}
+		}
+		// Declare binary variables
+		writer.println("BOUNDS");
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (used[qubit]) {
+				writer.println(" BV bnd " + qubitName(qubit));
+			}
+		}
+		if (linearized) {
+			for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+				int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+				for (int position=0; position<nrStoredCouplings; ++position) {
+					if (weights.storedWeight(qubit1, position) != 0) {
+						int qubit2 = weights.storedNeighbor(qubit1, position);
+						writer.println(" BV bnd " + couplingName(qubit1, qubit2));
+					}
+				}
+			}
+		} else if (nrCouplings > 0) {
+			// Objective contains one half of x'Qx, Q is symmetric
+			writer.println("QUADOBJ");
+			for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+				int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+				for (int position=0; position<nrStoredCouplings; ++position) {
+					double weight = weights.storedWeight(qubit1, position);
+					if (weight != 0) {
+						int qubit2 = weights.storedNeighbor(qubit1, position);
+						writer.println(" " + qubitName(qubit1) + " " + qubitName(qubit2) + " " + weight);
+					}
+				}
+			}
+		}
+		writer.println("ENDATA");
+		writer.close();
+	}
+	/**
+	 * Writes the quadratic model in QPLIB format as unconstrained binary problem (type QBN).
+	 * Used qubits are numbered consecutively starting from one, the original qubit indices
+	 * are recorded in the variable names.
+	 *
+	 * @param filename	path of the file to create
+	 * @param name		name of the instance written into the first line
+	 * @throws Exception
+	 */
+	public void writeQplib(String filename, String name) throws Exception {
+		int nrQubits = mapping.nrQubits;
+		// Number used qubits consecutively
+		int[] variableIndex = new int[nrQubits];
+		int nextIndex = 1;
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			variableIndex[qubit] = used[qubit] ? nextIndex++ : -1;
+		}
+		PrintWriter writer = new PrintWriter(filename);
+		writer.println(name);
+		writer.println("QBN");
+		writer.println("minimize");
+		writer.println(nrUsedQubits + " # number of variables");
+		// Objective contains one half of x'Qx, we list the lower triangle of Q
+		writer.println(nrCouplings + " # number of quadratic terms in objective");
+		for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+			int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				double weight = weights.storedWeight(qubit1, position);
+				if (weight != 0) {
+					int qubit2 = weights.storedNeighbor(qubit1, position);
+					writer.println(variableIndex[qubit2] + " " + variableIndex[qubit1] + " " + weight);
+				}
+			}
+		}
+		// Linear terms
+		int nrLinearTerms = 0;
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (weights.getWeight(qubit) != 0) {
+				++nrLinearTerms;
+			}
+		}
+		writer.println("0 # default value for linear coefficients in objective");
+		writer.println(nrLinearTerms + " # number of non-default linear coefficients in objective");
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			double weight = weights.getWeight(qubit);
+			if (weight != 0) {
+				writer.println(variableIndex[qubit] + " " + weight);
+			}
+		}
+		writer.println("0 # objective constant");
+		// Starting point
+		writer.println("0 # default variable primal value in starting point");
+		writer.println("0 # number of non-default variable primal values in starting point");
+		writer.println("0 # default variable bound dual value in starting point");
+		writer.println("0 # number of non-default variable bound dual values in starting point");
+		// Variable names
+		writer.println(nrUsedQubits + " # number of non-default variable names");
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (used[qubit]) {
+				writer.println(variableIndex[qubit] + " " + qubitName(qubit));
+			}
+		}
+		writer.close();
+	}
+}
@@ -0,0 +1,180 @@
+package mqo_chimera.mapping;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.RandomUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class QuboModelWriterTest {
+	/**
+	 * Evaluates the objective of a model in QPLIB format for given qubit values.
+	 * 
+	 * @param lines			lines of the QPLIB file
+	 * @param qubitValues	value for each qubit
+	 * @return				objective value
+	 */
+	static double qplibObjective(List<String> lines, boolean[] qubitValues) {
+		// Map variable indices to qubits via variable names
+		int nrVariables = Integer.parseInt(lines.get(3).split(" ")[0]);
+		int[] variableQubit = new int[nrVariables + 1];
+		int namesLine = lines.size() - nrVariables;
+		for (int lineCtr=namesLine; lineCtr<lines.size(); ++lineCtr) {
+			String[] fields = lines.get(lineCtr).split(" ");
+			variableQubit[Integer.parseInt(fields[0])] = Integer.parseInt(fields[1].substring(1));
+		}
+		// Quadratic terms
+		double objective = 0;
+		int lineCtr = 4;
+		int nrQuadraticTerms = Integer.parseInt(lines.get(lineCtr++).split(" ")[0]);
+		for (int termCtr=0; termCtr<nrQuadraticTerms; ++termCtr) {
+			String[] fields = lines.get(lineCtr++).split(" ");
+			int variable1 = Integer.parseInt(fields[0]);
+			int variable2 = Integer.parseInt(fields[1]);
+			assertTrue(variable1 > variable2);
+			if (qubitValues[variableQubit[variable1]] && qubitValues[variableQubit[variable2]]) {
+				objective += Double.parseDouble(fields[2]);
+			}
+		}
+		// Linear terms
+		++lineCtr;
+		int nrLinearTerms = Integer.parseInt(lines.get(lineCtr++).split(" ")[0]);
+		for (int termCtr=0; termCtr<nrLinearTerms; ++termCtr) {
+			String[] fields = lines.get(lineCtr++).split(" ");
+			if (qubitValues[variableQubit[Integer.parseInt(fields[0])]]) {
+				objective += Double.parseDouble(fields[1]);
+			}
+		}
+		return objective;
+	}
+	/**
+	 * Evaluates the linearized model in MPS format for given qubit values, setting coupling
+	 * variables to the given value if both qubits are set.
+	 * 
+	 * @param lines				lines of the MPS file
+	 * @param qubitValues		value for each qubit
+	 * @param couplingValue		value of coupling variables whose qubits are both set
+	 * @return					objective value or infinity if a constraint is violated
+	 */
+	static double mpsObjective(List<String> lines, boolean[] qubitValues, boolean couplingValue) {
+		Map<String, Double> rowActivity = new HashMap<String, Double>();
+		Map<String, Double> rowBound = new HashMap<String, Double>();
+		String section = null;
+		for (String line : lines) {
+			if (!line.startsWith(" ")) {
+				section = line;
+				continue;
+			}
+			String[] fields = line.trim().split(" ");
+			if (section.equals("ROWS")) {
+				rowActivity.put(fields[1], 0.0);
+				rowBound.put(fields[1], 0.0);
+			} else if (section.equals("COLUMNS") && !fields[0].equals("MARKER")) {
+				String variable = fields[0];
+				boolean value;
+				if (variable.startsWith("x")) {
+					value = qubitValues[Integer.parseInt(variable.substring(1))];
+				} else {
+					String[] qubits = variable.substring(1).split("_");
+					value = couplingValue && qubitValues[Integer.parseInt(qubits[0])] && 
+							qubitValues[Integer.parseInt(qubits[1])];
+				}
+				if (value) {
+					String row = fields[1];
+					rowActivity.put(row, rowActivity.get(row) + Double.parseDouble(fields[2]));
+				}
+			} else if (section.equals("RHS")) {
+				rowBound.put(fields[1], Double.parseDouble(fields[2]));
+			}
+		}
+		for (String row : rowActivity.keySet()) {
+			if (!row.equals("obj") && rowActivity.get(row) > rowBound.get(row) + TestUtil.DOUBLE_TOLERANCE) {
+				return Double.POSITIVE_INFINITY;
+			}
+		}
+		return rowActivity.get("obj");
+	}
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		ChimeraMqoMapping mapping = ChimeraFactory.produceLoopsTestcase(50, 2, 20, 5, 1, false);
+		QuboModelWriter modelWriter = new QuboModelWriter(mapping);
+		int nrCouplings = mapping.nrCouplingsUsed();
+		assertEquals(nrCouplings, modelWriter.nrCouplings);
+		boolean[][] qubitValues = new boolean[10][mapping.nrQubits];
+		for (int assignmentCtr=0; assignmentCtr<10; ++assignmentCtr) {
+			for (int qubit=0; qubit<mapping.nrQubits; ++qubit) {
+				qubitValues[assignmentCtr][qubit] = RandomUtil.random.nextBoolean();
+			}
+		}
+		File file = File.createTempFile("model", null);
+		try {
+			// QPLIB objective equals energy
+			{
+				modelWriter.writeQplib(file.getPath(), "test");
+				List<String> lines = Files.readAllLines(file.toPath());
+				assertEquals("QBN", lines.get(1));
+				for (boolean[] values : qubitValues) {
+					assertEquals(mapping.getEnergy(values), qplibObjective(lines, values), 
+							TestUtil.DOUBLE_TOLERANCE);
+				}
+			}
+			// Linearized MPS model forces coupling variables to logical AND of qubits
+			{
+				modelWriter.writeMps(file.getPath(), true);
+				List<String> lines = Files.readAllLines(file.toPath());
+				for (boolean[] values : qubitValues) {
+					assertEquals(mapping.getEnergy(values), mpsObjective(lines, values, true), 
+							TestUtil.DOUBLE_TOLERANCE);
+					assertEquals(Double.POSITIVE_INFINITY, mpsObjective(lines, values, false), 0);
+				}
+			}
+			// Quadratic MPS model lists each coupling once
+			{
+				modelWriter.writeMps(file.getPath(), false);
+				List<String> lines = Files.readAllLines(file.toPath());
+				int quadObjLine = lines.indexOf("QUADOBJ");
+				assertEquals(nrCouplings, lines.indexOf("ENDATA") - quadObjLine - 1);
+			}
+			// LP models contain three constraints per coupling or quadratic terms
+			{
+				modelWriter.writeLp(file.getPath(), true);
+				List<String> lines = Files.readAllLines(file.toPath());
+				int nrConstraints = 0;
+				for (String line : lines) {
+					if (line.startsWith(" c")) {
+						++nrConstraints;
+					}
+				}
+				assertEquals(3 * nrCouplings, nrConstraints);
+				assertEquals("End", lines.get(lines.size() - 1));
+				modelWriter.writeLp(file.getPath(), false);
+				lines = Files.readAllLines(file.toPath());
+				assertFalse(lines.contains("Subject To"));
+				int nrQuadraticTerms = lines.indexOf(" ] / 2") - lines.indexOf(" + [") - 1;
+				assertEquals(nrCouplings, nrQuadraticTerms);
+			}
+		} finally {
+			file.delete();
+		}
+		// Ising mappings are rejected
+		{
+			try {
+				new QuboModelWriter(mapping.toIsing());
+				fail();
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+}
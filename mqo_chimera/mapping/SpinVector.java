@@ -0,0 +1,170 @@
+package mqo_chimera.mapping;
+
+import java.util.Arrays;
+
+/**
+ * Bit-packed assignment of Boolean values to qubits (respectively of positive or negative
+ * values to spins), 64 qubits are stored per word. Gauge transformations are applied by
+ * a word-wise exclusive or with a mask marking the inverted spins.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class SpinVector {
+	/**
+	 * The number of qubits or spins represented by the vector.
+	 */
+	public final int nrSpins;
+	/**
+	 * Contains one bit per spin, the bit for spin i is bit (i % 64) of word (i / 64).
+	 */
+	final long[] words;
+
+	/**
+	 * Creates a vector with all qubits set to false (all spins negative).
+	 *
+	 * @param nrSpins	the number of qubits or spins
+	 */
+	public SpinVector(int nrSpins) {
+		this.nrSpins = nrSpins;
+		this.words = new long[(nrSpins + 63) >>> 6];
+	}
+	/**
+	 * Creates a copy of the given vector.
+	 *
+	 * @param other	the vector to copy
+	 */
+	public SpinVector(SpinVector other) {
+		this.nrSpins = other.nrSpins;
+		this.words = Arrays.copyOf(other.words, other.words.length);
+	}
+	/**
+	 * Packs a Boolean vector.
+	 *
+	 * @param values	Boolean value for each qubit (true representing positive spin)
+	 * @return			packed representation
+	 */
+	public static SpinVector fromBooleans(boolean[] values) {
+		int nrSpins = values.length;
+		SpinVector vector = new SpinVector(nrSpins);
+		for (int spin=0; spin<nrSpins; ++spin) {
+			if (values[spin]) {
+				vector.words[spin >>> 6] |= 1L << spin;
+			}
+		}
+		return vector;
+	}
+	/**
+	 * Generates the mask representing a gauge transformation: bits are set for all spins
+	 * that are inverted by the transformation.
+	 *
+	 * @param transformation	Boolean vector indicating for each spin whether it keeps its sign
+	 * 							(true) or is inverted (false)
+	 * @return					mask to use with xor
+	 */
+	public static SpinVector gaugeMask(boolean[] transformation) {
+		int nrSpins = transformation.length;
+		SpinVector mask = new SpinVector(nrSpins);
+		for (int spin=0; spin<nrSpins; ++spin) {
+			if (!transformation[spin]) {
+				mask.words[spin >>> 6] |= 1L << spin;
+			}
+		}
+		return mask;
+	}
+	/**
+	 * Unpacks the vector.
+	 *
+	 * @return	Boolean value for each qubit
+	 */
+	public boolean[] toBooleans() {
+		boolean[] values = new boolean[nrSpins];
+		for (int spin=0; spin<nrSpins; ++spin) {
+			values[spin] = get(spin);
+		}
+		return values;
+	}
+	/**
+	 * Returns the value of one qubit.
+	 *
+	 * @param spin	index of the qubit
+	 * @return		true if the qubit is set (the spin is positive)
+	 */
+	public boolean get(int spin) {
+		return (words[spin >>> 6] & (1L << spin)) != 0;
+	}
+	/**
+	 * Sets the value of one qubit.
+	 *
+	 * @param spin	index of the qubit
+	 * @param value	true to set the qubit (to make the spin positive)
+	 */
+	public void set(int spin, boolean value) {
+		if (value) {
+			words[spin >>> 6] |= 1L << spin;
+		} else {
+			words[spin >>> 6] &= ~(1L << spin);
+		}
+	}
+	/**
+	 * Inverts the value of one qubit.
+	 *
+	 * @param spin	index of the qubit
+	 */
+	public void flip(int spin) {
+		words[spin >>> 6] ^= 1L << spin;
+	}
+	/**
+	 * Inverts all qubits whose bit is set in the given mask, applying a gauge transformation
+	 * if the mask was generated by gaugeMask. Applying the same mask twice restores the
+	 * original values.
+	 *
+	 * @param mask	vector of the same length marking the qubits to invert
+	 * @return		this vector (modified)
+	 */
+	public SpinVector xor(SpinVector mask) {
+		assert(mask.nrSpins == nrSpins);
+		for (int word=0; word<words.length; ++word) {
+			words[word] ^= mask.words[word];
+		}
+		return this;
+	}
+	/**
+	 * Counts the number of qubits that are set.
+	 *
+	 * @return	number of qubits set to true
+	 */
+	public int cardinality() {
+		int count = 0;
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+	/**
+	 * Counts the number of qubits on which this vector differs from another one.
+	 *
+	 * @param other	vector of the same length
+	 * @return		Hamming distance between the two vectors
+	 */
+	public int distance(SpinVector other) {
+		assert(other.nrSpins == nrSpins);
+		int count = 0;
+		for (int word=0; word<words.length; ++word) {
+			count += Long.bitCount(words[word] ^ other.words[word]);
+		}
+		return count;
+	}
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof SpinVector)) {
+			return false;
+		}
+		SpinVector otherVector = (SpinVector)other;
+		return nrSpins == otherVector.nrSpins && Arrays.equals(words, otherVector.words);
+	}
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+}
@@ -0,0 +1,50 @@
+package mqo_chimera.mapping;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SpinVectorTest {
+
+	@Test
+	public void test() {
+		// Packing and unpacking
+		{
+			boolean[] values = new boolean[130];
+			values[0] = true;
+			values[63] = true;
+			values[64] = true;
+			values[129] = true;
+			SpinVector vector = SpinVector.fromBooleans(values);
+			assertEquals(130, vector.nrSpins);
+			assertArrayEquals(values, vector.toBooleans());
+			assertTrue(vector.get(63));
+			assertFalse(vector.get(65));
+			assertEquals(4, vector.cardinality());
+		}
+		// Setting and flipping single values
+		{
+			SpinVector vector = new SpinVector(100);
+			vector.set(70, true);
+			assertTrue(vector.get(70));
+			vector.flip(70);
+			assertFalse(vector.get(70));
+			vector.flip(5);
+			assertTrue(vector.get(5));
+			vector.set(5, false);
+			assertEquals(0, vector.cardinality());
+		}
+		// Gauge transformation via mask
+		{
+			boolean[] values = new boolean[] {true, true, false, false};
+			boolean[] transformation = new boolean[] {true, false, true, false};
+			SpinVector mask = SpinVector.gaugeMask(transformation);
+			SpinVector transformed = SpinVector.fromBooleans(values).xor(mask);
+			assertArrayEquals(new boolean[] {true, false, false, true}, transformed.toBooleans());
+			assertEquals(2, transformed.distance(SpinVector.fromBooleans(values)));
+			SpinVector restored = new SpinVector(transformed).xor(mask);
+			assertEquals(SpinVector.fromBooleans(values), restored);
+		}
+	}
+
+}
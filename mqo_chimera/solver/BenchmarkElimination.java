@@ -0,0 +1,68 @@
+package mqo_chimera.solver;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.benchmark.TestcaseClass;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.solver.exact.VariableEliminationSolver;
+import mqo_chimera.util.AmesUtil;
+
+/**
+ * Uses previously generated test cases to benchmark the exact solver based on variable
+ * elimination. Test cases requiring larger tables than admissible are skipped (with the
+ * default limit, this applies to all standard test case classes except for Q140P4).
+ * 
+ * @author immanueltrummer
+ *
+ */
+public class BenchmarkElimination {
+	/**
+	 * The maximal number of entries of one table (each entry requires nine bytes).
+	 */
+	static final long MAX_TABLE_SIZE = 1L << 26;
+	
+	public static void main(String[] args) throws Exception {
+		// Initialize description of Ames machine
+		AmesUtil.initAmes();
+		// Generate exact solver
+		VariableEliminationSolver eliminationSolver = new VariableEliminationSolver(MAX_TABLE_SIZE);
+		// Iterate over test classes
+		for (TestcaseClass testClass : BenchmarkConfiguration.testcaseClasses) {
+			// Generate path to file storing summary information
+			String summaryFilePath = "mqo/elimination/" + testClass.configurationID() + "_summary";
+			// Open summary file and write header
+			File summaryFile = new File(summaryFilePath);
+			PrintWriter summaryWriter = new PrintWriter(summaryFile);
+			summaryWriter.println("testcaseCtr,solverMillis,optimalCost");
+			// Iterate over test cases
+			for (int testcaseCtr=0; testcaseCtr<BenchmarkConfiguration.nrTestcases; ++testcaseCtr) {
+				// Generate path to test case
+				String testcasePath = "mqo/testcases/" + testClass.configurationID() + "T" + testcaseCtr;
+				// Read test case from disc
+				ChimeraMqoMapping mapping = ChimeraMqoMapping.readMapping(testcasePath);
+				// Skip test cases that would exceed the memory budget
+				if (!eliminationSolver.supports(mapping.problem)) {
+					System.out.println("Skipped test case " + testcaseCtr + " of test class " + testClass + 
+							": requires tables with " + VariableEliminationSolver.requiredTableSize(mapping.problem) + 
+							" entries but at most " + MAX_TABLE_SIZE + " are admissible");
+					continue;
+				}
+				// Solve test case
+				eliminationSolver.solve(mapping.problem);
+				// Generate path to quality curve
+				String solutionPath = "mqo/elimination/" + testClass.configurationID() + "T" + testcaseCtr + "_costCurve";
+				// Write out quality curve
+				eliminationSolver.writeLastCurve(solutionPath);
+				// Write out performance information
+				summaryWriter.println(testcaseCtr + "," + eliminationSolver.lastRunSolverMillis + "," + 
+						eliminationSolver.lastRunOptimalCost);
+				// Output progress reporting
+				System.out.println("Solved test case " + testcaseCtr + " of test class " + testClass);
+			}
+			// close performance file
+			summaryWriter.close();
+		}
+	}
+}
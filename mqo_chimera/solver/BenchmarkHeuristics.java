@@ -3,8 +3,12 @@ package mqo_chimera.solver;
 import mqo_chimera.benchmark.BenchmarkConfiguration;
 import mqo_chimera.benchmark.TestcaseClass;
 import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.solver.annealing.CoolingSchedule;
+import mqo_chimera.solver.annealing.ParallelTemperingSolver;
+import mqo_chimera.solver.annealing.SimulatedAnnealingSolver;
 import mqo_chimera.solver.climbing.HillClimber;
 import mqo_chimera.solver.genetic.GeneticSolver;
+import mqo_chimera.solver.neighborhood.StripSearchSolver;
 import mqo_chimera.testcases.ChimeraFactory;
 import mqo_chimera.util.AmesUtil;
 
@@ -47,7 +51,13 @@ public class BenchmarkHeuristics {
 		AmesUtil.initAmes();
 		// Generate heuristic solvers
 		//Solver[] solvers = new Solver[] {new HillClimber(), new GeneticSolver(50), new GeneticSolver(200)};
-		Solver[] solvers = new Solver[] {new GeneticSolver(50), new GeneticSolver(200)};
+		Solver[] solvers = new Solver[] {new GeneticSolver(50), new GeneticSolver(200), 
+				new SimulatedAnnealingSolver(200, 0.5, 0.001, CoolingSchedule.GEOMETRIC), 
+				new ParallelRestartSolver(new HillClimber()), 
+				new ParallelRestartSolver(new SimulatedAnnealingSolver(200, 0.5, 0.001, CoolingSchedule.GEOMETRIC)), 
+				new ParallelTemperingSolver(16, 0.1, 10, 10), 
+				new StripSearchSolver(2), 
+				new TabuSolver(10, 1000, true)};
 		// Iterate over solvers
 		for (Solver solver : solvers) {
 			// Iterate over test classes
@@ -55,7 +65,7 @@ public class BenchmarkHeuristics {
 				// Code warmup
 				{
 					ChimeraMqoMapping randomMapping = ChimeraFactory.produceStandardTestcase(testClass);
-					solver.solve(randomMapping.problem);
+					solver.solveMapping(randomMapping);
 				}
 				// Get test class and solver ID
 				String configurationID = testClass.configurationID();
@@ -67,7 +77,7 @@ public class BenchmarkHeuristics {
 					// Read test case from disc
 					ChimeraMqoMapping mapping = ChimeraMqoMapping.readMapping(testcasePath);
 					// Solve
-					solver.solve(mapping.problem);
+					solver.solveMapping(mapping);
 					// Generate path to curve file
 					String curvePath = "mqo/heuristic/" + configurationID + "_" + 
 											solverID + "T" + testcaseCtr + "_costCurve";
@@ -0,0 +1,108 @@
+package mqo_chimera.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.IncrementalMqoSolution;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.util.RandomUtil;
+
+/**
+ * Executes independent restarts of a randomized search on several threads until the timeout.
+ * Each thread obtains its own random generator (split from a generator seeded by the shared
+ * random generator) and all threads report to one shared incumbent, the merged time-quality
+ * curve is stored in lastRunCheckpointCost.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public class ParallelRestartSolver extends Solver {
+	/**
+	 * The search that is restarted.
+	 */
+	final RestartSearch search;
+	/**
+	 * The number of threads executing restarts.
+	 */
+	final int nrThreads;
+	
+	public ParallelRestartSolver(RestartSearch search, int nrThreads) {
+		assert(nrThreads > 0);
+		this.search = search;
+		this.nrThreads = nrThreads;
+	}
+	/**
+	 * Uses one thread per available processor.
+	 * 
+	 * @param search	the search that is restarted
+	 */
+	public ParallelRestartSolver(RestartSearch search) {
+		this(search, Runtime.getRuntime().availableProcessors());
+	}
+	/**
+	 * Restarts the search from random plan selections until the incumbent signals a timeout.
+	 * 
+	 * @param search		the search to restart
+	 * @param problem		an MQO problem instance
+	 * @param random		random generator owned by the calling thread
+	 * @param incumbent		collects the best solution and cost statistics
+	 */
+	public static void restartUntilTimeout(RestartSearch search, ChimeraMqoProblem problem, 
+			SplittableRandom random, SharedIncumbent incumbent) {
+		IncrementalMqoSolution solution = new IncrementalMqoSolution(
+				problem, ChimeraFactory.pickRandomPlans(problem, random));
+		do {
+			incumbent.offer(solution);
+			search.restart(solution, random, incumbent);
+			incumbent.offer(solution);
+			solution.reset(ChimeraFactory.pickRandomPlans(problem, random));
+		} while (!incumbent.timedOut());
+	}
+	/**
+	 * Runs restarts on all threads until the timeout and returns the best solution.
+	 */
+	@Override
+	public MqoSolution solve(final ChimeraMqoProblem problem) throws Exception {
+		// Start timer
+		long startMillis = System.currentTimeMillis();
+		final SharedIncumbent incumbent = new SharedIncumbent(
+				problem, startMillis, BenchmarkConfiguration.timeoutMillis);
+		// Build the interaction index before threads access it
+		problem.getInteractionIndex();
+		// Start one task per thread with its own random generator
+		SplittableRandom rootRandom = new SplittableRandom(RandomUtil.random.nextLong());
+		ExecutorService executor = Executors.newFixedThreadPool(nrThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int threadCtr=0; threadCtr<nrThreads; ++threadCtr) {
+				final SplittableRandom threadRandom = rootRandom.split();
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						restartUntilTimeout(search, problem, threadRandom, incumbent);
+					}
+				}));
+			}
+			// Wait for termination, propagating exceptions of the tasks
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		// Store merged time-quality curve
+		incumbent.copyCheckpointCost(lastRunCheckpointCost);
+		return incumbent.bestSolution();
+	}
+	@Override
+	public String solverID() {
+		return search.solverID() + "T" + nrThreads;
+	}
+}
@@ -0,0 +1,60 @@
+package mqo_chimera.solver;
+
+import static org.junit.Assert.*;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.solver.annealing.CoolingSchedule;
+import mqo_chimera.solver.annealing.SimulatedAnnealingSolver;
+import mqo_chimera.solver.climbing.HillClimber;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.IncrementalMqoSolution;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class ParallelRestartSolverTest {
+
+	@Test
+	public void test() throws Exception {
+		ChimeraMqoProblem problem = new ChimeraMqoProblem(3, 2, false);
+		problem.planCost[0][0] = 1;
+		problem.planCost[0][1] = 0.5;
+		problem.planCost[1][0] = 0.25;
+		problem.planCost[1][1] = 0.5;
+		problem.planCost[2][0] = 1;
+		problem.planCost[2][1] = 1;
+		problem.addInterference(0, 0, 1, 1, -1);
+		// Incumbent keeps best solution and checkpoint cost
+		{
+			SharedIncumbent incumbent = new SharedIncumbent(problem, System.currentTimeMillis(), 1000);
+			assertNull(incumbent.bestSolution());
+			incumbent.offer(new IncrementalMqoSolution(problem, new int[] {1, 1, 0}));
+			incumbent.offer(new IncrementalMqoSolution(problem, new int[] {0, 1, 0}));
+			incumbent.offer(new IncrementalMqoSolution(problem, new int[] {0, 0, 0}));
+			assertArrayEquals(new int[] {0, 1, 0}, incumbent.bestSolution().planSelections);
+			assertEquals(1.5, incumbent.bestCost(), TestUtil.DOUBLE_TOLERANCE);
+			double[] checkpointCost = new double[BenchmarkConfiguration.nrBenchmarkTimes];
+			incumbent.copyCheckpointCost(checkpointCost);
+			assertEquals(1.5, checkpointCost[BenchmarkConfiguration.nrBenchmarkTimes - 1], 
+					TestUtil.DOUBLE_TOLERANCE);
+		}
+		// Parallel restarts with short timeout
+		long oldTimeout = BenchmarkConfiguration.timeoutMillis;
+		BenchmarkConfiguration.timeoutMillis = 20;
+		try {
+			RestartSearch[] searches = new RestartSearch[] {new HillClimber(), 
+					new SimulatedAnnealingSolver(10, 0.5, 0.01, CoolingSchedule.GEOMETRIC)};
+			for (RestartSearch search : searches) {
+				ParallelRestartSolver solver = new ParallelRestartSolver(search, 4);
+				MqoSolution solution = solver.solve(problem);
+				assertEquals(1.5, solution.executionCost, TestUtil.DOUBLE_TOLERANCE);
+				assertEquals(1.5, solver.lastRunCheckpointCost[BenchmarkConfiguration.nrBenchmarkTimes - 1], 
+						TestUtil.DOUBLE_TOLERANCE);
+			}
+		} finally {
+			BenchmarkConfiguration.timeoutMillis = oldTimeout;
+		}
+	}
+
+}
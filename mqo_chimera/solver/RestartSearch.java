@@ -0,0 +1,33 @@
+package mqo_chimera.solver;
+
+import java.util.SplittableRandom;
+
+import mqo_chimera.testcases.IncrementalMqoSolution;
+
+/**
+ * A randomized search that improves a random starting solution and can be restarted
+ * independently many times. Restarts are executed by ParallelRestartSolver, possibly
+ * by several threads at the same time: implementations must therefore not keep any
+ * state between restarts and use only the random generator they are given.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public interface RestartSearch {
+	/**
+	 * Improves the given starting solution and reports solutions to the incumbent.
+	 * Returns once the search converges or the incumbent signals a timeout.
+	 * 
+	 * @param solution		randomly initialized plan selections, modified by the search
+	 * @param random		random generator that is exclusively used by the calling thread
+	 * @param incumbent		collects the best solution and cost statistics over all restarts
+	 */
+	public void restart(IncrementalMqoSolution solution, SplittableRandom random, SharedIncumbent incumbent);
+	/**
+	 * Returns a short ID describing the search and its configuration, following
+	 * the same conventions as Solver.solverID.
+	 * 
+	 * @return	ID of the search
+	 */
+	public String solverID();
+}
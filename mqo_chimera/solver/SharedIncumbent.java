@@ -0,0 +1,135 @@
+package mqo_chimera.solver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.IncrementalMqoSolution;
+import mqo_chimera.testcases.MqoSolution;
+
+/**
+ * Keeps track of the best solution found so far and of the best cost at each benchmark
+ * checkpoint while several threads search concurrently. Updates use compare-and-set
+ * operations so that threads never block each other.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public class SharedIncumbent {
+	/**
+	 * The MQO problem instance that is being solved.
+	 */
+	public final ChimeraMqoProblem problem;
+	/**
+	 * Start time of optimization in milliseconds.
+	 */
+	public final long startMillis;
+	/**
+	 * Number of milliseconds after optimization start until timeout.
+	 */
+	public final long timeoutMillis;
+	/**
+	 * The best solution reported so far or null if no solution was reported.
+	 */
+	final AtomicReference<MqoSolution> bestSolution = new AtomicReference<MqoSolution>();
+	/**
+	 * Stores for each benchmark checkpoint the bit representation of the best cost
+	 * of a solution reported until that checkpoint.
+	 */
+	final AtomicLongArray checkpointCostBits;
+	
+	public SharedIncumbent(ChimeraMqoProblem problem, long startMillis, long timeoutMillis) {
+		this.problem = problem;
+		this.startMillis = startMillis;
+		this.timeoutMillis = timeoutMillis;
+		int nrCheckpoints = BenchmarkConfiguration.nrBenchmarkTimes;
+		this.checkpointCostBits = new AtomicLongArray(nrCheckpoints);
+		long infinityBits = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+		for (int intervalCtr=0; intervalCtr<nrCheckpoints; ++intervalCtr) {
+			checkpointCostBits.set(intervalCtr, infinityBits);
+		}
+	}
+	/**
+	 * Returns the number of milliseconds since optimization start.
+	 * 
+	 * @return	elapsed milliseconds
+	 */
+	public long elapsedMillis() {
+		return System.currentTimeMillis() - startMillis;
+	}
+	/**
+	 * Checks whether the optimization time is exceeded.
+	 * 
+	 * @return	true if the timeout was reached
+	 */
+	public boolean timedOut() {
+		return elapsedMillis() >= timeoutMillis;
+	}
+	/**
+	 * Returns the cost of the best solution reported so far.
+	 * 
+	 * @return	best execution cost or infinity if no solution was reported
+	 */
+	public double bestCost() {
+		MqoSolution best = bestSolution.get();
+		return best == null ? Double.POSITIVE_INFINITY : best.executionCost;
+	}
+	/**
+	 * Returns the best solution reported so far.
+	 * 
+	 * @return	best solution or null if no solution was reported
+	 */
+	public MqoSolution bestSolution() {
+		return bestSolution.get();
+	}
+	/**
+	 * Reports the current plan selections of a search. Updates cost statistics and
+	 * replaces the best solution if the reported solution is cheaper.
+	 * 
+	 * @param solution	current plan selections of a search
+	 */
+	public void offer(IncrementalMqoSolution solution) {
+		double cost = solution.getExecutionCost();
+		updateCheckpoints(cost, elapsedMillis());
+		// Copy plan selections only if the solution is an improvement
+		if (cost < bestCost()) {
+			MqoSolution candidate = solution.toMqoSolution();
+			MqoSolution best = bestSolution.get();
+			while ((best == null || candidate.executionCost < best.executionCost) && 
+					!bestSolution.compareAndSet(best, candidate)) {
+				best = bestSolution.get();
+			}
+		}
+	}
+	/**
+	 * Registers a solution of given cost for all checkpoints that are not yet passed,
+	 * following the semantics of Solver.updateStats.
+	 * 
+	 * @param cost				the cost of a generated plan
+	 * @param elapsedMillis		the number of milliseconds since optimization start
+	 */
+	void updateCheckpoints(double cost, long elapsedMillis) {
+		for (int intervalCtr=0; intervalCtr<BenchmarkConfiguration.nrBenchmarkTimes; ++intervalCtr) {
+			long intervalBound = BenchmarkConfiguration.benchmarkTimes[intervalCtr];
+			if (elapsedMillis <= intervalBound) {
+				long costBits = Double.doubleToLongBits(cost);
+				long oldBits = checkpointCostBits.get(intervalCtr);
+				while (cost < Double.longBitsToDouble(oldBits) && 
+						!checkpointCostBits.compareAndSet(intervalCtr, oldBits, costBits)) {
+					oldBits = checkpointCostBits.get(intervalCtr);
+				}
+			}
+		}
+	}
+	/**
+	 * Copies the best cost at each checkpoint into the given array.
+	 * 
+	 * @param checkpointCost	array receiving the best cost for each checkpoint
+	 */
+	public void copyCheckpointCost(double[] checkpointCost) {
+		for (int intervalCtr=0; intervalCtr<BenchmarkConfiguration.nrBenchmarkTimes; ++intervalCtr) {
+			checkpointCost[intervalCtr] = Double.longBitsToDouble(checkpointCostBits.get(intervalCtr));
+		}
+	}
+}
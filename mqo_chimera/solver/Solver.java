@@ -3,6 +3,7 @@ package mqo_chimera.solver;
 import java.io.PrintWriter;
 
 import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.mapping.ChimeraMqoMapping;
 import mqo_chimera.testcases.ChimeraMqoProblem;
 import mqo_chimera.testcases.MqoSolution;
 
@@ -61,6 +62,17 @@ public abstract class Solver {
 	 * @return			the best solution that was found for the MQO problem instance
 	 */
 	public abstract MqoSolution solve(ChimeraMqoProblem problem) throws Exception;
+	/**
+	 * Solves the MQO problem associated with the given mapping onto the qubit matrix. Solvers
+	 * that work on the QUBO or Ising representation override this method, all other solvers
+	 * only consider the MQO problem.
+	 * 
+	 * @param mapping	maps an MQO problem instance onto the qubit matrix
+	 * @return			the best solution that was found for the MQO problem instance
+	 */
+	public MqoSolution solveMapping(ChimeraMqoMapping mapping) throws Exception {
+		return solve(mapping.problem);
+	}
 	/**
 	 * Returns a short solver ID describing the solver and its configuration - this
 	 * ID will be inserted into result file names and must not contain any special
@@ -0,0 +1,159 @@
+package mqo_chimera.solver;
+
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.MappingType;
+import mqo_chimera.mapping.QubitWeights;
+import mqo_chimera.mapping.SpinVector;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.InteractionIndex;
+
+/**
+ * Greedy steepest descent used to polish solutions found by other methods (e.g., samples
+ * obtained from the annealer). On the logical level, we repeatedly change the plan of the
+ * query for which that change reduces execution cost most. On the qubit level, we repeatedly
+ * flip the qubit whose flip reduces the energy of a QUBO mapping most. Both stop in a local
+ * optimum.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class SteepestDescent {
+	/**
+	 * Changes reducing cost or energy by less than that are not considered as improvements
+	 * (avoids cycling due to rounding errors).
+	 */
+	static final double MIN_IMPROVEMENT = 1E-9;
+	/**
+	 * The QUBO mapping whose energy is minimized on the qubit level.
+	 */
+	final ChimeraMqoMapping mapping;
+	/**
+	 * Contains for each qubit the qubits connected via couplings with non-zero weight.
+	 */
+	final int[][] neighbors;
+	/**
+	 * Contains for each qubit the weights on the couplings to its neighbors.
+	 */
+	final double[][] neighborWeights;
+
+	public SteepestDescent(ChimeraMqoMapping mapping) {
+		assert(mapping.mappingType == MappingType.QUBO);
+		this.mapping = mapping;
+		// Weights only store couplings to qubits with higher index - count both directions
+		QubitWeights weights = mapping.weights;
+		int nrQubits = mapping.nrQubits;
+		int[] degrees = new int[nrQubits];
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			for (int position=0; position<weights.nrStoredCouplings(qubit); ++position) {
+				if (weights.storedWeight(qubit, position) != 0) {
+					++degrees[qubit];
+					++degrees[weights.storedNeighbor(qubit, position)];
+				}
+			}
+		}
+		neighbors = new int[nrQubits][];
+		neighborWeights = new double[nrQubits][];
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			neighbors[qubit] = new int[degrees[qubit]];
+			neighborWeights[qubit] = new double[degrees[qubit]];
+			degrees[qubit] = 0;
+		}
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			for (int position=0; position<weights.nrStoredCouplings(qubit); ++position) {
+				double weight = weights.storedWeight(qubit, position);
+				if (weight != 0) {
+					int neighbor = weights.storedNeighbor(qubit, position);
+					neighbors[qubit][degrees[qubit]] = neighbor;
+					neighborWeights[qubit][degrees[qubit]++] = weight;
+					neighbors[neighbor][degrees[neighbor]] = qubit;
+					neighborWeights[neighbor][degrees[neighbor]++] = weight;
+				}
+			}
+		}
+	}
+	/**
+	 * Flips qubits until no single flip reduces energy, flipping in each step the
+	 * qubit with maximal energy reduction.
+	 *
+	 * @param qubitValues	packed vector of qubit values, contains local optimum after invocation
+	 * @return				the number of flipped qubits
+	 */
+	public int descendQubits(SpinVector qubitValues) {
+		int nrQubits = mapping.nrQubits;
+		assert(qubitValues.nrSpins == nrQubits);
+		// Energy change when setting each qubit to true instead of false
+		double[] fields = new double[nrQubits];
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			fields[qubit] = mapping.getWeight(qubit);
+			for (int neighborCtr=0; neighborCtr<neighbors[qubit].length; ++neighborCtr) {
+				if (qubitValues.get(neighbors[qubit][neighborCtr])) {
+					fields[qubit] += neighborWeights[qubit][neighborCtr];
+				}
+			}
+		}
+		int nrFlips = 0;
+		while (true) {
+			// Find flip with maximal energy reduction
+			int bestQubit = -1;
+			double bestDelta = -MIN_IMPROVEMENT;
+			for (int qubit=0; qubit<nrQubits; ++qubit) {
+				double delta = qubitValues.get(qubit) ? -fields[qubit] : fields[qubit];
+				if (delta < bestDelta) {
+					bestDelta = delta;
+					bestQubit = qubit;
+				}
+			}
+			if (bestQubit < 0) {
+				return nrFlips;
+			}
+			// Flip qubit and update fields of its neighbors
+			boolean newValue = !qubitValues.get(bestQubit);
+			qubitValues.set(bestQubit, newValue);
+			for (int neighborCtr=0; neighborCtr<neighbors[bestQubit].length; ++neighborCtr) {
+				double weight = neighborWeights[bestQubit][neighborCtr];
+				fields[neighbors[bestQubit][neighborCtr]] += newValue ? weight : -weight;
+			}
+			++nrFlips;
+		}
+	}
+	/**
+	 * Changes plan selections until no change for a single query reduces execution
+	 * cost, performing in each step the change with maximal cost reduction. Cost shares
+	 * of all plans are maintained incrementally as in tabu search.
+	 *
+	 * @param problem			an MQO problem instance
+	 * @param planSelections	selected plan for each query, contains local optimum after invocation
+	 * @return					the number of changed plan selections
+	 */
+	public static int descendPlans(ChimeraMqoProblem problem, int[] planSelections) {
+		InteractionIndex index = problem.getInteractionIndex();
+		int nrQueries = problem.nrQueries;
+		int nrPlanIndices = index.nrPlanIndices;
+		int maxPlanIndex = problem.maxPlanIndex();
+		double[] selectionCosts = TabuSolver.selectionCosts(problem, planSelections);
+		int nrMoves = 0;
+		while (true) {
+			// Find change with maximal cost reduction
+			int bestQuery = -1;
+			int bestPlan = -1;
+			double bestDelta = -MIN_IMPROVEMENT;
+			for (int query=0; query<nrQueries; ++query) {
+				int rowOffset = query * nrPlanIndices;
+				double selectedCost = selectionCosts[rowOffset + planSelections[query]];
+				for (int plan=0; plan<=maxPlanIndex; ++plan) {
+					double delta = selectionCosts[rowOffset + plan] - selectedCost;
+					if (delta < bestDelta) {
+						bestDelta = delta;
+						bestQuery = query;
+						bestPlan = plan;
+					}
+				}
+			}
+			if (bestQuery < 0) {
+				return nrMoves;
+			}
+			TabuSolver.applyMove(index, planSelections, selectionCosts, bestQuery, bestPlan);
+			++nrMoves;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package mqo_chimera.solver;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.SpinVector;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class SteepestDescentTest {
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		// Steepest descent on plans takes the change with maximal cost reduction first
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(2, 2, false);
+			problem.planCost[0][0] = 3;
+			problem.planCost[0][1] = 2;
+			problem.planCost[1][0] = 3;
+			problem.planCost[1][1] = 1;
+			problem.addInterference(0, 0, 1, 1, -1.5);
+			int[] planSelections = new int[] {0, 0};
+			// Changing query 1 is best, afterwards plan 0 of query 0 interacts with plan 1
+			assertEquals(1, SteepestDescent.descendPlans(problem, planSelections));
+			assertArrayEquals(new int[] {0, 1}, planSelections);
+		}
+		ChimeraMqoMapping mapping = ChimeraFactory.produceLoopsTestcase(50, 2, 20, 5, 1, false);
+		SplittableRandom random = new SplittableRandom(0);
+		// Descent on plans ends in local optimum with reduced cost
+		{
+			ChimeraMqoProblem problem = mapping.problem;
+			int[] planSelections = ChimeraFactory.pickRandomPlans(problem, random);
+			double initialCost = problem.executionCost(planSelections);
+			SteepestDescent.descendPlans(problem, planSelections);
+			assertTrue(problem.executionCost(planSelections) <= initialCost);
+			for (int query=0; query<problem.nrQueries; ++query) {
+				for (int plan=0; plan<=problem.maxPlanIndex(); ++plan) {
+					assertTrue(problem.deltaCost(planSelections, query, plan) > -TestUtil.DOUBLE_TOLERANCE);
+				}
+			}
+		}
+		// Descent on qubits ends in local optimum with reduced energy
+		{
+			SteepestDescent descent = new SteepestDescent(mapping);
+			int nrQubits = mapping.nrQubits;
+			SpinVector qubitValues = new SpinVector(nrQubits);
+			for (int qubit=0; qubit<nrQubits; ++qubit) {
+				qubitValues.set(qubit, random.nextBoolean());
+			}
+			double initialEnergy = mapping.getEnergy(qubitValues);
+			assertTrue(descent.descendQubits(qubitValues) > 0);
+			double energy = mapping.getEnergy(qubitValues);
+			assertTrue(energy < initialEnergy);
+			for (int qubit=0; qubit<nrQubits; ++qubit) {
+				qubitValues.flip(qubit);
+				assertTrue(mapping.getEnergy(qubitValues) > energy - TestUtil.DOUBLE_TOLERANCE);
+				qubitValues.flip(qubit);
+			}
+			// Planted solution is optimal
+			SpinVector plantedValues = SpinVector.fromBooleans(mapping.problem.plantedQubitValues);
+			assertEquals(0, descent.descendQubits(plantedValues));
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package mqo_chimera.solver;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.InteractionIndex;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.util.RandomUtil;
+
+/**
+ * Tabu search over plan selections. In each iteration, the solver changes the plan selection
+ * of one query to the plan that decreases execution cost most (or increases it least). Queries
+ * whose plan selection was changed recently are tabu for a number of iterations (the tenure)
+ * unless the change leads to a solution that is better than any solution found so far
+ * (aspiration). The cost share of each possible plan selection is maintained in a table that
+ * is updated after each move by scanning only the interactions of the changed query.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class TabuSolver extends Solver {
+	/**
+	 * The number of iterations during which a query cannot change its plan selection again
+	 * after a change (unless the aspiration criterion is satisfied).
+	 */
+	final int tenure;
+	/**
+	 * The number of iterations without improving the best solution since the last restart
+	 * after which the search restarts from random plan selections.
+	 */
+	final int nrStaleIterations;
+	/**
+	 * Whether tabu moves are admissible if they lead to a new best solution.
+	 */
+	final boolean aspiration;
+	/**
+	 * Initializes the tabu search with the given settings.
+	 *
+	 * @param tenure				number of iterations during which a changed query remains tabu
+	 * @param nrStaleIterations		number of iterations without improvement after which we restart
+	 * @param aspiration			whether tabu moves leading to a new best solution are admissible
+	 */
+	public TabuSolver(int tenure, int nrStaleIterations, boolean aspiration) {
+		assert(tenure >= 0);
+		assert(nrStaleIterations > 0);
+		this.tenure = tenure;
+		this.nrStaleIterations = nrStaleIterations;
+		this.aspiration = aspiration;
+	}
+	/**
+	 * Calculates for each query and plan the cost share when selecting that plan while all
+	 * other queries keep their plan selections. The entry for query q and plan p is stored
+	 * at position q * nrPlanIndices + p where the number of plan indices is taken from the
+	 * interaction index.
+	 *
+	 * @param problem			an MQO problem instance
+	 * @param planSelections	selected plan for each query
+	 * @return					table containing the cost share for each query and plan
+	 */
+	static double[] selectionCosts(ChimeraMqoProblem problem, int[] planSelections) {
+		InteractionIndex index = problem.getInteractionIndex();
+		int nrPlanIndices = index.nrPlanIndices;
+		int maxPlanIndex = problem.maxPlanIndex();
+		double[] selectionCosts = new double[problem.nrQueries * nrPlanIndices];
+		for (int query=0; query<problem.nrQueries; ++query) {
+			for (int plan=0; plan<=maxPlanIndex; ++plan) {
+				selectionCosts[query * nrPlanIndices + plan] =
+						problem.planSelectionCost(planSelections, query, plan);
+			}
+		}
+		return selectionCosts;
+	}
+	/**
+	 * Changes the plan selection for one query and updates the cost shares of all plans
+	 * interacting with the old or the new plan.
+	 *
+	 * @param index				index over plan interactions
+	 * @param planSelections	selected plan for each query, updated in place
+	 * @param selectionCosts	cost share for each query and plan, updated in place
+	 * @param query				the query whose plan selection changes
+	 * @param newPlan			the newly selected plan for that query
+	 */
+	static void applyMove(InteractionIndex index, int[] planSelections,
+			double[] selectionCosts, int query, int newPlan) {
+		int oldPlan = planSelections[query];
+		index.addInteractionCosts(query, oldPlan, -1, selectionCosts);
+		index.addInteractionCosts(query, newPlan, 1, selectionCosts);
+		planSelections[query] = newPlan;
+	}
+	/**
+	 * Returns the admissible move leading to the cheapest plan selections. A move changes
+	 * the plan for one query and is admissible if the query is not tabu or if the move
+	 * leads to a cost below the aspiration cost.
+	 *
+	 * @param problem			an MQO problem instance
+	 * @param planSelections	selected plan for each query
+	 * @param selectionCosts	cost share for each query and plan
+	 * @param cost				execution cost of the current plan selections
+	 * @param tabuUntil			for each query the last iteration in which it is tabu
+	 * @param iteration			the current iteration
+	 * @param aspirationCost	tabu moves leading to a cost below this threshold are admissible
+	 * @param firstQuery		the query at which to start scanning (used to break ties)
+	 * @return					position of the new plan in the cost table or -1 if no move is admissible
+	 */
+	static int bestMove(ChimeraMqoProblem problem, int[] planSelections, double[] selectionCosts,
+			double cost, long[] tabuUntil, long iteration, double aspirationCost, int firstQuery) {
+		int nrQueries = problem.nrQueries;
+		int nrPlanIndices = problem.nrPlansPerQuery + 1;
+		int maxPlanIndex = problem.maxPlanIndex();
+		int bestMove = -1;
+		double bestDelta = Double.POSITIVE_INFINITY;
+		for (int queryCtr=0; queryCtr<nrQueries; ++queryCtr) {
+			int query = (firstQuery + queryCtr) % nrQueries;
+			int rowOffset = query * nrPlanIndices;
+			int selectedPlan = planSelections[query];
+			double selectedCost = selectionCosts[rowOffset + selectedPlan];
+			boolean tabu = tabuUntil[query] >= iteration;
+			for (int plan=0; plan<=maxPlanIndex; ++plan) {
+				if (plan != selectedPlan) {
+					double delta = selectionCosts[rowOffset + plan] - selectedCost;
+					if (delta < bestDelta && (!tabu || cost + delta < aspirationCost)) {
+						bestDelta = delta;
+						bestMove = rowOffset + plan;
+					}
+				}
+			}
+		}
+		return bestMove;
+	}
+	/**
+	 * Performs tabu search from random plan selections, restarting whenever the best solution
+	 * found since the last restart did not improve for a given number of iterations, until
+	 * the timeout is reached.
+	 */
+	@Override
+	public MqoSolution solve(ChimeraMqoProblem problem) throws Exception {
+		// Start timer
+		long startMillis = System.currentTimeMillis();
+		long timeoutMillis = BenchmarkConfiguration.timeoutMillis;
+		Arrays.fill(lastRunCheckpointCost, Double.POSITIVE_INFINITY);
+		// Extract problem dimensions
+		InteractionIndex index = problem.getInteractionIndex();
+		int nrQueries = problem.nrQueries;
+		int nrPlanIndices = index.nrPlanIndices;
+		// Leave at least one query that is not tabu
+		int effectiveTenure = Math.min(tenure, nrQueries - 1);
+		SplittableRandom random = new SplittableRandom(RandomUtil.random.nextLong());
+		long[] tabuUntil = new long[nrQueries];
+		int[] bestSolution = null;
+		double bestCost = Double.POSITIVE_INFINITY;
+		long elapsedMillis = 0;
+		do {
+			// Restart from random plan selections
+			int[] planSelections = ChimeraFactory.pickRandomPlans(problem, random);
+			double[] selectionCosts = selectionCosts(problem, planSelections);
+			double cost = problem.executionCost(planSelections);
+			double restartBestCost = cost;
+			Arrays.fill(tabuUntil, 0);
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestSolution = Arrays.copyOf(planSelections, nrQueries);
+				updateStats(cost, System.currentTimeMillis() - startMillis);
+			}
+			// Iterate until no improvement for a while or timeout
+			int staleIterations = 0;
+			for (long iteration=1; staleIterations < nrStaleIterations &&
+					elapsedMillis < timeoutMillis; ++iteration) {
+				// Select best admissible move
+				double aspirationCost = aspiration ? bestCost : Double.NEGATIVE_INFINITY;
+				int move = bestMove(problem, planSelections, selectionCosts, cost,
+						tabuUntil, iteration, aspirationCost, random.nextInt(nrQueries));
+				if (move < 0) {
+					break;
+				}
+				// Execute move
+				int query = move / nrPlanIndices;
+				int newPlan = move % nrPlanIndices;
+				cost += selectionCosts[move] - selectionCosts[query * nrPlanIndices + planSelections[query]];
+				applyMove(index, planSelections, selectionCosts, query, newPlan);
+				tabuUntil[query] = iteration + effectiveTenure;
+				elapsedMillis = System.currentTimeMillis() - startMillis;
+				// Update best solutions
+				if (cost < restartBestCost) {
+					restartBestCost = cost;
+					staleIterations = 0;
+				} else {
+					++staleIterations;
+				}
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestSolution = Arrays.copyOf(planSelections, nrQueries);
+					updateStats(cost, elapsedMillis);
+				}
+			}
+			elapsedMillis = System.currentTimeMillis() - startMillis;
+		} while (elapsedMillis < timeoutMillis);
+		// Generate solution for best plan selections found
+		return new MqoSolution(problem, bestSolution);
+	}
+	@Override
+	public String solverID() {
+		return "TABU" + tenure + "A" + (aspiration ? 1 : 0);
+	}
+}
@@ -0,0 +1,91 @@
+package mqo_chimera.solver;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.InteractionIndex;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class TabuSolverTest {
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		ChimeraMqoProblem problem = new ChimeraMqoProblem(3, 2, false);
+		problem.planCost[0][0] = 1;
+		problem.planCost[0][1] = 0.5;
+		problem.planCost[1][0] = 0.25;
+		problem.planCost[1][1] = 0.5;
+		problem.planCost[2][0] = 1;
+		problem.planCost[2][1] = 1;
+		problem.addInterference(0, 0, 1, 1, -1);
+		// Cost table is maintained correctly after moves
+		{
+			ChimeraMqoMapping mapping = ChimeraFactory.produceLoopsTestcase(50, 2, 20, 5, 1, false);
+			ChimeraMqoProblem loopsProblem = mapping.problem;
+			InteractionIndex index = loopsProblem.getInteractionIndex();
+			int nrPlanIndices = index.nrPlanIndices;
+			SplittableRandom random = new SplittableRandom(0);
+			int[] planSelections = ChimeraFactory.pickRandomPlans(loopsProblem, random);
+			double[] selectionCosts = TabuSolver.selectionCosts(loopsProblem, planSelections);
+			for (int moveCtr=0; moveCtr<100; ++moveCtr) {
+				int query = random.nextInt(loopsProblem.nrQueries);
+				int plan = random.nextInt(loopsProblem.maxPlanIndex() + 1);
+				TabuSolver.applyMove(index, planSelections, selectionCosts, query, plan);
+			}
+			double[] expectedCosts = TabuSolver.selectionCosts(loopsProblem, planSelections);
+			for (int query=0; query<loopsProblem.nrQueries; ++query) {
+				for (int plan=0; plan<=loopsProblem.maxPlanIndex(); ++plan) {
+					int position = query * nrPlanIndices + plan;
+					assertEquals(expectedCosts[position], selectionCosts[position], TestUtil.DOUBLE_TOLERANCE);
+				}
+			}
+		}
+		// Best move selection with tabu and aspiration
+		{
+			int[] planSelections = new int[] {0, 0, 0};
+			double[] selectionCosts = TabuSolver.selectionCosts(problem, planSelections);
+			double cost = problem.executionCost(planSelections);
+			// No query is tabu: selecting plan 1 for query 1 yields the optimum
+			long[] tabuUntil = new long[3];
+			assertEquals(4, TabuSolver.bestMove(problem, planSelections, selectionCosts, 
+					cost, tabuUntil, 1, Double.NEGATIVE_INFINITY, 0));
+			// Query 1 is tabu: next best is selecting plan 1 for query 0
+			tabuUntil[1] = 1;
+			assertEquals(1, TabuSolver.bestMove(problem, planSelections, selectionCosts, 
+					cost, tabuUntil, 1, Double.NEGATIVE_INFINITY, 0));
+			// Tabu move is admissible if it improves on the best cost
+			assertEquals(4, TabuSolver.bestMove(problem, planSelections, selectionCosts, 
+					cost, tabuUntil, 1, cost, 0));
+			// No admissible move if all queries are tabu
+			tabuUntil[0] = 1;
+			tabuUntil[2] = 1;
+			assertEquals(-1, TabuSolver.bestMove(problem, planSelections, selectionCosts, 
+					cost, tabuUntil, 1, 1.5, 0));
+		}
+		// Full solver invocation with short timeout
+		{
+			long oldTimeout = BenchmarkConfiguration.timeoutMillis;
+			BenchmarkConfiguration.timeoutMillis = 20;
+			try {
+				TabuSolver solver = new TabuSolver(1, 10, true);
+				MqoSolution solution = solver.solve(problem);
+				assertEquals(1.5, solution.executionCost, TestUtil.DOUBLE_TOLERANCE);
+				assertEquals(1.5, solver.lastRunCheckpointCost[BenchmarkConfiguration.nrBenchmarkTimes - 1], 
+						TestUtil.DOUBLE_TOLERANCE);
+			} finally {
+				BenchmarkConfiguration.timeoutMillis = oldTimeout;
+			}
+		}
+	}
+
+}
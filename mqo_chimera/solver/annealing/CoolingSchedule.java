@@ -0,0 +1,42 @@
+package mqo_chimera.solver.annealing;
+
+/**
+ * Describes how the temperature decreases between the first and the last sweep
+ * of simulated annealing.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public enum CoolingSchedule {
+	/**
+	 * Temperature decreases by the same amount after each sweep.
+	 */
+	LINEAR,
+	/**
+	 * Temperature decreases by the same factor after each sweep.
+	 */
+	GEOMETRIC;
+	/**
+	 * Returns the temperature to use in the given sweep.
+	 * 
+	 * @param initialTemperature	temperature in the first sweep
+	 * @param finalTemperature		temperature in the last sweep
+	 * @param sweep					index of the current sweep
+	 * @param nrSweeps				total number of sweeps
+	 * @return						temperature for the current sweep
+	 */
+	public double temperature(double initialTemperature, double finalTemperature, int sweep, int nrSweeps) {
+		assert(sweep >= 0 && sweep < nrSweeps);
+		// Fraction of the schedule that has been completed
+		double progress = nrSweeps == 1 ? 1 : sweep / (double)(nrSweeps - 1);
+		switch (this) {
+		case LINEAR:
+			return initialTemperature + progress * (finalTemperature - initialTemperature);
+		case GEOMETRIC:
+			return initialTemperature * Math.pow(finalTemperature / initialTemperature, progress);
+		default:
+			assert(false);
+			return finalTemperature;
+		}
+	}
+}
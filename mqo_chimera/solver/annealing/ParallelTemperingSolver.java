@@ -0,0 +1,272 @@
+package mqo_chimera.solver.annealing;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.IsingModel;
+import mqo_chimera.solver.Solver;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.testcases.QuadraticMqoSolution;
+import mqo_chimera.util.RandomUtil;
+
+/**
+ * Replica exchange Monte Carlo (parallel tempering) on the Ising problem represented by a
+ * mapping. Replicas are simulated at fixed temperatures forming a geometric ladder, each
+ * replica is updated by its own thread. After a number of sweeps all threads meet at a
+ * barrier where replicas at neighboring temperatures exchange temperatures according to
+ * the Metropolis criterion and where the best spin assignment found so far is updated.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class ParallelTemperingSolver extends Solver {
+	/**
+	 * The number of replicas (and threads).
+	 */
+	final int nrReplicas;
+	/**
+	 * Inverse temperature of the hottest replica.
+	 */
+	final double minBeta;
+	/**
+	 * Inverse temperature of the coldest replica.
+	 */
+	final double maxBeta;
+	/**
+	 * Number of sweeps each replica performs between two swap phases.
+	 */
+	final int sweepsPerSwap;
+
+	public ParallelTemperingSolver(int nrReplicas, double minBeta, double maxBeta, int sweepsPerSwap) {
+		assert(nrReplicas > 1);
+		assert(minBeta > 0 && maxBeta > minBeta);
+		assert(sweepsPerSwap > 0);
+		this.nrReplicas = nrReplicas;
+		this.minBeta = minBeta;
+		this.maxBeta = maxBeta;
+		this.sweepsPerSwap = sweepsPerSwap;
+	}
+	/**
+	 * Returns the inverse temperatures of all replicas, forming a geometric sequence from
+	 * the hottest to the coldest replica.
+	 *
+	 * @return	inverse temperature for each position on the ladder
+	 */
+	double[] betaLadder() {
+		double[] betas = new double[nrReplicas];
+		for (int position=0; position<nrReplicas; ++position) {
+			double temperature = CoolingSchedule.GEOMETRIC.temperature(
+					1 / minBeta, 1 / maxBeta, position, nrReplicas);
+			betas[position] = 1 / temperature;
+		}
+		return betas;
+	}
+	/**
+	 * Shared state of one run, accessed by all replica threads. Fields that are modified
+	 * during the swap phase are only accessed by replica threads between barriers.
+	 */
+	class Run implements Runnable {
+		/**
+		 * The mapping whose Ising problem is solved.
+		 */
+		final ChimeraMqoMapping mapping;
+		/**
+		 * Adjacency representation of the Ising problem.
+		 */
+		final IsingModel model;
+		/**
+		 * Inverse temperature for each position on the ladder.
+		 */
+		final double[] betas;
+		/**
+		 * Spin assignment of each replica.
+		 */
+		final byte[][] replicaSpins;
+		/**
+		 * Energy of each replica, maintained incrementally.
+		 */
+		final double[] replicaEnergies;
+		/**
+		 * Ladder position of each replica.
+		 */
+		final int[] replicaPositions;
+		/**
+		 * Replica at each ladder position.
+		 */
+		final int[] positionReplicas;
+		/**
+		 * Random generator used during swap phases.
+		 */
+		final SplittableRandom swapRandom;
+		/**
+		 * Start of optimization in milliseconds.
+		 */
+		final long startMillis;
+		/**
+		 * Lowest energy over all replicas and swap phases.
+		 */
+		double bestEnergy = Double.POSITIVE_INFINITY;
+		/**
+		 * Spin assignment achieving the lowest energy.
+		 */
+		byte[] bestSpins;
+		/**
+		 * Number of completed swap phases.
+		 */
+		int nrSwapPhases = 0;
+		/**
+		 * Set during a swap phase once the timeout is reached.
+		 */
+		volatile boolean finished = false;
+
+		Run(ChimeraMqoMapping mapping, SplittableRandom random, long startMillis) {
+			this.mapping = mapping;
+			this.model = new IsingModel(mapping, null);
+			this.betas = betaLadder();
+			this.replicaSpins = new byte[nrReplicas][];
+			this.replicaEnergies = new double[nrReplicas];
+			this.replicaPositions = new int[nrReplicas];
+			this.positionReplicas = new int[nrReplicas];
+			for (int replica=0; replica<nrReplicas; ++replica) {
+				replicaSpins[replica] = model.randomSpins(random);
+				replicaEnergies[replica] = model.energy(replicaSpins[replica]);
+				replicaPositions[replica] = replica;
+				positionReplicas[replica] = replica;
+			}
+			this.swapRandom = random.split();
+			this.startMillis = startMillis;
+			updateBest();
+		}
+		/**
+		 * Performs sweeps on one replica at its current temperature.
+		 *
+		 * @param replica	replica index
+		 * @param random	random generator of the thread updating the replica
+		 */
+		void sweepReplica(int replica, SplittableRandom random) {
+			double beta = betas[replicaPositions[replica]];
+			byte[] spins = replicaSpins[replica];
+			for (int sweepCtr=0; sweepCtr<sweepsPerSwap; ++sweepCtr) {
+				replicaEnergies[replica] += model.sweep(spins, beta, random);
+			}
+		}
+		/**
+		 * Updates the best assignment and reports the associated execution cost if a
+		 * replica reached a lower energy.
+		 */
+		void updateBest() {
+			for (int replica=0; replica<nrReplicas; ++replica) {
+				if (replicaEnergies[replica] < bestEnergy) {
+					bestEnergy = replicaEnergies[replica];
+					bestSpins = Arrays.copyOf(replicaSpins[replica], model.nrSpins);
+					// Report execution cost of the plans selected by the new best assignment
+					boolean[] qubitValues = IsingModel.toBooleans(bestSpins);
+					int[] planSelections = QuadraticMqoSolution.extractPlanSelections(mapping, qubitValues);
+					double cost = mapping.problem.executionCost(planSelections);
+					updateStats(cost, System.currentTimeMillis() - startMillis);
+				}
+			}
+		}
+		/**
+		 * Executed by one thread once all replicas have finished their sweeps: exchanges
+		 * temperatures between neighboring ladder positions and checks for timeout.
+		 */
+		@Override
+		public void run() {
+			updateBest();
+			// Alternate between even and odd pairs to let replicas travel along the ladder
+			int firstPosition = nrSwapPhases % 2;
+			for (int position=firstPosition; position+1<nrReplicas; position+=2) {
+				int replica1 = positionReplicas[position];
+				int replica2 = positionReplicas[position + 1];
+				double exponent = (betas[position] - betas[position + 1]) *
+						(replicaEnergies[replica1] - replicaEnergies[replica2]);
+				if (exponent >= 0 || swapRandom.nextDouble() < Math.exp(exponent)) {
+					positionReplicas[position] = replica2;
+					positionReplicas[position + 1] = replica1;
+					replicaPositions[replica1] = position + 1;
+					replicaPositions[replica2] = position;
+				}
+			}
+			++nrSwapPhases;
+			if (System.currentTimeMillis() - startMillis >= BenchmarkConfiguration.timeoutMillis) {
+				finished = true;
+			}
+		}
+	}
+	/**
+	 * Solves the Ising problem represented by the given mapping (QUBO mappings are transformed
+	 * first) until the timeout and returns the best assignment as solution.
+	 *
+	 * @param mapping	a QUBO or Ising mapping of a MQO problem
+	 * @return			solution obtained from the lowest energy assignment
+	 * @throws Exception
+	 */
+	@Override
+	public QuadraticMqoSolution solveMapping(ChimeraMqoMapping mapping) throws Exception {
+		long startMillis = System.currentTimeMillis();
+		Arrays.fill(lastRunCheckpointCost, Double.POSITIVE_INFINITY);
+		SplittableRandom rootRandom = new SplittableRandom(RandomUtil.random.nextLong());
+		final Run run = new Run(mapping, rootRandom, startMillis);
+		final CyclicBarrier barrier = new CyclicBarrier(nrReplicas, run);
+		ExecutorService executor = Executors.newFixedThreadPool(nrReplicas);
+		CompletionService<Object> completionService = new ExecutorCompletionService<Object>(executor);
+		try {
+			for (int replica=0; replica<nrReplicas; ++replica) {
+				final int threadReplica = replica;
+				final SplittableRandom threadRandom = rootRandom.split();
+				completionService.submit(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							while (!run.finished) {
+								run.sweepReplica(threadReplica, threadRandom);
+								barrier.await();
+							}
+						} catch (Throwable e) {
+							// Release replicas waiting at the barrier, they fail as well
+							barrier.reset();
+							if (e instanceof Error) {
+								throw (Error)e;
+							}
+							throw new RuntimeException(e);
+						}
+					}
+				}, null);
+			}
+			// Wait for termination in completion order, propagating the first exception of
+			// a replica thread - replicas arriving late at the barrier are interrupted below.
+			for (int replica=0; replica<nrReplicas; ++replica) {
+				completionService.take().get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return new QuadraticMqoSolution(mapping, IsingModel.toBooleans(run.bestSpins));
+	}
+	/**
+	 * Maps the problem onto the qubit matrix as in standard test cases and solves the
+	 * resulting Ising problem.
+	 * 
+	 * @param problem	an MQO problem instance
+	 * @return			solution obtained from the lowest energy assignment
+	 * @throws Exception
+	 */
+	@Override
+	public MqoSolution solve(ChimeraMqoProblem problem) throws Exception {
+		return solveMapping(ChimeraFactory.produceStandardMapping(problem));
+	}
+	@Override
+	public String solverID() {
+		return "PT" + nrReplicas;
+	}
+}
@@ -0,0 +1,62 @@
+package mqo_chimera.solver.annealing;
+
+import static org.junit.Assert.*;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.benchmark.TestcaseClass;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.testcases.QuadraticMqoSolution;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class ParallelTemperingSolverTest {
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		// Temperature ladder
+		{
+			ParallelTemperingSolver solver = new ParallelTemperingSolver(3, 0.5, 2, 1);
+			double[] betas = solver.betaLadder();
+			assertEquals(0.5, betas[0], TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(1, betas[1], TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(2, betas[2], TestUtil.DOUBLE_TOLERANCE);
+		}
+		// Finding planted solution
+		{
+			ChimeraMqoMapping mapping = ChimeraFactory.produceLoopsTestcase(50, 2, 20, 5, 1, false);
+			long oldTimeout = BenchmarkConfiguration.timeoutMillis;
+			BenchmarkConfiguration.timeoutMillis = 1000;
+			try {
+				ParallelTemperingSolver solver = new ParallelTemperingSolver(4, 0.1, 10, 10);
+				QuadraticMqoSolution solution = solver.solveMapping(mapping);
+				assertEquals(mapping.plantedEnergy, solution.objectiveValue, TestUtil.DOUBLE_TOLERANCE);
+				assertTrue(solver.lastRunCheckpointCost[BenchmarkConfiguration.nrBenchmarkTimes - 1] <= 
+						solution.executionCost + TestUtil.DOUBLE_TOLERANCE);
+			} finally {
+				BenchmarkConfiguration.timeoutMillis = oldTimeout;
+			}
+		}
+		// Solving problems directly uses the standard mapping
+		{
+			ChimeraMqoProblem problem = ChimeraFactory.produceStandardTestcase(
+					new TestcaseClass(8, 2, false)).problem;
+			long oldTimeout = BenchmarkConfiguration.timeoutMillis;
+			BenchmarkConfiguration.timeoutMillis = 200;
+			try {
+				ParallelTemperingSolver solver = new ParallelTemperingSolver(2, 0.1, 10, 10);
+				MqoSolution solution = solver.solve(problem);
+				assertEquals(problem.executionCost(solution.planSelections), 
+						solution.executionCost, TestUtil.DOUBLE_TOLERANCE);
+			} finally {
+				BenchmarkConfiguration.timeoutMillis = oldTimeout;
+			}
+		}
+	}
+
+}
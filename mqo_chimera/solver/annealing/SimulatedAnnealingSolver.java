@@ -0,0 +1,164 @@
+package mqo_chimera.solver.annealing;
+
+import java.util.SplittableRandom;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.solver.ParallelRestartSolver;
+import mqo_chimera.solver.RestartSearch;
+import mqo_chimera.solver.SharedIncumbent;
+import mqo_chimera.solver.Solver;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.IncrementalMqoSolution;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.util.RandomUtil;
+
+/**
+ * Simulated annealing for MQO. Each run starts from a random plan selection and performs
+ * a fixed number of sweeps while the temperature decreases according to a cooling schedule.
+ * In each sweep we propose for each query the selection of a random alternative plan and
+ * accept the change according to the Metropolis criterion. Runs are restarted until the
+ * timeout is reached.
+ *
+ * Temperatures are specified as the probability of accepting a cost increase of average
+ * size, the average size of cost increases is estimated for each problem instance by
+ * sampling random moves. This makes one configuration applicable to problems with
+ * differently scaled costs. Runs can be executed on several threads via
+ * ParallelRestartSolver.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class SimulatedAnnealingSolver extends Solver implements RestartSearch {
+	/**
+	 * The number of random moves used to estimate the average cost increase.
+	 */
+	static final int NR_CALIBRATION_MOVES = 1000;
+	/**
+	 * The number of sweeps over all queries per run.
+	 */
+	final int nrSweeps;
+	/**
+	 * Probability of accepting an average cost increase in the first sweep.
+	 */
+	final double initialAcceptance;
+	/**
+	 * Probability of accepting an average cost increase in the last sweep.
+	 */
+	final double finalAcceptance;
+	/**
+	 * Determines how temperature decreases from sweep to sweep.
+	 */
+	final CoolingSchedule schedule;
+
+	public SimulatedAnnealingSolver(int nrSweeps, double initialAcceptance,
+			double finalAcceptance, CoolingSchedule schedule) {
+		assert(nrSweeps > 0);
+		assert(initialAcceptance > 0 && initialAcceptance < 1);
+		assert(finalAcceptance > 0 && finalAcceptance <= initialAcceptance);
+		this.nrSweeps = nrSweeps;
+		this.initialAcceptance = initialAcceptance;
+		this.finalAcceptance = finalAcceptance;
+		this.schedule = schedule;
+	}
+	/**
+	 * Returns the temperature at which a cost increase of the given size is accepted
+	 * with the given probability.
+	 *
+	 * @param costIncrease	size of the cost increase
+	 * @param acceptance	probability of accepting the increase
+	 * @return				temperature
+	 */
+	static double temperature(double costIncrease, double acceptance) {
+		return -costIncrease / Math.log(acceptance);
+	}
+	/**
+	 * Estimates the average cost increase caused by changing the plan of a random query
+	 * in a random plan selection, only moves that increase cost are taken into account.
+	 *
+	 * @param problem	an MQO problem instance
+	 * @param random	random generator
+	 * @return			average cost increase or one if no sampled move increases cost
+	 */
+	static double averageCostIncrease(ChimeraMqoProblem problem, SplittableRandom random) {
+		int nrQueries = problem.nrQueries;
+		int nrPlanIndices = problem.maxPlanIndex() + 1;
+		int[] planSelections = ChimeraFactory.pickRandomPlans(problem, random);
+		double increaseSum = 0;
+		int nrIncreases = 0;
+		for (int moveCtr=0; moveCtr<NR_CALIBRATION_MOVES; ++moveCtr) {
+			int query = random.nextInt(nrQueries);
+			int plan = random.nextInt(nrPlanIndices);
+			double delta = problem.deltaCost(planSelections, query, plan);
+			if (delta > 0) {
+				increaseSum += delta;
+				++nrIncreases;
+			}
+		}
+		return nrIncreases > 0 ? increaseSum / nrIncreases : 1;
+	}
+	/**
+	 * Performs one sweep at the given temperature: for each query we propose to switch
+	 * to a random other plan and accept according to the Metropolis criterion.
+	 *
+	 * @param solution		current plan selections, modified by the sweep
+	 * @param temperature	current temperature
+	 * @param random		random generator
+	 */
+	static void sweep(IncrementalMqoSolution solution, double temperature, SplittableRandom random) {
+		ChimeraMqoProblem problem = solution.problem;
+		int nrQueries = problem.nrQueries;
+		int maxPlanIndex = problem.maxPlanIndex();
+		for (int query=0; query<nrQueries; ++query) {
+			// Draw a plan different from the current one
+			int currentPlan = solution.selectedPlan(query);
+			int newPlan = random.nextInt(maxPlanIndex);
+			if (newPlan >= currentPlan) {
+				++newPlan;
+			}
+			// Only the interactions of the changed query are evaluated
+			double delta = solution.deltaCost(query, newPlan);
+			if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+				solution.selectPlan(query, newPlan);
+			}
+		}
+	}
+	/**
+	 * Performs one annealing run from the given starting solution, reporting the
+	 * solution after each sweep.
+	 */
+	@Override
+	public void restart(IncrementalMqoSolution solution, SplittableRandom random, SharedIncumbent incumbent) {
+		ChimeraMqoProblem problem = solution.problem;
+		// There is nothing to anneal if each query has only one plan
+		if (problem.maxPlanIndex() == 0) {
+			return;
+		}
+		// Derive temperatures from the cost scale of the problem
+		double averageIncrease = averageCostIncrease(problem, random);
+		double initialTemperature = temperature(averageIncrease, initialAcceptance);
+		double finalTemperature = temperature(averageIncrease, finalAcceptance);
+		for (int sweepCtr=0; sweepCtr<nrSweeps && !incumbent.timedOut(); ++sweepCtr) {
+			double temperature = schedule.temperature(
+					initialTemperature, finalTemperature, sweepCtr, nrSweeps);
+			sweep(solution, temperature, random);
+			incumbent.offer(solution);
+		}
+	}
+	/**
+	 * Performs annealing runs from random starting points until the timeout is reached.
+	 */
+	@Override
+	public MqoSolution solve(ChimeraMqoProblem problem) throws Exception {
+		SharedIncumbent incumbent = new SharedIncumbent(problem, 
+				System.currentTimeMillis(), BenchmarkConfiguration.timeoutMillis);
+		SplittableRandom random = new SplittableRandom(RandomUtil.random.nextLong());
+		ParallelRestartSolver.restartUntilTimeout(this, problem, random, incumbent);
+		incumbent.copyCheckpointCost(lastRunCheckpointCost);
+		return incumbent.bestSolution();
+	}
+	@Override
+	public String solverID() {
+		return "SA" + schedule.name().charAt(0) + nrSweeps;
+	}
+}
@@ -0,0 +1,78 @@
+package mqo_chimera.solver.annealing;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.IncrementalMqoSolution;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class SimulatedAnnealingSolverTest {
+
+	@Test
+	public void test() throws Exception {
+		// Cooling schedules
+		{
+			assertEquals(2, CoolingSchedule.LINEAR.temperature(2, 1, 0, 3), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(1.5, CoolingSchedule.LINEAR.temperature(2, 1, 1, 3), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(1, CoolingSchedule.LINEAR.temperature(2, 1, 2, 3), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(4, CoolingSchedule.GEOMETRIC.temperature(4, 1, 0, 3), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(2, CoolingSchedule.GEOMETRIC.temperature(4, 1, 1, 3), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(1, CoolingSchedule.GEOMETRIC.temperature(4, 1, 2, 3), TestUtil.DOUBLE_TOLERANCE);
+		}
+		// Temperature for acceptance probability
+		{
+			double temperature = SimulatedAnnealingSolver.temperature(2, 0.5);
+			assertEquals(0.5, Math.exp(-2 / temperature), TestUtil.DOUBLE_TOLERANCE);
+		}
+		// Sweeps at zero temperature never increase cost
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(3, 2, false);
+			problem.planCost[0][0] = 1;
+			problem.planCost[0][1] = 0.5;
+			problem.planCost[1][0] = 0.25;
+			problem.planCost[1][1] = 0.5;
+			problem.planCost[2][0] = 1;
+			problem.planCost[2][1] = 1;
+			problem.addInterference(0, 0, 1, 1, -1);
+			IncrementalMqoSolution solution = new IncrementalMqoSolution(problem, new int[] {1, 1, 0});
+			SplittableRandom random = new SplittableRandom(0);
+			for (int sweepCtr=0; sweepCtr<10; ++sweepCtr) {
+				double oldCost = solution.getExecutionCost();
+				SimulatedAnnealingSolver.sweep(solution, 0, random);
+				assertTrue(solution.getExecutionCost() <= oldCost);
+				assertEquals(problem.executionCost(solution.copyPlanSelections()), 
+						solution.getExecutionCost(), TestUtil.DOUBLE_TOLERANCE);
+			}
+		}
+		// Full solver invocation with short timeout
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(3, 2, false);
+			problem.planCost[0][0] = 1;
+			problem.planCost[0][1] = 0.5;
+			problem.planCost[1][0] = 0.25;
+			problem.planCost[1][1] = 0.5;
+			problem.planCost[2][0] = 1;
+			problem.planCost[2][1] = 1;
+			problem.addInterference(0, 0, 1, 1, -1);
+			long oldTimeout = BenchmarkConfiguration.timeoutMillis;
+			BenchmarkConfiguration.timeoutMillis = 20;
+			try {
+				SimulatedAnnealingSolver solver = new SimulatedAnnealingSolver(
+						10, 0.5, 0.01, CoolingSchedule.GEOMETRIC);
+				MqoSolution solution = solver.solve(problem);
+				assertEquals(1.5, solution.executionCost, TestUtil.DOUBLE_TOLERANCE);
+				assertEquals(1.5, solver.lastRunCheckpointCost[BenchmarkConfiguration.nrBenchmarkTimes - 1], 
+						TestUtil.DOUBLE_TOLERANCE);
+			} finally {
+				BenchmarkConfiguration.timeoutMillis = oldTimeout;
+			}
+		}
+	}
+
+}
@@ -1,20 +1,25 @@
 package mqo_chimera.solver.climbing;
 
 import java.util.Arrays;
+import java.util.SplittableRandom;
 
 import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.solver.RestartSearch;
+import mqo_chimera.solver.SharedIncumbent;
 import mqo_chimera.solver.Solver;
 import mqo_chimera.testcases.ChimeraFactory;
 import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.IncrementalMqoSolution;
 import mqo_chimera.testcases.MqoSolution;
 
 /**
- * Simple hill climbing heuristic for MQO.
+ * Simple hill climbing heuristic for MQO. Can be executed on several threads
+ * via ParallelRestartSolver.
  * 
  * @author immanueltrummer
  *
  */
-public class HillClimber extends Solver {
+public class HillClimber extends Solver implements RestartSearch {
 	/**
 	 * Try to reduce execution cost by changing one plan selection. 
 	 * 
@@ -29,21 +34,45 @@ public class HillClimber extends Solver {
 		// Extract problem dimensions
 		int nrQueries = problem.nrQueries;
 		int maxPlanIndex = problem.maxPlanIndex();
-		// Calculate current execution cost - we will try to improve it
-		double curCost = problem.executionCost(solution);
 		// Iterate over queries and try all possible plans for each
 		for (int query=0; query<nrQueries; ++query) {
-			// Store plan selection in current solution
-			int curPlan = solution[query];
 			for (int plan=0; plan<=maxPlanIndex; ++plan) {
-				solution[query] = plan;
-				double newCost = problem.executionCost(solution);
-				if (newCost < curCost) {
+				// Only the interactions of the changed query are evaluated
+				if (problem.deltaCost(solution, query, plan) < 0) {
+					solution[query] = plan;
+					return true;
+				}
+			}
+			// Check for timeout
+			if (System.currentTimeMillis() - startTime > timeoutMillis) {
+				return false;
+			}
+		}
+		// If we arrive here then the solution could not be improved
+		return false;
+	}
+	/**
+	 * Try to reduce execution cost by changing one plan selection, the execution
+	 * cost of the solution is updated incrementally.
+	 * 
+	 * @param solution		current plan selections, contains improved solution after invocation
+	 * @param startTime		start time of optimization in milliseconds
+	 * @param timeoutMillis	number of milliseconds for timeout
+	 * @return 				true if it was possible to improve the last solution
+	 */
+	static boolean improveSolution(IncrementalMqoSolution solution, long startTime, long timeoutMillis) {
+		// Extract problem dimensions
+		ChimeraMqoProblem problem = solution.problem;
+		int nrQueries = problem.nrQueries;
+		int maxPlanIndex = problem.maxPlanIndex();
+		// Iterate over queries and try all possible plans for each
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<=maxPlanIndex; ++plan) {
+				if (solution.deltaCost(query, plan) < 0) {
+					solution.selectPlan(query, plan);
 					return true;
 				}
 			}
-			// Restore previously selected plan
-			solution[query] = curPlan;
 			// Check for timeout
 			if (System.currentTimeMillis() - startTime > timeoutMillis) {
 				return false;
@@ -65,32 +94,52 @@ public class HillClimber extends Solver {
 		boolean allowIndependentProcessing = problem.allowIndependentProcessing;
 		Arrays.fill(lastRunCheckpointCost, Double.POSITIVE_INFINITY);
 		long elapsedMillis = 0;
-		int[] solution;
+		IncrementalMqoSolution solution = null;
 		double cost;
 		int[] bestSolution = null;
 		double bestCost = Double.POSITIVE_INFINITY;
 		// While optimal solution not found and time remaining
 		do {
 			// Generate solution randomly
-			solution = ChimeraFactory.pickRandomPlans(problem, allowIndependentProcessing);
+			int[] randomPlans = ChimeraFactory.pickRandomPlans(problem, allowIndependentProcessing);
+			if (solution == null) {
+				solution = new IncrementalMqoSolution(problem, randomPlans);
+			} else {
+				solution.reset(randomPlans);
+			}
 			// Find local optimum
-			while (improveSolution(problem, solution, startTime, BenchmarkConfiguration.timeoutMillis)) {
-				// Calculate locally optimal execution cost
-				cost = problem.executionCost(solution);
+			while (improveSolution(solution, startTime, BenchmarkConfiguration.timeoutMillis)) {
+				// Execution cost is maintained incrementally
+				cost = solution.getExecutionCost();
 				// Update best plan found so far
 				if (cost < bestCost) {
 					bestCost = cost;
-					bestSolution = solution;
+					bestSolution = solution.copyPlanSelections();
 				}
 				// Calculate elapsed time
 				elapsedMillis = System.currentTimeMillis() - startTime;
 				// Update cost statistics
 				updateStats(cost, elapsedMillis);				
 			};
+			// Calculate elapsed time
+			elapsedMillis = System.currentTimeMillis() - startTime;
 		} while (elapsedMillis < BenchmarkConfiguration.timeoutMillis);
+		// Local optima might not require any improvement step
+		if (bestSolution == null || solution.getExecutionCost() < bestCost) {
+			bestSolution = solution.copyPlanSelections();
+		}
 		// Generate solution for best plan selections found
 		return new MqoSolution(problem, bestSolution);
 	}
+	/**
+	 * Improves the given solution until a local optimum or the timeout is reached.
+	 */
+	@Override
+	public void restart(IncrementalMqoSolution solution, SplittableRandom random, SharedIncumbent incumbent) {
+		while (improveSolution(solution, incumbent.startMillis, incumbent.timeoutMillis)) {
+			incumbent.offer(solution);
+		}
+	}
 	@Override
 	public String solverID() {
 		return "CLIMB";
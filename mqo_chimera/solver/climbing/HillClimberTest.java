@@ -2,6 +2,8 @@ package mqo_chimera.solver.climbing;
 
 import static org.junit.Assert.*;
 import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.IncrementalMqoSolution;
+import mqo_chimera.util.TestUtil;
 
 import org.junit.Test;
 
@@ -40,6 +42,24 @@ public class HillClimberTest {
 				assertFalse(HillClimber.improveSolution(problem, solution, System.currentTimeMillis(), Long.MAX_VALUE));
 			}
 		}
+		// Single improvement step with incremental cost maintenance
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(3, 2, false);
+			problem.planCost[0][0] = 1;
+			problem.planCost[0][1] = 0.5;
+			problem.planCost[1][0] = 0.25;
+			problem.planCost[1][1] = 0.5;
+			problem.planCost[2][0] = 1;
+			problem.planCost[2][1] = 1;
+			problem.addInterference(0, 0, 1, 1, -1);
+			IncrementalMqoSolution solution = new IncrementalMqoSolution(problem, new int[] {1, 1, 0});
+			assertTrue(HillClimber.improveSolution(solution, System.currentTimeMillis(), Long.MAX_VALUE));
+			assertEquals(problem.executionCost(solution.copyPlanSelections()), 
+					solution.getExecutionCost(), TestUtil.DOUBLE_TOLERANCE);
+			while (HillClimber.improveSolution(solution, System.currentTimeMillis(), Long.MAX_VALUE)) {}
+			assertArrayEquals(new int[] {0, 1, 0}, solution.copyPlanSelections());
+			assertEquals(1.5, solution.getExecutionCost(), TestUtil.DOUBLE_TOLERANCE);
+		}
 		// Full climber invocation
 		/*
 		{
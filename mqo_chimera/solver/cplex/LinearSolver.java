@@ -3,15 +3,15 @@ package mqo_chimera.solver.cplex;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map.Entry;
 
-import mqo_chimera.benchmark.BenchmarkConfiguration;
 import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.QubitWeights;
 import mqo_chimera.solver.Solver;
+import mqo_chimera.testcases.ChimeraFactory;
 import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.InteractionMap;
 import mqo_chimera.testcases.MqoSolution;
 import mqo_chimera.testcases.QuadraticMqoSolution;
-import mqo_chimera.testcases.PlanCoupling;
 import mqo_chimera.util.Coupling;
 import mqo_chimera.util.GenericUtil;
 import ilog.concert.IloException;
@@ -19,6 +19,7 @@ import ilog.concert.IloIntVar;
 import ilog.concert.IloLinearIntExpr;
 import ilog.concert.IloLinearNumExpr;
 import ilog.concert.IloNumExpr;
+import ilog.concert.IloNumVar;
 import ilog.cplex.IloCplex;
 import ilog.cplex.IloCplex.Status;
 
@@ -83,10 +84,13 @@ public class LinearSolver extends Solver {
 	void treatCouplingWeights(ChimeraMqoMapping mapping, IloIntVar[] qubitVars, IloIntVar[] couplingVars, 
 			IloLinearNumExpr energyFormula, Coupling[] couplings) throws IloException {
 		int nrQubits = mapping.nrQubits;
+		QubitWeights weights = mapping.weights;
 		int nextCouplingIndex = 0;
 		for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
-			for (int qubit2=qubit1 + 1; qubit2<nrQubits; ++qubit2) {
-				double weight = mapping.getConnectionWeight(qubit1, qubit2);
+			int nrStoredCouplings = weights.nrStoredCouplings(qubit1);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				int qubit2 = weights.storedNeighbor(qubit1, position);
+				double weight = weights.storedWeight(qubit1, position);
 				if (weight != 0) {
 					// associate coupling with connected qubits
 					couplings[nextCouplingIndex] = new Coupling(qubit1, qubit2);
@@ -181,6 +185,19 @@ public class LinearSolver extends Solver {
 	 */
 	@Override
 	public MqoSolution solve(ChimeraMqoProblem problem) throws Exception {
+		return solve(problem, null);
+	}
+	/**
+	 * Solves a MQO problem instance directly, optionally starting from plan selections found
+	 * by a heuristic which are handed to CPLEX as MIP start. Each incumbent found by CPLEX
+	 * is recorded in the cost statistics together with the time at which it was found.
+	 * 
+	 * @param problem		an MQO problem instance
+	 * @param warmStart		plan selection for each query to start from or null
+	 * @return				the optimal solution
+	 * @throws Exception
+	 */
+	public MqoSolution solve(final ChimeraMqoProblem problem, int[] warmStart) throws Exception {
 		System.out.println("Initializing CPLEX for solving an MQO instance");
 		// clear CPLEX model
 		cplex.clearModel();
@@ -194,6 +211,7 @@ public class LinearSolver extends Solver {
 			planVars[query] = cplex.boolVarArray(nrPlans);
 		}
 		IloIntVar[] couplingVars = cplex.boolVarArray(nrCouplingsUsed);
+		long[] couplingPlanPairs = new long[nrCouplingsUsed];
 		// Add CPLEX variables to model to be able to retrieve their values in the end
 		for (int query=0; query<nrQueries; ++query) {
 			cplex.add(planVars[query]);
@@ -219,14 +237,19 @@ public class LinearSolver extends Solver {
 			}
 		}
 		// Integrate cost savings between plans
+		InteractionMap interactions = problem.interactions;
 		int nextCouplingIndex = 0;
-		for (Entry<PlanCoupling, Double> entry : problem.interactions.entrySet()) {
-			PlanCoupling planCoupling = entry.getKey();
-			Double costDelta = entry.getValue();
-			IloIntVar planVar1 = planVars[planCoupling.query1][planCoupling.plan1];
-			IloIntVar planVar2 = planVars[planCoupling.query2][planCoupling.plan2];
+		for (int slot=0; slot<interactions.capacity(); ++slot) {
+			if (!interactions.isUsed(slot)) {
+				continue;
+			}
+			long planPair = interactions.keyAt(slot);
+			double costDelta = interactions.valueAt(slot);
+			IloIntVar planVar1 = planVars[InteractionMap.query1(planPair)][InteractionMap.plan1(planPair)];
+			IloIntVar planVar2 = planVars[InteractionMap.query2(planPair)][InteractionMap.plan2(planPair)];
 			// impose constraint on coupling variable
 			IloIntVar couplingVar = couplingVars[nextCouplingIndex];
+			couplingPlanPairs[nextCouplingIndex] = planPair;
 			cplex.addGe(planVar1, couplingVar);
 			cplex.addGe(planVar2, couplingVar);
 			IloLinearIntExpr qubitSumMinusOne = cplex.linearIntExpr();
@@ -242,24 +265,52 @@ public class LinearSolver extends Solver {
 		// Prepare QUBO solving
 		cplex.addMinimize(executionCost);
 		// initialize benchmarking variables
-		long startMillis = System.currentTimeMillis();
+		final long startMillis = System.currentTimeMillis();
 		Arrays.fill(lastRunCheckpointCost, Double.POSITIVE_INFINITY);
-		// invoke CPLEX multiple times and store cost value after each time interval
-		for (int intervalCtr=0; intervalCtr<BenchmarkConfiguration.nrBenchmarkTimes; ++intervalCtr) {
-			long lowerBoundMillis = intervalCtr==0 ? 0 : BenchmarkConfiguration.benchmarkTimes[intervalCtr-1];
-			long upperBoundMillis = BenchmarkConfiguration.benchmarkTimes[intervalCtr];
-			long durationMillis = upperBoundMillis - lowerBoundMillis;
-			// Set time limit (use default setting for clock mode: wall clock time)
-			cplex.setParam(IloCplex.LongParam.TimeLimit, durationMillis/1000.0);
-			cplex.solve();
-			// Extract best solution found and update cost statistics
-			int[] planSelections = extractPlanSelections(planVars, nrQueries, nrPlans);
-			double cost = planSelections != null ? problem.executionCost(planSelections) : Double.POSITIVE_INFINITY;
-			updateStats(cost, upperBoundMillis);
+		// objective value equals execution cost of candidate plan selections (all candidates
+		// are accepted) - the generic callback keeps dynamic search enabled.
+		cplex.use(new IloCplex.Callback.Function() {
+			@Override
+			public void invoke(IloCplex.Callback.Context context) throws IloException {
+				if (context.isCandidatePoint()) {
+					double cost = context.getCandidateObjective();
+					long elapsedMillis = System.currentTimeMillis() - startMillis;
+					synchronized (LinearSolver.this) {
+						updateStats(cost, elapsedMillis);
+					}
+				}
+			}
+		}, IloCplex.Callback.Context.Id.Candidate);
+		// hand over plan selections of heuristic solution as MIP start
+		if (warmStart != null) {
+			assert(warmStart.length == nrQueries);
+			IloNumVar[] startVars = new IloNumVar[nrQueries * nrPlans + nrCouplingsUsed];
+			double[] startValues = new double[startVars.length];
+			int startIndex = 0;
+			for (int query=0; query<nrQueries; ++query) {
+				assert(warmStart[query] < nrPlans);
+				for (int plan=0; plan<nrPlans; ++plan) {
+					startVars[startIndex] = planVars[query][plan];
+					startValues[startIndex] = warmStart[query] == plan ? 1 : 0;
+					++startIndex;
+				}
+			}
+			for (int couplingIndex=0; couplingIndex<nrCouplingsUsed; ++couplingIndex) {
+				long planPair = couplingPlanPairs[couplingIndex];
+				boolean bothSelected = warmStart[InteractionMap.query1(planPair)] == InteractionMap.plan1(planPair) &&
+						warmStart[InteractionMap.query2(planPair)] == InteractionMap.plan2(planPair);
+				startVars[startIndex] = couplingVars[couplingIndex];
+				startValues[startIndex] = bothSelected ? 1 : 0;
+				++startIndex;
+			}
+			cplex.addMIPStart(startVars, startValues, IloCplex.MIPStartEffort.CheckFeas, "warmStart");
+			// the warm start is available when optimization starts
+			updateStats(problem.executionCost(warmStart), 0);
 		}
 		// solve without timeout
 		cplex.setParam(IloCplex.LongParam.TimeLimit, 1E75);
 		cplex.solve();
+		cplex.clearCallbacks();
 		// stop timer
 		lastRunSolverMillis = System.currentTimeMillis() - startMillis;
 		// verify that optimal solution was found
@@ -278,6 +329,20 @@ public class LinearSolver extends Solver {
 	 * @throws Exception
 	 */
 	public QuadraticMqoSolution solveChimeraQubo(ChimeraMqoMapping mapping) throws Exception {
+		return solveChimeraQubo(mapping, null);
+	}
+	/**
+	 * Solves a MQO problem instance in Qubo representation, optionally starting from plan
+	 * selections found by a heuristic which are handed to CPLEX as MIP start. Each incumbent
+	 * found by CPLEX is recorded in the cost statistics together with the time at which it
+	 * was found.
+	 * 
+	 * @param mapping		contains MQO problem and corresponding QUBO representation
+	 * @param warmStart		plan selection for each query to start from or null
+	 * @return				MQO problem solution
+	 * @throws Exception
+	 */
+	public QuadraticMqoSolution solveChimeraQubo(final ChimeraMqoMapping mapping, int[] warmStart) throws Exception {
 		System.out.println("Initializing CPLEX");
 		// Extract variables
 		int nrQubits = mapping.nrQubits;
@@ -286,7 +351,7 @@ public class LinearSolver extends Solver {
 		// analyze QUBO
 		int nrCouplingsUsed = mapping.nrCouplingsUsed();
 		// Create required CPELX variables
-		IloIntVar[] qubitVars = cplex.boolVarArray(nrQubits);
+		final IloIntVar[] qubitVars = cplex.boolVarArray(nrQubits);
 		IloIntVar[] couplingVars = cplex.boolVarArray(nrCouplingsUsed);
 		Coupling[] usedCouplings = new Coupling[nrCouplingsUsed];
 		// Add CPLEX variables to model to be able to retrieve their values in the end
@@ -300,42 +365,50 @@ public class LinearSolver extends Solver {
 		treatCouplingWeights(mapping, qubitVars, couplingVars, energyFormula, usedCouplings);
 		// Prepare QUBO solving
 		cplex.addMinimize(energyFormula);
-		// Get underlying MQO problem instance and dimensions
-		ChimeraMqoProblem problem = mapping.problem;
-		int nrQueries = problem.nrQueries;
+		// Get underlying MQO problem instance
+		final ChimeraMqoProblem problem = mapping.problem;
 		// initialize benchmarking variables
-		long startMillis = System.currentTimeMillis();
+		final long startMillis = System.currentTimeMillis();
 		Arrays.fill(lastRunCheckpointCost, Double.POSITIVE_INFINITY);
-		// invoke CPLEX multiple times and store cost value after each time interval
-		for (int intervalCtr=0; intervalCtr<BenchmarkConfiguration.nrBenchmarkTimes; ++intervalCtr) {
-			long lowerBoundMillis = intervalCtr==0 ? 0 : BenchmarkConfiguration.benchmarkTimes[intervalCtr-1];
-			long upperBoundMillis = BenchmarkConfiguration.benchmarkTimes[intervalCtr];
-			long durationMillis = upperBoundMillis - lowerBoundMillis;
-			// Set time limit (use default setting for clock mode: wall clock time)
-			cplex.setParam(IloCplex.LongParam.TimeLimit, durationMillis/1000.0);
-			cplex.solve();
-			// Extract best solution found and update cost statistics
-			double[] qubitsDoubleValues = cplex.getValues(qubitVars);
-			boolean[] qubitValues = qubitsDoubleValues == null ? null : 
-				GenericUtil.extractQubitValues(qubitsDoubleValues);
-			int[] planSelections = new int[nrQueries];
-			for (int qubit=0; qubit<nrQubits; ++qubit) {
-				int query = mapping.associatedQuery[qubit];
-				int plan = mapping.associatedPlan[qubit];
-				if (query!=-1 && plan!=-1) {
-					if (qubitValues[qubit]) {
-						planSelections[query] = plan;
+		// energy differs from execution cost, hence plan selections are extracted from each
+		// candidate solution - the generic callback keeps dynamic search enabled.
+		cplex.use(new IloCplex.Callback.Function() {
+			@Override
+			public void invoke(IloCplex.Callback.Context context) throws IloException {
+				if (context.isCandidatePoint()) {
+					boolean[] qubitValues = GenericUtil.extractQubitValues(context.getCandidatePoint(qubitVars));
+					double cost = problem.executionCost(
+							QuadraticMqoSolution.extractPlanSelections(mapping, qubitValues));
+					long elapsedMillis = System.currentTimeMillis() - startMillis;
+					synchronized (LinearSolver.this) {
+						updateStats(cost, elapsedMillis);
 					}
 				}
 			}
-			double cost = planSelections != null ? problem.executionCost(planSelections) : 
-				Double.POSITIVE_INFINITY;
-			updateStats(cost, upperBoundMillis);
+		}, IloCplex.Callback.Context.Id.Candidate);
+		// hand over qubit values representing heuristic solution as MIP start
+		if (warmStart != null) {
+			boolean[] startQubitValues = ChimeraFactory.inferOptimalQubitValues(warmStart, mapping);
+			IloNumVar[] startVars = new IloNumVar[nrQubits + nrCouplingsUsed];
+			double[] startValues = new double[startVars.length];
+			for (int qubit=0; qubit<nrQubits; ++qubit) {
+				startVars[qubit] = qubitVars[qubit];
+				startValues[qubit] = startQubitValues[qubit] ? 1 : 0;
+			}
+			for (int couplingIndex=0; couplingIndex<nrCouplingsUsed; ++couplingIndex) {
+				Coupling coupling = usedCouplings[couplingIndex];
+				boolean bothSet = startQubitValues[coupling.qubit1] && startQubitValues[coupling.qubit2];
+				startVars[nrQubits + couplingIndex] = couplingVars[couplingIndex];
+				startValues[nrQubits + couplingIndex] = bothSet ? 1 : 0;
+			}
+			cplex.addMIPStart(startVars, startValues, IloCplex.MIPStartEffort.CheckFeas, "warmStart");
+			// the warm start is available when optimization starts
+			updateStats(problem.executionCost(warmStart), 0);
 		}
 		// solve without timeout
-		System.out.println("Interrupting optimization after timeout - we don't search optimal solution");
 		cplex.setParam(IloCplex.LongParam.TimeLimit, 1E75);
 		cplex.solve();
+		cplex.clearCallbacks();
 		// stop timer
 		lastRunSolverMillis = System.currentTimeMillis() - startMillis;
 		// verify that optimal solution was found
@@ -393,10 +466,13 @@ public class LinearSolver extends Solver {
 			}
 		}
 		// Relate coupling variables to the spins and add corresponding weights
+		QubitWeights weights = isingMapping.weights;
 		int couplingIndex = 0;
 		for (int spin1=0; spin1<nrSpins; ++spin1) {
-			for (int spin2=spin1+1; spin2<nrSpins; ++spin2) {
-				double weight = isingMapping.getConnectionWeight(spin1, spin2);
+			int nrStoredCouplings = weights.nrStoredCouplings(spin1);
+			for (int position=0; position<nrStoredCouplings; ++position) {
+				int spin2 = weights.storedNeighbor(spin1, position);
+				double weight = weights.storedWeight(spin1, position);
 				if (weight != 0) {
 					IloIntVar binaryVar1 = binaryVars[spin1];
 					IloIntVar binaryVar2 = binaryVars[spin2];
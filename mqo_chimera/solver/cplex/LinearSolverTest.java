@@ -76,6 +76,30 @@ public class LinearSolverTest {
 				assertEquals(quboCost, mqoCost, TestUtil.DOUBLE_TOLERANCE);
 			}
 		}
+		// Warm start from heuristic solution and incumbent statistics
+		{
+			for (int i=0; i<10; ++i) {
+				int nrQueries = RandomUtil.uniformInt(2, 50);
+				int nrPlans = RandomUtil.uniformInt(2, 5);
+				TestcaseClass testClass = new TestcaseClass(nrQueries, nrPlans, false);
+				ChimeraMqoMapping quboMapping = ChimeraFactory.produceStandardTestcase(testClass);
+				ChimeraMqoProblem problem = quboMapping.problem;
+				int[] warmStart = ChimeraFactory.pickRandomPlans(problem, false);
+				double warmStartCost = problem.executionCost(warmStart);
+				MqoSolution coldSolution = solver.solve(problem);
+				MqoSolution warmSolution = solver.solve(problem, warmStart);
+				assertEquals(coldSolution.executionCost, warmSolution.executionCost, TestUtil.DOUBLE_TOLERANCE);
+				// Warm start cost is available from the start, optimal cost at the end
+				assertTrue(solver.lastRunCheckpointCost[0] <= warmStartCost + TestUtil.DOUBLE_TOLERANCE);
+				int lastCheckpoint = solver.lastRunCheckpointCost.length - 1;
+				assertTrue(solver.lastRunCheckpointCost[lastCheckpoint] >= 
+						warmSolution.executionCost - TestUtil.DOUBLE_TOLERANCE);
+				QuadraticMqoSolution quboSolution = solver.solveChimeraQubo(quboMapping, warmStart);
+				assertEquals(coldSolution.executionCost, 
+						problem.executionCost(quboSolution.planSelections), TestUtil.DOUBLE_TOLERANCE);
+				assertTrue(solver.lastRunCheckpointCost[0] <= warmStartCost + TestUtil.DOUBLE_TOLERANCE);
+			}
+		}
 		// Check consistency between Qubo and Ising solver
 		{
 			for (int i=0; i<10; ++i) {
@@ -0,0 +1,460 @@
+package mqo_chimera.solver.exact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import mqo_chimera.solver.Solver;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.InteractionMap;
+import mqo_chimera.testcases.MqoSolution;
+
+/**
+ * Exact solver for MQO problems based on dynamic programming (bucket elimination). Queries
+ * are eliminated one after the other: for each eliminated query we tabulate the minimal cost
+ * contribution of all cost terms involving that query, as a function of the plans selected
+ * for the queries that it interacts with and that are not yet eliminated. The optimal plan
+ * selections are obtained by backtracking over the stored decisions.
+ *
+ * ChimeraFactory assigns queries to unit cells in row-major order, eliminating queries by
+ * their index therefore sweeps over the unit cell grid row by row and table sizes are
+ * exponential in the number of queries along one row of unit cells. We compare that order
+ * with a greedy min-fill order and use the one that requires smaller tables. The solver
+ * refuses problems for which the largest table would exceed a configurable size (and,
+ * in any case, the maximal array length).
+ *
+ * Of the standard test case classes, only Q140P4 is within reach: its largest table has
+ * 4^13 (about 6.7E7) entries while Q108P5 requires 5^12 (about 2.4E8), Q253P3 about
+ * 8.5E11, and Q537P2 about 5.6E14 entries. Use supports() to check whether a problem
+ * can be solved before invoking the solver.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class VariableEliminationSolver extends Solver {
+	/**
+	 * The maximal number of array elements supported by common virtual machines.
+	 */
+	static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	/**
+	 * The maximal number of entries of one table.
+	 */
+	final long maxTableSize;
+	/**
+	 * The number of milliseconds required for the last invocation.
+	 */
+	public long lastRunSolverMillis;
+	/**
+	 * The optimal cost found in the last invocation.
+	 */
+	public double lastRunOptimalCost;
+
+	public VariableEliminationSolver(long maxTableSize) {
+		this.maxTableSize = Math.min(maxTableSize, MAX_ARRAY_SIZE);
+	}
+	/**
+	 * A cost table over the plan selections of a set of queries. The selection of the
+	 * first query in the scope is the most significant digit of the table index.
+	 */
+	static class Factor {
+		/**
+		 * The queries whose plan selections determine the cost.
+		 */
+		final int[] scope;
+		/**
+		 * Cost for each combination of plan selections.
+		 */
+		final double[] table;
+
+		Factor(int[] scope, double[] table) {
+			this.scope = scope;
+			this.table = table;
+		}
+	}
+	/**
+	 * Collects the interaction graph between queries.
+	 *
+	 * @param problem	an MQO problem instance
+	 * @return			for each query the set of interacting queries
+	 */
+	static List<TreeSet<Integer>> interactionGraph(ChimeraMqoProblem problem) {
+		int nrQueries = problem.nrQueries;
+		List<TreeSet<Integer>> neighbors = new ArrayList<TreeSet<Integer>>();
+		for (int query=0; query<nrQueries; ++query) {
+			neighbors.add(new TreeSet<Integer>());
+		}
+		InteractionMap interactions = problem.interactions;
+		for (int slot=0; slot<interactions.capacity(); ++slot) {
+			if (interactions.isUsed(slot)) {
+				long key = interactions.keyAt(slot);
+				int query1 = InteractionMap.query1(key);
+				int query2 = InteractionMap.query2(key);
+				if (query1 != query2 && interactions.valueAt(slot) != 0) {
+					neighbors.get(query1).add(query2);
+					neighbors.get(query2).add(query1);
+				}
+			}
+		}
+		return neighbors;
+	}
+	/**
+	 * Simulates elimination in the given order on the interaction graph and returns the
+	 * number of entries of the largest table that is generated.
+	 *
+	 * @param graph			for each query the set of interacting queries
+	 * @param order			elimination order
+	 * @param nrPlanIndices	number of admissible plan indices per query
+	 * @return				the size of the largest table (saturates at Long.MAX_VALUE)
+	 */
+	static long maxTableSize(List<TreeSet<Integer>> graph, int[] order, int nrPlanIndices) {
+		List<TreeSet<Integer>> neighbors = copyGraph(graph);
+		long maxSize = 1;
+		for (int query : order) {
+			TreeSet<Integer> queryNeighbors = neighbors.get(query);
+			maxSize = Math.max(maxSize, tableSize(nrPlanIndices, queryNeighbors.size() + 1));
+			eliminate(neighbors, query);
+		}
+		return maxSize;
+	}
+	/**
+	 * Returns the number of entries of a table over the given number of queries.
+	 *
+	 * @param nrPlanIndices		number of admissible plan indices per query
+	 * @param nrQueries			number of queries in the scope of the table
+	 * @return					number of table entries (saturates at Long.MAX_VALUE)
+	 */
+	static long tableSize(int nrPlanIndices, int nrQueries) {
+		long size = 1;
+		for (int queryCtr=0; queryCtr<nrQueries; ++queryCtr) {
+			if (size > Long.MAX_VALUE / nrPlanIndices) {
+				return Long.MAX_VALUE;
+			}
+			size *= nrPlanIndices;
+		}
+		return size;
+	}
+	/**
+	 * Copies an interaction graph.
+	 *
+	 * @param graph		for each query the set of interacting queries
+	 * @return			a deep copy of the graph
+	 */
+	static List<TreeSet<Integer>> copyGraph(List<TreeSet<Integer>> graph) {
+		List<TreeSet<Integer>> copy = new ArrayList<TreeSet<Integer>>();
+		for (TreeSet<Integer> queryNeighbors : graph) {
+			copy.add(new TreeSet<Integer>(queryNeighbors));
+		}
+		return copy;
+	}
+	/**
+	 * Removes a query from the graph and connects all of its neighbors.
+	 *
+	 * @param neighbors		for each query the set of interacting queries, modified
+	 * @param query			the query to eliminate
+	 */
+	static void eliminate(List<TreeSet<Integer>> neighbors, int query) {
+		TreeSet<Integer> queryNeighbors = neighbors.get(query);
+		for (int neighbor : queryNeighbors) {
+			TreeSet<Integer> otherNeighbors = neighbors.get(neighbor);
+			otherNeighbors.remove(query);
+			otherNeighbors.addAll(queryNeighbors);
+			otherNeighbors.remove(neighbor);
+		}
+		queryNeighbors.clear();
+	}
+	/**
+	 * Generates an elimination order that greedily eliminates the query whose elimination
+	 * adds the smallest number of new interactions (breaking ties by the number of neighbors).
+	 *
+	 * @param graph		for each query the set of interacting queries
+	 * @return			elimination order
+	 */
+	static int[] minFillOrder(List<TreeSet<Integer>> graph) {
+		int nrQueries = graph.size();
+		List<TreeSet<Integer>> neighbors = copyGraph(graph);
+		boolean[] eliminated = new boolean[nrQueries];
+		int[] order = new int[nrQueries];
+		for (int position=0; position<nrQueries; ++position) {
+			int bestQuery = -1;
+			long bestFill = Long.MAX_VALUE;
+			for (int query=0; query<nrQueries; ++query) {
+				if (!eliminated[query]) {
+					TreeSet<Integer> queryNeighbors = neighbors.get(query);
+					long fill = 0;
+					for (int neighbor1 : queryNeighbors) {
+						for (int neighbor2 : queryNeighbors.tailSet(neighbor1, false)) {
+							if (!neighbors.get(neighbor1).contains(neighbor2)) {
+								++fill;
+							}
+						}
+					}
+					if (fill < bestFill || (fill == bestFill &&
+							queryNeighbors.size() < neighbors.get(bestQuery).size())) {
+						bestQuery = query;
+						bestFill = fill;
+					}
+				}
+			}
+			order[position] = bestQuery;
+			eliminated[bestQuery] = true;
+			eliminate(neighbors, bestQuery);
+		}
+		return order;
+	}
+	/**
+	 * Generates the initial cost tables: one table per query containing plan execution
+	 * cost and one table per pair of interacting queries.
+	 *
+	 * @param problem	an MQO problem instance
+	 * @return			list of cost tables
+	 */
+	static List<Factor> initialFactors(ChimeraMqoProblem problem) {
+		int nrQueries = problem.nrQueries;
+		int nrPlanIndices = problem.maxPlanIndex() + 1;
+		List<Factor> factors = new ArrayList<Factor>();
+		// Plan execution cost
+		for (int query=0; query<nrQueries; ++query) {
+			double[] table = new double[nrPlanIndices];
+			for (int plan=0; plan<nrPlanIndices; ++plan) {
+				table[plan] = problem.planExecutionCost(query, plan);
+			}
+			factors.add(new Factor(new int[] {query}, table));
+		}
+		// Interactions between plans of different queries, collected by query pair
+		Map<Long, double[]> pairTables = new HashMap<Long, double[]>();
+		InteractionMap interactions = problem.interactions;
+		for (int slot=0; slot<interactions.capacity(); ++slot) {
+			if (interactions.isUsed(slot)) {
+				long key = interactions.keyAt(slot);
+				int query1 = InteractionMap.query1(key);
+				int query2 = InteractionMap.query2(key);
+				if (query1 != query2) {
+					long pair = (long)query1 * nrQueries + query2;
+					double[] table = pairTables.get(pair);
+					if (table == null) {
+						table = new double[nrPlanIndices * nrPlanIndices];
+						pairTables.put(pair, table);
+					}
+					int plan1 = InteractionMap.plan1(key);
+					int plan2 = InteractionMap.plan2(key);
+					table[plan1 * nrPlanIndices + plan2] += interactions.valueAt(slot);
+				}
+			}
+		}
+		for (Map.Entry<Long, double[]> entry : pairTables.entrySet()) {
+			long pair = entry.getKey();
+			int query1 = (int)(pair / nrQueries);
+			int query2 = (int)(pair % nrQueries);
+			factors.add(new Factor(new int[] {query1, query2}, entry.getValue()));
+		}
+		return factors;
+	}
+	/**
+	 * Finds optimal plan selections by eliminating queries in the given order.
+	 *
+	 * @param problem	an MQO problem instance
+	 * @param order		elimination order containing each query once
+	 * @return			optimal plan selections
+	 */
+	static int[] optimalPlans(ChimeraMqoProblem problem, int[] order) {
+		int nrQueries = problem.nrQueries;
+		int nrPlanIndices = problem.maxPlanIndex() + 1;
+		// Position of each query in the elimination order
+		int[] orderPosition = new int[nrQueries];
+		for (int position=0; position<nrQueries; ++position) {
+			orderPosition[order[position]] = position;
+		}
+		// Assign each table to the bucket of the first query eliminated from its scope
+		List<List<Factor>> buckets = new ArrayList<List<Factor>>();
+		for (int position=0; position<nrQueries; ++position) {
+			buckets.add(new ArrayList<Factor>());
+		}
+		for (Factor factor : initialFactors(problem)) {
+			buckets.get(firstPosition(factor.scope, orderPosition)).add(factor);
+		}
+		// Remaining queries in the scope of the new table and best plan for each combination
+		int[][] remainingScopes = new int[nrQueries][];
+		byte[][] bestPlans = new byte[nrQueries][];
+		for (int position=0; position<nrQueries; ++position) {
+			int query = order[position];
+			List<Factor> bucket = buckets.get(position);
+			// Collect queries interacting with the eliminated query
+			TreeSet<Integer> scopeSet = new TreeSet<Integer>();
+			for (Factor factor : bucket) {
+				for (int scopeQuery : factor.scope) {
+					scopeSet.add(scopeQuery);
+				}
+			}
+			scopeSet.remove(query);
+			int[] scope = new int[scopeSet.size()];
+			int scopeCtr = 0;
+			for (int scopeQuery : scopeSet) {
+				scope[scopeCtr++] = scopeQuery;
+			}
+			remainingScopes[position] = scope;
+			// Calculate for each factor how its index changes with each query of the joint scope
+			int nrFactors = bucket.size();
+			int scopeSize = scope.length;
+			int[][] strides = new int[nrFactors][scopeSize];
+			int[] queryStrides = new int[nrFactors];
+			for (int factorCtr=0; factorCtr<nrFactors; ++factorCtr) {
+				int[] factorScope = bucket.get(factorCtr).scope;
+				int stride = 1;
+				for (int factorPosition=factorScope.length-1; factorPosition>=0; --factorPosition) {
+					int factorQuery = factorScope[factorPosition];
+					if (factorQuery == query) {
+						queryStrides[factorCtr] = stride;
+					} else {
+						strides[factorCtr][Arrays.binarySearch(scope, factorQuery)] = stride;
+					}
+					stride *= nrPlanIndices;
+				}
+			}
+			// Minimize over plans of eliminated query for each combination of remaining plans
+			long requiredSize = tableSize(nrPlanIndices, scopeSize);
+			if (requiredSize > MAX_ARRAY_SIZE) {
+				throw new IllegalArgumentException("Elimination order requires a table with " + 
+						requiredSize + " entries but arrays have at most " + MAX_ARRAY_SIZE);
+			}
+			int tableSize = (int)requiredSize;
+			double[] table = new double[tableSize];
+			byte[] tableBestPlans = new byte[tableSize];
+			int[] digits = new int[scopeSize];
+			int[] offsets = new int[nrFactors];
+			for (int entry=0; entry<tableSize; ++entry) {
+				double minCost = Double.POSITIVE_INFINITY;
+				int bestPlan = 0;
+				for (int plan=0; plan<nrPlanIndices; ++plan) {
+					double cost = 0;
+					for (int factorCtr=0; factorCtr<nrFactors; ++factorCtr) {
+						cost += bucket.get(factorCtr).table[offsets[factorCtr] + plan * queryStrides[factorCtr]];
+					}
+					if (cost < minCost) {
+						minCost = cost;
+						bestPlan = plan;
+					}
+				}
+				table[entry] = minCost;
+				tableBestPlans[entry] = (byte)bestPlan;
+				// Advance to next combination (last query in scope is least significant)
+				for (int digit=scopeSize-1; digit>=0; --digit) {
+					for (int factorCtr=0; factorCtr<nrFactors; ++factorCtr) {
+						offsets[factorCtr] += strides[factorCtr][digit];
+					}
+					if (++digits[digit] < nrPlanIndices) {
+						break;
+					}
+					for (int factorCtr=0; factorCtr<nrFactors; ++factorCtr) {
+						offsets[factorCtr] -= nrPlanIndices * strides[factorCtr][digit];
+					}
+					digits[digit] = 0;
+				}
+			}
+			bestPlans[position] = tableBestPlans;
+			// Pass new table to the bucket of the next query eliminated from its scope
+			if (scopeSize > 0) {
+				buckets.get(firstPosition(scope, orderPosition)).add(new Factor(scope, table));
+			}
+			// Release tables of the processed bucket
+			bucket.clear();
+		}
+		// Backtrack in reverse elimination order
+		int[] planSelections = new int[nrQueries];
+		for (int position=nrQueries-1; position>=0; --position) {
+			int[] scope = remainingScopes[position];
+			int entry = 0;
+			for (int scopeQuery : scope) {
+				entry = entry * nrPlanIndices + planSelections[scopeQuery];
+			}
+			planSelections[order[position]] = bestPlans[position][entry];
+		}
+		return planSelections;
+	}
+	/**
+	 * Returns the smallest elimination order position among the given queries.
+	 *
+	 * @param queries		a set of queries
+	 * @param orderPosition	position of each query in the elimination order
+	 * @return				smallest position
+	 */
+	static int firstPosition(int[] queries, int[] orderPosition) {
+		int minPosition = Integer.MAX_VALUE;
+		for (int query : queries) {
+			minPosition = Math.min(minPosition, orderPosition[query]);
+		}
+		return minPosition;
+	}
+	/**
+	 * Compares the order by query index (row by row over unit cells) with the min-fill
+	 * order and returns the one requiring smaller tables.
+	 *
+	 * @param graph			for each query the set of interacting queries
+	 * @param nrPlanIndices	number of admissible plan indices per query
+	 * @return				elimination order
+	 */
+	static int[] eliminationOrder(List<TreeSet<Integer>> graph, int nrPlanIndices) {
+		int nrQueries = graph.size();
+		int[] indexOrder = new int[nrQueries];
+		for (int query=0; query<nrQueries; ++query) {
+			indexOrder[query] = query;
+		}
+		int[] minFillOrder = minFillOrder(graph);
+		long indexOrderSize = maxTableSize(graph, indexOrder, nrPlanIndices);
+		long minFillOrderSize = maxTableSize(graph, minFillOrder, nrPlanIndices);
+		return indexOrderSize <= minFillOrderSize ? indexOrder : minFillOrder;
+	}
+	/**
+	 * Returns the number of entries of the largest table required for solving the given
+	 * problem.
+	 *
+	 * @param problem	an MQO problem instance
+	 * @return			the size of the largest table (saturates at Long.MAX_VALUE)
+	 */
+	public static long requiredTableSize(ChimeraMqoProblem problem) {
+		int nrPlanIndices = problem.maxPlanIndex() + 1;
+		List<TreeSet<Integer>> graph = interactionGraph(problem);
+		return maxTableSize(graph, eliminationOrder(graph, nrPlanIndices), nrPlanIndices);
+	}
+	/**
+	 * Checks whether the tables required for solving the given problem do not exceed the
+	 * maximal size.
+	 *
+	 * @param problem	an MQO problem instance
+	 * @return			true if the problem can be solved
+	 */
+	public boolean supports(ChimeraMqoProblem problem) {
+		return requiredTableSize(problem) <= maxTableSize;
+	}
+	/**
+	 * Finds an optimal solution, the execution cost at all checkpoints after termination
+	 * is the optimal cost. Throws an exception if the tables required for the problem
+	 * would exceed the maximal size.
+	 */
+	@Override
+	public MqoSolution solve(ChimeraMqoProblem problem) throws Exception {
+		long startMillis = System.currentTimeMillis();
+		Arrays.fill(lastRunCheckpointCost, Double.POSITIVE_INFINITY);
+		int nrPlanIndices = problem.maxPlanIndex() + 1;
+		List<TreeSet<Integer>> graph = interactionGraph(problem);
+		int[] order = eliminationOrder(graph, nrPlanIndices);
+		long requiredSize = maxTableSize(graph, order, nrPlanIndices);
+		if (requiredSize > maxTableSize) {
+			throw new IllegalArgumentException("Problem requires tables with " + requiredSize +
+					" entries but at most " + maxTableSize + " are admissible");
+		}
+		// Find optimal plans
+		int[] planSelections = optimalPlans(problem, order);
+		MqoSolution solution = new MqoSolution(problem, planSelections);
+		lastRunSolverMillis = System.currentTimeMillis() - startMillis;
+		lastRunOptimalCost = solution.executionCost;
+		updateStats(solution.executionCost, lastRunSolverMillis);
+		return solution;
+	}
+	@Override
+	public String solverID() {
+		return "ELIM";
+	}
+}
@@ -0,0 +1,94 @@
+package mqo_chimera.solver.exact;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class VariableEliminationSolverTest {
+
+	@Test
+	public void test() throws Exception {
+		// Small problem with known optimum
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(3, 2, false);
+			problem.planCost[0][0] = 1;
+			problem.planCost[0][1] = 0.5;
+			problem.planCost[1][0] = 0.25;
+			problem.planCost[1][1] = 0.5;
+			problem.planCost[2][0] = 1;
+			problem.planCost[2][1] = 1;
+			problem.addInterference(0, 0, 1, 1, -1);
+			VariableEliminationSolver solver = new VariableEliminationSolver(1000);
+			MqoSolution solution = solver.solve(problem);
+			assertEquals(1.5, solution.executionCost, TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(1.5, solver.lastRunOptimalCost, TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(1.5, solver.lastRunCheckpointCost[BenchmarkConfiguration.nrBenchmarkTimes - 1], 
+					TestUtil.DOUBLE_TOLERANCE);
+		}
+		// Random problems with dense interactions are solved optimally
+		{
+			Random random = new Random(0);
+			for (int problemCtr=0; problemCtr<10; ++problemCtr) {
+				int nrQueries = 7;
+				int nrPlans = 3;
+				ChimeraMqoProblem problem = new ChimeraMqoProblem(nrQueries, nrPlans, false);
+				for (int query=0; query<nrQueries; ++query) {
+					for (int plan=0; plan<nrPlans; ++plan) {
+						problem.planCost[query][plan] = random.nextDouble();
+					}
+				}
+				for (int interactionCtr=0; interactionCtr<20; ++interactionCtr) {
+					int query1 = random.nextInt(nrQueries);
+					int query2 = random.nextInt(nrQueries);
+					if (query1 != query2) {
+						problem.addInterference(query1, random.nextInt(nrPlans), 
+								query2, random.nextInt(nrPlans), -random.nextDouble());
+					}
+				}
+				// Enumerate all plan selections
+				double minCost = Double.POSITIVE_INFINITY;
+				int[] planSelections = new int[nrQueries];
+				for (int combination=0; combination<Math.pow(nrPlans, nrQueries); ++combination) {
+					int remainder = combination;
+					for (int query=0; query<nrQueries; ++query) {
+						planSelections[query] = remainder % nrPlans;
+						remainder /= nrPlans;
+					}
+					minCost = Math.min(minCost, problem.executionCost(planSelections));
+				}
+				VariableEliminationSolver solver = new VariableEliminationSolver(1000000);
+				MqoSolution solution = solver.solve(problem);
+				assertEquals(minCost, solution.executionCost, TestUtil.DOUBLE_TOLERANCE);
+			}
+		}
+		// Refuses problems requiring too large tables
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(3, 2, false);
+			problem.addInterference(0, 0, 1, 0, -1);
+			problem.addInterference(1, 0, 2, 0, -1);
+			problem.addInterference(0, 0, 2, 0, -1);
+			VariableEliminationSolver solver = new VariableEliminationSolver(4);
+			assertEquals(8, VariableEliminationSolver.requiredTableSize(problem));
+			assertFalse(solver.supports(problem));
+			assertTrue(new VariableEliminationSolver(8).supports(problem));
+			try {
+				solver.solve(problem);
+				fail("Expected exception");
+			} catch (IllegalArgumentException e) {
+			}
+		}
+		// Tables never exceed the maximal array length
+		{
+			VariableEliminationSolver solver = new VariableEliminationSolver(Long.MAX_VALUE);
+			assertEquals(VariableEliminationSolver.MAX_ARRAY_SIZE, solver.maxTableSize);
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package mqo_chimera.solver.genetic;
+
+import java.util.SplittableRandom;
+
+/**
+ * Describes how the plan selections of two parents are combined into a child.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public enum Crossover {
+	/**
+	 * Each query takes the plan of a randomly chosen parent.
+	 */
+	UNIFORM,
+	/**
+	 * Queries before a random cut point take the plans of the first parent, the
+	 * others take the plans of the second parent.
+	 */
+	ONE_POINT;
+	/**
+	 * Combines two parents into a child, all individuals are stored in flat arrays
+	 * containing nrQueries entries per individual.
+	 * 
+	 * @param parents		array containing the parents
+	 * @param offset1		index of the first entry of the first parent
+	 * @param offset2		index of the first entry of the second parent
+	 * @param child			array receiving the child
+	 * @param childOffset	index of the first entry of the child
+	 * @param nrQueries		the number of queries (entries per individual)
+	 * @param random		random generator
+	 */
+	public void combine(int[] parents, int offset1, int offset2, int[] child, int childOffset, 
+			int nrQueries, SplittableRandom random) {
+		switch (this) {
+		case UNIFORM:
+			// Draw 64 random bits at once
+			long bits = 0;
+			for (int query=0; query<nrQueries; ++query) {
+				if ((query & 63) == 0) {
+					bits = random.nextLong();
+				}
+				int parentOffset = (bits & 1) == 0 ? offset1 : offset2;
+				child[childOffset + query] = parents[parentOffset + query];
+				bits >>>= 1;
+			}
+			break;
+		case ONE_POINT:
+			int cut = random.nextInt(nrQueries + 1);
+			System.arraycopy(parents, offset1, child, childOffset, cut);
+			System.arraycopy(parents, offset2 + cut, child, childOffset + cut, nrQueries - cut);
+			break;
+		}
+	}
+}
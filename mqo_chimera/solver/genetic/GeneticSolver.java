@@ -1,22 +1,31 @@
 package mqo_chimera.solver.genetic;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-
-import org.jgap.Chromosome;
-import org.jgap.Configuration;
-import org.jgap.Gene;
-import org.jgap.Genotype;
-import org.jgap.IChromosome;
-import org.jgap.impl.DefaultConfiguration;
-import org.jgap.impl.IntegerGene;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import mqo_chimera.benchmark.BenchmarkConfiguration;
 import mqo_chimera.solver.Solver;
+import mqo_chimera.testcases.BatchCostEvaluator;
+import mqo_chimera.testcases.ChimeraFactory;
 import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.InteractionIndex;
 import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.util.RandomUtil;
 
 /**
- * A genetic algorithm that solves MQO problems.
+ * A genetic algorithm that solves MQO problems. The population is stored in a flat array
+ * containing the plan selections of one individual after the other. Each generation keeps
+ * the fittest individual and fills the remaining slots by children of parents chosen by
+ * binary tournaments. Children are evaluated in batches and then mutated, the cost change
+ * caused by a mutation is calculated by considering only the interactions of the mutated
+ * query. Children are generated on several threads, each thread treats a fixed range of
+ * population slots with its own random generator.
  * 
  * @author immanueltrummer
  *
@@ -26,54 +35,188 @@ public class GeneticSolver extends Solver {
 	 * The population size.
 	 */
 	final int populationSize;
+	/**
+	 * How the plan selections of parents are combined.
+	 */
+	final Crossover crossover;
+	/**
+	 * The expected number of mutated queries per child.
+	 */
+	final double mutationsPerChild;
+	/**
+	 * The number of threads generating children.
+	 */
+	final int nrThreads;
 
-	public GeneticSolver(int populationSize) {
+	public GeneticSolver(int populationSize, Crossover crossover, double mutationsPerChild, int nrThreads) {
+		assert(populationSize > 1);
+		assert(mutationsPerChild >= 0);
+		assert(nrThreads > 0);
 		this.populationSize = populationSize;
+		this.crossover = crossover;
+		this.mutationsPerChild = mutationsPerChild;
+		this.nrThreads = nrThreads;
 	}
 	/**
-	 * Represents a MQO problem instance as chromosomes and simulates an evolution
-	 * until the timeout.
+	 * Uses uniform crossover, one mutation per child on average, and one thread per processor.
+	 * 
+	 * @param populationSize	the population size
 	 */
-	@Override
-	public MqoSolution solve(ChimeraMqoProblem problem) throws Exception {
-		// Extract MQO problem instance and problem dimensions
+	public GeneticSolver(int populationSize) {
+		this(populationSize, Crossover.UNIFORM, 1, Runtime.getRuntime().availableProcessors());
+	}
+	/**
+	 * Selects the fitter of two random individuals.
+	 * 
+	 * @param costs		execution cost of each individual
+	 * @param random	random generator
+	 * @return			index of the selected individual
+	 */
+	static int tournament(double[] costs, SplittableRandom random) {
+		int individual1 = random.nextInt(costs.length);
+		int individual2 = random.nextInt(costs.length);
+		return costs[individual1] <= costs[individual2] ? individual1 : individual2;
+	}
+	/**
+	 * Returns the index of the individual with minimal cost.
+	 * 
+	 * @param costs		execution cost of each individual
+	 * @return			index of the fittest individual
+	 */
+	static int fittest(double[] costs) {
+		int best = 0;
+		for (int individual=1; individual<costs.length; ++individual) {
+			if (costs[individual] < costs[best]) {
+				best = individual;
+			}
+		}
+		return best;
+	}
+	/**
+	 * Mutates one child, selecting a random other plan for each query with the given
+	 * probability, and returns the cost change.
+	 * 
+	 * @param problem			the MQO problem instance
+	 * @param index				interactions of the problem
+	 * @param population		flat array containing the child
+	 * @param offset			index of the first entry of the child
+	 * @param mutationRate		probability of mutating a query
+	 * @param random			random generator
+	 * @return					cost after mutation minus cost before mutation
+	 */
+	static double mutate(ChimeraMqoProblem problem, InteractionIndex index, int[] population, 
+			int offset, double mutationRate, SplittableRandom random) {
 		int nrQueries = problem.nrQueries;
-		int nrPlans = problem.nrPlansPerQuery;
-		// Configure genetic algorithm
-		Configuration.reset();
-		Configuration gaConfiguration = new DefaultConfiguration();
-		gaConfiguration.setPreservFittestIndividual(true);
-		// Set fitness function
-		MqoFitnessFunction fitnessFunction = new MqoFitnessFunction(problem);
-		gaConfiguration.setFitnessFunction(fitnessFunction);
-		// Set sample chromosome
-		Gene[] sampleGenes = new Gene[nrQueries];
+		int maxPlanIndex = problem.maxPlanIndex();
+		double delta = 0;
 		for (int query=0; query<nrQueries; ++query) {
-			sampleGenes[query] = new IntegerGene(gaConfiguration, 0, nrPlans - 1);
+			if (random.nextDouble() < mutationRate) {
+				// Draw a plan different from the current one
+				int oldPlan = population[offset + query];
+				int newPlan = random.nextInt(maxPlanIndex);
+				if (newPlan >= oldPlan) {
+					++newPlan;
+				}
+				// Only the interactions of the mutated query change
+				delta += problem.planExecutionCost(query, newPlan) - problem.planExecutionCost(query, oldPlan);
+				delta += index.interactionCost(query, newPlan, population, offset);
+				delta -= index.interactionCost(query, oldPlan, population, offset);
+				population[offset + query] = newPlan;
+			}
 		}
-		IChromosome sampleChromosome = new Chromosome(gaConfiguration, sampleGenes);
-		gaConfiguration.setSampleChromosome(sampleChromosome);
-		// Set population size
-		gaConfiguration.setPopulationSize(populationSize);
-		// Generate population
-		Genotype population = Genotype.randomInitialGenotype(gaConfiguration);
+		return delta;
+	}
+	/**
+	 * Simulates an evolution until the timeout.
+	 */
+	@Override
+	public MqoSolution solve(final ChimeraMqoProblem problem) throws Exception {
 		// Initialize benchmark variables
 		Arrays.fill(lastRunCheckpointCost, Double.POSITIVE_INFINITY);
 		long startMillis = System.currentTimeMillis();
-		long elapsedMillis = 0;
-		// Evolve
-		do {
-			population.evolve();
-			IChromosome bestChromosome = population.getFittestChromosome();
-			int[] bestSelections = MqoFitnessFunction.extractPlanSelections(bestChromosome);
-			double bestCost = problem.executionCost(bestSelections);
-			elapsedMillis = System.currentTimeMillis() - startMillis;
-			updateStats(bestCost, elapsedMillis);
-		} while (elapsedMillis < BenchmarkConfiguration.timeoutMillis);
+		// Extract problem dimensions and prepare cost calculations
+		final int nrQueries = problem.nrQueries;
+		final BatchCostEvaluator evaluator = new BatchCostEvaluator(problem);
+		final InteractionIndex index = problem.getInteractionIndex();
+		final double mutationRate = problem.maxPlanIndex() == 0 ? 0 : 
+				Math.min(1, mutationsPerChild / nrQueries);
+		// Generate random population
+		SplittableRandom rootRandom = new SplittableRandom(RandomUtil.random.nextLong());
+		int[] population = new int[populationSize * nrQueries];
+		double[] costs = new double[populationSize];
+		for (int individual=0; individual<populationSize; ++individual) {
+			int[] plans = ChimeraFactory.pickRandomPlans(problem, rootRandom);
+			System.arraycopy(plans, 0, population, individual * nrQueries, nrQueries);
+		}
+		// Assign population slots (except for the one of the fittest individual) to threads
+		final SplittableRandom[] threadRandoms = new SplittableRandom[nrThreads];
+		final BatchCostEvaluator.BlockBuffer[] threadBuffers = new BatchCostEvaluator.BlockBuffer[nrThreads];
+		for (int thread=0; thread<nrThreads; ++thread) {
+			threadRandoms[thread] = rootRandom.split();
+			threadBuffers[thread] = evaluator.newBlockBuffer();
+		}
+		evaluator.executionCosts(population, 0, populationSize, costs, threadBuffers[0]);
+		ExecutorService executor = Executors.newFixedThreadPool(nrThreads);
+		try {
+			int[] offspring = new int[populationSize * nrQueries];
+			double[] offspringCosts = new double[populationSize];
+			long elapsedMillis = 0;
+			// Evolve
+			do {
+				// Keep fittest individual in first slot
+				int best = fittest(costs);
+				System.arraycopy(population, best * nrQueries, offspring, 0, nrQueries);
+				offspringCosts[0] = costs[best];
+				// Generate children
+				final int[] parents = population;
+				final double[] parentCosts = costs;
+				final int[] children = offspring;
+				final double[] childCosts = offspringCosts;
+				List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+				for (int thread=0; thread<nrThreads; ++thread) {
+					final SplittableRandom random = threadRandoms[thread];
+					final BatchCostEvaluator.BlockBuffer buffer = threadBuffers[thread];
+					final int firstChild = 1 + (populationSize - 1) * thread / nrThreads;
+					final int endChild = 1 + (populationSize - 1) * (thread + 1) / nrThreads;
+					tasks.add(new Callable<Object>() {
+						@Override
+						public Object call() {
+							// Crossover
+							for (int child=firstChild; child<endChild; ++child) {
+								int parent1 = tournament(parentCosts, random);
+								int parent2 = tournament(parentCosts, random);
+								crossover.combine(parents, parent1 * nrQueries, parent2 * nrQueries, 
+										children, child * nrQueries, nrQueries, random);
+							}
+							// Evaluation
+							evaluator.executionCosts(children, firstChild, endChild, childCosts, buffer);
+							// Mutation
+							for (int child=firstChild; child<endChild; ++child) {
+								childCosts[child] += mutate(problem, index, children, 
+										child * nrQueries, mutationRate, random);
+							}
+							return null;
+						}
+					});
+				}
+				// Wait for all threads, propagating exceptions
+				for (Future<Object> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+				// Offspring becomes the population of the next generation
+				offspring = population;
+				offspringCosts = costs;
+				population = children;
+				costs = childCosts;
+				elapsedMillis = System.currentTimeMillis() - startMillis;
+				updateStats(costs[fittest(costs)], elapsedMillis);
+			} while (elapsedMillis < BenchmarkConfiguration.timeoutMillis);
+		} finally {
+			executor.shutdownNow();
+		}
 		// Return best solution
-		IChromosome bestChromosome = population.getFittestChromosome();
-		int[] bestSelections = MqoFitnessFunction.extractPlanSelections(bestChromosome);
-		return new MqoSolution(problem, bestSelections);
+		int best = fittest(costs);
+		return new MqoSolution(problem, Arrays.copyOfRange(population, best * nrQueries, (best + 1) * nrQueries));
 	}
 	@Override
 	public String solverID() {
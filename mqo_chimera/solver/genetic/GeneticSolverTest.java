@@ -0,0 +1,83 @@
+package mqo_chimera.solver.genetic;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class GeneticSolverTest {
+
+	@Test
+	public void test() throws Exception {
+		// Crossover
+		{
+			int[] parents = new int[] {0, 0, 0, 0, 1, 1, 1, 1};
+			int[] child = new int[4];
+			SplittableRandom random = new SplittableRandom(0);
+			for (Crossover crossover : Crossover.values()) {
+				for (int trialCtr=0; trialCtr<10; ++trialCtr) {
+					crossover.combine(parents, 0, 4, child, 0, 4, random);
+					for (int query=0; query<4; ++query) {
+						assertTrue(child[query] == 0 || child[query] == 1);
+						// One-point crossover takes a prefix from the first parent
+						if (crossover == Crossover.ONE_POINT && query > 0 && child[query - 1] == 1) {
+							assertEquals(1, child[query]);
+						}
+					}
+				}
+			}
+		}
+		// Mutation updates cost incrementally
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(3, 2, false);
+			problem.planCost[0][0] = 1;
+			problem.planCost[0][1] = 0.5;
+			problem.planCost[1][0] = 0.25;
+			problem.planCost[1][1] = 0.5;
+			problem.planCost[2][0] = 1;
+			problem.planCost[2][1] = 1;
+			problem.addInterference(0, 0, 1, 1, -1);
+			int[] population = new int[] {1, 1, 1, 0, 1, 0};
+			SplittableRandom random = new SplittableRandom(0);
+			for (int trialCtr=0; trialCtr<10; ++trialCtr) {
+				int[] before = new int[] {population[3], population[4], population[5]};
+				double delta = GeneticSolver.mutate(problem, problem.getInteractionIndex(), 
+						population, 3, 0.5, random);
+				int[] after = new int[] {population[3], population[4], population[5]};
+				assertEquals(problem.executionCost(after) - problem.executionCost(before), 
+						delta, TestUtil.DOUBLE_TOLERANCE);
+			}
+		}
+		// Full solver invocation with short timeout
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(3, 2, false);
+			problem.planCost[0][0] = 1;
+			problem.planCost[0][1] = 0.5;
+			problem.planCost[1][0] = 0.25;
+			problem.planCost[1][1] = 0.5;
+			problem.planCost[2][0] = 1;
+			problem.planCost[2][1] = 1;
+			problem.addInterference(0, 0, 1, 1, -1);
+			long oldTimeout = BenchmarkConfiguration.timeoutMillis;
+			BenchmarkConfiguration.timeoutMillis = 50;
+			try {
+				for (Crossover crossover : Crossover.values()) {
+					GeneticSolver solver = new GeneticSolver(10, crossover, 1, 2);
+					MqoSolution solution = solver.solve(problem);
+					assertEquals(1.5, solution.executionCost, TestUtil.DOUBLE_TOLERANCE);
+					assertEquals(1.5, solver.lastRunCheckpointCost[BenchmarkConfiguration.nrBenchmarkTimes - 1], 
+							TestUtil.DOUBLE_TOLERANCE);
+				}
+			} finally {
+				BenchmarkConfiguration.timeoutMillis = oldTimeout;
+			}
+		}
+	}
+
+}
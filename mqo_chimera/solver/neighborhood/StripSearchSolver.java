@@ -0,0 +1,374 @@
+package mqo_chimera.solver.neighborhood;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.IsingModel;
+import mqo_chimera.solver.Solver;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.ChimeraMqoProblem;
+import mqo_chimera.testcases.MqoSolution;
+import mqo_chimera.testcases.QuadraticMqoSolution;
+import mqo_chimera.topology.ChimeraTopology;
+import mqo_chimera.topology.Topology;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.RandomUtil;
+
+/**
+ * Large neighborhood search on the Ising problem represented by a mapping, following the
+ * approach of Selby for Chimera graphs. The neighborhoods are strips of unit cells: each
+ * row and each column of the unit cell grid. Unit cells within a strip are only coupled to
+ * their predecessor and successor, a strip therefore forms a chain of unit cells and we
+ * can find optimal values for all of its spins, given the values of the spins outside
+ * the strip, by dynamic programming over the states of each unit cell. Strips are
+ * optimized in random order, we restart from a random assignment if several rounds over
+ * all strips bring no improvement.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class StripSearchSolver extends Solver {
+	/**
+	 * The number of qubits per unit cell if no topology was loaded.
+	 */
+	static final int CELL_SIZE = 8;
+	/**
+	 * Minimal energy decrease (relative to the energy level) counting as improvement.
+	 */
+	static final double IMPROVEMENT_TOLERANCE = 1E-9;
+	/**
+	 * The number of rounds over all strips without improvement before restarting.
+	 */
+	final int nrStaleRounds;
+
+	public StripSearchSolver(int nrStaleRounds) {
+		assert(nrStaleRounds > 0);
+		if (!supportsTopology(AmesUtil.topology)) {
+			throw new IllegalArgumentException("Strip search requires a Chimera topology but " + 
+					AmesUtil.topology.getClass().getSimpleName() + " was loaded");
+		}
+		this.nrStaleRounds = nrStaleRounds;
+	}
+	/**
+	 * Checks whether strips can be derived from the given topology: unit cells of
+	 * Chimera graphs form chains along rows and columns, the unit cells of other
+	 * topologies are coupled more densely.
+	 *
+	 * @param topology	the loaded topology or null if no topology was loaded
+	 * @return			true if strip search is applicable
+	 */
+	static boolean supportsTopology(Topology topology) {
+		return topology == null || topology instanceof ChimeraTopology;
+	}
+	/**
+	 * Checks whether the value of the given spin can be optimized: the spin must appear
+	 * in the problem and the corresponding qubit must be functional (if the description
+	 * of the Ames machine was loaded).
+	 *
+	 * @param model		the Ising problem
+	 * @param spin		index of the spin
+	 * @return			true if the spin can change its value
+	 */
+	static boolean isActive(IsingModel model, int spin) {
+		return model.isUsed(spin) && (AmesUtil.topology == null || AmesUtil.topology.isWorking(spin));
+	}
+	/**
+	 * Generates the strips of the unit cell grid: one strip per row and one per column.
+	 * Each strip is described by the active spins of each of its unit cells. The grid
+	 * is taken from the loaded Chimera topology; if no topology was loaded, we assume
+	 * a square grid of unit cells with eight qubits each. Other topologies are rejected
+	 * when creating the solver.
+	 *
+	 * @param model		the Ising problem
+	 * @return			for each strip and unit cell the active spins of that cell
+	 */
+	static int[][][] strips(IsingModel model) {
+		Topology topology = AmesUtil.topology;
+		int nrRows;
+		int nrColumns;
+		int cellSize;
+		if (topology == null) {
+			int nrCells = model.nrSpins / CELL_SIZE;
+			nrRows = (int)Math.round(Math.sqrt(nrCells));
+			nrColumns = nrRows;
+			cellSize = CELL_SIZE;
+		} else {
+			assert(supportsTopology(topology));
+			ChimeraTopology chimera = (ChimeraTopology)topology;
+			nrRows = chimera.nrRows;
+			nrColumns = chimera.nrColumns;
+			cellSize = 2 * chimera.shoreSize;
+		}
+		assert(nrRows * nrColumns * cellSize == model.nrSpins);
+		int[][][] strips = new int[nrRows + nrColumns][][];
+		// Row strips traverse columns
+		for (int row=0; row<nrRows; ++row) {
+			strips[row] = new int[nrColumns][];
+			for (int column=0; column<nrColumns; ++column) {
+				strips[row][column] = activeSpins(model, row * nrColumns + column, cellSize);
+			}
+		}
+		// Column strips traverse rows
+		for (int column=0; column<nrColumns; ++column) {
+			strips[nrRows + column] = new int[nrRows][];
+			for (int row=0; row<nrRows; ++row) {
+				strips[nrRows + column][row] = activeSpins(model, row * nrColumns + column, cellSize);
+			}
+		}
+		return strips;
+	}
+	/**
+	 * Returns the active spins of a unit cell.
+	 *
+	 * @param model		the Ising problem
+	 * @param cell		index of the unit cell
+	 * @param cellSize	the number of qubits per unit cell
+	 * @return			indices of active spins in ascending order
+	 */
+	static int[] activeSpins(IsingModel model, int cell, int cellSize) {
+		int[] cellSpins = new int[cellSize];
+		int nrActive = 0;
+		for (int spin=cell*cellSize; spin<(cell+1)*cellSize; ++spin) {
+			if (isActive(model, spin)) {
+				cellSpins[nrActive++] = spin;
+			}
+		}
+		return Arrays.copyOf(cellSpins, nrActive);
+	}
+	/**
+	 * Returns the value of one spin in a unit cell state.
+	 *
+	 * @param state		bit vector representing the values of the active spins in a cell
+	 * @param index		index of the spin among the active spins of the cell
+	 * @return			+1 if the corresponding bit is set, -1 otherwise
+	 */
+	static int spinValue(int state, int index) {
+		return ((state >>> index) & 1) * 2 - 1;
+	}
+	/**
+	 * Assigns optimal values to all active spins of a strip, given the values of all
+	 * other spins. The spin positions must be -1 for all spins when invoking this
+	 * method and are reset to -1 before returning; both arrays are reused across
+	 * strips to avoid allocations.
+	 *
+	 * @param model			the Ising problem
+	 * @param spins			current spin values, modified
+	 * @param strip			for each unit cell of the strip its active spins
+	 * @param spinPositions	scratch space with one entry per spin, set to -1
+	 * @param spinIndices	scratch space with one entry per spin
+	 * @return				the energy change caused by the new strip spin values
+	 */
+	static double optimizeStrip(IsingModel model, byte[] spins, int[][] strip, 
+			int[] spinPositions, int[] spinIndices) {
+		int nrPositions = strip.length;
+		// Position in strip and index within cell for each active strip spin
+		for (int position=0; position<nrPositions; ++position) {
+			int[] cellSpins = strip[position];
+			for (int index=0; index<cellSpins.length; ++index) {
+				spinPositions[cellSpins[index]] = position;
+				spinIndices[cellSpins[index]] = index;
+			}
+		}
+		// Minimal energy of the strip prefix ending with each state of the current cell
+		double[] prefixEnergies = new double[] {0};
+		int[][] bestPredecessors = new int[nrPositions][];
+		// Energy of the strip prefix for the current spin values
+		double currentEnergy = 0;
+		int previousState = 0;
+		for (int position=0; position<nrPositions; ++position) {
+			int[] cellSpins = strip[position];
+			int nrCellSpins = cellSpins.length;
+			int nrStates = 1 << nrCellSpins;
+			int currentState = 0;
+			for (int index=0; index<nrCellSpins; ++index) {
+				if (spins[cellSpins[index]] > 0) {
+					currentState |= 1 << index;
+				}
+			}
+			// Collect fields and couplings to spins inside the strip
+			double[] fields = new double[nrCellSpins];
+			int maxCouplings = 0;
+			for (int spin : cellSpins) {
+				maxCouplings += model.nrNeighbors(spin);
+			}
+			int[] innerIndices1 = new int[maxCouplings];
+			int[] innerIndices2 = new int[maxCouplings];
+			double[] innerWeights = new double[maxCouplings];
+			int nrInner = 0;
+			int[] outerIndices = new int[maxCouplings];
+			int[] predecessorIndices = new int[maxCouplings];
+			double[] outerWeights = new double[maxCouplings];
+			int nrOuter = 0;
+			for (int index=0; index<nrCellSpins; ++index) {
+				int spin = cellSpins[index];
+				fields[index] = model.weight(spin);
+				int nrNeighbors = model.nrNeighbors(spin);
+				for (int neighborCtr=0; neighborCtr<nrNeighbors; ++neighborCtr) {
+					int neighbor = model.neighbor(spin, neighborCtr);
+					double weight = model.couplingWeight(spin, neighborCtr);
+					int neighborPosition = spinPositions[neighbor];
+					if (neighborPosition < 0) {
+						// Neighbor value is fixed
+						fields[index] += weight * spins[neighbor];
+					} else if (neighborPosition == position) {
+						// Count couplings within the cell once
+						if (neighbor > spin) {
+							innerIndices1[nrInner] = index;
+							innerIndices2[nrInner] = spinIndices[neighbor];
+							innerWeights[nrInner] = weight;
+							++nrInner;
+						}
+					} else if (neighborPosition == position - 1) {
+						outerIndices[nrOuter] = index;
+						predecessorIndices[nrOuter] = spinIndices[neighbor];
+						outerWeights[nrOuter] = weight;
+						++nrOuter;
+					} else {
+						// Coupling to the successor is treated with the successor
+						assert(neighborPosition == position + 1);
+					}
+				}
+			}
+			// Extend best prefix by each state of the current cell
+			double[] newPrefixEnergies = new double[nrStates];
+			int[] cellBestPredecessors = new int[nrStates];
+			for (int state=0; state<nrStates; ++state) {
+				double cellEnergy = 0;
+				for (int index=0; index<nrCellSpins; ++index) {
+					cellEnergy += fields[index] * spinValue(state, index);
+				}
+				for (int couplingCtr=0; couplingCtr<nrInner; ++couplingCtr) {
+					cellEnergy += innerWeights[couplingCtr] * 
+							spinValue(state, innerIndices1[couplingCtr]) * 
+							spinValue(state, innerIndices2[couplingCtr]);
+				}
+				double minEnergy = Double.POSITIVE_INFINITY;
+				int bestPredecessor = 0;
+				for (int predecessor=0; predecessor<prefixEnergies.length; ++predecessor) {
+					double energy = prefixEnergies[predecessor];
+					for (int couplingCtr=0; couplingCtr<nrOuter; ++couplingCtr) {
+						energy += outerWeights[couplingCtr] * 
+								spinValue(state, outerIndices[couplingCtr]) * 
+								spinValue(predecessor, predecessorIndices[couplingCtr]);
+					}
+					if (energy < minEnergy) {
+						minEnergy = energy;
+						bestPredecessor = predecessor;
+					}
+					if (state == currentState && predecessor == previousState) {
+						currentEnergy += energy - prefixEnergies[predecessor] + cellEnergy;
+					}
+				}
+				newPrefixEnergies[state] = cellEnergy + minEnergy;
+				cellBestPredecessors[state] = bestPredecessor;
+			}
+			prefixEnergies = newPrefixEnergies;
+			bestPredecessors[position] = cellBestPredecessors;
+			previousState = currentState;
+		}
+		// Find best state of last cell
+		int state = 0;
+		for (int lastState=1; lastState<prefixEnergies.length; ++lastState) {
+			if (prefixEnergies[lastState] < prefixEnergies[state]) {
+				state = lastState;
+			}
+		}
+		double delta = prefixEnergies[state] - currentEnergy;
+		// Assign spins backwards along the strip and reset scratch space
+		for (int position=nrPositions-1; position>=0; --position) {
+			int[] cellSpins = strip[position];
+			for (int index=0; index<cellSpins.length; ++index) {
+				spins[cellSpins[index]] = (byte)spinValue(state, index);
+				spinPositions[cellSpins[index]] = -1;
+			}
+			state = bestPredecessors[position][state];
+		}
+		return delta;
+	}
+	/**
+	 * Optimizes strips of the Ising problem represented by the given mapping (QUBO mappings
+	 * are transformed first) until the timeout and returns the best assignment as solution.
+	 *
+	 * @param mapping	a QUBO or Ising mapping of a MQO problem
+	 * @return			solution obtained from the lowest energy assignment
+	 * @throws Exception
+	 */
+	@Override
+	public QuadraticMqoSolution solveMapping(ChimeraMqoMapping mapping) throws Exception {
+		long startMillis = System.currentTimeMillis();
+		Arrays.fill(lastRunCheckpointCost, Double.POSITIVE_INFINITY);
+		SplittableRandom random = new SplittableRandom(RandomUtil.random.nextLong());
+		IsingModel model = new IsingModel(mapping, null);
+		int[][][] strips = strips(model);
+		int nrStrips = strips.length;
+		int[] spinPositions = new int[model.nrSpins];
+		int[] spinIndices = new int[model.nrSpins];
+		Arrays.fill(spinPositions, -1);
+		int[] stripOrder = new int[nrStrips];
+		for (int strip=0; strip<nrStrips; ++strip) {
+			stripOrder[strip] = strip;
+		}
+		// Start from random assignment
+		byte[] spins = model.randomSpins(random);
+		double energy = model.energy(spins);
+		double bestEnergy = Double.POSITIVE_INFINITY;
+		byte[] bestSpins = null;
+		int staleRounds = 0;
+		boolean timeout = false;
+		while (!timeout) {
+			double roundStartEnergy = energy;
+			// Shuffle strip order
+			for (int position=nrStrips-1; position>0; --position) {
+				int otherPosition = random.nextInt(position + 1);
+				int strip = stripOrder[position];
+				stripOrder[position] = stripOrder[otherPosition];
+				stripOrder[otherPosition] = strip;
+			}
+			// Optimize each strip
+			for (int strip : stripOrder) {
+				energy += optimizeStrip(model, spins, strips[strip], spinPositions, spinIndices);
+				if (energy < bestEnergy) {
+					bestEnergy = energy;
+					bestSpins = Arrays.copyOf(spins, model.nrSpins);
+					// Report execution cost of the plans selected by the new best assignment
+					boolean[] qubitValues = IsingModel.toBooleans(bestSpins);
+					int[] planSelections = QuadraticMqoSolution.extractPlanSelections(mapping, qubitValues);
+					double cost = mapping.problem.executionCost(planSelections);
+					updateStats(cost, System.currentTimeMillis() - startMillis);
+				}
+				if (System.currentTimeMillis() - startMillis >= BenchmarkConfiguration.timeoutMillis) {
+					timeout = true;
+					break;
+				}
+			}
+			// Restart if stuck in an assignment that is optimal for each strip
+			double tolerance = IMPROVEMENT_TOLERANCE * (1 + Math.abs(roundStartEnergy));
+			if (roundStartEnergy - energy > tolerance) {
+				staleRounds = 0;
+			} else if (++staleRounds >= nrStaleRounds) {
+				spins = model.randomSpins(random);
+				energy = model.energy(spins);
+				staleRounds = 0;
+			}
+		}
+		return new QuadraticMqoSolution(mapping, IsingModel.toBooleans(bestSpins));
+	}
+	/**
+	 * Maps the problem onto the qubit matrix as in standard test cases and optimizes
+	 * strips of the resulting Ising problem.
+	 * 
+	 * @param problem	an MQO problem instance
+	 * @return			solution obtained from the lowest energy assignment
+	 * @throws Exception
+	 */
+	@Override
+	public MqoSolution solve(ChimeraMqoProblem problem) throws Exception {
+		return solveMapping(ChimeraFactory.produceStandardMapping(problem));
+	}
+	@Override
+	public String solverID() {
+		return "STRIP" + nrStaleRounds;
+	}
+}
@@ -0,0 +1,87 @@
+package mqo_chimera.solver.neighborhood;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.IsingModel;
+import mqo_chimera.testcases.ChimeraFactory;
+import mqo_chimera.testcases.QuadraticMqoSolution;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class StripSearchSolverTest {
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		// Strips cover each active spin twice (once in a row and once in a column)
+		{
+			ChimeraMqoMapping mapping = ChimeraFactory.produceLoopsTestcase(50, 2, 20, 5, 1, false);
+			IsingModel model = new IsingModel(mapping, null);
+			int[][][] strips = StripSearchSolver.strips(model);
+			assertEquals(24, strips.length);
+			int[] nrOccurrences = new int[model.nrSpins];
+			for (int[][] strip : strips) {
+				assertEquals(12, strip.length);
+				for (int[] cellSpins : strip) {
+					for (int spin : cellSpins) {
+						++nrOccurrences[spin];
+					}
+				}
+			}
+			for (int spin=0; spin<model.nrSpins; ++spin) {
+				int expected = StripSearchSolver.isActive(model, spin) ? 2 : 0;
+				assertEquals(expected, nrOccurrences[spin]);
+			}
+		}
+		// Strip optimization never increases energy and yields strip spins that cannot be improved by single flips
+		{
+			ChimeraMqoMapping mapping = ChimeraFactory.produceLoopsTestcase(50, 2, 20, 5, 1, false);
+			IsingModel model = new IsingModel(mapping, null);
+			int[][][] strips = StripSearchSolver.strips(model);
+			SplittableRandom random = new SplittableRandom(0);
+			byte[] spins = model.randomSpins(random);
+			int[] spinPositions = new int[model.nrSpins];
+			int[] spinIndices = new int[model.nrSpins];
+			Arrays.fill(spinPositions, -1);
+			for (int[][] strip : strips) {
+				double oldEnergy = model.energy(spins);
+				double stripDelta = StripSearchSolver.optimizeStrip(model, spins, strip, spinPositions, spinIndices);
+				double newEnergy = model.energy(spins);
+				assertTrue(newEnergy <= oldEnergy + TestUtil.DOUBLE_TOLERANCE);
+				assertEquals(newEnergy - oldEnergy, stripDelta, TestUtil.DOUBLE_TOLERANCE);
+				for (int spin=0; spin<model.nrSpins; ++spin) {
+					assertEquals(-1, spinPositions[spin]);
+				}
+				for (int[] cellSpins : strip) {
+					for (int spin : cellSpins) {
+						double delta = -2 * spins[spin] * model.localField(spins, spin);
+						assertTrue(delta >= -TestUtil.DOUBLE_TOLERANCE);
+					}
+				}
+			}
+		}
+		// Finding planted solution
+		{
+			ChimeraMqoMapping mapping = ChimeraFactory.produceLoopsTestcase(50, 2, 20, 5, 1, false);
+			long oldTimeout = BenchmarkConfiguration.timeoutMillis;
+			BenchmarkConfiguration.timeoutMillis = 1000;
+			try {
+				StripSearchSolver solver = new StripSearchSolver(2);
+				QuadraticMqoSolution solution = solver.solveMapping(mapping);
+				assertEquals(mapping.plantedEnergy, solution.objectiveValue, TestUtil.DOUBLE_TOLERANCE);
+				assertTrue(solver.lastRunCheckpointCost[BenchmarkConfiguration.nrBenchmarkTimes - 1] <= 
+						solution.executionCost + TestUtil.DOUBLE_TOLERANCE);
+			} finally {
+				BenchmarkConfiguration.timeoutMillis = oldTimeout;
+			}
+		}
+	}
+
+}
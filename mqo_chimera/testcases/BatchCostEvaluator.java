@@ -0,0 +1,215 @@
+package mqo_chimera.testcases;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Calculates execution cost for many plan selections at once. Plan costs and interactions
+ * are stored as flat arrays (one array per attribute) and selections are processed in
+ * blocks that are transposed such that the plans selected for one query in all selections
+ * of the block are adjacent in memory. The inner loops then run over the selections of a
+ * block without branches, which allows the JIT compiler to vectorize them.
+ * 
+ * The evaluator takes a snapshot of the problem, it must be recreated after changes to
+ * plan costs or interactions. It can be shared between threads as long as each thread
+ * uses its own block buffer.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public class BatchCostEvaluator {
+	/**
+	 * The number of selections processed together.
+	 */
+	static final int BLOCK_SIZE = 256;
+	/**
+	 * The number of queries of the evaluated problem.
+	 */
+	final int nrQueries;
+	/**
+	 * The number of plan indices per query (including the index for independent processing).
+	 */
+	final int nrPlanIndices;
+	/**
+	 * Execution cost for each query and plan index, stored at query * nrPlanIndices + plan
+	 * (zero for independent processing).
+	 */
+	final double[] planCosts;
+	/**
+	 * First query of each pair of queries with interacting plans.
+	 */
+	final int[] queries1;
+	/**
+	 * Second query of each pair of queries with interacting plans.
+	 */
+	final int[] queries2;
+	/**
+	 * Accumulated cost deltas for each query pair and each combination of plans, the
+	 * entry for plan1 and plan2 of pair i is stored at (i * nrPlanIndices + plan1) *
+	 * nrPlanIndices + plan2.
+	 */
+	final double[] pairCostDeltas;
+	/**
+	 * Holds the plan selections of one block, transposed, and their execution costs.
+	 * Buffers are reused across blocks and calls to avoid allocations in loops.
+	 */
+	public class BlockBuffer {
+		/**
+		 * For each query the plans selected in each selection of the block.
+		 */
+		final int[][] selections = new int[nrQueries][BLOCK_SIZE];
+		/**
+		 * Execution cost of each selection of the block.
+		 */
+		final double[] costs = new double[BLOCK_SIZE];
+	}
+	/**
+	 * Copies plan costs and interactions of the given problem.
+	 * 
+	 * @param problem	a MQO problem instance
+	 */
+	public BatchCostEvaluator(ChimeraMqoProblem problem) {
+		this.nrQueries = problem.nrQueries;
+		this.nrPlanIndices = problem.nrPlansPerQuery + 1;
+		this.planCosts = new double[nrQueries * nrPlanIndices];
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<problem.nrPlansPerQuery; ++plan) {
+				planCosts[query * nrPlanIndices + plan] = problem.planCost[query][plan];
+			}
+		}
+		// Assign an index to each pair of queries with interacting plans
+		InteractionMap interactions = problem.interactions;
+		Map<Long, Integer> pairIndices = new HashMap<Long, Integer>();
+		for (int slot=0; slot<interactions.capacity(); ++slot) {
+			if (interactions.isUsed(slot)) {
+				long key = interactions.keyAt(slot);
+				int query1 = InteractionMap.query1(key);
+				int query2 = InteractionMap.query2(key);
+				if (query1 != query2) {
+					long pair = (long)query1 * nrQueries + query2;
+					if (!pairIndices.containsKey(pair)) {
+						pairIndices.put(pair, pairIndices.size());
+					}
+				}
+			}
+		}
+		int nrPairs = pairIndices.size();
+		queries1 = new int[nrPairs];
+		queries2 = new int[nrPairs];
+		for (Map.Entry<Long, Integer> entry : pairIndices.entrySet()) {
+			long pair = entry.getKey();
+			queries1[entry.getValue()] = (int)(pair / nrQueries);
+			queries2[entry.getValue()] = (int)(pair % nrQueries);
+		}
+		// Accumulate cost deltas per query pair
+		pairCostDeltas = new double[nrPairs * nrPlanIndices * nrPlanIndices];
+		for (int slot=0; slot<interactions.capacity(); ++slot) {
+			if (interactions.isUsed(slot)) {
+				long key = interactions.keyAt(slot);
+				int query1 = InteractionMap.query1(key);
+				int query2 = InteractionMap.query2(key);
+				if (query1 != query2) {
+					int pairIndex = pairIndices.get((long)query1 * nrQueries + query2);
+					int plan1 = InteractionMap.plan1(key);
+					int plan2 = InteractionMap.plan2(key);
+					pairCostDeltas[(pairIndex * nrPlanIndices + plan1) * nrPlanIndices + plan2] += 
+							interactions.valueAt(slot);
+				}
+			}
+		}
+	}
+	/**
+	 * Allocates scratch space for evaluating plan selections, to be reused by one thread.
+	 * 
+	 * @return	a new block buffer
+	 */
+	public BlockBuffer newBlockBuffer() {
+		return new BlockBuffer();
+	}
+	/**
+	 * Calculates the execution cost of each given plan selection.
+	 * 
+	 * @param planSelections	for each selection and query the selected plan
+	 * @return					execution cost of each selection
+	 */
+	public double[] executionCosts(int[][] planSelections) {
+		int nrSelections = planSelections.length;
+		double[] costs = new double[nrSelections];
+		// Plan selections of a block, stored per query
+		BlockBuffer buffer = new BlockBuffer();
+		int[][] blockSelections = buffer.selections;
+		double[] blockCosts = buffer.costs;
+		for (int blockStart=0; blockStart<nrSelections; blockStart+=BLOCK_SIZE) {
+			int blockSize = Math.min(BLOCK_SIZE, nrSelections - blockStart);
+			// Transpose block
+			for (int selection=0; selection<blockSize; ++selection) {
+				int[] selectedPlans = planSelections[blockStart + selection];
+				assert(selectedPlans.length == nrQueries);
+				for (int query=0; query<nrQueries; ++query) {
+					blockSelections[query][selection] = selectedPlans[query];
+				}
+			}
+			evaluateBlock(blockSelections, blockSize, blockCosts);
+			System.arraycopy(blockCosts, 0, costs, blockStart, blockSize);
+		}
+		return costs;
+	}
+	/**
+	 * Calculates the execution cost of a range of plan selections that are stored
+	 * consecutively in one array (nrQueries entries per selection).
+	 * 
+	 * @param planSelections	selected plans, selection i starts at index i * nrQueries
+	 * @param firstSelection	index of the first selection to evaluate
+	 * @param endSelection		index after the last selection to evaluate
+	 * @param costs				receives the execution cost of selection i at index i
+	 * @param buffer			scratch space, must not be used by other threads concurrently
+	 */
+	public void executionCosts(int[] planSelections, int firstSelection, int endSelection, 
+			double[] costs, BlockBuffer buffer) {
+		// Plan selections of a block, stored per query
+		int[][] blockSelections = buffer.selections;
+		double[] blockCosts = buffer.costs;
+		for (int blockStart=firstSelection; blockStart<endSelection; blockStart+=BLOCK_SIZE) {
+			int blockSize = Math.min(BLOCK_SIZE, endSelection - blockStart);
+			// Transpose block
+			for (int selection=0; selection<blockSize; ++selection) {
+				int offset = (blockStart + selection) * nrQueries;
+				for (int query=0; query<nrQueries; ++query) {
+					blockSelections[query][selection] = planSelections[offset + query];
+				}
+			}
+			evaluateBlock(blockSelections, blockSize, blockCosts);
+			System.arraycopy(blockCosts, 0, costs, blockStart, blockSize);
+		}
+	}
+	/**
+	 * Calculates the execution cost for a block of plan selections.
+	 * 
+	 * @param blockSelections	for each query the plans selected in each selection of the block
+	 * @param blockSize			the number of selections in the block
+	 * @param blockCosts		receives the execution cost of each selection
+	 */
+	void evaluateBlock(int[][] blockSelections, int blockSize, double[] blockCosts) {
+		// Add plan costs
+		Arrays.fill(blockCosts, 0);
+		for (int query=0; query<nrQueries; ++query) {
+			int[] queryPlans = blockSelections[query];
+			int offset = query * nrPlanIndices;
+			for (int selection=0; selection<blockSize; ++selection) {
+				blockCosts[selection] += planCosts[offset + queryPlans[selection]];
+			}
+		}
+		// Add cost deltas of interactions between selected plans, one query pair at a time
+		int nrPairs = queries1.length;
+		for (int pair=0; pair<nrPairs; ++pair) {
+			int[] query1Plans = blockSelections[queries1[pair]];
+			int[] query2Plans = blockSelections[queries2[pair]];
+			int offset = pair * nrPlanIndices * nrPlanIndices;
+			for (int selection=0; selection<blockSize; ++selection) {
+				blockCosts[selection] += pairCostDeltas[
+						offset + query1Plans[selection] * nrPlanIndices + query2Plans[selection]];
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package mqo_chimera.testcases;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class BatchCostEvaluatorTest {
+
+	@Test
+	public void test() {
+		Random random = new Random(0);
+		for (int problemCtr=0; problemCtr<2; ++problemCtr) {
+			// Generate random problem (with independent processing in the second round)
+			boolean allowIndependentProcessing = problemCtr == 1;
+			int nrQueries = 20;
+			int nrPlans = 3;
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(nrQueries, nrPlans, allowIndependentProcessing);
+			for (int query=0; query<nrQueries; ++query) {
+				for (int plan=0; plan<nrPlans; ++plan) {
+					problem.planCost[query][plan] = random.nextDouble();
+				}
+			}
+			int nrPlanIndices = problem.maxPlanIndex() + 1;
+			for (int interactionCtr=0; interactionCtr<100; ++interactionCtr) {
+				int query1 = random.nextInt(nrQueries);
+				int query2 = random.nextInt(nrQueries);
+				if (query1 != query2) {
+					problem.addInterference(query1, random.nextInt(nrPlanIndices), 
+							query2, random.nextInt(nrPlanIndices), random.nextDouble() - 0.5);
+				}
+			}
+			// Compare batch evaluation with single evaluations over several blocks
+			int nrSelections = 2 * BatchCostEvaluator.BLOCK_SIZE + 7;
+			int[][] planSelections = new int[nrSelections][nrQueries];
+			for (int selection=0; selection<nrSelections; ++selection) {
+				for (int query=0; query<nrQueries; ++query) {
+					planSelections[selection][query] = random.nextInt(nrPlanIndices);
+				}
+			}
+			double[] costs = problem.executionCosts(planSelections);
+			assertEquals(nrSelections, costs.length);
+			for (int selection=0; selection<nrSelections; ++selection) {
+				assertEquals(problem.executionCost(planSelections[selection]), costs[selection], 
+						TestUtil.DOUBLE_TOLERANCE);
+			}
+			// Flat selections evaluated in two ranges reusing the same buffer
+			BatchCostEvaluator evaluator = new BatchCostEvaluator(problem);
+			BatchCostEvaluator.BlockBuffer buffer = evaluator.newBlockBuffer();
+			int[] flatSelections = new int[nrSelections * nrQueries];
+			for (int selection=0; selection<nrSelections; ++selection) {
+				System.arraycopy(planSelections[selection], 0, flatSelections, selection * nrQueries, nrQueries);
+			}
+			double[] flatCosts = new double[nrSelections];
+			evaluator.executionCosts(flatSelections, 0, 10, flatCosts, buffer);
+			evaluator.executionCosts(flatSelections, 10, nrSelections, flatCosts, buffer);
+			assertArrayEquals(costs, flatCosts, TestUtil.DOUBLE_TOLERANCE);
+		}
+		// Cached evaluator is rebuilt after adding interactions
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(2, 2, false);
+			problem.planCost[0][0] = 1;
+			problem.planCost[1][0] = 2;
+			int[][] planSelections = new int[][] {{0, 0}};
+			assertEquals(3, problem.executionCosts(planSelections)[0], TestUtil.DOUBLE_TOLERANCE);
+			problem.addInterference(0, 0, 1, 0, -0.5);
+			assertEquals(2.5, problem.executionCosts(planSelections)[0], TestUtil.DOUBLE_TOLERANCE);
+		}
+		// Empty batch
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(2, 2, false);
+			assertEquals(0, problem.executionCosts(new int[0][]).length);
+		}
+	}
+
+}
@@ -0,0 +1,18 @@
+package mqo_chimera.testcases;
+
+/**
+ * Describes how to derive the value of a logical plan variable from the qubits representing
+ * it if those qubits were assigned to different values (the chain is broken):
+ *
+ * - FIRST_QUBIT: take the value of the qubit with lowest index (ignores chain breaks)
+ * - MAJORITY_VOTE: take the value of the majority of qubits, ties go to the first qubit
+ * - WEIGHTED_RANDOM: select true with probability equal to the fraction of true qubits
+ * - MINIMIZE_ENERGY: resolve broken chains one after the other by the value minimizing
+ * 		energy, given the values of all other chains (starting from a majority vote)
+ *
+ * @author immanueltrummer
+ *
+ */
+public enum ChainBreakResolution {
+	FIRST_QUBIT, MAJORITY_VOTE, WEIGHTED_RANDOM, MINIMIZE_ENERGY
+}
@@ -1,13 +1,20 @@
 package mqo_chimera.testcases;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.Stack;
+import java.util.TreeSet;
 
 import mqo_chimera.benchmark.TestcaseClass;
+import mqo_chimera.embedding.EmbeddingCache;
+import mqo_chimera.embedding.MinorEmbedder;
+import mqo_chimera.embedding.MinorEmbedding;
 import mqo_chimera.mapping.ChimeraMqoMapping;
 import mqo_chimera.mapping.LogicalVariable;
 import mqo_chimera.mapping.MappingType;
@@ -26,58 +33,75 @@ import mqo_chimera.util.RandomUtil;
  */
 public class ChimeraFactory {
 	/**
-	 * Returns the qubits that form the left colon of a unit cell.
+	 * Caches assignments of plan variables to qubits such that test cases of the same shape
+	 * (on the same topology) do not recalculate them. Replace to enable storage on disc.
+	 */
+	public static EmbeddingCache embeddingCache = new EmbeddingCache(64, null);
+	/**
+	 * Returns the working qubits of one shore of a unit cell.
 	 * 
-	 * @param cornerQubit	lowest-index qubit in the same unit cell
-	 * @return				all working qubits in the left colon
+	 * @param cell		index of the unit cell in the current topology
+	 * @param shore		index of the shore (zero or one)
+	 * @return			all working qubits in that shore
 	 */
-	static Stack<Integer> getLeftColon(int cornerQubit) {
+	static Stack<Integer> getShore(int cell, int shore) {
 		Stack<Integer> resultStack = new Stack<Integer>();
-		for (int i=0; i<4; ++i) {
-			int qubit = cornerQubit + i;
-			if (AmesUtil.amesQubits.contains(qubit)) {
+		for (int qubit : AmesUtil.topology.cellShore(cell, shore)) {
+			if (AmesUtil.topology.isWorking(qubit)) {
 				resultStack.push(qubit);
 			}
 		}
 		return resultStack;
 	}
+	/**
+	 * Returns the qubits that form the left colon of a unit cell.
+	 * 
+	 * @param cell	index of the unit cell in the current topology
+	 * @return		all working qubits in the left colon
+	 */
+	static Stack<Integer> getLeftColon(int cell) {
+		return getShore(cell, 0);
+	}
 	/**
 	 * Returns the qubits that form the right colon of a unit cell.
 	 * 
-	 * @param cornerQubit	lowest-index qubit in the same unit cell
-	 * @return				all working qubits in the right colon
+	 * @param cell	index of the unit cell in the current topology
+	 * @return		all working qubits in the right colon
 	 */
-	static Stack<Integer> getRightColon(int cornerQubit) {
-		Stack<Integer> resultStack = new Stack<Integer>();
-		for (int i=4; i<8; ++i) {
-			int qubit = cornerQubit + i;
-			if (AmesUtil.amesQubits.contains(qubit)) {
-				resultStack.push(qubit);
+	static Stack<Integer> getRightColon(int cell) {
+		return getShore(cell, 1);
+	}
+	/**
+	 * Checks whether the variables within a group are mutually connected.
+	 * 
+	 * @param group		a group of logical variables
+	 * @return			true if each pair of variables is connected by at least one coupling
+	 */
+	static boolean fullyConnected(VariableGroup group) {
+		for (LogicalVariable var1 : group.getVariables()) {
+			for (LogicalVariable var2 : group.getVariables()) {
+				if (var1 != var2 && !AmesUtil.amesConnected(var1, var2)) {
+					return false;
+				}
 			}
 		}
-		return resultStack;
+		return true;
 	}
 	/**
 	 * Returns a list of groups of QUBO variables represented by qubits within the same
 	 * unit cell such that the variables in each group are mutually connected to each
 	 * other via couplings at Ames.
 	 * 
-	 * @param cornerQubit		lowest-index qubit in unit cell
+	 * @param cell				index of the unit cell in the current topology
 	 * @param varsPerGroup		how many logical variables we need per group
 	 * @return					list of fully connected groups
 	 */
-	public static List<VariableGroup> getConnectedQubits(int cornerQubit, int varsPerGroup) {
-		//assert(AmesUtil.amesQubits.contains(cornerQubit));	// corner qubit might be broken
-		assert(cornerQubit + 7 <= AmesUtil.highestQubitIndex);
+	public static List<VariableGroup> getConnectedQubits(int cell, int varsPerGroup) {
+		assert(cell >= 0 && cell < AmesUtil.topology.nrCells());
 		assert(varsPerGroup >= 1);
 		assert(varsPerGroup <= 5);
-		// There is one unit cell where internal connections are broken -
-		// this causes problems with 5 query plans
-		if (cornerQubit == 344 && varsPerGroup == 5) {
-			return new LinkedList<VariableGroup>();
-		}
-		Stack<Integer> leftColon = getLeftColon(cornerQubit);
-		Stack<Integer> rightColon = getRightColon(cornerQubit);
+		Stack<Integer> leftColon = getLeftColon(cell);
+		Stack<Integer> rightColon = getRightColon(cell);
 		List<VariableGroup> groupList = new LinkedList<VariableGroup>();
 		if (varsPerGroup == 1) {
 			// Singleton sets of mutually connected variables allow to represent variables
@@ -119,17 +143,12 @@ public class ChimeraFactory {
 		for (VariableGroup group : groupList) {
 			assert(group.getVariables().size() == varsPerGroup);
 		}
-		// Make sure that all variables within each group are connected
-		for (VariableGroup group : groupList) {
-			for (LogicalVariable var1 : group.getVariables()) {
-				for (LogicalVariable var2 : group.getVariables()) {
-					if (var1 != var2) {
-						assert(AmesUtil.amesConnected(var1, var2)) :
-							"Vars not connected -  " +
-							"var 1 qubits: " + var1.getQubits().toString() +
-							"; var 2 qubits: " + var2.getQubits().toString();
-					}
-				}	
+		// Broken couplings within a unit cell may disconnect variables (e.g., in one
+		// cell of the Ames machine with five plans per query) - discard such groups.
+		Iterator<VariableGroup> groupIter = groupList.iterator();
+		while (groupIter.hasNext()) {
+			if (!fullyConnected(groupIter.next())) {
+				groupIter.remove();
 			}
 		}
 		// Make sure that the qubits reserved for different variables do not overlap
@@ -153,14 +172,26 @@ public class ChimeraFactory {
 		// extract problem dimensions
 		int nrQueries = mapping.problem.nrQueries;
 		int nrPlansPerQuery = mapping.problem.nrPlansPerQuery;
+		// reuse assignment for problems of the same dimensions
+		String fingerprint = EmbeddingCache.fingerprint("cells", nrQueries, 
+				nrPlansPerQuery, AmesUtil.topologyFingerprint);
+		mapping.planVars = embeddingCache.get(fingerprint);
+		if (mapping.planVars != null) {
+			return;
+		}
 		// allocate space for variables
 		mapping.planVars = new LogicalVariable[nrQueries][nrPlansPerQuery];
 		// obtain enough connected variable groups - we need one variable group per query
 		List<VariableGroup> varGroups = new LinkedList<VariableGroup>();
-		int cornerQubit = 0;
+		int nrCells = AmesUtil.topology.nrCells();
+		int cell = 0;
 		while (varGroups.size() < nrQueries) {
-			varGroups.addAll(getConnectedQubits(cornerQubit, nrPlansPerQuery));
-			cornerQubit += 8;
+			if (cell >= nrCells) {
+				throw new IllegalArgumentException("Topology has not enough unit cells for " + 
+						nrQueries + " queries with " + nrPlansPerQuery + " plans");
+			}
+			varGroups.addAll(getConnectedQubits(cell, nrPlansPerQuery));
+			++cell;
 		}
 		// map one plan variable after the other to qubits
 		for (int query=0; query<nrQueries; ++query) {
@@ -171,6 +202,7 @@ public class ChimeraFactory {
 		}
 		// make sure that the qubit assignments for different variables do not overlap
 		assert(!mapping.hasOverlap());
+		embeddingCache.put(fingerprint, mapping.planVars);
 	}
 	/**
 	 * Given a mapping from logical variables to qubits, create a mapping from qubits
@@ -185,8 +217,8 @@ public class ChimeraFactory {
 		int nrQueries = mapping.problem.nrQueries;
 		int nrPlansPerQuery = mapping.problem.nrPlansPerQuery;
 		// allocate and initialize
-		mapping.associatedQuery = new int[1152];
-		mapping.associatedPlan = new int[1152];
+		mapping.associatedQuery = new int[mapping.nrQubits];
+		mapping.associatedPlan = new int[mapping.nrQubits];
 		Arrays.fill(mapping.associatedQuery, -1);
 		Arrays.fill(mapping.associatedPlan, -1);
 		// associate queries and plans
@@ -305,6 +337,23 @@ public class ChimeraFactory {
 		}
 		return randomPlans;
 	}
+	/**
+	 * Select one random plan for each query (among all admissible plan indices) using the
+	 * given random generator instead of the shared one, used by concurrent searches.
+	 * 
+	 * @param problem	we extract the number of queries and plans from here
+	 * @param random	random generator owned by the calling thread
+	 * @return			a vector containing for each query a random plan index
+	 */
+	public static int[] pickRandomPlans(ChimeraMqoProblem problem, SplittableRandom random) {
+		int nrQueries = problem.nrQueries;
+		int nrPlanIndices = problem.maxPlanIndex() + 1;
+		int[] randomPlans = new int[nrQueries];
+		for (int query=0; query<nrQueries; ++query) {
+			randomPlans[query] = random.nextInt(nrPlanIndices);
+		}
+		return randomPlans;
+	}
 	/**
 	 * Given an optimal plan for each query, infer the optiaml values for the qubits.
 	 * 
@@ -312,7 +361,7 @@ public class ChimeraFactory {
 	 * @param mapping			maps logical variables to qubits
 	 * @return					Boolean vector representing the optimal value for each qubit
 	 */
-	static boolean[] inferOptimalQubitValues(int[] optimalPlans, ChimeraMqoMapping mapping) {
+	public static boolean[] inferOptimalQubitValues(int[] optimalPlans, ChimeraMqoMapping mapping) {
 		// extract problem dimensions
 		int nrQueries = mapping.problem.nrQueries;
 		int nrPlansPerQuery = mapping.problem.nrPlansPerQuery;
@@ -346,29 +395,25 @@ public class ChimeraFactory {
 	 */
 	static int getConnectedOtherQueryQubit(int qubit, ChimeraMqoMapping mapping) {
 		int startQuery = mapping.associatedQuery[qubit];
-		// Obtain all Chimera graph couplings in random order
-		List<Coupling> shuffledCouplings = new LinkedList<Coupling>();
-		shuffledCouplings.addAll(AmesUtil.amesCouplings);
-		Collections.shuffle(shuffledCouplings);
-		Iterator<Coupling> shuffledCouplingsIter = shuffledCouplings.iterator();
+		// Only qubits associated with query plans can be connected
+		if (startQuery == -1) {
+			return -1;
+		}
+		// Obtain Chimera graph neighbors of the qubit in random order
+		List<Integer> shuffledNeighbors = new LinkedList<Integer>();
+		for (int neighbor : AmesUtil.neighbors(qubit)) {
+			shuffledNeighbors.add(neighbor);
+		}
+		Collections.shuffle(shuffledNeighbors, RandomUtil.random);
 		// Follow first suitable coupling
-		while (shuffledCouplingsIter.hasNext()) {
-			Coupling coupling = shuffledCouplingsIter.next();
-			int qubit1 = coupling.qubit1;
-			int qubit2 = coupling.qubit2;
-			// Check whether both coupled qubits are associated with query plans
-			if (mapping.associatedQuery[qubit1] != -1 && mapping.associatedQuery[qubit2] != -1) {
-				// Make sure that one of the two qubits is the one we want to connect to
-				if (qubit1 == qubit || qubit2 == qubit) {
-					int otherQubit = qubit1 == qubit ? qubit2 : qubit1;
-					int targetQuery = mapping.associatedQuery[otherQubit];
-					// Make sure that the connected qubit is not associated with a different plan for the same query.
-					// The reason for this check is that our problem model assigns a fixed weight between qubits
-					// representing different plans for the same query that is not problem instance dependent.
-					if (targetQuery != startQuery) {
-						return otherQubit;
-					}
-				}				
+		for (int otherQubit : shuffledNeighbors) {
+			// Check whether the coupled qubit is associated with a query plan
+			int targetQuery = mapping.associatedQuery[otherQubit];
+			// Make sure that the connected qubit is not associated with a different plan for the same query.
+			// The reason for this check is that our problem model assigns a fixed weight between qubits
+			// representing different plans for the same query that is not problem instance dependent.
+			if (targetQuery != -1 && targetQuery != startQuery) {
+				return otherQubit;
 			}
 		}
 		// If we arrive here then we tried all couplings without success
@@ -619,7 +664,7 @@ public class ChimeraFactory {
 					addDeMotivatingCost(qubit1, qubit2, qubit1OptimalValue, qubit2OptimalValue, mapping, scaling);					
 				}
 				// Check if resulting mapping is within admissible weight range
-				if (mapping.toIsing().respectsIsingRanges()) {
+				if (mapping.quboRespectsIsingRanges()) {
 					loopAdded = true;
 				} else {
 					// Restore old values 
@@ -650,9 +695,9 @@ public class ChimeraFactory {
 	 */
 	public static boolean allInterCellConnectionsOk() {
 		boolean ok = true;
-		for (int cornerQubit=0; cornerQubit<1152; cornerQubit+=8) {
-			Stack<Integer> leftColon = getLeftColon(cornerQubit);
-			Stack<Integer> rightColon = getRightColon(cornerQubit);
+		for (int cell=0; cell<AmesUtil.topology.nrCells(); ++cell) {
+			Stack<Integer> leftColon = getLeftColon(cell);
+			Stack<Integer> rightColon = getRightColon(cell);
 			for (int leftQubit : leftColon) {
 				for (int rightQubit : rightColon) {
 					if (!AmesUtil.amesConnected(leftQubit, rightQubit)) {
@@ -709,6 +754,8 @@ public class ChimeraFactory {
 		mapping.problem.plantedPlanSelections = optimalPlans;
 		mapping.problem.plantedQubitValues = optimalQubitValues;
 		mapping.plantedEnergy = plantedEnergy;
+		// All weights are added - release unused memory
+		mapping.compactWeights();
 		// Return mapping with associated problem - the cost of the associated problem are not updated!
 		return mapping;
 	}
@@ -788,9 +835,223 @@ public class ChimeraFactory {
 		System.out.println("Equality scaling: " + maxEqualityScaling);
 		imposeEqualityConstraints(mapping, maxEqualityScaling);
 		// Perform some consistency tests
-		System.out.println("maxAbsDiagonalWeight: " + mapping.toIsing().maxAbsDiagonalWeight());
-		System.out.println("maxAbsNonDiagonalWeight: " + mapping.toIsing().maxAbsNonDiagonalWeight());
+		ChimeraMqoMapping isingMapping = mapping.toIsing();
+		System.out.println("maxAbsDiagonalWeight: " + isingMapping.maxAbsDiagonalWeight());
+		System.out.println("maxAbsNonDiagonalWeight: " + isingMapping.maxAbsNonDiagonalWeight());
 		//assert(mapping.toIsing().respectsIsingRanges());
+		// All weights are added - release unused memory
+		mapping.compactWeights();
+		return mapping;
+	}
+	/**
+	 * Returns the interaction graph between plan variables of an MQO problem whose plan
+	 * interactions are not necessarily compatible with the qubit graph. Variables are
+	 * numbered by query and plan (query * nrPlansPerQuery + plan). Alternative plans for
+	 * the same query interact due to the selection constraints; plans of different queries
+	 * interact if the problem associates a cost delta with the plan pair.
+	 * 
+	 * @param problem	an MQO problem without independent processing plan interactions
+	 * @return			for each plan variable the sorted indices of interacting variables
+	 */
+	public static int[][] planInteractionGraph(ChimeraMqoProblem problem) {
+		int nrPlansPerQuery = problem.nrPlansPerQuery;
+		int nrVars = problem.nrQueries * nrPlansPerQuery;
+		List<TreeSet<Integer>> neighborSets = new ArrayList<TreeSet<Integer>>();
+		for (int var=0; var<nrVars; ++var) {
+			neighborSets.add(new TreeSet<Integer>());
+		}
+		// Alternative plans for the same query
+		for (int query=0; query<problem.nrQueries; ++query) {
+			for (int plan1=0; plan1<nrPlansPerQuery; ++plan1) {
+				for (int plan2=0; plan2<nrPlansPerQuery; ++plan2) {
+					if (plan1 != plan2) {
+						neighborSets.get(query * nrPlansPerQuery + plan1).add(query * nrPlansPerQuery + plan2);
+					}
+				}
+			}
+		}
+		// Plans interacting via shared intermediate results
+		InteractionMap interactions = problem.interactions;
+		for (int slot=0; slot<interactions.capacity(); ++slot) {
+			if (interactions.isUsed(slot)) {
+				long key = interactions.keyAt(slot);
+				int plan1 = InteractionMap.plan1(key);
+				int plan2 = InteractionMap.plan2(key);
+				if (plan1 >= nrPlansPerQuery || plan2 >= nrPlansPerQuery) {
+					throw new IllegalArgumentException(
+							"Interactions with independent processing cannot be embedded");
+				}
+				int var1 = InteractionMap.query1(key) * nrPlansPerQuery + plan1;
+				int var2 = InteractionMap.query2(key) * nrPlansPerQuery + plan2;
+				neighborSets.get(var1).add(var2);
+				neighborSets.get(var2).add(var1);
+			}
+		}
+		// Convert into arrays
+		int[][] logicalNeighbors = new int[nrVars][];
+		for (int var=0; var<nrVars; ++var) {
+			TreeSet<Integer> neighborSet = neighborSets.get(var);
+			logicalNeighbors[var] = new int[neighborSet.size()];
+			int neighborCtr = 0;
+			for (int neighbor : neighborSet) {
+				logicalNeighbors[var][neighborCtr++] = neighbor;
+			}
+		}
+		return logicalNeighbors;
+	}
+	/**
+	 * Produces a QUBO mapping for an arbitrary MQO problem, using a minor embedding of its
+	 * plan interaction graph to represent each plan variable by a chain of qubits.
+	 * 
+	 * @param problem	an MQO problem whose plan interactions need not match the qubit graph
+	 * @param embedding	a valid embedding of the plan interaction graph of the problem
+	 * @return			a QUBO mapping whose minimum energy states represent optimal plan selections
+	 */
+	public static ChimeraMqoMapping produceEmbeddedMapping(ChimeraMqoProblem problem, MinorEmbedding embedding) {
+		int nrQueries = problem.nrQueries;
+		int nrPlansPerQuery = problem.nrPlansPerQuery;
+		assert(embedding.nrVariables() == nrQueries * nrPlansPerQuery);
+		assert(embedding.isValid(planInteractionGraph(problem)));
+		// Assign plan variables to chains
+		ChimeraMqoMapping mapping = new ChimeraMqoMapping(MappingType.QUBO);
+		mapping.problem = problem;
+		mapping.planVars = new LogicalVariable[nrQueries][nrPlansPerQuery];
+		LogicalVariable[] chainVars = embedding.toVariables();
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<nrPlansPerQuery; ++plan) {
+				mapping.planVars[query][plan] = chainVars[query * nrPlansPerQuery + plan];
+			}
+		}
+		markQubits(mapping);
+		// Add plan costs and cost deltas due to interactions, calculating for each plan
+		// the maximal impact of its selection on execution cost.
+		double[][] planImpact = new double[nrQueries][nrPlansPerQuery];
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<nrPlansPerQuery; ++plan) {
+				double cost = problem.planCost[query][plan];
+				mapping.planVars[query][plan].addWeight(mapping, cost);
+				planImpact[query][plan] += Math.abs(cost);
+			}
+		}
+		InteractionMap interactions = problem.interactions;
+		for (int slot=0; slot<interactions.capacity(); ++slot) {
+			if (interactions.isUsed(slot)) {
+				long key = interactions.keyAt(slot);
+				int query1 = InteractionMap.query1(key);
+				int plan1 = InteractionMap.plan1(key);
+				int query2 = InteractionMap.query2(key);
+				int plan2 = InteractionMap.plan2(key);
+				double delta = interactions.valueAt(slot);
+				LogicalVariable var1 = mapping.planVars[query1][plan1];
+				LogicalVariable var2 = mapping.planVars[query2][plan2];
+				var1.addWeight(mapping, var2, delta);
+				planImpact[query1][plan1] += Math.abs(delta);
+				planImpact[query2][plan2] += Math.abs(delta);
+			}
+		}
+		// Selecting a different number of plans than admissible must not pay off, whatever
+		// the cost of the plans involved.
+		double maxPlanImpact = 0;
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<nrPlansPerQuery; ++plan) {
+				maxPlanImpact = Math.max(maxPlanImpact, planImpact[query][plan]);
+			}
+		}
+		double selectionScaling = 2 * Math.max(maxPlanImpact, 0.5);
+		if (problem.allowIndependentProcessing) {
+			imposeAtMostOneSelection(mapping, selectionScaling);
+		} else {
+			// Penalty term (1 - sum of plan variables)^2 without constant
+			imposeAtLeatOneSelection(mapping, selectionScaling);
+			imposeAtMostOneSelection(mapping, 2 * selectionScaling);
+		}
+		// Distribute weights over chains and make chain qubits consistent
+		double maxEqualityScaling = 0;
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<nrPlansPerQuery; ++plan) {
+				LogicalVariable planVar = mapping.planVars[query][plan];
+				planVar.smear(mapping);
+				maxEqualityScaling = Math.max(maxEqualityScaling, 
+						planVar.calculateEqualityScalingGeneric(mapping));
+			}
+		}
+		imposeEqualityConstraints(mapping, maxEqualityScaling);
+		// All weights are added - release unused memory
+		mapping.compactWeights();
+		return mapping;
+	}
+	/**
+	 * Converts an assignment of plan variables to qubits into an embedding whose chains
+	 * are numbered by query and plan (query * nrPlansPerQuery + plan).
+	 * 
+	 * @param planVars	for each query and plan the variable representing it
+	 * @return			embedding with one chain per plan variable
+	 */
+	static MinorEmbedding toEmbedding(LogicalVariable[][] planVars) {
+		int nrQueries = planVars.length;
+		int nrPlansPerQuery = planVars[0].length;
+		int[][] chains = new int[nrQueries * nrPlansPerQuery][];
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<nrPlansPerQuery; ++plan) {
+				Set<Integer> qubits = planVars[query][plan].getQubits();
+				int[] chain = new int[qubits.size()];
+				int qubitCtr = 0;
+				for (int qubit : qubits) {
+					chain[qubitCtr++] = qubit;
+				}
+				chains[query * nrPlansPerQuery + plan] = chain;
+			}
+		}
+		return new MinorEmbedding(chains);
+	}
+	/**
+	 * Produces a QUBO mapping for a given MQO problem, representing plan variables by
+	 * the same qubits as in standard test cases of the same dimensions. This works for
+	 * all problems whose interacting plans are represented by coupled qubits, in
+	 * particular for the problems of standard test cases.
+	 * 
+	 * @param problem	an MQO problem without independent processing plan interactions
+	 * @return			a QUBO mapping whose minimum energy states represent optimal plan selections
+	 */
+	public static ChimeraMqoMapping produceStandardMapping(ChimeraMqoProblem problem) {
+		ChimeraMqoMapping cellMapping = new ChimeraMqoMapping(MappingType.QUBO);
+		cellMapping.problem = problem;
+		assignVariables(cellMapping);
+		MinorEmbedding embedding = toEmbedding(cellMapping.planVars);
+		if (!embedding.isValid(planInteractionGraph(problem))) {
+			throw new IllegalArgumentException("Plan interactions are not represented by " +
+					"couplings of the standard qubit assignment - use produceEmbeddedMapping");
+		}
+		return produceEmbeddedMapping(problem, embedding);
+	}
+	/**
+	 * Embeds the plan interaction graph of an arbitrary MQO problem into the current
+	 * topology and produces the corresponding QUBO mapping. Embeddings are cached, the
+	 * embedder only runs for interaction graphs that were not embedded before.
+	 * 
+	 * @param problem	an MQO problem whose plan interactions need not match the qubit graph
+	 * @param embedder	heuristic used to find a minor embedding
+	 * @return			a QUBO mapping for the problem or null if no embedding was found
+	 * @throws Exception
+	 */
+	public static ChimeraMqoMapping produceEmbeddedMapping(ChimeraMqoProblem problem, 
+			MinorEmbedder embedder) throws Exception {
+		int nrQueries = problem.nrQueries;
+		int nrPlansPerQuery = problem.nrPlansPerQuery;
+		int[][] logicalNeighbors = planInteractionGraph(problem);
+		String fingerprint = EmbeddingCache.fingerprint("minor", logicalNeighbors, 
+				AmesUtil.topologyFingerprint);
+		LogicalVariable[][] planVars = embeddingCache.get(fingerprint);
+		if (planVars != null) {
+			// Restore chains from cached plan variables
+			return produceEmbeddedMapping(problem, toEmbedding(planVars));
+		}
+		MinorEmbedding embedding = embedder.embed(logicalNeighbors);
+		if (embedding == null) {
+			return null;
+		}
+		ChimeraMqoMapping mapping = produceEmbeddedMapping(problem, embedding);
+		embeddingCache.put(fingerprint, mapping.planVars);
 		return mapping;
 	}
 }
@@ -36,7 +36,7 @@ public class ChimeraFactoryTest {
 			for (int qubit : new int[] {8, 9, 10, 11}) {
 				expectedQubits.add(qubit);
 			}
-			assertEquals(expectedQubits, ChimeraFactory.getLeftColon(8));
+			assertEquals(expectedQubits, ChimeraFactory.getLeftColon(1));
 		}
 		// Getting qubits in right column
 		{
@@ -51,7 +51,7 @@ public class ChimeraFactoryTest {
 			for (int qubit : new int[] {12, 13, 14, 15}) {
 				expectedQubits.add(qubit);
 			}
-			assertEquals(expectedQubits, ChimeraFactory.getRightColon(8));
+			assertEquals(expectedQubits, ChimeraFactory.getRightColon(1));
 		}
 		// Getting groups of qubits
 		{
@@ -78,29 +78,29 @@ public class ChimeraFactoryTest {
 			}
 			// Verify number of groups - on unit cell with incomplete connections
 			{
-				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(24, 1);
+				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(3, 1);
 				assertEquals(7, groups.size());
 			}
 			{
-				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(24, 2);
+				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(3, 2);
 				assertEquals(3, groups.size());
 			}
 			{
-				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(24, 3);
+				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(3, 3);
 				assertEquals(1, groups.size());
 			}
 			{
-				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(24, 4);
+				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(3, 4);
 				assertEquals(1, groups.size());
 			}
 			{
-				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(24, 5);
+				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(3, 5);
 				assertEquals(0, groups.size());
 			}
 			// Verify connections
 			{
 				ChimeraMqoMapping mapping = new ChimeraMqoMapping(MappingType.QUBO);
-				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(24, 2);
+				List<VariableGroup> groups = ChimeraFactory.getConnectedQubits(3, 2);
 				for (VariableGroup group : groups) {
 					for (LogicalVariable var1 : group.getVariables()) {
 						for (LogicalVariable var2 : group.getVariables()) {
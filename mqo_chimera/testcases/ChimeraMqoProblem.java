@@ -2,8 +2,6 @@ package mqo_chimera.testcases;
 
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Represents an MQO problem where the required connections between queries
@@ -16,7 +14,7 @@ public class ChimeraMqoProblem implements Serializable {
 	/**
 	 * Used to verify the class version.
 	 */
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 	/**
 	 * Indicates whether any of the query plans that are associated with qubits must be selected
 	 * or if all qubits associated with the plans of a given query are allowed to be zero.
@@ -43,7 +41,7 @@ public class ChimeraMqoProblem implements Serializable {
 	/**
 	 * Stores which specific plan pairs cause positive or negative interference.
 	 */
-	public final Map<PlanCoupling, Double> interactions;
+	public final InteractionMap interactions;
 	/**
 	 * The optimal plan selections for each query according to the planted solution.
 	 */
@@ -52,6 +50,17 @@ public class ChimeraMqoProblem implements Serializable {
 	 * Optimal qubit values of the planted solution.
 	 */
 	public boolean[] plantedQubitValues;
+	/**
+	 * Adjacency structure over plan interactions used for incremental cost calculations,
+	 * created on demand and discarded whenever interactions change.
+	 */
+	transient volatile InteractionIndex interactionIndex;
+	/**
+	 * Snapshot of plan costs and interactions used for calculating the cost of many plan
+	 * selections at once, created on demand and discarded whenever interactions change.
+	 * Plan costs must therefore not change after the first batch evaluation.
+	 */
+	transient volatile BatchCostEvaluator batchCostEvaluator;
 	/**
 	 * This constructor initializes all variables describing the problem.
 	 * 
@@ -64,7 +73,7 @@ public class ChimeraMqoProblem implements Serializable {
 		this.nrPlansPerQuery = nrPlansPerQuery;
 		this.allowIndependentProcessing = allowIndependentProcessing;
 		this.planCost = new double[nrQueries][nrPlansPerQuery];
-		this.interactions = new HashMap<PlanCoupling, Double>();		
+		this.interactions = new InteractionMap();
 	}
 	/**
 	 * This constructor also initializes variables relating to a planted solution.
@@ -121,17 +130,12 @@ public class ChimeraMqoProblem implements Serializable {
 		assert(query2 >= 0 && query2 < nrQueries);
 		assert(plan1 >= 0 && ((allowIndependentProcessing && plan1 <= nrPlansPerQuery) || plan1 < nrPlansPerQuery));
 		assert(plan2 >= 0 && ((allowIndependentProcessing && plan2 <= nrPlansPerQuery) || plan2 < nrPlansPerQuery));
-		// generate corresponding coupling
-		PlanCoupling coupling = new PlanCoupling(query1, plan1, query2, plan2);
-		// make sure that this coupling is already stored
-		if (!interactions.containsKey(coupling)) {
-			interactions.put(coupling, 0.0);
-		}
-		// add cost delta
-		double oldCost = interactions.get(coupling);
-		double newCost = oldCost + costDelta;
-		// store
-		interactions.put(coupling, newCost);
+		// add cost delta to the entry of the plan pair (created if necessary)
+		long key = InteractionMap.key(query1, plan1, query2, plan2);
+		interactions.add(key, costDelta);
+		// index and batch evaluator must be rebuilt
+		interactionIndex = null;
+		batchCostEvaluator = null;
 	}
 	/**
 	 * Returns information about an interference between two query plans.
@@ -142,14 +146,23 @@ public class ChimeraMqoProblem implements Serializable {
 	 * @param plan2			index of second interfering plan
 	 */
 	public double getInterference(int query1, int plan1, int query2, int plan2) {
-		// generate corresponding coupling
-		PlanCoupling coupling = new PlanCoupling(query1, plan1, query2, plan2);
 		// return cost delta zero if no interaction is known - otherwise return stored delta
-		if (interactions.containsKey(coupling)) {
-			return interactions.get(coupling);
-		} else {
-			return 0;
+		long key = InteractionMap.key(query1, plan1, query2, plan2);
+		return interactions.get(key);
+	}
+	/**
+	 * Returns the adjacency structure over plan interactions, builds it if
+	 * interactions have changed since the last invocation.
+	 * 
+	 * @return	index over plan interactions
+	 */
+	public InteractionIndex getInteractionIndex() {
+		InteractionIndex index = interactionIndex;
+		if (index == null) {
+			index = new InteractionIndex(this);
+			interactionIndex = index;
 		}
+		return index;
 	}
 	/**
 	 * Returns execution cost of a single plan selection, returning value 0 for
@@ -186,16 +199,55 @@ public class ChimeraMqoProblem implements Serializable {
 			totalCost += executionCost;
 		}
 		// Take plan interactions into account
-		for (int query1=0; query1<nrQueries; ++query1) {
-			int selectedPlan1 = planSelections[query1];
-			for (int query2=query1+1; query2<nrQueries; ++query2) {
-				int selectedPlan2 = planSelections[query2];
-				double costDelta = getInterference(query1, selectedPlan1, query2, selectedPlan2);
-				totalCost += costDelta;
-			}
-		}
+		totalCost += getInteractionIndex().totalInteractionCost(planSelections);
 		return totalCost;
 	}
+	/**
+	 * Calculates the execution cost for many plan selections at once.
+	 * 
+	 * @param planSelections	for each selection a vector associating each query with the selected plan
+	 * @return					execution cost of each selection
+	 */
+	public double[] executionCosts(int[][] planSelections) {
+		BatchCostEvaluator evaluator = batchCostEvaluator;
+		if (evaluator == null) {
+			evaluator = new BatchCostEvaluator(this);
+			batchCostEvaluator = evaluator;
+		}
+		return evaluator.executionCosts(planSelections);
+	}
+	/**
+	 * Returns the cost share associated with selecting the given plan for the given query
+	 * while all other queries keep their selected plans: the execution cost of the plan
+	 * itself plus the cost deltas of interactions with the plans selected for other queries.
+	 * 
+	 * @param planSelections	vector associating each query with the selected plan
+	 * @param query				query index
+	 * @param plan				plan index for that query
+	 * @return					cost share of that plan within the given plan selections
+	 */
+	public double planSelectionCost(int[] planSelections, int query, int plan) {
+		return planExecutionCost(query, plan) + 
+				getInteractionIndex().interactionCost(query, plan, planSelections);
+	}
+	/**
+	 * Returns by how much the total execution cost changes when selecting a new plan
+	 * for one query while keeping the plan selections for all other queries. Only the
+	 * interactions of the changed query are considered.
+	 * 
+	 * @param planSelections	vector associating each query with the selected plan
+	 * @param query				the query for which the plan selection changes
+	 * @param newPlan			the new plan selected for that query
+	 * @return					cost after the change minus cost before the change
+	 */
+	public double deltaCost(int[] planSelections, int query, int newPlan) {
+		int oldPlan = planSelections[query];
+		if (oldPlan == newPlan) {
+			return 0;
+		}
+		return planSelectionCost(planSelections, query, newPlan) - 
+				planSelectionCost(planSelections, query, oldPlan);
+	}
 	/**
 	 * Outputs this problem instance on the console.
 	 */
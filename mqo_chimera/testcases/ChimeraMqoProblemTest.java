@@ -1,6 +1,7 @@
 package mqo_chimera.testcases;
 
 import static org.junit.Assert.*;
+import mqo_chimera.util.RandomUtil;
 import mqo_chimera.util.TestUtil;
 
 import org.junit.Test;
@@ -97,6 +98,41 @@ public class ChimeraMqoProblemTest {
 
 			}
 		}
+		// Cost deltas for changing single plan selections
+		{
+			ChimeraMqoProblem problem = new ChimeraMqoProblem(20, 3, true);
+			for (int query=0; query<20; ++query) {
+				for (int plan=0; plan<3; ++plan) {
+					problem.planCost[query][plan] = RandomUtil.uniformInt(0, 10);
+				}
+			}
+			for (int i=0; i<100; ++i) {
+				int query1 = RandomUtil.uniformInt(0, 19);
+				int query2 = RandomUtil.uniformInt(0, 19);
+				if (query1 != query2) {
+					problem.addInterference(query1, RandomUtil.uniformInt(0, 3), 
+							query2, RandomUtil.uniformInt(0, 3), -RandomUtil.uniformInt(1, 5));
+				}
+			}
+			for (int i=0; i<100; ++i) {
+				int[] planSelections = ChimeraFactory.pickRandomPlans(problem, true);
+				double oldCost = problem.executionCost(planSelections);
+				int query = RandomUtil.uniformInt(0, 19);
+				int newPlan = RandomUtil.uniformInt(0, 3);
+				double delta = problem.deltaCost(planSelections, query, newPlan);
+				planSelections[query] = newPlan;
+				double newCost = problem.executionCost(planSelections);
+				assertEquals(newCost - oldCost, delta, TestUtil.DOUBLE_TOLERANCE);
+			}
+			// Index is rebuilt after adding interferences
+			int[] planSelections = new int[20];
+			double oldCost = problem.executionCost(planSelections);
+			problem.addInterference(0, 0, 1, 0, -100);
+			assertEquals(oldCost - 100, problem.executionCost(planSelections), TestUtil.DOUBLE_TOLERANCE);
+			double oldDelta = problem.deltaCost(planSelections, 0, 1);
+			problem.addInterference(1, 0, 0, 0, -100);
+			assertEquals(oldDelta + 100, problem.deltaCost(planSelections, 0, 1), TestUtil.DOUBLE_TOLERANCE);
+		}
 	}
 
 }
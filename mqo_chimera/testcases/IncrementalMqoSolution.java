@@ -0,0 +1,103 @@
+package mqo_chimera.testcases;
+
+import java.util.Arrays;
+
+/**
+ * Represents a modifiable solution to a MQO problem instance whose execution cost is
+ * updated incrementally whenever the plan selection of one query changes. Used by
+ * local search heuristics that evaluate many small changes on the same solution.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class IncrementalMqoSolution {
+	/**
+	 * The multiple query optimization problem instance that this solution refers to.
+	 */
+	public final ChimeraMqoProblem problem;
+	/**
+	 * Contains for each query the index of the selected plan.
+	 */
+	final int[] planSelections;
+	/**
+	 * The execution cost for the current plan selections.
+	 */
+	double executionCost;
+	/**
+	 * Initializes the solution with a copy of the given plan selections.
+	 *
+	 * @param problem			MQO problem instance
+	 * @param planSelections	initial plan selection for each query
+	 */
+	public IncrementalMqoSolution(ChimeraMqoProblem problem, int[] planSelections) {
+		assert(planSelections.length == problem.nrQueries);
+		this.problem = problem;
+		this.planSelections = Arrays.copyOf(planSelections, planSelections.length);
+		this.executionCost = problem.executionCost(this.planSelections);
+	}
+	/**
+	 * Returns the plan currently selected for the given query.
+	 *
+	 * @param query	query index
+	 * @return		index of the selected plan
+	 */
+	public int selectedPlan(int query) {
+		return planSelections[query];
+	}
+	/**
+	 * Returns the execution cost of the current plan selections.
+	 *
+	 * @return	total execution cost
+	 */
+	public double getExecutionCost() {
+		return executionCost;
+	}
+	/**
+	 * Returns by how much the execution cost would change when selecting the given
+	 * plan for the given query.
+	 *
+	 * @param query		query index
+	 * @param newPlan	plan index
+	 * @return			cost after the change minus current cost
+	 */
+	public double deltaCost(int query, int newPlan) {
+		return problem.deltaCost(planSelections, query, newPlan);
+	}
+	/**
+	 * Selects a new plan for the given query and updates the execution cost.
+	 *
+	 * @param query		query index
+	 * @param newPlan	plan index
+	 */
+	public void selectPlan(int query, int newPlan) {
+		assert(newPlan >= 0 && newPlan <= problem.maxPlanIndex());
+		executionCost += deltaCost(query, newPlan);
+		planSelections[query] = newPlan;
+	}
+	/**
+	 * Replaces all plan selections and recalculates the execution cost.
+	 *
+	 * @param newPlanSelections	new plan selection for each query
+	 */
+	public void reset(int[] newPlanSelections) {
+		assert(newPlanSelections.length == planSelections.length);
+		System.arraycopy(newPlanSelections, 0, planSelections, 0, planSelections.length);
+		executionCost = problem.executionCost(planSelections);
+	}
+	/**
+	 * Returns a copy of the current plan selections.
+	 *
+	 * @return	vector associating each query with the selected plan
+	 */
+	public int[] copyPlanSelections() {
+		return Arrays.copyOf(planSelections, planSelections.length);
+	}
+	/**
+	 * Generates an immutable solution from the current plan selections.
+	 *
+	 * @return	a MQO solution with the current plan selections
+	 */
+	public MqoSolution toMqoSolution() {
+		return new MqoSolution(problem, copyPlanSelections());
+	}
+}
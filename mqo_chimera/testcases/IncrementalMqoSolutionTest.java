@@ -0,0 +1,52 @@
+package mqo_chimera.testcases;
+
+import static org.junit.Assert.*;
+import mqo_chimera.util.RandomUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class IncrementalMqoSolutionTest {
+
+	@Test
+	public void test() {
+		// Generate random problem
+		ChimeraMqoProblem problem = new ChimeraMqoProblem(30, 2, false);
+		for (int query=0; query<30; ++query) {
+			for (int plan=0; plan<2; ++plan) {
+				problem.planCost[query][plan] = RandomUtil.uniformInt(0, 10) * 0.5;
+			}
+		}
+		for (int query=0; query<29; ++query) {
+			problem.addInterference(query, RandomUtil.uniformInt(0, 1), 
+					query+1, RandomUtil.uniformInt(0, 1), -RandomUtil.uniformInt(1, 4));
+		}
+		// Initial cost
+		int[] initialPlans = ChimeraFactory.pickRandomPlans(problem, false);
+		IncrementalMqoSolution solution = new IncrementalMqoSolution(problem, initialPlans);
+		assertEquals(problem.executionCost(initialPlans), solution.getExecutionCost(), TestUtil.DOUBLE_TOLERANCE);
+		// Solution works on a copy of the initial plans
+		initialPlans[0] = 1 - initialPlans[0];
+		assertEquals(1 - initialPlans[0], solution.selectedPlan(0));
+		// Cost is maintained under plan changes
+		for (int i=0; i<200; ++i) {
+			int query = RandomUtil.uniformInt(0, 29);
+			int plan = RandomUtil.uniformInt(0, 1);
+			double oldCost = solution.getExecutionCost();
+			double delta = solution.deltaCost(query, plan);
+			solution.selectPlan(query, plan);
+			assertEquals(plan, solution.selectedPlan(query));
+			assertEquals(oldCost + delta, solution.getExecutionCost(), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(problem.executionCost(solution.copyPlanSelections()), 
+					solution.getExecutionCost(), TestUtil.DOUBLE_TOLERANCE);
+		}
+		// Conversion into immutable solution
+		MqoSolution mqoSolution = solution.toMqoSolution();
+		assertEquals(solution.getExecutionCost(), mqoSolution.executionCost, TestUtil.DOUBLE_TOLERANCE);
+		// Resetting plan selections
+		int[] newPlans = new int[30];
+		solution.reset(newPlans);
+		assertEquals(problem.executionCost(newPlans), solution.getExecutionCost(), TestUtil.DOUBLE_TOLERANCE);
+	}
+
+}
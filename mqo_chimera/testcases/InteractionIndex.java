@@ -0,0 +1,179 @@
+package mqo_chimera.testcases;
+
+/**
+ * Adjacency structure over the plan interactions of a MQO problem. For each query and plan
+ * we store the interacting plans of other queries together with the cost delta in compressed
+ * sparse row format. This allows to evaluate the cost change caused by changing the plan
+ * selection for one query by scanning only the interactions of that query.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class InteractionIndex {
+	/**
+	 * The number of queries of the indexed problem.
+	 */
+	public final int nrQueries;
+	/**
+	 * The number of plan indices per query (including the index for independent processing).
+	 */
+	public final int nrPlanIndices;
+	/**
+	 * Stores for each row (i.e., query and plan) the position of its first entry; row
+	 * query * nrPlanIndices + plan ends where the next row starts.
+	 */
+	final int[] rowStart;
+	/**
+	 * Stores for each entry the query of the interacting plan.
+	 */
+	final int[] otherQuery;
+	/**
+	 * Stores for each entry the index of the interacting plan.
+	 */
+	final int[] otherPlan;
+	/**
+	 * Stores for each entry the cost delta if both plans are selected.
+	 */
+	final double[] costDelta;
+	/**
+	 * Builds the index over all interactions between plans of different queries.
+	 *
+	 * @param problem	a MQO problem whose interactions are indexed
+	 */
+	public InteractionIndex(ChimeraMqoProblem problem) {
+		this.nrQueries = problem.nrQueries;
+		this.nrPlanIndices = problem.nrPlansPerQuery + 1;
+		int nrRows = nrQueries * nrPlanIndices;
+		// Count entries per row - each interaction is stored for both plans
+		InteractionMap interactions = problem.interactions;
+		int capacity = interactions.capacity();
+		int[] rowSizes = new int[nrRows];
+		for (int slot=0; slot<capacity; ++slot) {
+			if (interactions.isUsed(slot)) {
+				long key = interactions.keyAt(slot);
+				int query1 = InteractionMap.query1(key);
+				int query2 = InteractionMap.query2(key);
+				if (query1 != query2) {
+					++rowSizes[row(query1, InteractionMap.plan1(key))];
+					++rowSizes[row(query2, InteractionMap.plan2(key))];
+				}
+			}
+		}
+		// Calculate row boundaries
+		rowStart = new int[nrRows + 1];
+		for (int row=0; row<nrRows; ++row) {
+			rowStart[row + 1] = rowStart[row] + rowSizes[row];
+		}
+		int nrEntries = rowStart[nrRows];
+		otherQuery = new int[nrEntries];
+		otherPlan = new int[nrEntries];
+		costDelta = new double[nrEntries];
+		// Fill in entries
+		int[] nextPosition = new int[nrRows];
+		System.arraycopy(rowStart, 0, nextPosition, 0, nrRows);
+		for (int slot=0; slot<capacity; ++slot) {
+			if (interactions.isUsed(slot)) {
+				long key = interactions.keyAt(slot);
+				double delta = interactions.valueAt(slot);
+				int query1 = InteractionMap.query1(key);
+				int plan1 = InteractionMap.plan1(key);
+				int query2 = InteractionMap.query2(key);
+				int plan2 = InteractionMap.plan2(key);
+				if (query1 != query2) {
+					int position1 = nextPosition[row(query1, plan1)]++;
+					otherQuery[position1] = query2;
+					otherPlan[position1] = plan2;
+					costDelta[position1] = delta;
+					int position2 = nextPosition[row(query2, plan2)]++;
+					otherQuery[position2] = query1;
+					otherPlan[position2] = plan1;
+					costDelta[position2] = delta;
+				}
+			}
+		}
+	}
+	/**
+	 * Returns the row index associated with the given query and plan.
+	 *
+	 * @param query		query index
+	 * @param plan		plan index
+	 * @return			row index in the adjacency structure
+	 */
+	int row(int query, int plan) {
+		return query * nrPlanIndices + plan;
+	}
+	/**
+	 * Returns the accumulated cost delta of interactions between the given plan
+	 * and the plans currently selected for the other queries.
+	 *
+	 * @param query				query index
+	 * @param plan				plan index for that query
+	 * @param planSelections	selected plan for each query (the entry of the given query is ignored)
+	 * @return					sum of cost deltas over interactions with selected plans
+	 */
+	public double interactionCost(int query, int plan, int[] planSelections) {
+		return interactionCost(query, plan, planSelections, 0);
+	}
+	/**
+	 * Returns the accumulated cost delta of interactions between the given plan and the
+	 * plans selected for the other queries, reading plan selections from a larger array
+	 * (e.g., containing selections for a whole population).
+	 *
+	 * @param query				query index
+	 * @param plan				plan index for that query
+	 * @param planSelections	array containing the selected plan for each query starting at the offset
+	 * @param offset			index of the entry for the first query
+	 * @return					sum of cost deltas over interactions with selected plans
+	 */
+	public double interactionCost(int query, int plan, int[] planSelections, int offset) {
+		int row = row(query, plan);
+		int end = rowStart[row + 1];
+		double cost = 0;
+		for (int position=rowStart[row]; position<end; ++position) {
+			if (planSelections[offset + otherQuery[position]] == otherPlan[position]) {
+				cost += costDelta[position];
+			}
+		}
+		return cost;
+	}
+	/**
+	 * Adds the cost deltas of all interactions with the given plan, scaled by a factor, to the
+	 * entries of the interacting plans in a table that contains one entry per query and plan
+	 * index at position query * nrPlanIndices + plan. This allows to maintain the cost share
+	 * of each possible plan selection in time linear in the number of interactions of a query
+	 * when that query changes its selected plan.
+	 *
+	 * @param query		query index
+	 * @param plan		plan index for that query
+	 * @param factor	scaling factor for cost deltas (e.g., -1 when deselecting the plan)
+	 * @param costTable	table with one entry per query and plan index, updated in place
+	 */
+	public void addInteractionCosts(int query, int plan, double factor, double[] costTable) {
+		int row = row(query, plan);
+		int end = rowStart[row + 1];
+		for (int position=rowStart[row]; position<end; ++position) {
+			costTable[row(otherQuery[position], otherPlan[position])] += factor * costDelta[position];
+		}
+	}
+	/**
+	 * Returns the accumulated cost delta of all interactions between the selected plans.
+	 *
+	 * @param planSelections	selected plan for each query
+	 * @return					sum of cost deltas over interactions between selected plans
+	 */
+	public double totalInteractionCost(int[] planSelections) {
+		double cost = 0;
+		for (int query=0; query<nrQueries; ++query) {
+			int row = row(query, planSelections[query]);
+			int end = rowStart[row + 1];
+			for (int position=rowStart[row]; position<end; ++position) {
+				// Count each interaction only once
+				int other = otherQuery[position];
+				if (other > query && planSelections[other] == otherPlan[position]) {
+					cost += costDelta[position];
+				}
+			}
+		}
+		return cost;
+	}
+}
@@ -0,0 +1,239 @@
+package mqo_chimera.testcases;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Hash map from plan pairs to cost deltas that works on primitive values. Each pair of
+ * query plans is packed into one long key (the query and plan indices of both plans, the
+ * plan with smaller query index first) and the map uses open addressing with linear probing
+ * so that neither lookups nor updates allocate objects.
+ *
+ * @author immanueltrummer
+ *
+ */
+public class InteractionMap implements Serializable {
+	/**
+	 * Used to verify the class version.
+	 */
+	private static final long serialVersionUID = 1L;
+	/**
+	 * Marks unused slots - can never be produced by packing valid indices.
+	 */
+	static final long EMPTY_KEY = -1L;
+	/**
+	 * Number of bits used to store a query index within a key.
+	 */
+	static final int QUERY_BITS = 24;
+	/**
+	 * Number of bits used to store a plan index within a key.
+	 */
+	static final int PLAN_BITS = 8;
+	/**
+	 * Number of slots reserved initially.
+	 */
+	static final int INITIAL_CAPACITY = 16;
+	/**
+	 * Stores the packed plan pair for each slot or EMPTY_KEY.
+	 */
+	long[] keys;
+	/**
+	 * Stores the cost delta for each slot.
+	 */
+	double[] values;
+	/**
+	 * The number of used slots.
+	 */
+	int size;
+
+	public InteractionMap() {
+		keys = new long[INITIAL_CAPACITY];
+		values = new double[INITIAL_CAPACITY];
+		Arrays.fill(keys, EMPTY_KEY);
+	}
+	/**
+	 * Packs two query plans into one key, independently of the order of the plans.
+	 *
+	 * @param query1	query of first plan
+	 * @param plan1		index of first plan
+	 * @param query2	query of second plan
+	 * @param plan2		index of second plan
+	 * @return			key representing the plan pair
+	 */
+	public static long key(int query1, int plan1, int query2, int plan2) {
+		assert(query1 >= 0 && query1 < (1 << QUERY_BITS) - 1);
+		assert(query2 >= 0 && query2 < (1 << QUERY_BITS) - 1);
+		assert(plan1 >= 0 && plan1 < (1 << PLAN_BITS));
+		assert(plan2 >= 0 && plan2 < (1 << PLAN_BITS));
+		long half1 = ((long)query1 << PLAN_BITS) | plan1;
+		long half2 = ((long)query2 << PLAN_BITS) | plan2;
+		long lowHalf = Math.min(half1, half2);
+		long highHalf = Math.max(half1, half2);
+		return (lowHalf << (QUERY_BITS + PLAN_BITS)) | highHalf;
+	}
+	/**
+	 * Extracts the query of the first plan (the one with smaller query index) from a key.
+	 *
+	 * @param key	packed plan pair
+	 * @return		query index
+	 */
+	public static int query1(long key) {
+		return (int)(key >>> (QUERY_BITS + 2 * PLAN_BITS));
+	}
+	/**
+	 * Extracts the index of the first plan from a key.
+	 *
+	 * @param key	packed plan pair
+	 * @return		plan index
+	 */
+	public static int plan1(long key) {
+		return (int)((key >>> (QUERY_BITS + PLAN_BITS)) & ((1 << PLAN_BITS) - 1));
+	}
+	/**
+	 * Extracts the query of the second plan from a key.
+	 *
+	 * @param key	packed plan pair
+	 * @return		query index
+	 */
+	public static int query2(long key) {
+		return (int)((key >>> PLAN_BITS) & ((1 << QUERY_BITS) - 1));
+	}
+	/**
+	 * Extracts the index of the second plan from a key.
+	 *
+	 * @param key	packed plan pair
+	 * @return		plan index
+	 */
+	public static int plan2(long key) {
+		return (int)(key & ((1 << PLAN_BITS) - 1));
+	}
+	/**
+	 * Returns the preferred slot for a key.
+	 *
+	 * @param key		packed plan pair
+	 * @param mask		number of slots minus one
+	 * @return			slot index
+	 */
+	static int hashSlot(long key, int mask) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int)(hash ^ (hash >>> 32)) & mask;
+	}
+	/**
+	 * Returns the slot containing the key or the empty slot where it would be inserted.
+	 *
+	 * @param key	packed plan pair
+	 * @return		slot index
+	 */
+	int findSlot(long key) {
+		int mask = keys.length - 1;
+		int slot = hashSlot(key, mask);
+		while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	/**
+	 * Adds the given cost delta to the value stored for the key, inserts the key
+	 * with that delta if it is not yet stored.
+	 *
+	 * @param key		packed plan pair
+	 * @param delta		value to add
+	 */
+	public void add(long key, double delta) {
+		int slot = findSlot(key);
+		if (keys[slot] == EMPTY_KEY) {
+			keys[slot] = key;
+			values[slot] = delta;
+			++size;
+			// Keep load factor below one half
+			if (2 * size > keys.length) {
+				resize(2 * keys.length);
+			}
+		} else {
+			values[slot] += delta;
+		}
+	}
+	/**
+	 * Returns the value stored for the key or zero if the key is not stored.
+	 *
+	 * @param key	packed plan pair
+	 * @return		accumulated cost delta
+	 */
+	public double get(long key) {
+		int slot = findSlot(key);
+		return keys[slot] == EMPTY_KEY ? 0 : values[slot];
+	}
+	/**
+	 * Checks whether a value was stored for the given key.
+	 *
+	 * @param key	packed plan pair
+	 * @return		true if the key is stored
+	 */
+	public boolean containsKey(long key) {
+		return keys[findSlot(key)] != EMPTY_KEY;
+	}
+	/**
+	 * Rehashes all entries into a table with the given number of slots.
+	 *
+	 * @param capacity	new number of slots (a power of two)
+	 */
+	void resize(int capacity) {
+		long[] oldKeys = keys;
+		double[] oldValues = values;
+		keys = new long[capacity];
+		values = new double[capacity];
+		Arrays.fill(keys, EMPTY_KEY);
+		for (int oldSlot=0; oldSlot<oldKeys.length; ++oldSlot) {
+			long key = oldKeys[oldSlot];
+			if (key != EMPTY_KEY) {
+				int slot = findSlot(key);
+				keys[slot] = key;
+				values[slot] = oldValues[oldSlot];
+			}
+		}
+	}
+	/**
+	 * Returns the number of stored plan pairs.
+	 *
+	 * @return	number of stored keys
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Returns the number of slots - entries are iterated by checking each slot
+	 * below that bound with isUsed.
+	 *
+	 * @return	number of slots
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+	/**
+	 * Checks whether the given slot contains an entry.
+	 *
+	 * @param slot	slot index
+	 * @return		true if an entry is stored in that slot
+	 */
+	public boolean isUsed(int slot) {
+		return keys[slot] != EMPTY_KEY;
+	}
+	/**
+	 * Returns the key stored in the given slot.
+	 *
+	 * @param slot	index of a used slot
+	 * @return		packed plan pair
+	 */
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+	/**
+	 * Returns the value stored in the given slot.
+	 *
+	 * @param slot	index of a used slot
+	 * @return		accumulated cost delta
+	 */
+	public double valueAt(int slot) {
+		return values[slot];
+	}
+}
@@ -0,0 +1,63 @@
+package mqo_chimera.testcases;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mqo_chimera.util.TestUtil;
+
+public class InteractionMapTest {
+
+	@Test
+	public void test() {
+		// Keys do not depend on the order of plans
+		{
+			assertEquals(InteractionMap.key(0, 1, 2, 3), InteractionMap.key(2, 3, 0, 1));
+			assertNotEquals(InteractionMap.key(0, 1, 2, 3), InteractionMap.key(0, 3, 2, 1));
+		}
+		// Keys can be decoded
+		{
+			long key = InteractionMap.key(1000, 7, 5, 2);
+			assertEquals(5, InteractionMap.query1(key));
+			assertEquals(2, InteractionMap.plan1(key));
+			assertEquals(1000, InteractionMap.query2(key));
+			assertEquals(7, InteractionMap.plan2(key));
+		}
+		// Cost deltas accumulate
+		{
+			InteractionMap map = new InteractionMap();
+			long key = InteractionMap.key(0, 1, 1, 0);
+			assertFalse(map.containsKey(key));
+			assertEquals(0, map.get(key), TestUtil.DOUBLE_TOLERANCE);
+			map.add(key, -1);
+			map.add(InteractionMap.key(1, 0, 0, 1), -2.5);
+			assertTrue(map.containsKey(key));
+			assertEquals(-3.5, map.get(key), TestUtil.DOUBLE_TOLERANCE);
+			assertEquals(1, map.size());
+		}
+		// Entries survive resizing
+		{
+			InteractionMap map = new InteractionMap();
+			for (int query=0; query<500; ++query) {
+				map.add(InteractionMap.key(query, 0, query + 1, 1), -query);
+			}
+			assertEquals(500, map.size());
+			assertTrue(map.capacity() >= 1000);
+			for (int query=0; query<500; ++query) {
+				assertEquals(-query, map.get(InteractionMap.key(query, 0, query + 1, 1)), TestUtil.DOUBLE_TOLERANCE);
+			}
+			// Iterating over slots visits each entry once
+			int nrUsed = 0;
+			double sum = 0;
+			for (int slot=0; slot<map.capacity(); ++slot) {
+				if (map.isUsed(slot)) {
+					++nrUsed;
+					sum += map.valueAt(slot);
+				}
+			}
+			assertEquals(500, nrUsed);
+			assertEquals(-499 * 500 / 2, sum, TestUtil.DOUBLE_TOLERANCE);
+		}
+	}
+
+}
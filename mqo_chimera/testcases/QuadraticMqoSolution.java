@@ -1,10 +1,8 @@
 package mqo_chimera.testcases;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
@@ -12,11 +10,17 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.TreeSet;
 
 import mqo_chimera.benchmark.BenchmarkConfiguration;
+import mqo_chimera.dwave.SampleConsumer;
+import mqo_chimera.dwave.SolutionStream;
 import mqo_chimera.mapping.ChimeraMqoMapping;
 import mqo_chimera.mapping.LogicalVariable;
+import mqo_chimera.mapping.MappingType;
+import mqo_chimera.mapping.SpinVector;
+import mqo_chimera.util.AmesUtil;
 
 /**
  * Represents the solution to a MQO problem that was reformulated as QUBO/ISING problem.
@@ -57,11 +61,28 @@ public class QuadraticMqoSolution extends MqoSolution implements Serializable {
 	public final boolean consistentPlanAssignments;
 	
 	public QuadraticMqoSolution(ChimeraMqoMapping mapping, boolean[] qubitValues) {
-		super(mapping.problem, extractPlanSelections(mapping, qubitValues));
+		this(mapping, qubitValues, ChainBreakResolution.FIRST_QUBIT, null);
+	}
+	/**
+	 * Creates a solution whose plan variable values are derived from qubit values
+	 * by the given chain break resolution strategy.
+	 * 
+	 * @param mapping		a mapping from MQO problem variables onto the qubit matrix
+	 * @param qubitValues	assigned Boolean value for each qubit
+	 * @param resolution	how to resolve chains whose qubits have different values
+	 * @param random		random generator (only used for weighted random resolution)
+	 */
+	public QuadraticMqoSolution(ChimeraMqoMapping mapping, boolean[] qubitValues, 
+			ChainBreakResolution resolution, SplittableRandom random) {
+		this(mapping, qubitValues, resolvePlanVarValues(mapping, 
+				SpinVector.fromBooleans(qubitValues), resolution, random));
+	}
+	private QuadraticMqoSolution(ChimeraMqoMapping mapping, boolean[] qubitValues, boolean[][] planVarValues) {
+		super(mapping.problem, planSelections(planVarValues));
 		this.mapping = mapping;
 		this.qubitValues = qubitValues;
 		this.objectiveValue = mapping.getEnergy(qubitValues);
-		this.planVarValues = extractPlanVarValues(mapping, qubitValues);
+		this.planVarValues = planVarValues;
 		this.consistenQubitAssignments = consistentQubitAssignments(mapping, qubitValues);
 		this.consistentPlanAssignments = consistentPlanSelections(mapping, planVarValues);
 	}
@@ -73,49 +94,255 @@ public class QuadraticMqoSolution extends MqoSolution implements Serializable {
 	 * @return				Boolean array indicating for each query and plan whether it is selected
 	 */
 	public static boolean[][] extractPlanVarValues(ChimeraMqoMapping mapping, boolean[] qubitValues) {
+		return resolvePlanVarValues(mapping, SpinVector.fromBooleans(qubitValues), 
+				ChainBreakResolution.FIRST_QUBIT, null);
+	}
+	/**
+	 * Extracts the index of the selected plan for each query from the binary plan
+	 * selection variables.
+	 * 
+	 * @param mapping		a mapping from MQO problem variables onto the qubit matrix
+	 * @param qubitValues	assigned Boolean value for each qubit
+	 * @return				an integer array indicating for each query the index of the selected plan
+	 */
+	public static int[] extractPlanSelections(ChimeraMqoMapping mapping, boolean[] qubitValues) {
+		return extractPlanSelections(mapping, SpinVector.fromBooleans(qubitValues));
+	}
+	/**
+	 * Extracts the index of the selected plan for each query from a packed vector
+	 * of qubit values.
+	 * 
+	 * @param mapping		a mapping from MQO problem variables onto the qubit matrix
+	 * @param qubitValues	packed vector of qubit values
+	 * @return				an integer array indicating for each query the index of the selected plan
+	 */
+	public static int[] extractPlanSelections(ChimeraMqoMapping mapping, SpinVector qubitValues) {
+		return extractPlanSelections(mapping, qubitValues, ChainBreakResolution.FIRST_QUBIT, null);
+	}
+	/**
+	 * Selects for each query the first plan whose variable is set (or the first plan
+	 * if no variable is set), such that each plan variable assignment yields a plan
+	 * selection.
+	 * 
+	 * @param planVarValues	indicates for each query and plan whether it was selected
+	 * @return				an integer array indicating for each query the index of the selected plan
+	 */
+	static int[] planSelections(boolean[][] planVarValues) {
+		int nrQueries = planVarValues.length;
+		int[] planSelections = new int[nrQueries];
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<planVarValues[query].length; ++plan) {
+				if (planVarValues[query][plan]) {
+					planSelections[query] = plan;
+					break;
+				}
+			}
+		}
+		return planSelections;
+	}
+	/**
+	 * Extracts the index of the selected plan for each sample in a batch of packed qubit
+	 * value vectors, resolving broken chains with the given strategy.
+	 * 
+	 * @param mapping		a mapping from MQO problem variables onto the qubit matrix
+	 * @param samples		packed vectors of qubit values
+	 * @param resolution	how to resolve chains whose qubits have different values
+	 * @param random		random generator (only used for weighted random resolution)
+	 * @return				for each sample and query the index of the selected plan
+	 */
+	public static int[][] extractPlanSelections(ChimeraMqoMapping mapping, SpinVector[] samples, 
+			ChainBreakResolution resolution, SplittableRandom random) {
+		int nrSamples = samples.length;
+		int[][] planSelections = new int[nrSamples][];
+		for (int sampleCtr=0; sampleCtr<nrSamples; ++sampleCtr) {
+			planSelections[sampleCtr] = extractPlanSelections(
+					mapping, samples[sampleCtr], resolution, random);
+		}
+		return planSelections;
+	}
+	/**
+	 * Extracts the index of the selected plan for each query from a packed vector of
+	 * qubit values, resolving broken chains with the given strategy.
+	 * 
+	 * @param mapping		a mapping from MQO problem variables onto the qubit matrix
+	 * @param qubitValues	packed vector of qubit values
+	 * @param resolution	how to resolve chains whose qubits have different values
+	 * @param random		random generator (only used for weighted random resolution)
+	 * @return				an integer array indicating for each query the index of the selected plan
+	 */
+	public static int[] extractPlanSelections(ChimeraMqoMapping mapping, SpinVector qubitValues, 
+			ChainBreakResolution resolution, SplittableRandom random) {
+		return planSelections(resolvePlanVarValues(mapping, qubitValues, resolution, random));
+	}
+	/**
+	 * Derives values for logical plan variables from qubit values, resolving broken
+	 * chains with the given strategy.
+	 * 
+	 * @param mapping		a mapping from MQO problem variables onto the qubit matrix
+	 * @param qubitValues	packed vector of qubit values
+	 * @param resolution	how to resolve chains whose qubits have different values
+	 * @param random		random generator (only used for weighted random resolution)
+	 * @return				Boolean array indicating for each query and plan whether it is selected
+	 */
+	public static boolean[][] resolvePlanVarValues(ChimeraMqoMapping mapping, SpinVector qubitValues, 
+			ChainBreakResolution resolution, SplittableRandom random) {
 		// Extract required variables
 		ChimeraMqoProblem problem = mapping.problem;
 		int nrQueries = problem.nrQueries;
 		int nrPlans = problem.nrPlansPerQuery;
-		// Iterate over plan variables
+		// Resolve chains independently (majority vote is the starting point for minimizing energy)
+		ChainBreakResolution chainResolution = resolution == ChainBreakResolution.MINIMIZE_ENERGY ? 
+				ChainBreakResolution.MAJORITY_VOTE : resolution;
 		boolean[][] planVarValues = new boolean[nrQueries][nrPlans];
 		for (int query=0; query<nrQueries; ++query) {
 			for (int plan=0; plan<nrPlans; ++plan) {
 				LogicalVariable planVar = mapping.planVars[query][plan];
-				int qubit = planVar.getQubits().iterator().next();
-				boolean value = qubitValues[qubit];
-				planVarValues[query][plan] = value;
+				planVarValues[query][plan] = resolveChain(planVar, qubitValues, chainResolution, random);
 			}
 		}
+		if (resolution == ChainBreakResolution.MINIMIZE_ENERGY) {
+			minimizeChainEnergy(mapping, qubitValues, planVarValues);
+		}
 		return planVarValues;
 	}
 	/**
-	 * Extracts the index of the selected plan for each query from the binary plan
-	 * selection variables.
+	 * Derives the value of one logical variable from the values of its qubits.
+	 * 
+	 * @param planVar		a logical variable represented by a chain of qubits
+	 * @param qubitValues	packed vector of qubit values
+	 * @param resolution	how to resolve the chain if its qubits have different values
+	 * @param random		random generator (only used for weighted random resolution)
+	 * @return				value of the logical variable
+	 */
+	static boolean resolveChain(LogicalVariable planVar, SpinVector qubitValues, 
+			ChainBreakResolution resolution, SplittableRandom random) {
+		Set<Integer> qubits = planVar.getQubits();
+		boolean firstValue = qubitValues.get(qubits.iterator().next());
+		if (resolution == ChainBreakResolution.FIRST_QUBIT) {
+			return firstValue;
+		}
+		// Count qubits set to true
+		int nrQubits = qubits.size();
+		int nrTrue = 0;
+		for (int qubit : qubits) {
+			if (qubitValues.get(qubit)) {
+				++nrTrue;
+			}
+		}
+		// Chain is not broken
+		if (nrTrue == 0 || nrTrue == nrQubits) {
+			return nrTrue > 0;
+		}
+		if (resolution == ChainBreakResolution.WEIGHTED_RANDOM) {
+			return random.nextInt(nrQubits) < nrTrue;
+		} else {
+			return 2 * nrTrue == nrQubits ? firstValue : 2 * nrTrue > nrQubits;
+		}
+	}
+	/**
+	 * Resolves broken chains one after the other by the value that minimizes energy,
+	 * assuming that all qubits of other chains are set to the value of their variable.
 	 * 
 	 * @param mapping		a mapping from MQO problem variables onto the qubit matrix
-	 * @param qubitValues	assigned Boolean value for each qubit
-	 * @return				an integer array indicating for each query the index of the selected plan
+	 * @param qubitValues	packed vector of qubit values
+	 * @param planVarValues	values of plan variables after independent resolution, modified
 	 */
-	public static int[] extractPlanSelections(ChimeraMqoMapping mapping, boolean[] qubitValues) {
+	static void minimizeChainEnergy(ChimeraMqoMapping mapping, SpinVector qubitValues, 
+			boolean[][] planVarValues) {
 		// Extract required variables
 		ChimeraMqoProblem problem = mapping.problem;
 		int nrQueries = problem.nrQueries;
 		int nrPlans = problem.nrPlansPerQuery;
-		// Store the selected plan for each query
-		int[] planSelections = new int[nrQueries];
+		// Make all chains consistent with the current variable values
+		SpinVector chainValues = new SpinVector(qubitValues);
+		for (int query=0; query<nrQueries; ++query) {
+			for (int plan=0; plan<nrPlans; ++plan) {
+				for (int qubit : mapping.planVars[query][plan].getQubits()) {
+					chainValues.set(qubit, planVarValues[query][plan]);
+				}
+			}
+		}
+		// Select energy-minimizing value for each broken chain
 		for (int query=0; query<nrQueries; ++query) {
-			planSelections[query] = 0;
 			for (int plan=0; plan<nrPlans; ++plan) {
 				LogicalVariable planVar = mapping.planVars[query][plan];
-				int qubit = planVar.getQubits().iterator().next();
-				if (qubitValues[qubit]) {
-					planSelections[query] = plan;
-					break;
+				if (brokenChain(planVar, qubitValues)) {
+					boolean value = chainEnergyDelta(mapping, planVar, chainValues) < 0;
+					planVarValues[query][plan] = value;
+					for (int qubit : planVar.getQubits()) {
+						chainValues.set(qubit, value);
+					}
 				}
 			}
 		}
-		return planSelections;
+	}
+	/**
+	 * Calculates by how much energy changes if all qubits of a chain are set to true
+	 * instead of false, given the values of all other qubits.
+	 * 
+	 * @param mapping		a QUBO or Ising mapping
+	 * @param planVar		a logical variable represented by a chain of qubits
+	 * @param qubitValues	packed vector of qubit values (values of chain qubits are ignored)
+	 * @return				energy if the chain is set to true minus energy if set to false
+	 */
+	static double chainEnergyDelta(ChimeraMqoMapping mapping, LogicalVariable planVar, SpinVector qubitValues) {
+		Set<Integer> qubits = planVar.getQubits();
+		boolean qubo = mapping.mappingType == MappingType.QUBO;
+		double delta = 0;
+		for (int qubit : qubits) {
+			double field = mapping.getWeight(qubit);
+			for (int neighbor : AmesUtil.neighbors(qubit)) {
+				double weight = mapping.getConnectionWeight(qubit, neighbor);
+				if (qubits.contains(neighbor)) {
+					// Couplings within the chain are counted once for QUBO and cancel out for Ising
+					if (qubo && neighbor > qubit) {
+						field += weight;
+					}
+				} else if (qubo) {
+					field += qubitValues.get(neighbor) ? weight : 0;
+				} else {
+					field += qubitValues.get(neighbor) ? weight : -weight;
+				}
+			}
+			// Flipping a spin from -1 to +1 changes its contribution by twice its field
+			delta += qubo ? field : 2 * field;
+		}
+		return delta;
+	}
+	/**
+	 * Checks whether the qubits representing a logical variable have different values.
+	 * 
+	 * @param planVar		a logical variable represented by a chain of qubits
+	 * @param qubitValues	packed vector of qubit values
+	 * @return				true if the chain is broken
+	 */
+	static boolean brokenChain(LogicalVariable planVar, SpinVector qubitValues) {
+		Set<Integer> qubits = planVar.getQubits();
+		boolean firstValue = qubitValues.get(qubits.iterator().next());
+		for (int qubit : qubits) {
+			if (qubitValues.get(qubit) != firstValue) {
+				return true;
+			}
+		}
+		return false;
+	}
+	/**
+	 * Counts the logical plan variables whose qubits have different values.
+	 * 
+	 * @param mapping		a mapping from MQO problem variables onto the qubit matrix
+	 * @param qubitValues	packed vector of qubit values
+	 * @return				the number of broken chains
+	 */
+	public static int nrBrokenChains(ChimeraMqoMapping mapping, SpinVector qubitValues) {
+		int nrBroken = 0;
+		for (LogicalVariable[] queryVars : mapping.planVars) {
+			for (LogicalVariable planVar : queryVars) {
+				if (brokenChain(planVar, qubitValues)) {
+					++nrBroken;
+				}
+			}
+		}
+		return nrBroken;
 	}
 	/**
 	 * Checks if all qubits representing the same logical variable are assigned
@@ -232,16 +459,11 @@ public class QuadraticMqoSolution extends MqoSolution implements Serializable {
 	public static boolean[] qubitValuesTransformedBack(
 			boolean[] transformedQubitValues, boolean[] transformation) {
 		// Make sure that description of gauge transformation has the right dimensions
-		int nrSpins = transformedQubitValues.length;
-		assert(nrSpins == transformation.length);
-		// Will contain result of this function
-		boolean[] qubitValues = new boolean[nrSpins];
-		// Iterate over solution spins and inverse them depending on the transformation
-		for (int spin=0; spin<nrSpins; ++spin) {
-			qubitValues[spin] = transformation[spin] ? 
-					transformedQubitValues[spin] : !transformedQubitValues[spin];
-		}
-		return qubitValues;
+		assert(transformedQubitValues.length == transformation.length);
+		// Invert spins depending on the transformation
+		SpinVector qubitValues = SpinVector.fromBooleans(transformedQubitValues);
+		qubitValues.xor(SpinVector.gaugeMask(transformation));
+		return qubitValues.toBooleans();
 	}
 	/**
 	 * Reads multiple solutions to a gauge-transformed version of the original problem from a
@@ -253,48 +475,19 @@ public class QuadraticMqoSolution extends MqoSolution implements Serializable {
 	 * @return						a vector of quadratic solutions to the original problem
 	 */
 	public static QuadraticMqoSolution[] readTransformedTextSolutions(String solutionPath, 
-			ChimeraMqoMapping mapping, int transformationIndex) throws Exception {
-		// Dimension variables
-		int nrSamples = BenchmarkConfiguration.nrSamplesPerTransformation;
-		int nrQubits = 1152;
+			final ChimeraMqoMapping mapping, int transformationIndex) throws Exception {
 		// This will contain the result of this function call
-		QuadraticMqoSolution[] solutions = new QuadraticMqoSolution[nrSamples];
-		// This contains the qubit values read from file refering to a transformed problem formulation
-		boolean[][] allTransformedQubitValues = new boolean[nrSamples][nrQubits];
-		// Open solution file
-		FileReader fileReader = new FileReader(solutionPath);
-		BufferedReader bufferedReader = new BufferedReader(fileReader);
-		// Iterate over the number of samples per gauge transformation
-		for (int sampleCtr=0; sampleCtr<nrSamples; ++sampleCtr) {
-			// Skip introductory lines
-			bufferedReader.readLine();	// Line stating solution energy
-			bufferedReader.readLine();	// Line stating solution length
-			bufferedReader.readLine();	// Line stating number of occurrences
-			bufferedReader.readLine();	// header
-			// Read qubit values one after the other
-			for (int qubitIndex=0; qubitIndex<nrQubits; ++qubitIndex) {
-				// Read line representing assignment for one qubit
-				String line = bufferedReader.readLine();
-				// Values are separated by comma
-				String[] splits = line.split(",");
-				// Read values
-				Integer qubitIndexRead = Integer.parseInt(splits[0]);
-				Integer qubitValueRead = Integer.parseInt(splits[1]);
-				// Make sure that read qubit value corresponds to expected one
-				assert(qubitIndexRead.equals(qubitIndex));
-				// Transform integer value into Boolean value
-				allTransformedQubitValues[sampleCtr][qubitIndex] = qubitValueRead.equals(1) ? true : false;
+		final QuadraticMqoSolution[] solutions = 
+				new QuadraticMqoSolution[BenchmarkConfiguration.nrSamplesPerTransformation];
+		// Transform qubit values back while reading samples
+		final SpinVector gaugeMask = SpinVector.gaugeMask(mapping.gaugeTransformations[transformationIndex]);
+		new SolutionStream(solutionPath).forEachSample(solutions.length, new SampleConsumer() {
+			@Override
+			public void accept(int sampleIndex, SpinVector transformedQubitValues) {
+				boolean[] qubitValues = transformedQubitValues.xor(gaugeMask).toBooleans();
+				solutions[sampleIndex] = new QuadraticMqoSolution(mapping, qubitValues);
 			}
-		}
-		// Close solution file
-		bufferedReader.close();
-		// Transform qubit values back
-		for (int sampleCtr=0; sampleCtr<nrSamples; ++sampleCtr) {
-			boolean[] transformation = mapping.gaugeTransformations[transformationIndex];
-			boolean[] currentTransformedQubiValues = allTransformedQubitValues[sampleCtr];
-			boolean[] qubitValues = qubitValuesTransformedBack(currentTransformedQubiValues, transformation);
-			solutions[sampleCtr] = new QuadraticMqoSolution(mapping, qubitValues);
-		}
+		});
 		// Return solutions
 		return solutions;
 	}
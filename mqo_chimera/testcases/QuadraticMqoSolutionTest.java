@@ -0,0 +1,83 @@
+package mqo_chimera.testcases;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import mqo_chimera.embedding.MinorEmbedding;
+import mqo_chimera.mapping.ChimeraMqoMapping;
+import mqo_chimera.mapping.SpinVector;
+import mqo_chimera.util.AmesUtil;
+import mqo_chimera.util.TestUtil;
+
+import org.junit.Test;
+
+public class QuadraticMqoSolutionTest {
+
+	@Test
+	public void test() throws Exception {
+		AmesUtil.initAmes();
+		// One query with two plans - the first plan is represented by a chain of three qubits
+		ChimeraMqoProblem problem = new ChimeraMqoProblem(1, 2, false);
+		problem.planCost[0][0] = 1;
+		problem.planCost[0][1] = 2;
+		ChimeraMqoMapping mapping = ChimeraFactory.produceEmbeddedMapping(
+				problem, new MinorEmbedding(new int[][] {{0, 1, 4}, {5}}));
+		ChimeraMqoMapping isingMapping = mapping.toIsing();
+		int nrQubits = mapping.nrQubits;
+		SplittableRandom random = new SplittableRandom(0);
+		// Consistent chains are resolved in the same way by all strategies
+		{
+			SpinVector qubitValues = new SpinVector(nrQubits);
+			qubitValues.set(5, true);
+			assertEquals(0, QuadraticMqoSolution.nrBrokenChains(mapping, qubitValues));
+			for (ChainBreakResolution resolution : ChainBreakResolution.values()) {
+				boolean[][] planVarValues = QuadraticMqoSolution.resolvePlanVarValues(
+						mapping, qubitValues, resolution, random);
+				assertFalse(planVarValues[0][0]);
+				assertTrue(planVarValues[0][1]);
+			}
+		}
+		// Chain broken with majority of qubits set
+		{
+			SpinVector qubitValues = new SpinVector(nrQubits);
+			qubitValues.set(1, true);
+			qubitValues.set(4, true);
+			assertEquals(1, QuadraticMqoSolution.nrBrokenChains(mapping, qubitValues));
+			assertFalse(QuadraticMqoSolution.resolvePlanVarValues(mapping, qubitValues,
+					ChainBreakResolution.FIRST_QUBIT, random)[0][0]);
+			assertTrue(QuadraticMqoSolution.resolvePlanVarValues(mapping, qubitValues,
+					ChainBreakResolution.MAJORITY_VOTE, random)[0][0]);
+			// Weighted random resolution sets variable in about two thirds of all cases
+			int nrTrue = 0;
+			for (int trialCtr=0; trialCtr<300; ++trialCtr) {
+				if (QuadraticMqoSolution.resolvePlanVarValues(mapping, qubitValues,
+						ChainBreakResolution.WEIGHTED_RANDOM, random)[0][0]) {
+					++nrTrue;
+				}
+			}
+			assertTrue(nrTrue > 150 && nrTrue < 250);
+		}
+		// Chain broken with minority of qubits set - only minimizing energy selects a plan
+		{
+			SpinVector qubitValues = new SpinVector(nrQubits);
+			qubitValues.set(0, true);
+			assertFalse(QuadraticMqoSolution.resolvePlanVarValues(mapping, qubitValues,
+					ChainBreakResolution.MAJORITY_VOTE, random)[0][0]);
+			assertTrue(QuadraticMqoSolution.resolvePlanVarValues(mapping, qubitValues,
+					ChainBreakResolution.MINIMIZE_ENERGY, random)[0][0]);
+			assertTrue(QuadraticMqoSolution.resolvePlanVarValues(isingMapping, qubitValues,
+					ChainBreakResolution.MINIMIZE_ENERGY, random)[0][0]);
+			// Batch of samples and solution objects use the same resolution
+			int[][] planSelections = QuadraticMqoSolution.extractPlanSelections(mapping,
+					new SpinVector[] {qubitValues, qubitValues}, ChainBreakResolution.MINIMIZE_ENERGY, random);
+			assertArrayEquals(new int[] {0}, planSelections[0]);
+			assertArrayEquals(new int[] {0}, planSelections[1]);
+			QuadraticMqoSolution solution = new QuadraticMqoSolution(mapping,
+					qubitValues.toBooleans(), ChainBreakResolution.MINIMIZE_ENERGY, random);
+			assertFalse(solution.consistenQubitAssignments);
+			assertTrue(solution.consistentPlanAssignments);
+			assertEquals(1, solution.executionCost, TestUtil.DOUBLE_TOLERANCE);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package mqo_chimera.topology;
+
+/**
+ * Chimera topology C(rows, columns, shoreSize) as used by the D-Wave Two (C12, the machine at
+ * NASA Ames research) and the D-Wave 2000Q (C16). Unit cells form a grid and are numbered in
+ * row-major order, the qubits of each cell are numbered consecutively: first the qubits of
+ * the left shore, then the ones of the right shore.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public class ChimeraTopology extends EdgeListTopology {
+	/**
+	 * The number of rows of unit cells.
+	 */
+	public final int nrRows;
+	/**
+	 * The number of columns of unit cells.
+	 */
+	public final int nrColumns;
+	/**
+	 * The number of qubits per shore of a unit cell.
+	 */
+	public final int shoreSize;
+	/**
+	 * Reads working qubits and couplings of a Chimera graph from disc.
+	 * 
+	 * @param nrRows		the number of rows of unit cells
+	 * @param nrColumns		the number of columns of unit cells
+	 * @param shoreSize		the number of qubits per shore of a unit cell
+	 * @param qubitFile		path to file containing working qubits
+	 * @param couplingFile	path to file containing couplings
+	 * @throws Exception
+	 */
+	public ChimeraTopology(int nrRows, int nrColumns, int shoreSize, 
+			String qubitFile, String couplingFile) throws Exception {
+		super(2 * shoreSize * nrRows * nrColumns, qubitFile, couplingFile);
+		this.nrRows = nrRows;
+		this.nrColumns = nrColumns;
+		this.shoreSize = shoreSize;
+		// Unit cells are determined by the qubit numbering
+		int nrCells = nrRows * nrColumns;
+		cellRows = new int[nrCells];
+		cellColumns = new int[nrCells];
+		cellShores = new int[nrCells][2][shoreSize];
+		for (int cell=0; cell<nrCells; ++cell) {
+			cellRows[cell] = cell / nrColumns;
+			cellColumns[cell] = cell % nrColumns;
+			for (int shore=0; shore<2; ++shore) {
+				for (int shoreQubit=0; shoreQubit<shoreSize; ++shoreQubit) {
+					cellShores[cell][shore][shoreQubit] = (2 * cell + shore) * shoreSize + shoreQubit;
+				}
+			}
+		}
+	}
+	/**
+	 * Returns the unit cell containing the given qubit.
+	 * 
+	 * @param qubit	qubit index
+	 * @return		index of unit cell
+	 */
+	public int cellOf(int qubit) {
+		return qubit / (2 * shoreSize);
+	}
+	/**
+	 * Reads the topology of the D-Wave machine at NASA Ames research.
+	 * 
+	 * @return	C12 topology with the qubits and couplings available at Ames
+	 * @throws Exception
+	 */
+	public static ChimeraTopology ames() throws Exception {
+		return new ChimeraTopology(12, 12, 4, "AmesQubits.txt", "AmesCouplings.txt");
+	}
+	/**
+	 * Reads a C16 topology (as used by the D-Wave 2000Q) from disc.
+	 * 
+	 * @param qubitFile		path to file containing working qubits
+	 * @param couplingFile	path to file containing couplings
+	 * @return				C16 topology
+	 * @throws Exception
+	 */
+	public static ChimeraTopology c16(String qubitFile, String couplingFile) throws Exception {
+		return new ChimeraTopology(16, 16, 4, qubitFile, couplingFile);
+	}
+}
@@ -0,0 +1,86 @@
+package mqo_chimera.topology;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import org.junit.Test;
+
+public class ChimeraTopologyTest {
+	/**
+	 * Writes the given lines into a temporary file.
+	 *
+	 * @param lines		lines to write
+	 * @return			path to the temporary file
+	 * @throws Exception
+	 */
+	static String writeTempFile(String... lines) throws Exception {
+		File file = File.createTempFile("topology", null);
+		file.deleteOnExit();
+		PrintWriter writer = new PrintWriter(file);
+		for (String line : lines) {
+			writer.println(line);
+		}
+		writer.close();
+		return file.getPath();
+	}
+
+	@Test
+	public void test() throws Exception {
+		// One row with two unit cells of two qubits per shore - qubit 3 is broken
+		String qubitFile = writeTempFile("0", "1", "2", "4", "5", "6", "7");
+		String couplingFile = writeTempFile("0,2", "1,2", "0,1", "4,6", "4,7", "5,6", "5,7",
+				"2,6", "2,6");
+		ChimeraTopology topology = new ChimeraTopology(1, 2, 2, qubitFile, couplingFile);
+		// Qubits
+		{
+			assertEquals(8, topology.nrQubits());
+			assertTrue(topology.isWorking(0));
+			assertFalse(topology.isWorking(3));
+			assertFalse(topology.isWorking(-1));
+			assertFalse(topology.isWorking(8));
+		}
+		// Couplings
+		{
+			assertTrue(topology.connected(0, 2));
+			assertTrue(topology.connected(2, 0));
+			assertTrue(topology.connected(2, 6));
+			assertFalse(topology.connected(0, 3));
+			assertFalse(topology.connected(0, 8));
+			assertArrayEquals(new int[] {0, 1, 6}, topology.neighbors(2));
+			assertArrayEquals(new int[] {2, 4, 5}, topology.neighbors(6));
+			assertArrayEquals(new int[] {}, topology.neighbors(3));
+		}
+		// Unit cells
+		{
+			assertEquals(2, topology.nrCells());
+			assertArrayEquals(new int[] {0, 1}, topology.cellShore(0, 0));
+			assertArrayEquals(new int[] {2, 3}, topology.cellShore(0, 1));
+			assertArrayEquals(new int[] {4, 5}, topology.cellShore(1, 0));
+			assertEquals(0, topology.cellRow(1));
+			assertEquals(1, topology.cellColumn(1));
+			assertEquals(1, topology.cellOf(6));
+		}
+		// Unit cells read from file
+		{
+			String cellFile = writeTempFile("0,0,0,0,0", "1,0,0,0,1", "2,1,1,0,0", "4,1,1,0,1");
+			PegasusTopology pegasus = new PegasusTopology(2, writeTempFile("0", "1", "2", "4"),
+					writeTempFile("0,1", "2,4"), cellFile);
+			assertEquals(48, pegasus.nrQubits());
+			assertEquals(2, pegasus.nrCells());
+			assertArrayEquals(new int[] {0}, pegasus.cellShore(0, 0));
+			assertArrayEquals(new int[] {4}, pegasus.cellShore(1, 1));
+			assertEquals(1, pegasus.cellRow(1));
+			assertEquals(0, pegasus.cellColumn(1));
+		}
+		// Qubit indices out of range are rejected
+		{
+			try {
+				new ChimeraTopology(1, 1, 2, writeTempFile("4"), couplingFile);
+				fail();
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package mqo_chimera.topology;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Topology whose working qubits and couplings are read from files on disc. The qubit file
+ * contains one working qubit index per line, the coupling file one pair of comma-separated
+ * qubit indices per line (the format used for the description of the Ames machine).
+ * Subclasses define the unit cells, either by the qubit numbering or by reading a cell file.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public abstract class EdgeListTopology implements Topology {
+	/**
+	 * The number of (broken or working) qubits.
+	 */
+	final int nrQubits;
+	/**
+	 * Whether each qubit is working.
+	 */
+	final boolean[] working;
+	/**
+	 * Stores the neighbors of each qubit in ascending order.
+	 */
+	final int[][] neighborQubits;
+	/**
+	 * Contains bit (qubit1 * nrQubits + qubit2) for each connected pair of qubits,
+	 * in both orders, allowing to check for a coupling in constant time.
+	 */
+	final BitSet couplingBits;
+	/**
+	 * Row of each unit cell.
+	 */
+	int[] cellRows;
+	/**
+	 * Column of each unit cell.
+	 */
+	int[] cellColumns;
+	/**
+	 * Qubits of each unit cell, indexed by cell and shore.
+	 */
+	int[][][] cellShores;
+	/**
+	 * Reads working qubits and couplings from disc.
+	 * 
+	 * @param nrQubits		the number of (broken or working) qubits
+	 * @param qubitFile		path to file containing working qubits
+	 * @param couplingFile	path to file containing couplings
+	 * @throws Exception
+	 */
+	protected EdgeListTopology(int nrQubits, String qubitFile, String couplingFile) throws Exception {
+		this.nrQubits = nrQubits;
+		this.working = new boolean[nrQubits];
+		// Read working qubits
+		{
+			BufferedReader reader = new BufferedReader(new FileReader(qubitFile));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				working[checkQubit(Integer.parseInt(line.trim()))] = true;
+			}
+			reader.close();
+		}
+		// Read couplings, counting neighbors per qubit
+		int[] nrNeighbors = new int[nrQubits];
+		couplingBits = new BitSet(nrQubits * nrQubits);
+		{
+			BufferedReader reader = new BufferedReader(new FileReader(couplingFile));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] splits = line.split(",");
+				int qubit1 = checkQubit(Integer.parseInt(splits[0].trim()));
+				int qubit2 = checkQubit(Integer.parseInt(splits[1].trim()));
+				// Ignore duplicate couplings
+				if (!couplingBits.get(qubit1 * nrQubits + qubit2)) {
+					couplingBits.set(qubit1 * nrQubits + qubit2);
+					couplingBits.set(qubit2 * nrQubits + qubit1);
+					++nrNeighbors[qubit1];
+					++nrNeighbors[qubit2];
+				}
+			}
+			reader.close();
+		}
+		// Store neighbors in ascending order
+		neighborQubits = new int[nrQubits][];
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			neighborQubits[qubit] = new int[nrNeighbors[qubit]];
+		}
+		int[] nrInserted = new int[nrQubits];
+		for (int qubit1=0; qubit1<nrQubits; ++qubit1) {
+			int rowOffset = qubit1 * nrQubits;
+			for (int qubit2=couplingBits.nextSetBit(rowOffset); qubit2>=0 && 
+					qubit2<rowOffset + nrQubits; qubit2=couplingBits.nextSetBit(qubit2 + 1)) {
+				neighborQubits[qubit1][nrInserted[qubit1]++] = qubit2 - rowOffset;
+			}
+		}
+	}
+	/**
+	 * Verifies that a qubit index read from disc is in range.
+	 * 
+	 * @param qubit	qubit index
+	 * @return		the same qubit index
+	 */
+	int checkQubit(int qubit) {
+		if (qubit < 0 || qubit >= nrQubits) {
+			throw new IllegalArgumentException("Qubit index " + qubit + 
+					" out of range for topology with " + nrQubits + " qubits");
+		}
+		return qubit;
+	}
+	/**
+	 * Reads the unit cells from a file containing for each qubit assigned to a unit
+	 * cell one line of the form "qubit,cell,row,column,shore". Cells must be numbered
+	 * consecutively starting from zero.
+	 * 
+	 * @param cellFile	path to file describing unit cells
+	 * @throws Exception
+	 */
+	protected void readCells(String cellFile) throws Exception {
+		int[] qubitCells = new int[nrQubits];
+		int[] qubitShores = new int[nrQubits];
+		Arrays.fill(qubitCells, -1);
+		int nrCells = 0;
+		int[] rows = new int[nrQubits];
+		int[] columns = new int[nrQubits];
+		// Read cell, coordinates, and shore of each qubit
+		BufferedReader reader = new BufferedReader(new FileReader(cellFile));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] splits = line.split(",");
+			int qubit = checkQubit(Integer.parseInt(splits[0].trim()));
+			int cell = Integer.parseInt(splits[1].trim());
+			int shore = Integer.parseInt(splits[4].trim());
+			if (qubitCells[qubit] != -1 || cell < 0 || cell >= nrQubits || shore < 0 || shore > 1) {
+				reader.close();
+				throw new IllegalArgumentException("Invalid cell assignment: " + line);
+			}
+			qubitCells[qubit] = cell;
+			qubitShores[qubit] = shore;
+			rows[cell] = Integer.parseInt(splits[2].trim());
+			columns[cell] = Integer.parseInt(splits[3].trim());
+			nrCells = Math.max(nrCells, cell + 1);
+		}
+		reader.close();
+		// Group qubits by cell and shore
+		int[][] shoreSizes = new int[nrCells][2];
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (qubitCells[qubit] != -1) {
+				++shoreSizes[qubitCells[qubit]][qubitShores[qubit]];
+			}
+		}
+		cellRows = Arrays.copyOf(rows, nrCells);
+		cellColumns = Arrays.copyOf(columns, nrCells);
+		cellShores = new int[nrCells][2][];
+		for (int cell=0; cell<nrCells; ++cell) {
+			for (int shore=0; shore<2; ++shore) {
+				cellShores[cell][shore] = new int[shoreSizes[cell][shore]];
+			}
+		}
+		int[][] nrInserted = new int[nrCells][2];
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			int cell = qubitCells[qubit];
+			if (cell != -1) {
+				int shore = qubitShores[qubit];
+				cellShores[cell][shore][nrInserted[cell][shore]++] = qubit;
+			}
+		}
+	}
+	@Override
+	public int nrQubits() {
+		return nrQubits;
+	}
+	@Override
+	public boolean isWorking(int qubit) {
+		return qubit >= 0 && qubit < nrQubits && working[qubit];
+	}
+	@Override
+	public int[] neighbors(int qubit) {
+		if (qubit < 0 || qubit >= nrQubits) {
+			return new int[0];
+		}
+		return neighborQubits[qubit];
+	}
+	@Override
+	public boolean connected(int qubit1, int qubit2) {
+		if (qubit1 < 0 || qubit2 < 0 || qubit1 >= nrQubits || qubit2 >= nrQubits) {
+			return false;
+		}
+		return couplingBits.get(qubit1 * nrQubits + qubit2);
+	}
+	@Override
+	public int nrCells() {
+		return cellShores.length;
+	}
+	@Override
+	public int[] cellShore(int cell, int shore) {
+		return cellShores[cell][shore];
+	}
+	@Override
+	public int cellRow(int cell) {
+		return cellRows[cell];
+	}
+	@Override
+	public int cellColumn(int cell) {
+		return cellColumns[cell];
+	}
+}
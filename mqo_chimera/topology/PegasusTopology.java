@@ -0,0 +1,33 @@
+package mqo_chimera.topology;
+
+/**
+ * Pegasus topology P(size) as used by the D-Wave Advantage (P16). Qubits are numbered by
+ * the linear indices of dwave_networkx, the Pegasus graph does not imply unit cells via
+ * this numbering. Unit cells are therefore read from a cell file, e.g. listing for each
+ * qubit with nice coordinates (t, y, x, u, k) the cell (t * (size-1) + y) * (size-1) + x,
+ * row y, column x, and shore u. Each of those cells forms a complete bipartite graph
+ * between its two shores of four qubits.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public class PegasusTopology extends EdgeListTopology {
+	/**
+	 * The size parameter of the Pegasus graph.
+	 */
+	public final int size;
+	/**
+	 * Reads working qubits, couplings, and unit cells of a Pegasus graph from disc.
+	 * 
+	 * @param size			size parameter of the Pegasus graph (16 for the Advantage)
+	 * @param qubitFile		path to file containing working qubits
+	 * @param couplingFile	path to file containing couplings
+	 * @param cellFile		path to file assigning qubits to unit cells
+	 * @throws Exception
+	 */
+	public PegasusTopology(int size, String qubitFile, String couplingFile, String cellFile) throws Exception {
+		super(24 * size * (size - 1), qubitFile, couplingFile);
+		this.size = size;
+		readCells(cellFile);
+	}
+}
@@ -0,0 +1,71 @@
+package mqo_chimera.topology;
+
+/**
+ * Describes the qubit graph of a quantum annealer: the qubits, which of them are working,
+ * the couplings between working qubits, and a partition of qubits into unit cells. Each
+ * unit cell consists of two shores such that, on the ideal graph without broken qubits
+ * or couplings, each qubit of one shore is coupled to each qubit of the other shore.
+ * Unit cells are placed on a grid and have row and column coordinates.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public interface Topology {
+	/**
+	 * Returns the number of (broken or working) qubits.
+	 * 
+	 * @return	one more than the highest qubit index
+	 */
+	public int nrQubits();
+	/**
+	 * Checks whether the given qubit is available on the annealer.
+	 * 
+	 * @param qubit	qubit index
+	 * @return		true if the qubit is working
+	 */
+	public boolean isWorking(int qubit);
+	/**
+	 * Returns the qubits that are directly connected to the given qubit in ascending
+	 * order. The returned array is shared and must not be modified.
+	 * 
+	 * @param qubit	qubit index
+	 * @return		sorted indices of all connected qubits
+	 */
+	public int[] neighbors(int qubit);
+	/**
+	 * Checks whether there is a working coupling between the given qubits.
+	 * 
+	 * @param qubit1	index of first qubit
+	 * @param qubit2	index of second qubit
+	 * @return			true if the two qubits are connected
+	 */
+	public boolean connected(int qubit1, int qubit2);
+	/**
+	 * Returns the number of unit cells.
+	 * 
+	 * @return	number of unit cells
+	 */
+	public int nrCells();
+	/**
+	 * Returns the (broken or working) qubits forming one shore of a unit cell.
+	 * 
+	 * @param cell	index of the unit cell
+	 * @param shore	shore index (zero or one)
+	 * @return		qubits of that shore in ascending order
+	 */
+	public int[] cellShore(int cell, int shore);
+	/**
+	 * Returns the row of a unit cell on the grid of unit cells.
+	 * 
+	 * @param cell	index of the unit cell
+	 * @return		row coordinate
+	 */
+	public int cellRow(int cell);
+	/**
+	 * Returns the column of a unit cell on the grid of unit cells.
+	 * 
+	 * @param cell	index of the unit cell
+	 * @return		column coordinate
+	 */
+	public int cellColumn(int cell);
+}
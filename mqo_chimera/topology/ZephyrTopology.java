@@ -0,0 +1,38 @@
+package mqo_chimera.topology;
+
+/**
+ * Zephyr topology Z(size, tileSize) as used by the D-Wave Advantage2. Qubits are numbered
+ * by the linear indices of dwave_networkx. Unit cells are read from a cell file, grouping
+ * qubits into pairs of shores such that each qubit of one shore crosses, and is therefore
+ * coupled to, each qubit of the other shore.
+ * 
+ * @author immanueltrummer
+ *
+ */
+public class ZephyrTopology extends EdgeListTopology {
+	/**
+	 * The size parameter of the Zephyr graph.
+	 */
+	public final int size;
+	/**
+	 * The tile parameter of the Zephyr graph.
+	 */
+	public final int tileSize;
+	/**
+	 * Reads working qubits, couplings, and unit cells of a Zephyr graph from disc.
+	 * 
+	 * @param size			size parameter of the Zephyr graph
+	 * @param tileSize		tile parameter of the Zephyr graph
+	 * @param qubitFile		path to file containing working qubits
+	 * @param couplingFile	path to file containing couplings
+	 * @param cellFile		path to file assigning qubits to unit cells
+	 * @throws Exception
+	 */
+	public ZephyrTopology(int size, int tileSize, String qubitFile, 
+			String couplingFile, String cellFile) throws Exception {
+		super(4 * tileSize * size * (2 * size + 1), qubitFile, couplingFile);
+		this.size = size;
+		this.tileSize = tileSize;
+		readCells(cellFile);
+	}
+}
@@ -1,7 +1,5 @@
 package mqo_chimera.util;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -9,11 +7,15 @@ import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
+import mqo_chimera.embedding.EmbeddingCache;
 import mqo_chimera.mapping.LogicalVariable;
+import mqo_chimera.topology.ChimeraTopology;
+import mqo_chimera.topology.Topology;
 
 /**
  * Contains static utility functions concerning the qubit matrix of the D-Wave machine at NASA Ames research.
- * The machine properties must be read from disc before the utility functions can be used.
+ * The machine properties must be read from disc before the utility functions can be used. Other topologies
+ * (e.g., Pegasus or Zephyr graphs) can be used instead of the Ames machine by initializing with them.
  * 
  * @author immanueltrummer
  *
@@ -31,40 +33,59 @@ public class AmesUtil {
 	 * Highest qubit index available at NASA Ames.
 	 */
 	public static int highestQubitIndex = -1;
+	/**
+	 * The topology of the annealer for which test cases are generated (by default the
+	 * D-Wave machine at NASA Ames research).
+	 */
+	public static Topology topology;
+	/**
+	 * Fingerprint of the current topology, identifies cached variable assignments.
+	 */
+	public static String topologyFingerprint;
+	/**
+	 * The number of qubits of the Ames machine, used while no topology is loaded.
+	 */
+	static final int AMES_NR_QUBITS = 1152;
 	/**
 	 * Reads characteristics of the Ames machine from files on disc.
 	 * 
 	 * @throws Exception
 	 */
 	public static void initAmes() throws Exception {
-		// Read qubit indices from text file
+		init(ChimeraTopology.ames());
+	}
+	/**
+	 * Makes the given topology the target for generating and solving test cases.
+	 * 
+	 * @param newTopology	topology of the annealer
+	 */
+	public static void init(Topology newTopology) {
+		topology = newTopology;
+		int nrQubits = topology.nrQubits();
+		// Collect working qubits and couplings
 		amesQubits = new HashSet<Integer>();
-		{
-			FileReader fileReader = new FileReader("AmesQubits.txt");
-			BufferedReader bufferedReader = new BufferedReader(fileReader);
-			String line;
-			while ((line = bufferedReader.readLine()) != null) {
-				amesQubits.add(Integer.parseInt(line));
-			}
-			bufferedReader.close();
-		}
-		// Read couplings from text file
 		amesCouplings = new HashSet<Coupling>();
-		{
-			FileReader fileReader = new FileReader("AmesCouplings.txt");
-			BufferedReader bufferedReader = new BufferedReader(fileReader);
-			String line;
-			while ((line = bufferedReader.readLine()) != null) {
-				String[] splits = line.split(",");
-				int qubit1 = Integer.parseInt(splits[0]);
-				int qubit2 = Integer.parseInt(splits[1]);
-				Coupling coupling = new Coupling(qubit1, qubit2);
-				amesCouplings.add(coupling);
+		for (int qubit=0; qubit<nrQubits; ++qubit) {
+			if (topology.isWorking(qubit)) {
+				amesQubits.add(qubit);
+			}
+			for (int neighbor : topology.neighbors(qubit)) {
+				if (neighbor > qubit) {
+					amesCouplings.add(new Coupling(qubit, neighbor));
+				}
 			}
-			bufferedReader.close();
 		}
 		// Determine index of highest qubit
 		highestQubitIndex = Collections.max(amesQubits);
+		topologyFingerprint = EmbeddingCache.topologyFingerprint(topology);
+	}
+	/**
+	 * Returns the number of (broken or working) qubits of the current topology.
+	 * 
+	 * @return	number of qubits
+	 */
+	public static int nrQubits() {
+		return topology == null ? AMES_NR_QUBITS : topology.nrQubits();
 	}
 	/**
 	 * Checks whether the D-Wave graph of the NASA Ames D-Wave machine contains
@@ -76,13 +97,17 @@ public class AmesUtil {
 	 */
 	public static boolean amesConnected(int qubit1, int qubit2) {
 		assert(qubit1 != qubit2);
-		for (Coupling coupling : amesCouplings) {
-			if ((coupling.qubit1 == qubit1 && coupling.qubit2 == qubit2) ||
-					(coupling.qubit1 == qubit2 && coupling.qubit2 == qubit1)) {
-				return true;
-			}
-		}
-		return false;
+		return topology.connected(qubit1, qubit2);
+	}
+	/**
+	 * Returns the qubits that are directly connected to the given qubit in ascending
+	 * order. The returned array is shared and must not be modified.
+	 * 
+	 * @param qubit	index of a qubit
+	 * @return		sorted indices of all connected qubits
+	 */
+	public static int[] neighbors(int qubit) {
+		return topology.neighbors(qubit);
 	}
 	/**
 	 * Checks whether the D-Wave graph of the NASA Ames D-Wave machine contains
@@ -113,23 +138,25 @@ public class AmesUtil {
 	public static int connectedQubit(int qubit, Set<Integer> otherQubits) {
 		// Make sure that the single qubit and the set of qubits are disjunct
 		assert(!otherQubits.contains(qubit));
-		// Iterate over other qubits and return first connected qubit
-		for (int otherQubit : otherQubits) {
-			if (amesConnected(qubit, otherQubit)) {
+		// Iterate over neighbors and return first one among the other qubits
+		for (int otherQubit : neighbors(qubit)) {
+			if (otherQubits.contains(otherQubit)) {
 				return otherQubit;
 			}
 		}
 		assert(false);
 		return -1;
 	}
-	
+	/**
+	 * Returns the set of qubits that are directly connected to the given qubit.
+	 * 
+	 * @param qubit	a qubit index
+	 * @return		set of connected qubit indices
+	 */
 	public static Set<Integer> connectedQubits(int qubit) {
 		Set<Integer> connectedQubits = new TreeSet<Integer>();
-		for (Coupling coupling : amesCouplings) {
-			if (coupling.qubit1 == qubit || coupling.qubit2 == qubit) {
-				int otherQubit = coupling.qubit1 == qubit ? coupling.qubit2 : coupling.qubit1;
-				connectedQubits.add(otherQubit);
-			}
+		for (int otherQubit : neighbors(qubit)) {
+			connectedQubits.add(otherQubit);
 		}
 		return connectedQubits;
 	}
@@ -143,11 +170,9 @@ public class AmesUtil {
 	 */
 	public static int nrNeighbors(int qubit, Set<Integer> qubitSet) {
 		int nrNeighbors = 0;
-		for (int neighborCandidate : qubitSet) {
-			if (neighborCandidate != qubit) {
-				if (amesConnected(qubit, neighborCandidate)) {
-					++nrNeighbors;
-				}
+		for (int neighbor : neighbors(qubit)) {
+			if (qubitSet.contains(neighbor)) {
+				++nrNeighbors;
 			}
 		}
 		return nrNeighbors;
@@ -194,6 +219,34 @@ public class AmesUtil {
 		}
 		return result;
 	}
+	/**
+	 * Returns the couplings of a spanning tree over a connected set of qubits, obtained
+	 * by breadth-first search from the first qubit in the set. Unlike a qubit chain,
+	 * the set of qubits may form an arbitrary tree (as produced by minor embedding).
+	 * 
+	 * @param qubitSet	a set of connected qubits
+	 * @return			couplings between qubits in the set forming a spanning tree
+	 */
+	public static List<Coupling> spanningTree(Set<Integer> qubitSet) {
+		assert(qubitSet.size()>0);
+		List<Coupling> result = new LinkedList<Coupling>();
+		Set<Integer> reachedQubits = new HashSet<Integer>();
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		int root = qubitSet.iterator().next();
+		reachedQubits.add(root);
+		queue.add(root);
+		while (!queue.isEmpty()) {
+			int curQubit = queue.poll();
+			for (int neighbor : neighbors(curQubit)) {
+				if (qubitSet.contains(neighbor) && reachedQubits.add(neighbor)) {
+					result.add(new Coupling(curQubit, neighbor));
+					queue.add(neighbor);
+				}
+			}
+		}
+		assert(reachedQubits.size() == qubitSet.size()) : "Qubits not connected: " + qubitSet;
+		return result;
+	}
 	/**
 	 * Asserts that there is no overlap between the two sets of qubits.
 	 * 
@@ -60,6 +60,32 @@ public class AmesUtilTest {
 			assertFalse(AmesUtil.amesConnected(1002, 1009));
 			assertFalse(AmesUtil.amesConnected(1, 24));
 		}
+		// Neighbor index
+		{
+			int[] neighbors = AmesUtil.neighbors(996);
+			Set<Integer> connectedQubits = AmesUtil.connectedQubits(996);
+			assertEquals(connectedQubits.size(), neighbors.length);
+			for (int i=0; i<neighbors.length; ++i) {
+				assertTrue(connectedQubits.contains(neighbors[i]));
+				assertTrue(AmesUtil.amesConnected(996, neighbors[i]));
+				assertTrue(AmesUtil.amesConnected(neighbors[i], 996));
+				if (i > 0) {
+					assertTrue(neighbors[i-1] < neighbors[i]);
+				}
+			}
+			assertTrue(connectedQubits.contains(988));
+			assertTrue(connectedQubits.contains(992));
+			assertTrue(connectedQubits.contains(993));
+			assertFalse(connectedQubits.contains(996));
+			// Every coupling appears in the neighbor arrays of both qubits
+			for (Coupling coupling : AmesUtil.amesCouplings) {
+				assertTrue(Arrays.binarySearch(AmesUtil.neighbors(coupling.qubit1), coupling.qubit2) >= 0);
+				assertTrue(Arrays.binarySearch(AmesUtil.neighbors(coupling.qubit2), coupling.qubit1) >= 0);
+			}
+			// Qubits outside the index have no neighbors
+			assertEquals(0, AmesUtil.neighbors(100000).length);
+			assertFalse(AmesUtil.amesConnected(0, 100000));
+		}
 		// Connections between variables
 		{
 			// Variables represented by one qubit